@@ -0,0 +1,317 @@
+//! Gaussian blur at a cost that does not grow with sigma. Small sigmas use
+//! the exact separable kernel from `resample`, whose cost grows with the
+//! radius. From `BOX_MIN_SIGMA` up, the Gaussian is approximated by
+//! `PASSES` repeated extended box filters (Gwosdek et al., "Theoretical
+//! Foundations of Gaussian Convolution by Extended Box Filtering"). Each pass
+//! is a running sum, so a pixel costs the same at sigma 3 as at sigma 30.
+//!
+//! Edges are handled like the exact kernel, which is cut off at the border and
+//! renormalized: the image is filtered as if surrounded by zeros and divided
+//! by the filtered border mask. Each line is filtered on its own, so results
+//! do not depend on how lines are split across threads.
+
+use crate::parallel;
+use crate::resample;
+use image::RgbaImage;
+
+/// Smallest sigma blurred with box passes; below it the exact kernel is
+/// about as cheap and noticeably more accurate
+const BOX_MIN_SIGMA: f32 = 3.0;
+
+/// Box passes per axis. Four keep the result within a few levels of the
+/// exact kernel on hard edges.
+const PASSES: usize = 4;
+
+/// Lines filtered together. Gathering a batch reads this many pixels side by
+/// side, so the column pass walks the image row by row rather than jumping a
+/// whole row for every pixel.
+const BATCH: usize = 16;
+
+/// Gaussian blur, exact for small sigma and approximated in constant time
+/// per pixel for large sigma
+pub fn blur(image: &RgbaImage, sigma: f32) -> RgbaImage {
+    let sigma = if sigma <= 0.0 { 1.0 } else { sigma };
+    if sigma < BOX_MIN_SIGMA {
+        resample::gaussian(image, sigma)
+    } else {
+        box_blur(image, sigma)
+    }
+}
+
+/// A box of `2 * radius + 1` pixels plus one pixel weighted `edge` at each
+/// end, sized so `PASSES` of them have the variance of the Gaussian
+struct ExtendedBox {
+    radius: usize,
+    edge: f64,
+    /// Reciprocal of the total weight
+    scale: f64,
+}
+
+impl ExtendedBox {
+    fn new(sigma: f32) -> ExtendedBox {
+        let variance = (sigma as f64).powi(2) / PASSES as f64;
+        let radius = (0.5 * (12.0 * variance + 1.0).sqrt() - 0.5).floor().max(0.0);
+        let edge = (2.0 * radius + 1.0) * (radius * (radius + 1.0) - 3.0 * variance)
+            / (6.0 * (variance - (radius + 1.0).powi(2)));
+        ExtendedBox {
+            radius: radius as usize,
+            edge,
+            scale: (2.0 * radius + 1.0 + 2.0 * edge).recip(),
+        }
+    }
+
+    /// How far the passes spread a pixel
+    fn reach(&self) -> usize {
+        PASSES * (self.radius + 1)
+    }
+
+    /// One pass over a line of RGBA values, with zeros beyond both ends
+    fn pass(&self, src: &[f32], dst: &mut [f32]) {
+        let len = src.len() / 4;
+        let at = |i: isize, c: usize| {
+            if i >= 0 && (i as usize) < len {
+                src[i as usize * 4 + c] as f64
+            } else {
+                0.0
+            }
+        };
+        let r = self.radius as isize;
+        let mut sums = [0f64; 4];
+        for i in 0..=r {
+            for (c, sum) in sums.iter_mut().enumerate() {
+                *sum += at(i, c);
+            }
+        }
+        for (y, px) in dst.chunks_exact_mut(4).enumerate() {
+            let y = y as isize;
+            for (c, sum) in sums.iter_mut().enumerate() {
+                let outer = at(y - r - 1, c) + at(y + r + 1, c);
+                px[c] = ((*sum + self.edge * outer) * self.scale) as f32;
+                *sum += at(y + r + 1, c) - at(y - r, c);
+            }
+        }
+    }
+
+    /// Run every pass over `line`, padded by `reach()` pixels of zeros on each
+    /// side, using `scratch` of the same length
+    fn filter(&self, line: &mut Vec<f32>, scratch: &mut Vec<f32>) {
+        for _ in 0..PASSES {
+            self.pass(line, scratch);
+            std::mem::swap(line, scratch);
+        }
+    }
+
+    /// Total weight that lands inside a line of `len` pixels at each position,
+    /// for renormalizing where the filter hangs over the ends
+    fn coverage(&self, len: usize) -> Vec<f32> {
+        let reach = self.reach();
+        let padded = len + 2 * reach;
+        let mut line = vec![0f32; padded * 4];
+        line[reach * 4..(reach + len) * 4].fill(1.0);
+        let mut scratch = vec![0f32; padded * 4];
+        self.filter(&mut line, &mut scratch);
+        line[reach * 4..(reach + len) * 4]
+            .chunks_exact(4)
+            .map(|px| px[0])
+            .collect()
+    }
+
+    /// Filter `count` lines of `len` pixels, handing each to `out` with its
+    /// index once renormalized. `slice_at(i)` gives pixel `i` of every line
+    /// side by side, so lines can be gathered from columns as well as rows.
+    /// Lines are gathered `BATCH` at a time, reading that many pixels in a row
+    /// from each slice, and only a batch of padded lines is allocated however
+    /// many lines there are.
+    fn filter_lines<'a, S, F, O>(
+        &self,
+        len: usize,
+        count: usize,
+        coverage: &[f32],
+        slice_at: F,
+        mut out: O,
+    ) where
+        S: Copy + Into<f32> + 'a,
+        F: Fn(usize) -> &'a [S],
+        O: FnMut(usize, &[f32]),
+    {
+        let reach = self.reach();
+        let padded = len + 2 * reach;
+        let mut batch: Vec<Vec<f32>> = (0..BATCH.min(count))
+            .map(|_| vec![0f32; padded * 4])
+            .collect();
+        let mut scratch = vec![0f32; padded * 4];
+        for first in (0..count).step_by(BATCH) {
+            let lines = &mut batch[..BATCH.min(count - first)];
+            for line in lines.iter_mut() {
+                // The passes spread values into the padding; it has to be zero
+                // again for the next batch
+                line[..reach * 4].fill(0.0);
+                line[(reach + len) * 4..].fill(0.0);
+            }
+            for i in 0..len {
+                let pixels = &slice_at(i)[first * 4..(first + lines.len()) * 4];
+                let start = (reach + i) * 4;
+                for (line, px) in lines.iter_mut().zip(pixels.chunks_exact(4)) {
+                    for c in 0..4 {
+                        line[start + c] = px[c].into();
+                    }
+                }
+            }
+            for (j, line) in lines.iter_mut().enumerate() {
+                self.filter(line, &mut scratch);
+                let inside = &mut line[reach * 4..(reach + len) * 4];
+                for (px, &weight) in inside.chunks_exact_mut(4).zip(coverage) {
+                    for v in px {
+                        *v /= weight;
+                    }
+                }
+                out(first + j, inside);
+            }
+        }
+    }
+}
+
+/// Blur with box passes: columns first into a transposed buffer, so each
+/// column becomes a contiguous line, then rows from that buffer back into
+/// place. Besides that buffer, which the exact kernel needs as well, each
+/// worker only holds the batch of lines it is filtering.
+fn box_blur(image: &RgbaImage, sigma: f32) -> RgbaImage {
+    let filter = ExtendedBox::new(sigma);
+    let (width, height) = (image.width() as usize, image.height() as usize);
+    let src: &[u8] = image.as_raw();
+
+    // Vertical passes: line x of `columns` is column x of the image
+    let column_coverage = filter.coverage(height);
+    let mut columns = vec![0f32; width * height * 4];
+    parallel::for_each_chunk_weighted(&mut columns, height * 4, PASSES, |first, chunk| {
+        let count = chunk.len() / (height * 4);
+        filter.filter_lines(
+            height,
+            count,
+            &column_coverage,
+            |y| &src[(y * width + first) * 4..(y * width + first + count) * 4],
+            |j, line| chunk[j * height * 4..(j + 1) * height * 4].copy_from_slice(line),
+        );
+    });
+
+    // Horizontal passes back to 8 bits
+    let row_coverage = filter.coverage(width);
+    let mut dst = vec![0u8; width * height * 4];
+    parallel::for_each_chunk_weighted(&mut dst, width * 4, PASSES, |first, chunk| {
+        let count = chunk.len() / (width * 4);
+        filter.filter_lines(
+            width,
+            count,
+            &row_coverage,
+            |x| &columns[(x * height + first) * 4..(x * height + first + count) * 4],
+            |j, line| {
+                for (out, &v) in chunk[j * width * 4..(j + 1) * width * 4].iter_mut().zip(line) {
+                    *out = v.clamp(0.0, 255.0).round() as u8;
+                }
+            },
+        );
+    });
+
+    RgbaImage::from_raw(image.width(), image.height(), dst).expect("buffer matches dimensions")
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use std::time::Instant;
+
+    /// Squares of black and white, the hardest case for an approximation
+    fn blocks(width: u32, height: u32) -> RgbaImage {
+        RgbaImage::from_fn(width, height, |x, y| {
+            let v = if (x / 9 + y / 13) % 2 == 0 { 0 } else { 255 };
+            image::Rgba([v, 255 - v, v / 2, 255])
+        })
+    }
+
+    fn noise(width: u32, height: u32) -> RgbaImage {
+        let data = (0..width * height * 4)
+            .map(|i| ((i * 7 + i / 3) ^ (i / 97)) as u8)
+            .collect();
+        RgbaImage::from_raw(width, height, data).unwrap()
+    }
+
+    #[test]
+    fn box_blur_stays_close_to_exact_kernel() {
+        for source in [blocks(70, 50), noise(61, 37)] {
+            for sigma in [BOX_MIN_SIGMA, 4.5, 7.5, 10.0] {
+                let expected = resample::gaussian(&source, sigma);
+                let actual = box_blur(&source, sigma);
+                let differences: Vec<u8> = expected
+                    .iter()
+                    .zip(actual.iter())
+                    .map(|(a, b)| a.abs_diff(*b))
+                    .collect();
+                let max = differences.iter().max().copied().unwrap_or(0);
+                let mean = differences.iter().map(|&d| d as f64).sum::<f64>()
+                    / differences.len() as f64;
+                assert!(max <= 6, "sigma {sigma}: max difference {max}");
+                assert!(mean <= 2.0, "sigma {sigma}: mean difference {mean}");
+            }
+        }
+    }
+
+    #[test]
+    fn box_blur_keeps_flat_areas_flat() {
+        // Renormalizing at the border leaves no dark fringe
+        let source = RgbaImage::from_pixel(33, 20, image::Rgba([200, 100, 50, 255]));
+        let blurred = box_blur(&source, 8.0);
+        assert!(blurred.pixels().all(|px| px.0 == [200, 100, 50, 255]));
+
+        // Images smaller than the filter are fine too
+        let tiny = RgbaImage::from_pixel(1, 2, image::Rgba([10, 20, 30, 40]));
+        assert_eq!(box_blur(&tiny, 10.0), tiny);
+    }
+
+    #[test]
+    fn lines_filtered_in_turn_stay_apart() {
+        // A bright line, then black ones through the same buffers; anything
+        // left in the padding would show at the ends of the later ones
+        let filter = ExtendedBox::new(6.0);
+        let coverage = filter.coverage(20);
+        let mut pixels = vec![0u8; (BATCH + 1) * 4];
+        pixels[..4].fill(255);
+        let mut lines = Vec::new();
+        filter.filter_lines(
+            20,
+            BATCH + 1,
+            &coverage,
+            |_| &pixels[..],
+            |j, line| lines.push((j, line.to_vec())),
+        );
+        assert_eq!(lines.len(), BATCH + 1);
+        assert!(lines.iter().enumerate().all(|(i, (j, _))| i == *j));
+        assert!(lines[0].1.iter().all(|&v| (v - 255.0).abs() < 0.01));
+        assert!(lines[1..].iter().all(|(_, line)| line.iter().all(|&v| v == 0.0)));
+    }
+
+    #[test]
+    fn small_sigma_uses_exact_kernel() {
+        let source = noise(40, 30);
+        assert_eq!(blur(&source, 1.5), resample::gaussian(&source, 1.5));
+        assert_eq!(blur(&source, 0.0), resample::gaussian(&source, 1.0));
+    }
+
+    /// Exact kernel against box passes, run with
+    /// `cargo test --release -- --ignored --nocapture bench_blur`
+    #[test]
+    #[ignore]
+    fn bench_blur() {
+        let source = noise(4000, 3000);
+        for sigma in [3.0f32, 6.0, 10.0] {
+            let start = Instant::now();
+            resample::gaussian(&source, sigma);
+            let exact = start.elapsed();
+
+            let start = Instant::now();
+            box_blur(&source, sigma);
+            let boxes = start.elapsed();
+
+            println!("sigma {sigma}: exact {exact:?}, box passes {boxes:?}");
+        }
+    }
+}
@@ -0,0 +1,74 @@
+//! In-place kernels that mutate an RGBA8 buffer directly, without building a
+//! `DynamicImage` or allocating an output buffer. Large buffers are split
+//! across the worker pool.
+
+use crate::parallel;
+
+/// Mirror every row left to right
+pub fn flip_horizontal(pixels: &mut [u8], width: usize) {
+    let stride = width * 4;
+    parallel::for_each_chunk(pixels, stride, |_, rows| {
+        for row in rows.chunks_exact_mut(stride) {
+            reverse_pixels(row);
+        }
+    });
+}
+
+/// Mirror the rows top to bottom
+pub fn flip_vertical(pixels: &mut [u8], width: usize, height: usize) {
+    parallel::for_each_row_pair(
+        pixels,
+        width * 4,
+        height,
+        |top, bottom| top.swap_with_slice(bottom),
+        |_| {},
+    );
+}
+
+/// Rotate by 180 degrees, which is reversing the pixel order: each row swaps
+/// with its mirror row and both are reversed
+pub fn rotate_180(pixels: &mut [u8], width: usize, height: usize) {
+    parallel::for_each_row_pair(
+        pixels,
+        width * 4,
+        height,
+        |top, bottom| {
+            top.swap_with_slice(bottom);
+            reverse_pixels(top);
+            reverse_pixels(bottom);
+        },
+        reverse_pixels,
+    );
+}
+
+/// Invert the color channels, leaving alpha untouched
+pub fn invert(pixels: &mut [u8]) {
+    parallel::for_each_chunk(pixels, 4, |_, chunk| {
+        for px in chunk.chunks_exact_mut(4) {
+            px[0] = 255 - px[0];
+            px[1] = 255 - px[1];
+            px[2] = 255 - px[2];
+        }
+    });
+}
+
+/// Add `value` to the color channels, clamped to 0..=255, leaving alpha
+/// untouched
+pub fn brighten(pixels: &mut [u8], value: i32) {
+    parallel::for_each_chunk(pixels, 4, |_, chunk| {
+        for px in chunk.chunks_exact_mut(4) {
+            px[0] = (px[0] as i32 + value).clamp(0, 255) as u8;
+            px[1] = (px[1] as i32 + value).clamp(0, 255) as u8;
+            px[2] = (px[2] as i32 + value).clamp(0, 255) as u8;
+        }
+    });
+}
+
+/// Reverse the order of the RGBA pixels in a buffer. Reversing all bytes also
+/// reverses the channels, which the second pass puts back.
+fn reverse_pixels(pixels: &mut [u8]) {
+    pixels.reverse();
+    for px in pixels.chunks_exact_mut(4) {
+        px.reverse();
+    }
+}
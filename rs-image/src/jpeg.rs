@@ -0,0 +1,339 @@
+//! Lossless reorientation of JPEG files. Rather than decoding the image,
+//! turning the pixels and encoding it again, the EXIF orientation tag is
+//! rewritten, so the compressed data is copied byte for byte and nothing is
+//! lost however often a photo is turned. The cost is reading and writing the
+//! file.
+//!
+//! The tag is changed in place when IFD0 has one. Otherwise a copy of IFD0
+//! with the tag added is appended to the EXIF data and the header pointed at
+//! it, which leaves every offset into the existing data valid. A file
+//! without EXIF data gets a minimal segment holding only the tag.
+
+use crate::pipeline::Orientation;
+
+const MARKER: u8 = 0xFF;
+const SOI: u8 = 0xD8;
+const EOI: u8 = 0xD9;
+const SOS: u8 = 0xDA;
+const APP0: u8 = 0xE0;
+const APP1: u8 = 0xE1;
+pub const EXIF_HEADER: &[u8] = b"Exif\0\0";
+const ORIENTATION_TAG: u16 = 0x0112;
+const SHORT: u16 = 3;
+const ENTRY_SIZE: usize = 12;
+
+/// The file with `turn` applied after the orientation it already has, or
+/// None if it is not a JPEG or its EXIF data is malformed
+pub fn reorient(data: &[u8], turn: Orientation) -> Option<Vec<u8>> {
+    if data.len() < 4 || data[0] != MARKER || data[1] != SOI {
+        return None;
+    }
+
+    // Segments before the image data; APP0 (JFIF) must stay first
+    let mut insert_at = 2;
+    let mut pos = 2;
+    loop {
+        if *data.get(pos)? != MARKER {
+            return None;
+        }
+        let mut marker_pos = pos + 1;
+        while *data.get(marker_pos)? == MARKER {
+            marker_pos += 1;
+        }
+        let marker = data[marker_pos];
+        if marker == SOS || marker == EOI {
+            break;
+        }
+        let length = u16::from_be_bytes([*data.get(marker_pos + 1)?, *data.get(marker_pos + 2)?]) as usize;
+        let end = marker_pos + 1 + length;
+        if length < 2 || end > data.len() {
+            return None;
+        }
+        let payload = &data[marker_pos + 3..end];
+        if marker == APP1 && payload.starts_with(EXIF_HEADER) {
+            let tiff = Tiff::new(&payload[EXIF_HEADER.len()..])?.reorient(turn)?;
+            return splice(data, pos, end, &tiff);
+        }
+        if marker == APP0 && pos == insert_at {
+            insert_at = end;
+        }
+        pos = end;
+    }
+
+    if turn.is_identity() {
+        return Some(data.to_vec());
+    }
+    splice(data, insert_at, insert_at, &Tiff::minimal(turn))
+}
+
+/// The orientation in EXIF data, given the TIFF structure that follows
+/// `EXIF_HEADER`; None if it has no valid orientation tag
+pub fn exif_orientation(data: &[u8]) -> Option<Orientation> {
+    Tiff::new(data)?.orientation()
+}
+
+/// Replace `data[start..end]` with an APP1 segment holding `tiff`
+fn splice(data: &[u8], start: usize, end: usize, tiff: &[u8]) -> Option<Vec<u8>> {
+    let length = u16::try_from(2 + EXIF_HEADER.len() + tiff.len()).ok()?;
+    let mut out = Vec::with_capacity(data.len() + tiff.len() + 10);
+    out.extend_from_slice(&data[..start]);
+    out.extend_from_slice(&[MARKER, APP1]);
+    out.extend_from_slice(&length.to_be_bytes());
+    out.extend_from_slice(EXIF_HEADER);
+    out.extend_from_slice(tiff);
+    out.extend_from_slice(&data[end..]);
+    Some(out)
+}
+
+/// The TIFF structure inside an EXIF segment, in either byte order
+struct Tiff<'a> {
+    data: &'a [u8],
+    big_endian: bool,
+}
+
+impl<'a> Tiff<'a> {
+    fn new(data: &'a [u8]) -> Option<Tiff<'a>> {
+        let big_endian = match data.get(..2)? {
+            b"MM" => true,
+            b"II" => false,
+            _ => return None,
+        };
+        let tiff = Tiff { data, big_endian };
+        (tiff.u16_at(2)? == 42).then_some(tiff)
+    }
+
+    /// TIFF data holding only IFD0 with the orientation tag
+    fn minimal(orientation: Orientation) -> Vec<u8> {
+        let mut out = b"MM\0\x2a\0\0\0\x08".to_vec();
+        out.extend_from_slice(&1u16.to_be_bytes());
+        out.extend_from_slice(&ORIENTATION_TAG.to_be_bytes());
+        out.extend_from_slice(&SHORT.to_be_bytes());
+        out.extend_from_slice(&1u32.to_be_bytes());
+        out.extend_from_slice(&orientation.to_exif().to_be_bytes());
+        out.extend_from_slice(&[0, 0]);
+        out.extend_from_slice(&0u32.to_be_bytes());
+        out
+    }
+
+    fn u16_at(&self, pos: usize) -> Option<u16> {
+        let bytes = [*self.data.get(pos)?, *self.data.get(pos + 1)?];
+        Some(if self.big_endian {
+            u16::from_be_bytes(bytes)
+        } else {
+            u16::from_le_bytes(bytes)
+        })
+    }
+
+    fn u32_at(&self, pos: usize) -> Option<u32> {
+        let bytes: [u8; 4] = self.data.get(pos..pos + 4)?.try_into().ok()?;
+        Some(if self.big_endian {
+            u32::from_be_bytes(bytes)
+        } else {
+            u32::from_le_bytes(bytes)
+        })
+    }
+
+    fn put_u16(&self, out: &mut Vec<u8>, value: u16) {
+        out.extend_from_slice(&if self.big_endian {
+            value.to_be_bytes()
+        } else {
+            value.to_le_bytes()
+        });
+    }
+
+    fn put_u32(&self, out: &mut Vec<u8>, value: u32) {
+        out.extend_from_slice(&if self.big_endian {
+            value.to_be_bytes()
+        } else {
+            value.to_le_bytes()
+        });
+    }
+
+    /// An orientation entry for `orientation`: a single SHORT stored in the
+    /// value field
+    fn orientation_entry(&self, orientation: Orientation) -> Vec<u8> {
+        let mut entry = Vec::with_capacity(ENTRY_SIZE);
+        self.put_u16(&mut entry, ORIENTATION_TAG);
+        self.put_u16(&mut entry, SHORT);
+        self.put_u32(&mut entry, 1);
+        self.put_u16(&mut entry, orientation.to_exif());
+        entry.extend_from_slice(&[0, 0]);
+        entry
+    }
+
+    /// The orientation tag in IFD0, if there is one
+    fn orientation(&self) -> Option<Orientation> {
+        let ifd = self.u32_at(4)? as usize;
+        let count = self.u16_at(ifd)? as usize;
+        (0..count)
+            .map(|i| ifd + 2 + i * ENTRY_SIZE)
+            .find(|&entry| self.u16_at(entry) == Some(ORIENTATION_TAG))
+            .filter(|&entry| self.u16_at(entry + 2) == Some(SHORT))
+            .and_then(|entry| Orientation::from_exif(self.u16_at(entry + 8)?))
+    }
+
+    /// The TIFF data with its orientation followed by `turn`
+    fn reorient(&self, turn: Orientation) -> Option<Vec<u8>> {
+        let ifd = self.u32_at(4)? as usize;
+        let count = self.u16_at(ifd)? as usize;
+        let entries = ifd + 2;
+        let next_ifd = self.u32_at(entries + count * ENTRY_SIZE)?;
+
+        let mut insert_before = count;
+        for i in 0..count {
+            let entry = entries + i * ENTRY_SIZE;
+            let tag = self.u16_at(entry)?;
+            if tag == ORIENTATION_TAG {
+                let current = match self.u16_at(entry + 2)? {
+                    SHORT => Orientation::from_exif(self.u16_at(entry + 8)?),
+                    _ => None,
+                };
+                let orientation = current.unwrap_or(Orientation::IDENTITY).then(turn);
+                let mut out = self.data.to_vec();
+                out[entry..entry + ENTRY_SIZE].copy_from_slice(&self.orientation_entry(orientation));
+                return Some(out);
+            }
+            if tag > ORIENTATION_TAG && insert_before == count {
+                insert_before = i;
+            }
+        }
+
+        // No tag yet: append IFD0 again with it added, entries kept in tag
+        // order, and point the header at the copy
+        let mut out = self.data.to_vec();
+        if out.len() % 2 == 1 {
+            // IFDs start on a word boundary
+            out.push(0);
+        }
+        let new_ifd = u32::try_from(out.len()).ok()?;
+        self.put_u16(&mut out, u16::try_from(count + 1).ok()?);
+        let old_entries = self.data.get(entries..entries + count * ENTRY_SIZE)?;
+        out.extend_from_slice(&old_entries[..insert_before * ENTRY_SIZE]);
+        out.extend_from_slice(&self.orientation_entry(turn));
+        out.extend_from_slice(&old_entries[insert_before * ENTRY_SIZE..]);
+        self.put_u32(&mut out, next_ifd);
+
+        let mut header = Vec::with_capacity(4);
+        self.put_u32(&mut header, new_ifd);
+        out[4..8].copy_from_slice(&header);
+        Some(out)
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    /// A tiny baseline JPEG body: just the markers the scanner looks at
+    fn jpeg(segments: &[&[u8]]) -> Vec<u8> {
+        let mut data = vec![MARKER, SOI];
+        for segment in segments {
+            data.extend_from_slice(segment);
+        }
+        data.extend_from_slice(&[MARKER, SOS, 0, 2, 1, 2, 3, MARKER, EOI]);
+        data
+    }
+
+    fn jfif() -> Vec<u8> {
+        let mut segment = vec![MARKER, APP0, 0, 16];
+        segment.extend_from_slice(b"JFIF\0\x01\x01\0\0\x01\0\x01\0\0");
+        segment
+    }
+
+    /// The orientation a file reports, as the decoder reads it
+    fn orientation_of(data: &[u8]) -> Option<u16> {
+        let start = data.windows(EXIF_HEADER.len()).position(|w| w == EXIF_HEADER)? + EXIF_HEADER.len();
+        let tiff = Tiff::new(&data[start..])?;
+        let ifd = tiff.u32_at(4)? as usize;
+        let count = tiff.u16_at(ifd)? as usize;
+        let mut previous = 0;
+        for i in 0..count {
+            let entry = ifd + 2 + i * ENTRY_SIZE;
+            let tag = tiff.u16_at(entry)?;
+            assert!(tag > previous, "entries out of order");
+            previous = tag;
+            if tag == ORIENTATION_TAG {
+                return tiff.u16_at(entry + 8);
+            }
+        }
+        None
+    }
+
+    /// Image data after the headers, which must come through untouched
+    fn scan(data: &[u8]) -> &[u8] {
+        let start = data.windows(2).position(|w| w == [MARKER, SOS]).unwrap();
+        &data[start..]
+    }
+
+    fn exif_segment(tiff: &[u8]) -> Vec<u8> {
+        splice(&[], 0, 0, tiff).unwrap()
+    }
+
+    #[test]
+    fn adds_exif_after_jfif() {
+        let source = jpeg(&[&jfif()]);
+        let turned = reorient(&source, Orientation::new(1, false)).unwrap();
+        assert_eq!(orientation_of(&turned), Some(6));
+        assert_eq!(&turned[2..20], &jfif()[..]);
+        assert_eq!(scan(&turned), scan(&source));
+
+        let back = reorient(&turned, Orientation::new(3, false)).unwrap();
+        assert_eq!(orientation_of(&back), Some(1));
+        assert_eq!(reorient(&source, Orientation::IDENTITY).unwrap(), source);
+    }
+
+    #[test]
+    fn rewrites_existing_tag_in_either_byte_order() {
+        for tiff in [Tiff::minimal(Orientation::new(1, false)), {
+            // The same IFD in little-endian order
+            let mut le = b"II\x2a\0\x08\0\0\0\x01\0\x12\x01\x03\0\x01\0\0\0\x06\0\0\0".to_vec();
+            le.extend_from_slice(&[0, 0, 0, 0]);
+            le
+        }] {
+            let source = jpeg(&[&exif_segment(&tiff)]);
+            assert_eq!(orientation_of(&source), Some(6));
+            // A quarter turn more is upside down, then a mirror
+            let turned = reorient(&source, Orientation::new(1, false)).unwrap();
+            assert_eq!(orientation_of(&turned), Some(3));
+            let flipped = reorient(&turned, Orientation::new(0, true)).unwrap();
+            assert_eq!(orientation_of(&flipped), Some(4));
+            assert_eq!(flipped.len(), source.len());
+            assert_eq!(scan(&flipped), scan(&source));
+        }
+    }
+
+    #[test]
+    fn appends_tag_to_exif_without_one() {
+        // IFD0 with a tag before and one after orientation, a value stored out
+        // of line, and a next-IFD pointer that must survive
+        let mut tiff = b"MM\0\x2a\0\0\0\x08\0\x02".to_vec();
+        tiff.extend_from_slice(&[0x01, 0x0F, 0, 2, 0, 0, 0, 6, 0, 0, 0, 38]); // Make -> offset 38
+        tiff.extend_from_slice(&[0x01, 0x31, 0, 2, 0, 0, 0, 2, b'X', 0, 0, 0]); // Software inline
+        tiff.extend_from_slice(&[0, 0, 0, 44]); // next IFD
+        tiff.extend_from_slice(b"Maker\0");
+        tiff.extend_from_slice(&[0, 0]); // empty IFD1
+        tiff.extend_from_slice(&[0, 0, 0, 0]);
+        let source = jpeg(&[&exif_segment(&tiff)]);
+        assert_eq!(orientation_of(&source), None);
+
+        let turned = reorient(&source, Orientation::new(2, false)).unwrap();
+        assert_eq!(orientation_of(&turned), Some(3));
+        assert_eq!(scan(&turned), scan(&source));
+
+        let start = turned.windows(EXIF_HEADER.len()).position(|w| w == EXIF_HEADER).unwrap() + 6;
+        let new = Tiff::new(&turned[start..]).unwrap();
+        let ifd = new.u32_at(4).unwrap() as usize;
+        assert_eq!(new.u16_at(ifd), Some(3));
+        // Out-of-line data is still where the copied entry points
+        assert_eq!(&turned[start + 38..start + 44], b"Maker\0");
+        assert_eq!(new.u32_at(ifd + 2 + 3 * ENTRY_SIZE), Some(44));
+    }
+
+    #[test]
+    fn rejects_other_files() {
+        assert!(reorient(b"\x89PNG\r\n\x1a\n", Orientation::new(1, false)).is_none());
+        assert!(reorient(&[MARKER, SOI, MARKER, APP1, 0, 40], Orientation::new(1, false)).is_none());
+        let broken_exif = jpeg(&[&[MARKER, APP1, 0, 12, b'E', b'x', b'i', b'f', 0, 0, b'X', b'X', 0, 42]]);
+        assert!(reorient(&broken_exif, Orientation::new(1, false)).is_none());
+    }
+}
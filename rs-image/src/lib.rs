@@ -1,8 +1,22 @@
-use image::{DynamicImage, ImageBuffer, ImageReader};
+use image::imageops::FilterType;
+use image::{DynamicImage, ImageDecoder, ImageReader, RgbaImage};
 use std::ffi::{c_char, CStr};
 use std::ptr;
 use std::slice;
 
+mod blur;
+mod inplace;
+mod jpeg;
+mod parallel;
+mod pipeline;
+mod point;
+mod probe;
+mod resample;
+mod save;
+
+use pipeline::{Orientation, PipelineOp};
+use point::{PointOp, PointProgram};
+
 /// Represents an image handle that can be passed across FFI boundary
 #[repr(C)]
 pub struct ImageHandle {
@@ -23,6 +37,7 @@ pub enum ImageResult {
     ErrorSaveFailed = 4,
     ErrorAllocation = 5,
     ErrorUnsupportedFormat = 6,
+    ErrorInvalidArgument = 7,
 }
 
 /// Load image from file path
@@ -39,15 +54,84 @@ pub unsafe extern "C" fn image_load(path: *const c_char) -> *mut ImageHandle {
         Err(_) => return ptr::null_mut(),
     };
 
-    let img = match ImageReader::open(path_str) {
-        Ok(reader) => match reader.decode() {
-            Ok(img) => img,
-            Err(_) => return ptr::null_mut(),
-        },
+    let (img, orientation) = match decode(path_str) {
+        Some(decoded) => decoded,
+        None => return ptr::null_mut(),
+    };
+
+    // into_rgba8 reuses the decoded buffer when it already is RGBA8
+    into_handle(orientation.apply(img.into_rgba8()))
+}
+
+/// Load an image scaled down to fit within `max_width` x `max_height`,
+/// keeping the aspect ratio; images that already fit load at full size. If
+/// `source_size` is not null, the full size is written to it as width, height.
+/// Returns null on error
+#[no_mangle]
+pub unsafe extern "C" fn image_load_scaled(
+    path: *const c_char,
+    max_width: u32,
+    max_height: u32,
+    source_size: *mut u32,
+) -> *mut ImageHandle {
+    if path.is_null() || max_width == 0 || max_height == 0 {
+        return ptr::null_mut();
+    }
+
+    let c_str = CStr::from_ptr(path);
+    let path_str = match c_str.to_str() {
+        Ok(s) => s,
         Err(_) => return ptr::null_mut(),
     };
 
-    create_image_handle(img)
+    let (img, orientation) = match decode(path_str) {
+        Some(decoded) => decoded,
+        None => return ptr::null_mut(),
+    };
+
+    // Sizes are as displayed; the image is turned after it has been reduced
+    let (width, height) = if orientation.swaps_axes() {
+        (img.height(), img.width())
+    } else {
+        (img.width(), img.height())
+    };
+    if !source_size.is_null() {
+        *source_size = width;
+        *source_size.add(1) = height;
+    }
+
+    let (box_width, box_height) = if orientation.swaps_axes() {
+        (max_height, max_width)
+    } else {
+        (max_width, max_height)
+    };
+    into_handle(orientation.apply(downscale_to_fit(img, box_width, box_height)))
+}
+
+/// Read an image file's header without decoding it. On success `info`
+/// receives five values: width and height as displayed, colour type, format
+/// and frame count; the codes are listed in probe.rs.
+#[no_mangle]
+pub unsafe extern "C" fn image_probe(path: *const c_char, info: *mut u32) -> ImageResult {
+    if path.is_null() {
+        return ImageResult::ErrorInvalidPath;
+    }
+    if info.is_null() {
+        return ImageResult::ErrorInvalidArgument;
+    }
+    let path_str = match CStr::from_ptr(path).to_str() {
+        Ok(s) => s,
+        Err(_) => return ImageResult::ErrorInvalidPath,
+    };
+
+    match probe::probe(std::path::Path::new(path_str)) {
+        Ok(probed) => {
+            let values = [probed.width, probed.height, probed.color_type, probed.format, probed.frames];
+            ptr::copy_nonoverlapping(values.as_ptr(), info, values.len());
+            ImageResult::Success
+        }
+        Err(error) => error,
+    }
 }
 
 /// Create image from raw RGBA data
@@ -62,23 +146,176 @@ pub unsafe extern "C" fn image_from_rgba(
         return ptr::null_mut();
     }
 
-    let data_len = (width * height * 4) as usize;
+    let data_len = width as usize * height as usize * 4;
     let data_slice = slice::from_raw_parts(data, data_len);
-    
-    let buffer = match ImageBuffer::from_raw(width, height, data_slice.to_vec()) {
-        Some(buf) => buf,
+
+    // The single copy into Rust-owned memory; the buffer is then handed over as is
+    match RgbaImage::from_raw(width, height, data_slice.to_vec()) {
+        Some(buffer) => into_handle(buffer),
+        None => ptr::null_mut(),
+    }
+}
+
+/// Create a zero-filled RGBA image the caller writes pixels into via
+/// `image_get_data`, avoiding an intermediate staging copy
+/// Returns null on error
+#[no_mangle]
+pub unsafe extern "C" fn image_create(width: u32, height: u32) -> *mut ImageHandle {
+    if width == 0 || height == 0 {
+        return ptr::null_mut();
+    }
+
+    let data_len = match (width as usize)
+        .checked_mul(height as usize)
+        .and_then(|n| n.checked_mul(4))
+    {
+        Some(len) => len,
+        None => return ptr::null_mut(),
+    };
+
+    match RgbaImage::from_raw(width, height, vec![0u8; data_len]) {
+        Some(buffer) => into_handle(buffer),
+        None => ptr::null_mut(),
+    }
+}
+
+/// Create an independent copy of an image
+/// Returns null on error
+#[no_mangle]
+pub unsafe extern "C" fn image_clone(handle: *const ImageHandle) -> *mut ImageHandle {
+    let pixels = match handle_pixels(handle) {
+        Some(pixels) => pixels,
         None => return ptr::null_mut(),
     };
 
-    let img = DynamicImage::ImageRgba8(buffer);
-    create_image_handle(img)
+    match RgbaImage::from_raw((*handle).width, (*handle).height, pixels.to_vec()) {
+        Some(buffer) => into_handle(buffer),
+        None => ptr::null_mut(),
+    }
+}
+
+/// Create a copy at half the size, each pixel the average of a 2x2 block; an
+/// odd last row or column averages the pixels it has. Repeated calls build a
+/// mipmap pyramid.
+/// Returns null on error
+#[no_mangle]
+pub unsafe extern "C" fn image_downsample_half(handle: *const ImageHandle) -> *mut ImageHandle {
+    let pixels = match handle_pixels(handle) {
+        Some(pixels) => pixels,
+        None => return ptr::null_mut(),
+    };
+    let (width, height) = ((*handle).width, (*handle).height);
+    if pixels.len() != width as usize * height as usize * 4 {
+        return ptr::null_mut();
+    }
+
+    into_handle(resample::box_downsample(pixels, width, height, 4, 2))
+}
+
+/// Copy pixels into caller-provided buffers in a single pass: interleaved
+/// RGBA into `rgba` and, if not null, the alpha channel alone into `alpha`
+#[no_mangle]
+pub unsafe extern "C" fn image_copy_pixels(
+    handle: *const ImageHandle,
+    rgba: *mut u8,
+    rgba_len: usize,
+    alpha: *mut u8,
+    alpha_len: usize,
+) -> ImageResult {
+    let src = match handle_pixels(handle) {
+        Some(src) => src,
+        None => return ImageResult::ErrorInvalidHandle,
+    };
+    if rgba.is_null() || rgba_len < src.len() {
+        return ImageResult::ErrorAllocation;
+    }
+
+    let dst = slice::from_raw_parts_mut(rgba, src.len());
+    dst.copy_from_slice(src);
+
+    if !alpha.is_null() {
+        let pixel_count = src.len() / 4;
+        if alpha_len < pixel_count {
+            return ImageResult::ErrorAllocation;
+        }
+        let alpha_dst = slice::from_raw_parts_mut(alpha, pixel_count);
+        for (a, px) in alpha_dst.iter_mut().zip(src.chunks_exact(4)) {
+            *a = px[3];
+        }
+    }
+
+    ImageResult::Success
 }
 
-/// Save image to file path
+/// Save image to file path; the format follows the extension and the
+/// encoders use their default settings
 #[no_mangle]
 pub unsafe extern "C" fn image_save(
     handle: *const ImageHandle,
     path: *const c_char,
+) -> ImageResult {
+    save_handle(handle, path, &save::SaveOptions::default())
+}
+
+/// Save image to file path with encoder settings; the format follows the
+/// extension. `jpeg_quality` is 1 to 100, `png_compression` 0 fast, 1 default
+/// or 2 best, and `png_filter` 0 none, 1 sub, 2 up, 3 average, 4 Paeth or 5
+/// adaptive.
+#[no_mangle]
+pub unsafe extern "C" fn image_save_with_options(
+    handle: *const ImageHandle,
+    path: *const c_char,
+    jpeg_quality: u32,
+    png_compression: u32,
+    png_filter: u32,
+) -> ImageResult {
+    match save::SaveOptions::from_codes(jpeg_quality, png_compression, png_filter) {
+        Some(options) => save_handle(handle, path, &options),
+        None => ImageResult::ErrorInvalidArgument,
+    }
+}
+
+/// Copy a JPEG file to `target_path` turned by `quarter_turns` clockwise and
+/// then mirrored if `flip` is not 0, on top of the orientation it already
+/// has. Only the EXIF orientation tag changes, so nothing is decoded or lost.
+/// The paths may be the same. Returns ErrorUnsupportedFormat if the source is
+/// not a JPEG whose metadata can be rewritten; the caller then re-encodes.
+#[no_mangle]
+pub unsafe extern "C" fn image_jpeg_reorient(
+    source_path: *const c_char,
+    target_path: *const c_char,
+    quarter_turns: u32,
+    flip: u32,
+) -> ImageResult {
+    if source_path.is_null() || target_path.is_null() {
+        return ImageResult::ErrorInvalidPath;
+    }
+    let (source, target) = match (
+        CStr::from_ptr(source_path).to_str(),
+        CStr::from_ptr(target_path).to_str(),
+    ) {
+        (Ok(source), Ok(target)) => (source, target),
+        _ => return ImageResult::ErrorInvalidPath,
+    };
+
+    let data = match std::fs::read(source) {
+        Ok(data) => data,
+        Err(_) => return ImageResult::ErrorLoadFailed,
+    };
+    let turn = Orientation::new((quarter_turns % 4) as u8, flip != 0);
+    match jpeg::reorient(&data, turn) {
+        Some(turned) => match std::fs::write(target, turned) {
+            Ok(_) => ImageResult::Success,
+            Err(_) => ImageResult::ErrorSaveFailed,
+        },
+        None => ImageResult::ErrorUnsupportedFormat,
+    }
+}
+
+unsafe fn save_handle(
+    handle: *const ImageHandle,
+    path: *const c_char,
+    options: &save::SaveOptions,
 ) -> ImageResult {
     if handle.is_null() || path.is_null() {
         return ImageResult::ErrorInvalidHandle;
@@ -90,45 +327,51 @@ pub unsafe extern "C" fn image_save(
         Err(_) => return ImageResult::ErrorInvalidPath,
     };
 
-    let img = match handle_to_image(handle) {
-        Some(img) => img,
-        None => return ImageResult::ErrorInvalidHandle,
-    };
-
-    match img.save(path_str) {
-        Ok(_) => ImageResult::Success,
-        Err(_) => ImageResult::ErrorSaveFailed,
+    // Encode straight from the handle buffer without copying it
+    match handle_pixels(handle) {
+        Some(pixels) => save::save(
+            path_str.as_ref(),
+            pixels,
+            (*handle).width,
+            (*handle).height,
+            options,
+        ),
+        None => ImageResult::ErrorInvalidHandle,
     }
 }
 
 /// Rotate image 90 degrees clockwise
 #[no_mangle]
 pub unsafe extern "C" fn image_rotate_90(handle: *mut ImageHandle) -> ImageResult {
-    transform_image(handle, |img| img.rotate90())
+    transform_image(handle, |img| Orientation::new(1, false).apply(img))
 }
 
 /// Rotate image 180 degrees
 #[no_mangle]
 pub unsafe extern "C" fn image_rotate_180(handle: *mut ImageHandle) -> ImageResult {
-    transform_image(handle, |img| img.rotate180())
+    with_pixels_mut(handle, |pixels, width, height| {
+        inplace::rotate_180(pixels, width, height)
+    })
 }
 
 /// Rotate image 270 degrees clockwise (90 counter-clockwise)
 #[no_mangle]
 pub unsafe extern "C" fn image_rotate_270(handle: *mut ImageHandle) -> ImageResult {
-    transform_image(handle, |img| img.rotate270())
+    transform_image(handle, |img| Orientation::new(3, false).apply(img))
 }
 
 /// Flip image horizontally
 #[no_mangle]
 pub unsafe extern "C" fn image_flip_horizontal(handle: *mut ImageHandle) -> ImageResult {
-    transform_image(handle, |img| img.fliph())
+    with_pixels_mut(handle, |pixels, width, _| inplace::flip_horizontal(pixels, width))
 }
 
 /// Flip image vertically
 #[no_mangle]
 pub unsafe extern "C" fn image_flip_vertical(handle: *mut ImageHandle) -> ImageResult {
-    transform_image(handle, |img| img.flipv())
+    with_pixels_mut(handle, |pixels, width, height| {
+        inplace::flip_vertical(pixels, width, height)
+    })
 }
 
 /// Resize image using specified filter
@@ -139,27 +382,70 @@ pub unsafe extern "C" fn image_resize_with_filter(
     height: u32,
     filter: u32,
 ) -> ImageResult {
-    let filter_type = match filter {
-        0 => image::imageops::FilterType::Nearest,
-        1 => image::imageops::FilterType::Triangle,
-        2 => image::imageops::FilterType::CatmullRom,
-        3 => image::imageops::FilterType::Gaussian,
-        4 => image::imageops::FilterType::Lanczos3,
-        _ => image::imageops::FilterType::Nearest, // Default fallback
-    };
-    
+    let filter_type = pipeline::filter_type(filter);
+
     transform_image(handle, |img| {
-        img.resize(width, height, filter_type)
+        let (fitted_width, fitted_height) =
+            pipeline::fit_dimensions(img.width(), img.height(), width, height);
+        resample::resize(&img, fitted_width, fitted_height, filter_type)
     })
 }
 
+/// Render one block of the image resized to `full_width` x `full_height`:
+/// the `width` x `height` pixels at `x`, `y` of the resized result. Blocks
+/// match the full resize exactly, so a zoomed view can be drawn tile by tile
+/// without ever holding the whole zoomed image.
+/// Returns null on error, or if the block is empty or not inside the resized
+/// image
+#[no_mangle]
+#[allow(clippy::too_many_arguments)]
+pub unsafe extern "C" fn image_resize_region(
+    handle: *const ImageHandle,
+    full_width: u32,
+    full_height: u32,
+    x: u32,
+    y: u32,
+    width: u32,
+    height: u32,
+    filter: u32,
+) -> *mut ImageHandle {
+    let pixels = match handle_pixels(handle) {
+        Some(pixels) => pixels,
+        None => return ptr::null_mut(),
+    };
+    let (src_width, src_height) = ((*handle).width, (*handle).height);
+    if pixels.len() != src_width as usize * src_height as usize * 4 {
+        return ptr::null_mut();
+    }
+    let inside = |start: u32, len: u32, full: u32| {
+        len > 0 && start.checked_add(len).is_some_and(|end| end <= full)
+    };
+    if !inside(x, width, full_width) || !inside(y, height, full_height) {
+        return ptr::null_mut();
+    }
+
+    let region = resample::Region {
+        x,
+        y,
+        width,
+        height,
+    };
+    into_handle(resample::resize_region(
+        pixels,
+        (src_width, src_height),
+        (full_width, full_height),
+        region,
+        pipeline::filter_type(filter),
+    ))
+}
+
 /// Adjust image brightness (-100 to 100)
 #[no_mangle]
 pub unsafe extern "C" fn image_adjust_brightness(
     handle: *mut ImageHandle,
     value: i32,
 ) -> ImageResult {
-    transform_image(handle, |img| img.brighten(value))
+    with_pixels_mut(handle, |pixels, _, _| inplace::brighten(pixels, value))
 }
 
 /// Adjust image contrast (-100.0 to 100.0)
@@ -168,35 +454,78 @@ pub unsafe extern "C" fn image_adjust_contrast(
     handle: *mut ImageHandle,
     contrast: f32,
 ) -> ImageResult {
-    transform_image(handle, |img| img.adjust_contrast(contrast))
+    with_pixels_mut(handle, |pixels, _, _| {
+        PointProgram::compile(&[PointOp::Contrast(contrast)]).apply(pixels)
+    })
 }
 
-/// Apply blur filter
+/// Apply Gaussian blur, approximated by box passes for large sigma
 #[no_mangle]
 pub unsafe extern "C" fn image_blur(handle: *mut ImageHandle, sigma: f32) -> ImageResult {
-    transform_image(handle, |img| img.blur(sigma))
+    transform_image(handle, |img| blur::blur(&img, sigma))
 }
 
 /// Convert to grayscale
 #[no_mangle]
 pub unsafe extern "C" fn image_grayscale(handle: *mut ImageHandle) -> ImageResult {
-    transform_image(handle, |img| DynamicImage::ImageLuma8(img.to_luma8()))
+    with_pixels_mut(handle, |pixels, _, _| {
+        PointProgram::compile(&[PointOp::Grayscale]).apply(pixels)
+    })
 }
 
 /// Invert colors
 #[no_mangle]
 pub unsafe extern "C" fn image_invert(handle: *mut ImageHandle) -> ImageResult {
+    with_pixels_mut(handle, |pixels, _, _| inplace::invert(pixels))
+}
+
+/// Apply a list of operations in one call. The list is planned first, see
+/// `pipeline`, so rotations, flips and color adjustments are fused and a
+/// downscale runs as early as it can.
+#[no_mangle]
+pub unsafe extern "C" fn image_apply_pipeline(
+    handle: *mut ImageHandle,
+    ops: *const PipelineOp,
+    count: usize,
+) -> ImageResult {
     if handle.is_null() {
         return ImageResult::ErrorInvalidHandle;
     }
+    let ops = match count {
+        0 => &[][..],
+        _ if ops.is_null() => return ImageResult::ErrorInvalidArgument,
+        _ => slice::from_raw_parts(ops, count),
+    };
+
+    let steps = match pipeline::plan(ops, (*handle).width, (*handle).height) {
+        Some(steps) => steps,
+        None => return ImageResult::ErrorInvalidArgument,
+    };
 
-    let mut img = match handle_to_image(handle) {
+    let img = match take_image(handle) {
         Some(img) => img,
         None => return ImageResult::ErrorInvalidHandle,
     };
 
-    img.invert();
-    update_handle_from_image(handle, img)
+    let result = pipeline::execute(img, &steps);
+    update_handle_from_image(handle, result)
+}
+
+/// Set the number of worker threads the kernels run on; 0 uses one per core.
+/// Kernels already running finish on the previous pool.
+#[no_mangle]
+pub extern "C" fn image_set_thread_count(count: u32) -> ImageResult {
+    if parallel::set_thread_count(count as usize) {
+        ImageResult::Success
+    } else {
+        ImageResult::ErrorAllocation
+    }
+}
+
+/// Get the number of worker threads the kernels run on
+#[no_mangle]
+pub extern "C" fn image_get_thread_count() -> u32 {
+    parallel::thread_count() as u32
 }
 
 /// Get image width
@@ -242,32 +571,58 @@ pub unsafe extern "C" fn image_free(handle: *mut ImageHandle) {
         return;
     }
 
-    let handle_ref = &mut *handle;
-    if !handle_ref.data.is_null() && handle_ref.data_len > 0 {
-        drop(Vec::from_raw_parts(
-            handle_ref.data,
-            handle_ref.data_len,
-            handle_ref.data_len,
-        ));
-        handle_ref.data = ptr::null_mut();
-        handle_ref.data_len = 0;
-    }
-
+    release_pixels(&mut *handle);
     drop(Box::from_raw(handle));
 }
 
 // Helper functions
 
-unsafe fn create_image_handle(img: DynamicImage) -> *mut ImageHandle {
-    let rgba = img.to_rgba8();
+/// Decode a file, along with the orientation its metadata asks for. The
+/// pixels come out as stored; callers turn them, after any reduction.
+fn decode(path: &str) -> Option<(DynamicImage, Orientation)> {
+    let mut decoder = ImageReader::open(path).ok()?.into_decoder().ok()?;
+    let orientation = decoder
+        .orientation()
+        .ok()
+        .and_then(|orientation| Orientation::from_exif(orientation.to_exif() as u16))
+        .unwrap_or(Orientation::IDENTITY);
+    let img = DynamicImage::from_decoder(decoder).ok()?;
+    Some((img, orientation))
+}
+
+/// Reduce a decoded image to fit the box: whole blocks are averaged straight
+/// out of the decoded buffer first, then a triangle filter covers the
+/// remaining factor of less than two
+fn downscale_to_fit(img: DynamicImage, max_width: u32, max_height: u32) -> RgbaImage {
+    let (width, height) = (img.width(), img.height());
+    if width <= max_width && height <= max_height {
+        return img.into_rgba8();
+    }
+
+    let (fitted_width, fitted_height) =
+        pipeline::fit_dimensions(width, height, max_width, max_height);
+    let factor = (width / fitted_width).min(height / fitted_height);
+    let reduced = if factor < 2 {
+        img.into_rgba8()
+    } else {
+        // RGB and RGBA decodes are read in place, sparing a full-size copy
+        match &img {
+            DynamicImage::ImageRgb8(rgb) => {
+                resample::box_downsample(rgb.as_raw(), width, height, 3, factor)
+            }
+            DynamicImage::ImageRgba8(rgba) => {
+                resample::box_downsample(rgba.as_raw(), width, height, 4, factor)
+            }
+            _ => resample::box_downsample(img.to_rgba8().as_raw(), width, height, 4, factor),
+        }
+    };
+    resample::resize(&reduced, fitted_width, fitted_height, FilterType::Triangle)
+}
+
+unsafe fn into_handle(rgba: RgbaImage) -> *mut ImageHandle {
     let width = rgba.width();
     let height = rgba.height();
-    let pixels = rgba.into_raw();
-    let data_len = pixels.len();
-
-    let mut boxed_pixels = pixels.into_boxed_slice();
-    let data = boxed_pixels.as_mut_ptr();
-    std::mem::forget(boxed_pixels);
+    let (data, data_len) = leak_pixels(rgba.into_raw());
 
     let handle = Box::new(ImageHandle {
         width,
@@ -279,7 +634,28 @@ unsafe fn create_image_handle(img: DynamicImage) -> *mut ImageHandle {
     Box::into_raw(handle)
 }
 
-unsafe fn handle_to_image(handle: *const ImageHandle) -> Option<DynamicImage> {
+fn leak_pixels(pixels: Vec<u8>) -> (*mut u8, usize) {
+    let data_len = pixels.len();
+    let mut boxed_pixels = pixels.into_boxed_slice();
+    let data = boxed_pixels.as_mut_ptr();
+    std::mem::forget(boxed_pixels);
+    (data, data_len)
+}
+
+unsafe fn release_pixels(handle_ref: &mut ImageHandle) {
+    if !handle_ref.data.is_null() && handle_ref.data_len > 0 {
+        drop(Vec::from_raw_parts(
+            handle_ref.data,
+            handle_ref.data_len,
+            handle_ref.data_len,
+        ));
+    }
+    handle_ref.data = ptr::null_mut();
+    handle_ref.data_len = 0;
+}
+
+/// Borrow the pixel buffer of a handle without copying it
+unsafe fn handle_pixels<'a>(handle: *const ImageHandle) -> Option<&'a [u8]> {
     if handle.is_null() {
         return None;
     }
@@ -289,21 +665,67 @@ unsafe fn handle_to_image(handle: *const ImageHandle) -> Option<DynamicImage> {
         return None;
     }
 
-    let data_slice = slice::from_raw_parts(handle_ref.data, handle_ref.data_len);
-    let buffer = ImageBuffer::from_raw(handle_ref.width, handle_ref.height, data_slice.to_vec())?;
+    Some(slice::from_raw_parts(handle_ref.data, handle_ref.data_len))
+}
+
+/// Move the pixel buffer out of a handle without copying it. The handle stays
+/// empty until `update_handle_from_image` stores the result.
+unsafe fn take_image(handle: *mut ImageHandle) -> Option<RgbaImage> {
+    if handle.is_null() {
+        return None;
+    }
+
+    let handle_ref = &mut *handle;
+    if handle_ref.data.is_null() || handle_ref.data_len == 0 {
+        return None;
+    }
+    if handle_ref.data_len != handle_ref.width as usize * handle_ref.height as usize * 4 {
+        return None;
+    }
+
+    let pixels = Vec::from_raw_parts(handle_ref.data, handle_ref.data_len, handle_ref.data_len);
+    handle_ref.data = ptr::null_mut();
+    handle_ref.data_len = 0;
 
-    Some(DynamicImage::ImageRgba8(buffer))
+    RgbaImage::from_raw(handle_ref.width, handle_ref.height, pixels)
+}
+
+/// Run a kernel directly on the handle buffer; nothing is copied or allocated
+unsafe fn with_pixels_mut<F>(handle: *mut ImageHandle, kernel: F) -> ImageResult
+where
+    F: FnOnce(&mut [u8], usize, usize),
+{
+    if handle.is_null() {
+        return ImageResult::ErrorInvalidHandle;
+    }
+
+    let handle_ref = &mut *handle;
+    let width = handle_ref.width as usize;
+    let height = handle_ref.height as usize;
+    if handle_ref.data.is_null()
+        || handle_ref.data_len == 0
+        || handle_ref.data_len != width * height * 4
+    {
+        return ImageResult::ErrorInvalidHandle;
+    }
+
+    kernel(
+        slice::from_raw_parts_mut(handle_ref.data, handle_ref.data_len),
+        width,
+        height,
+    );
+    ImageResult::Success
 }
 
 unsafe fn transform_image<F>(handle: *mut ImageHandle, transform: F) -> ImageResult
 where
-    F: FnOnce(DynamicImage) -> DynamicImage,
+    F: FnOnce(RgbaImage) -> RgbaImage,
 {
     if handle.is_null() {
         return ImageResult::ErrorInvalidHandle;
     }
 
-    let img = match handle_to_image(handle) {
+    let img = match take_image(handle) {
         Some(img) => img,
         None => return ImageResult::ErrorInvalidHandle,
     };
@@ -312,34 +734,15 @@ where
     update_handle_from_image(handle, transformed)
 }
 
-unsafe fn update_handle_from_image(
-    handle: *mut ImageHandle,
-    img: DynamicImage,
-) -> ImageResult {
+unsafe fn update_handle_from_image(handle: *mut ImageHandle, rgba: RgbaImage) -> ImageResult {
     let handle_ref = &mut *handle;
 
     // Free old data
-    if !handle_ref.data.is_null() && handle_ref.data_len > 0 {
-        drop(Vec::from_raw_parts(
-            handle_ref.data,
-            handle_ref.data_len,
-            handle_ref.data_len,
-        ));
-    }
+    release_pixels(handle_ref);
 
-    // Convert to RGBA and update handle
-    let rgba = img.to_rgba8();
-    let width = rgba.width();
-    let height = rgba.height();
-    let pixels = rgba.into_raw();
-    let data_len = pixels.len();
-
-    let mut boxed_pixels = pixels.into_boxed_slice();
-    let data = boxed_pixels.as_mut_ptr();
-    std::mem::forget(boxed_pixels);
-
-    handle_ref.width = width;
-    handle_ref.height = height;
+    handle_ref.width = rgba.width();
+    handle_ref.height = rgba.height();
+    let (data, data_len) = leak_pixels(rgba.into_raw());
     handle_ref.data = data;
     handle_ref.data_len = data_len;
 
@@ -349,10 +752,645 @@ unsafe fn update_handle_from_image(
 #[cfg(test)]
 mod tests {
     use super::*;
+    use std::alloc::{GlobalAlloc, Layout, System};
+    use std::cell::Cell;
+    use std::time::Instant;
+
+    /// Counts bytes allocated per thread so tests running in parallel do not
+    /// see each other's allocations
+    struct CountingAllocator;
+
+    thread_local! {
+        static ALLOCATED: Cell<usize> = const { Cell::new(0) };
+    }
+
+    unsafe impl GlobalAlloc for CountingAllocator {
+        unsafe fn alloc(&self, layout: Layout) -> *mut u8 {
+            let _ = ALLOCATED.try_with(|a| a.set(a.get() + layout.size()));
+            System.alloc(layout)
+        }
+
+        unsafe fn dealloc(&self, ptr: *mut u8, layout: Layout) {
+            System.dealloc(ptr, layout)
+        }
+    }
+
+    #[global_allocator]
+    static GLOBAL: CountingAllocator = CountingAllocator;
+
+    fn allocated_during<F: FnOnce()>(f: F) -> usize {
+        let before = ALLOCATED.with(|a| a.get());
+        f();
+        ALLOCATED.with(|a| a.get()) - before
+    }
+
+    /// Image with distinct values in every channel, including alpha
+    fn test_handle(width: u32, height: u32) -> *mut ImageHandle {
+        let data: Vec<u8> = (0..width * height * 4)
+            .map(|i| (i * 7 + i / 3) as u8)
+            .collect();
+        unsafe { image_from_rgba(data.as_ptr(), width, height) }
+    }
+
+    fn pixels_of(handle: *const ImageHandle) -> Vec<u8> {
+        unsafe { handle_pixels(handle).unwrap().to_vec() }
+    }
+
+    type Kernel = unsafe extern "C" fn(*mut ImageHandle) -> ImageResult;
+    type Reference = fn(DynamicImage) -> DynamicImage;
+
+    /// Run a DynamicImage operation the way the kernels used to
+    unsafe fn apply_reference(handle: *mut ImageHandle, reference: Reference) -> ImageResult {
+        transform_image(handle, |img| reference(DynamicImage::ImageRgba8(img)).into_rgba8())
+    }
+
+    unsafe extern "C" fn brighten_in_place(handle: *mut ImageHandle) -> ImageResult {
+        image_adjust_brightness(handle, 40)
+    }
+
+    unsafe extern "C" fn contrast_in_place(handle: *mut ImageHandle) -> ImageResult {
+        image_adjust_contrast(handle, 35.0)
+    }
+
+    /// The in-place kernels next to the DynamicImage path they replaced
+    fn kernels() -> Vec<(&'static str, Kernel, Reference)> {
+        let mut kernels: Vec<(&'static str, Kernel, Reference)> = Vec::new();
+        kernels.push(("flip_horizontal", image_flip_horizontal, |img| img.fliph()));
+        kernels.push(("flip_vertical", image_flip_vertical, |img| img.flipv()));
+        kernels.push(("rotate_180", image_rotate_180, |img| img.rotate180()));
+        kernels.push(("brighten", brighten_in_place, |img| img.brighten(40)));
+        kernels.push(("invert", image_invert, |mut img| {
+            img.invert();
+            img
+        }));
+        kernels.push(("contrast", contrast_in_place, |img| img.adjust_contrast(35.0)));
+        kernels.push(("grayscale", image_grayscale, |img| {
+            DynamicImage::ImageLuma8(img.to_luma8())
+        }));
+        kernels
+    }
+
+    fn pipeline_op(code: u32, value: f32) -> PipelineOp {
+        PipelineOp {
+            code,
+            width: 0,
+            height: 0,
+            filter: 0,
+            value,
+        }
+    }
+
+    /// Run the same operations one call at a time
+    unsafe fn apply_sequentially(handle: *mut ImageHandle, ops: &[PipelineOp]) {
+        for op in ops {
+            let result = match op.code {
+                pipeline::OP_ROTATE_90 => image_rotate_90(handle),
+                pipeline::OP_ROTATE_180 => image_rotate_180(handle),
+                pipeline::OP_ROTATE_270 => image_rotate_270(handle),
+                pipeline::OP_FLIP_HORIZONTAL => image_flip_horizontal(handle),
+                pipeline::OP_FLIP_VERTICAL => image_flip_vertical(handle),
+                pipeline::OP_RESIZE => {
+                    image_resize_with_filter(handle, op.width, op.height, op.filter)
+                }
+                pipeline::OP_BRIGHTNESS => image_adjust_brightness(handle, op.value as i32),
+                pipeline::OP_CONTRAST => image_adjust_contrast(handle, op.value),
+                pipeline::OP_BLUR => image_blur(handle, op.value),
+                pipeline::OP_GRAYSCALE => image_grayscale(handle),
+                _ => image_invert(handle),
+            };
+            assert_eq!(result, ImageResult::Success);
+        }
+    }
 
     #[test]
     fn test_image_result_values() {
         assert_eq!(ImageResult::Success as i32, 0);
         assert_eq!(ImageResult::ErrorInvalidPath as i32, 1);
     }
+
+    #[test]
+    fn in_place_kernels_match_dynamic_image() {
+        // Odd sizes exercise the middle row and column
+        for (width, height) in [(1, 1), (5, 3), (64, 33)] {
+            for (name, kernel, reference) in kernels() {
+                let expected = test_handle(width, height);
+                let actual = test_handle(width, height);
+                unsafe {
+                    assert_eq!(apply_reference(expected, reference), ImageResult::Success);
+                    assert_eq!(kernel(actual), ImageResult::Success);
+                }
+                assert!(
+                    pixels_of(expected) == pixels_of(actual),
+                    "{name} differs at {width}x{height}"
+                );
+                unsafe {
+                    image_free(expected);
+                    image_free(actual);
+                }
+            }
+        }
+    }
+
+    #[test]
+    fn in_place_kernels_do_not_allocate() {
+        let (width, height) = (512, 256);
+        let buffer_len = (width * height * 4) as usize;
+        // Start the worker pool outside the measurement
+        parallel::thread_count();
+
+        for (name, kernel, reference) in kernels() {
+            let handle = test_handle(width, height);
+
+            let old_path = allocated_during(|| unsafe {
+                apply_reference(handle, reference);
+            });
+            let in_place = allocated_during(|| unsafe {
+                kernel(handle);
+            });
+            println!("{name}: {old_path} bytes allocated before, {in_place} now");
+
+            // Handing work to the pool may allocate a little bookkeeping, never
+            // a pixel buffer
+            assert!(in_place < 4096, "{name} allocated {in_place} bytes");
+            assert!(old_path >= buffer_len, "{name} reference path did not allocate");
+            unsafe { image_free(handle) };
+        }
+    }
+
+    /// Timing comparison, run with
+    /// `cargo test --release -- --ignored --nocapture bench_in_place_kernels`
+    #[test]
+    #[ignore]
+    fn bench_in_place_kernels() {
+        let (width, height) = (6000, 4000);
+        let handle = test_handle(width, height);
+
+        for (name, kernel, reference) in kernels() {
+            let start = Instant::now();
+            unsafe { apply_reference(handle, reference) };
+            let old_path = start.elapsed();
+
+            let start = Instant::now();
+            unsafe { kernel(handle) };
+            let in_place = start.elapsed();
+
+            println!("{name}: {old_path:?} before, {in_place:?} in place");
+        }
+        unsafe { image_free(handle) };
+    }
+
+    #[test]
+    fn in_place_kernels_reject_null_handle() {
+        for (_, kernel, _) in kernels() {
+            assert_eq!(
+                unsafe { kernel(ptr::null_mut()) },
+                ImageResult::ErrorInvalidHandle
+            );
+        }
+    }
+
+    unsafe extern "C" fn rotate_90(handle: *mut ImageHandle) -> ImageResult {
+        image_rotate_90(handle)
+    }
+
+    unsafe extern "C" fn resize_lanczos(handle: *mut ImageHandle) -> ImageResult {
+        let width = image_get_width(handle);
+        let height = image_get_height(handle);
+        image_resize_with_filter(handle, width * 2 / 3, height * 2 / 3, 4)
+    }
+
+    unsafe extern "C" fn blur_wide(handle: *mut ImageHandle) -> ImageResult {
+        image_blur(handle, 6.0)
+    }
+
+    /// Every kernel that runs on the worker pool
+    fn parallel_kernels() -> Vec<(&'static str, Kernel)> {
+        let mut kernels: Vec<(&'static str, Kernel)> = kernels()
+            .into_iter()
+            .map(|(name, kernel, _)| (name, kernel))
+            .collect();
+        kernels.push(("rotate_90", rotate_90));
+        kernels.push(("resize_lanczos3", resize_lanczos));
+        kernels.push(("blur", blur_wide));
+        kernels
+    }
+
+    #[test]
+    fn thread_count_does_not_change_results() {
+        let (width, height) = (700, 400);
+        for (name, kernel) in parallel_kernels() {
+            let mut results = Vec::new();
+            for threads in [1, 3] {
+                let handle = test_handle(width, height);
+                assert_eq!(image_set_thread_count(threads), ImageResult::Success);
+                assert_eq!(image_get_thread_count(), threads);
+                unsafe { assert_eq!(kernel(handle), ImageResult::Success) };
+                results.push(pixels_of(handle));
+                unsafe { image_free(handle) };
+            }
+            assert!(results[0] == results[1], "{name} depends on the thread count");
+        }
+        assert_eq!(image_set_thread_count(0), ImageResult::Success);
+    }
+
+    /// Speedup of each kernel over a single thread, run with
+    /// `cargo test --release -- --ignored --nocapture bench_parallel_kernels`
+    #[test]
+    #[ignore]
+    fn bench_parallel_kernels() {
+        let (width, height) = (8660, 5774); // 50 MP
+        let cores = std::thread::available_parallelism().map_or(1, |n| n.get() as u32);
+
+        for (name, kernel) in parallel_kernels() {
+            let mut times = Vec::new();
+            for threads in [1, cores] {
+                image_set_thread_count(threads);
+                let handle = test_handle(width, height);
+                let start = Instant::now();
+                unsafe { kernel(handle) };
+                times.push(start.elapsed());
+                unsafe { image_free(handle) };
+            }
+            let speedup = times[0].as_secs_f64() / times[1].as_secs_f64();
+            println!(
+                "{name}: {:?} on 1 thread, {:?} on {cores}, {speedup:.1}x",
+                times[0], times[1]
+            );
+        }
+        image_set_thread_count(0);
+    }
+
+    #[test]
+    fn pipeline_matches_sequential_calls() {
+        let ops = [
+            pipeline_op(pipeline::OP_ROTATE_90, 0.0),
+            pipeline_op(pipeline::OP_BRIGHTNESS, 25.0),
+            pipeline_op(pipeline::OP_FLIP_HORIZONTAL, 0.0),
+            pipeline_op(pipeline::OP_CONTRAST, 30.0),
+            pipeline_op(pipeline::OP_INVERT, 0.0),
+            pipeline_op(pipeline::OP_ROTATE_180, 0.0),
+            pipeline_op(pipeline::OP_GRAYSCALE, 0.0),
+            pipeline_op(pipeline::OP_FLIP_VERTICAL, 0.0),
+        ];
+        for (width, height) in [(1, 1), (5, 3), (64, 33)] {
+            // Every prefix, so each partial fusion is checked as well
+            for len in 0..=ops.len() {
+                let expected = test_handle(width, height);
+                let actual = test_handle(width, height);
+                unsafe {
+                    apply_sequentially(expected, &ops[..len]);
+                    assert_eq!(
+                        image_apply_pipeline(actual, ops.as_ptr(), len),
+                        ImageResult::Success
+                    );
+                    assert_eq!(image_get_width(actual), image_get_width(expected));
+                    assert_eq!(image_get_height(actual), image_get_height(expected));
+                }
+                assert!(
+                    pixels_of(expected) == pixels_of(actual),
+                    "{len} ops differ at {width}x{height}"
+                );
+                unsafe {
+                    image_free(expected);
+                    image_free(actual);
+                }
+            }
+        }
+    }
+
+    #[test]
+    fn pipeline_downscale_first_stays_within_rounding() {
+        let resize = PipelineOp {
+            width: 50,
+            height: 50,
+            filter: 1,
+            ..pipeline_op(pipeline::OP_RESIZE, 0.0)
+        };
+        let ops = [
+            pipeline_op(pipeline::OP_ROTATE_270, 0.0),
+            pipeline_op(pipeline::OP_GRAYSCALE, 0.0),
+            pipeline_op(pipeline::OP_INVERT, 0.0),
+            resize,
+        ];
+        let expected = test_handle(160, 90);
+        let actual = test_handle(160, 90);
+        unsafe {
+            apply_sequentially(expected, &ops);
+            assert_eq!(
+                image_apply_pipeline(actual, ops.as_ptr(), ops.len()),
+                ImageResult::Success
+            );
+            assert_eq!(image_get_width(actual), image_get_width(expected));
+            assert_eq!(image_get_height(actual), image_get_height(expected));
+        }
+        for (a, b) in pixels_of(expected).iter().zip(pixels_of(actual)) {
+            assert!(a.abs_diff(b) <= 1, "{a} vs {b}");
+        }
+        unsafe {
+            image_free(expected);
+            image_free(actual);
+        }
+    }
+
+    #[test]
+    fn pipeline_allocates_one_buffer() {
+        let (width, height) = (512, 256);
+        let buffer_len = (width * height * 4) as usize;
+        let ops = [
+            pipeline_op(pipeline::OP_ROTATE_90, 0.0),
+            pipeline_op(pipeline::OP_INVERT, 0.0),
+            pipeline_op(pipeline::OP_FLIP_HORIZONTAL, 0.0),
+            pipeline_op(pipeline::OP_BRIGHTNESS, 10.0),
+            pipeline_op(pipeline::OP_ROTATE_180, 0.0),
+            pipeline_op(pipeline::OP_CONTRAST, 20.0),
+        ];
+
+        let handle = test_handle(width, height);
+        parallel::thread_count();
+        let fused = allocated_during(|| unsafe {
+            image_apply_pipeline(handle, ops.as_ptr(), ops.len());
+        });
+
+        // The quarter turn needs a new buffer, everything else runs in place
+        assert!(fused >= buffer_len && fused < 2 * buffer_len, "{fused} bytes");
+        unsafe { image_free(handle) };
+    }
+
+    /// Stacked adjustments one call at a time against one fused pass, run with
+    /// `cargo test --release -- --ignored --nocapture bench_stacked_adjustments`
+    #[test]
+    #[ignore]
+    fn bench_stacked_adjustments() {
+        let (width, height) = (6000, 4000);
+        let handle = test_handle(width, height);
+        let ops = [
+            pipeline_op(pipeline::OP_BRIGHTNESS, 15.0),
+            pipeline_op(pipeline::OP_CONTRAST, 25.0),
+            pipeline_op(pipeline::OP_INVERT, 0.0),
+            pipeline_op(pipeline::OP_GRAYSCALE, 0.0),
+        ];
+
+        for len in 1..=ops.len() {
+            let start = Instant::now();
+            unsafe { apply_sequentially(handle, &ops[..len]) };
+            let separate = start.elapsed();
+
+            let start = Instant::now();
+            unsafe { image_apply_pipeline(handle, ops.as_ptr(), len) };
+            let fused = start.elapsed();
+
+            println!("{len} adjustments: {separate:?} separately, {fused:?} fused");
+        }
+        unsafe { image_free(handle) };
+    }
+
+    #[test]
+    fn pipeline_rejects_invalid_input() {
+        let invert = [pipeline_op(pipeline::OP_INVERT, 0.0)];
+        let unknown = [invert[0], pipeline_op(99, 0.0)];
+        let handle = test_handle(4, 4);
+        let before = pixels_of(handle);
+        unsafe {
+            assert_eq!(
+                image_apply_pipeline(ptr::null_mut(), invert.as_ptr(), 1),
+                ImageResult::ErrorInvalidHandle
+            );
+            assert_eq!(
+                image_apply_pipeline(handle, ptr::null(), 1),
+                ImageResult::ErrorInvalidArgument
+            );
+            // Nothing runs when any operation is invalid
+            assert_eq!(
+                image_apply_pipeline(handle, unknown.as_ptr(), unknown.len()),
+                ImageResult::ErrorInvalidArgument
+            );
+        }
+        assert!(pixels_of(handle) == before);
+        unsafe { image_free(handle) };
+    }
+
+    #[test]
+    fn load_scaled_fits_the_box() {
+        let handle = test_handle(300, 200);
+        let path = std::env::temp_dir().join(format!("rs-image-scaled-{}.png", std::process::id()));
+        let c_path = std::ffi::CString::new(path.to_str().unwrap()).unwrap();
+        unsafe {
+            assert_eq!(image_save(handle, c_path.as_ptr()), ImageResult::Success);
+            image_free(handle);
+
+            let mut source_size = [0u32; 2];
+            let scaled = image_load_scaled(c_path.as_ptr(), 50, 50, source_size.as_mut_ptr());
+            assert!(!scaled.is_null());
+            assert_eq!(source_size, [300, 200]);
+            assert_eq!(((*scaled).width, (*scaled).height), (50, 33));
+            image_free(scaled);
+
+            // A box the image already fits in loads it at full size
+            let full = image_load_scaled(c_path.as_ptr(), 400, 400, ptr::null_mut());
+            assert!(!full.is_null());
+            assert_eq!(((*full).width, (*full).height), (300, 200));
+            image_free(full);
+
+            assert!(image_load_scaled(c_path.as_ptr(), 0, 50, ptr::null_mut()).is_null());
+            assert!(image_load_scaled(ptr::null(), 50, 50, ptr::null_mut()).is_null());
+        }
+        let _ = std::fs::remove_file(path);
+    }
+
+    #[test]
+    fn save_with_options_applies_encoder_settings() {
+        let handle = test_handle(120, 80);
+        let dir = std::env::temp_dir();
+        let path = |name: &str| {
+            let file = dir.join(format!("rs-image-save-{}-{name}", std::process::id()));
+            (std::ffi::CString::new(file.to_str().unwrap()).unwrap(), file)
+        };
+        unsafe {
+            // PNG settings change the size, never the pixels
+            for (name, compression, filter) in [("fast.png", 0, 0), ("best.png", 2, 4)] {
+                let (c_path, file) = path(name);
+                assert_eq!(
+                    image_save_with_options(handle, c_path.as_ptr(), 90, compression, filter),
+                    ImageResult::Success
+                );
+                let loaded = image_load(c_path.as_ptr());
+                assert!(pixels_of(loaded) == pixels_of(handle), "{name}");
+                image_free(loaded);
+                let _ = std::fs::remove_file(file);
+            }
+
+            // Lower JPEG quality gives a smaller file; alpha is dropped
+            let mut sizes = Vec::new();
+            for quality in [95, 20] {
+                let (c_path, file) = path(&format!("q{quality}.jpg"));
+                assert_eq!(
+                    image_save_with_options(handle, c_path.as_ptr(), quality, 1, 5),
+                    ImageResult::Success
+                );
+                sizes.push(std::fs::metadata(&file).unwrap().len());
+                let loaded = image_load(c_path.as_ptr());
+                assert_eq!(((*loaded).width, (*loaded).height), (120, 80));
+                image_free(loaded);
+                let _ = std::fs::remove_file(file);
+            }
+            assert!(sizes[1] < sizes[0], "{sizes:?}");
+
+            let (c_path, file) = path("out.png");
+            for (quality, compression, filter) in [(0, 1, 5), (101, 1, 5), (90, 3, 5), (90, 1, 6)] {
+                assert_eq!(
+                    image_save_with_options(handle, c_path.as_ptr(), quality, compression, filter),
+                    ImageResult::ErrorInvalidArgument
+                );
+            }
+            assert!(!file.exists());
+            let (unknown, _) = path("out.unknown");
+            assert_eq!(
+                image_save_with_options(handle, unknown.as_ptr(), 90, 1, 5),
+                ImageResult::ErrorUnsupportedFormat
+            );
+            assert_eq!(
+                image_save_with_options(ptr::null(), c_path.as_ptr(), 90, 1, 5),
+                ImageResult::ErrorInvalidHandle
+            );
+            image_free(handle);
+        }
+    }
+
+    #[test]
+    fn jpeg_reorient_turns_without_reencoding() {
+        let handle = test_handle(40, 24);
+        let dir = std::env::temp_dir();
+        let source = dir.join(format!("rs-image-turn-{}.jpg", std::process::id()));
+        let target = dir.join(format!("rs-image-turned-{}.jpg", std::process::id()));
+        let c_source = std::ffi::CString::new(source.to_str().unwrap()).unwrap();
+        let c_target = std::ffi::CString::new(target.to_str().unwrap()).unwrap();
+        unsafe {
+            assert_eq!(image_save(handle, c_source.as_ptr()), ImageResult::Success);
+            image_free(handle);
+            let upright = image_load(c_source.as_ptr());
+
+            // Loading applies the new tag, so the pixels come out turned
+            assert_eq!(
+                image_jpeg_reorient(c_source.as_ptr(), c_target.as_ptr(), 1, 0),
+                ImageResult::Success
+            );
+            let turned = image_load(c_target.as_ptr());
+            assert_eq!(((*turned).width, (*turned).height), (24, 40));
+            assert_eq!(image_rotate_90(upright), ImageResult::Success);
+            assert!(pixels_of(turned) == pixels_of(upright));
+
+            // So does loading scaled, with the size reported as displayed
+            let mut source_size = [0u32; 2];
+            let scaled = image_load_scaled(c_target.as_ptr(), 12, 20, source_size.as_mut_ptr());
+            assert_eq!(source_size, [24, 40]);
+            assert_eq!(((*scaled).width, (*scaled).height), (12, 20));
+            image_free(scaled);
+
+            // Turning in place composes with the tag already there
+            assert_eq!(
+                image_jpeg_reorient(c_target.as_ptr(), c_target.as_ptr(), 3, 0),
+                ImageResult::Success
+            );
+            let back = image_load(c_target.as_ptr());
+            assert_eq!(((*back).width, (*back).height), (40, 24));
+
+            let png = dir.join(format!("rs-image-turn-{}.png", std::process::id()));
+            let c_png = std::ffi::CString::new(png.to_str().unwrap()).unwrap();
+            assert_eq!(image_save(back, c_png.as_ptr()), ImageResult::Success);
+            assert_eq!(
+                image_jpeg_reorient(c_png.as_ptr(), c_target.as_ptr(), 1, 0),
+                ImageResult::ErrorUnsupportedFormat
+            );
+            assert_eq!(
+                image_jpeg_reorient(ptr::null(), c_target.as_ptr(), 1, 0),
+                ImageResult::ErrorInvalidPath
+            );
+            for handle in [upright, turned, back] {
+                image_free(handle);
+            }
+            for file in [source, target, png] {
+                let _ = std::fs::remove_file(file);
+            }
+        }
+    }
+
+    #[test]
+    fn downsample_half_averages_blocks() {
+        let handle = test_handle(5, 3);
+        let source = pixels_of(handle);
+        unsafe {
+            let half = image_downsample_half(handle);
+            assert!(!half.is_null());
+            assert_eq!(((*half).width, (*half).height), (3, 2));
+            let pixels = pixels_of(half);
+
+            // Full block at the top left, lone pixel at the bottom right
+            for c in 0..4 {
+                let block = [0, 1, 5, 6].iter().map(|&i| source[i * 4 + c] as u32).sum::<u32>();
+                assert_eq!(pixels[c] as u32, (block + 2) / 4);
+                assert_eq!(pixels[5 * 4 + c], source[14 * 4 + c]);
+            }
+            image_free(half);
+
+            // Halving stops shrinking at one pixel
+            let single = test_handle(1, 1);
+            let still_single = image_downsample_half(single);
+            assert_eq!(((*still_single).width, (*still_single).height), (1, 1));
+            image_free(single);
+            image_free(still_single);
+
+            assert!(image_downsample_half(ptr::null()).is_null());
+            image_free(handle);
+        }
+    }
+
+    #[test]
+    fn resize_region_checks_bounds() {
+        let handle = test_handle(8, 6);
+        unsafe {
+            let tile = image_resize_region(handle, 80, 60, 64, 32, 16, 28, 1);
+            assert!(!tile.is_null());
+            assert_eq!(((*tile).width, (*tile).height), (16, 28));
+            image_free(tile);
+
+            // Empty, past the edge, or overflowing
+            assert!(image_resize_region(handle, 80, 60, 0, 0, 0, 10, 1).is_null());
+            assert!(image_resize_region(handle, 80, 60, 70, 0, 16, 10, 1).is_null());
+            assert!(image_resize_region(handle, 80, 60, u32::MAX, 0, 2, 10, 1).is_null());
+            assert!(image_resize_region(ptr::null(), 80, 60, 0, 0, 8, 8, 1).is_null());
+            image_free(handle);
+        }
+    }
+
+    /// Full decode against decode at screen size, run with
+    /// `cargo test --release -- --ignored --nocapture bench_load_scaled`
+    #[test]
+    #[ignore]
+    fn bench_load_scaled() {
+        let handle = test_handle(8000, 6000);
+        let path = std::env::temp_dir().join(format!("rs-image-bench-{}.png", std::process::id()));
+        let c_path = std::ffi::CString::new(path.to_str().unwrap()).unwrap();
+        unsafe {
+            image_save(handle, c_path.as_ptr());
+            image_free(handle);
+
+            let start = Instant::now();
+            let full = image_load(c_path.as_ptr());
+            let fitted = image_resize_with_filter(full, 1920, 1080, 1);
+            let old_path = start.elapsed();
+            assert_eq!(fitted, ImageResult::Success);
+            image_free(full);
+
+            let start = Instant::now();
+            let scaled = image_load_scaled(c_path.as_ptr(), 1920, 1080, ptr::null_mut());
+            let new_path = start.elapsed();
+            println!(
+                "load and fit {old_path:?}, load scaled {new_path:?} ({}x{} kept)",
+                (*scaled).width,
+                (*scaled).height
+            );
+            image_free(scaled);
+        }
+        let _ = std::fs::remove_file(path);
+    }
 }
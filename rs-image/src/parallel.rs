@@ -0,0 +1,122 @@
+//! Worker pool shared by the multithreaded kernels. Its size can be changed at
+//! any time through `image_set_thread_count`; kernels already running finish
+//! on the pool they started on.
+
+use rayon::prelude::*;
+use rayon::{ThreadPool, ThreadPoolBuilder};
+use std::sync::{Arc, RwLock};
+
+/// Work smaller than this runs on the calling thread, where handing it to the
+/// pool would cost more than it saves
+const MIN_TASK_BYTES: usize = 256 * 1024;
+
+static POOL: RwLock<Option<Arc<ThreadPool>>> = RwLock::new(None);
+
+fn build_pool(threads: usize) -> Option<ThreadPool> {
+    ThreadPoolBuilder::new()
+        .num_threads(threads)
+        .thread_name(|i| format!("rs-image-{i}"))
+        .build()
+        .ok()
+}
+
+/// Replace the pool; 0 picks one thread per core
+pub fn set_thread_count(threads: usize) -> bool {
+    match build_pool(threads) {
+        Some(pool) => {
+            *POOL.write().unwrap_or_else(|e| e.into_inner()) = Some(Arc::new(pool));
+            true
+        }
+        None => false,
+    }
+}
+
+pub fn thread_count() -> usize {
+    pool().map_or(1, |pool| pool.current_num_threads())
+}
+
+fn pool() -> Option<Arc<ThreadPool>> {
+    if let Some(pool) = POOL.read().unwrap_or_else(|e| e.into_inner()).as_ref() {
+        return Some(pool.clone());
+    }
+    let mut slot = POOL.write().unwrap_or_else(|e| e.into_inner());
+    if slot.is_none() {
+        *slot = build_pool(0).map(Arc::new);
+    }
+    slot.clone()
+}
+
+/// Run `op` on the pool, or on the calling thread if no pool could be started
+pub fn install<R, F>(op: F) -> R
+where
+    R: Send,
+    F: FnOnce() -> R + Send,
+{
+    match pool() {
+        Some(pool) => pool.install(op),
+        None => op(),
+    }
+}
+
+/// Split `data` into chunks that are whole multiples of `unit` elements and
+/// process them in parallel. `f` gets the index of the chunk's first unit.
+pub fn for_each_chunk<T, F>(data: &mut [T], unit: usize, f: F)
+where
+    T: Send,
+    F: Fn(usize, &mut [T]) + Send + Sync,
+{
+    for_each_chunk_weighted(data, unit, 1, f)
+}
+
+/// Like `for_each_chunk` for kernels that do about `cost` times the work per
+/// element of a simple per-byte pass, so tasks are sized by work, not bytes
+pub fn for_each_chunk_weighted<T, F>(data: &mut [T], unit: usize, cost: usize, f: F)
+where
+    T: Send,
+    F: Fn(usize, &mut [T]) + Send + Sync,
+{
+    let unit = unit.max(1);
+    let unit_cost = (unit * std::mem::size_of::<T>() * cost).max(1);
+    let units_per_task = (MIN_TASK_BYTES / unit_cost).max(1);
+    let task_len = units_per_task * unit;
+    if data.len() <= task_len {
+        f(0, data);
+        return;
+    }
+    install(|| {
+        data.par_chunks_mut(task_len)
+            .enumerate()
+            .for_each(|(i, chunk)| f(i * units_per_task, chunk));
+    });
+}
+
+/// Visit the rows of `pixels` in pairs from the outside in: the first row
+/// with the last, the second with the second to last, and so on. The middle
+/// row of an odd height is passed to `middle` alone.
+pub fn for_each_row_pair<F, M>(pixels: &mut [u8], stride: usize, height: usize, pair: F, middle: M)
+where
+    F: Fn(&mut [u8], &mut [u8]) + Send + Sync,
+    M: FnOnce(&mut [u8]),
+{
+    let half = height / 2;
+    let (top, rest) = pixels.split_at_mut(half * stride);
+    let (mid, bottom) = rest.split_at_mut((height - 2 * half) * stride);
+
+    if top.len() <= MIN_TASK_BYTES {
+        for (a, b) in top.chunks_exact_mut(stride).zip(bottom.chunks_exact_mut(stride).rev()) {
+            pair(a, b);
+        }
+    } else {
+        let rows_per_task = (MIN_TASK_BYTES / stride).max(1);
+        install(|| {
+            top.par_chunks_exact_mut(stride)
+                .zip(bottom.par_chunks_exact_mut(stride).rev())
+                .with_min_len(rows_per_task)
+                .for_each(|(a, b)| pair(a, b));
+        });
+    }
+
+    if !mid.is_empty() {
+        middle(mid);
+    }
+}
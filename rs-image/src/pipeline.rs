@@ -0,0 +1,518 @@
+//! Planner and executor behind `image_apply_pipeline`. The caller's operation
+//! list is rewritten into as few passes as possible before any pixel is
+//! touched:
+//!
+//! - rotations and flips are composed into a single reorientation, moved ahead
+//!   of color adjustments (which they commute with exactly)
+//! - consecutive color adjustments compile to one lookup table pass, see
+//!   `point`
+//! - a downscale runs before the reorientation and before an inversion, which
+//!   commute with resampling, so those touch fewer pixels
+//!
+//! Moving a resample can change results by rounding, one level per channel at
+//! most.
+
+use crate::blur;
+use crate::inplace;
+use crate::parallel;
+use crate::point::{PointOp, PointProgram};
+use crate::resample;
+use image::imageops::FilterType;
+use image::RgbaImage;
+
+/// One operation as laid out by the Java side: five 32-bit fields per entry
+#[repr(C)]
+#[derive(Clone, Copy, Debug)]
+pub struct PipelineOp {
+    pub code: u32,
+    pub width: u32,
+    pub height: u32,
+    pub filter: u32,
+    pub value: f32,
+}
+
+pub const OP_ROTATE_90: u32 = 0;
+pub const OP_ROTATE_180: u32 = 1;
+pub const OP_ROTATE_270: u32 = 2;
+pub const OP_FLIP_HORIZONTAL: u32 = 3;
+pub const OP_FLIP_VERTICAL: u32 = 4;
+pub const OP_RESIZE: u32 = 5;
+pub const OP_BRIGHTNESS: u32 = 6;
+pub const OP_CONTRAST: u32 = 7;
+pub const OP_BLUR: u32 = 8;
+pub const OP_GRAYSCALE: u32 = 9;
+pub const OP_INVERT: u32 = 10;
+
+/// An element of the dihedral group: rotate clockwise by `quarter_turns`, then
+/// mirror left to right if `flip` is set
+#[derive(Clone, Copy, Debug, PartialEq)]
+pub struct Orientation {
+    quarter_turns: u8,
+    flip: bool,
+}
+
+impl Orientation {
+    pub const IDENTITY: Orientation = Orientation::new(0, false);
+
+    pub const fn new(quarter_turns: u8, flip: bool) -> Self {
+        Orientation {
+            quarter_turns: quarter_turns % 4,
+            flip,
+        }
+    }
+
+    /// This orientation followed by `next`. A mirror reverses the direction of
+    /// any rotation applied after it.
+    pub fn then(self, next: Orientation) -> Orientation {
+        let turns = if self.flip {
+            self.quarter_turns + 4 - next.quarter_turns
+        } else {
+            self.quarter_turns + next.quarter_turns
+        };
+        Orientation::new(turns, self.flip != next.flip)
+    }
+
+    /// The orientation an EXIF orientation value, 1 to 8, asks a viewer to
+    /// apply to the stored pixels
+    pub fn from_exif(value: u16) -> Option<Orientation> {
+        let (quarter_turns, flip) = match value {
+            1 => (0, false),
+            2 => (0, true),
+            3 => (2, false),
+            4 => (2, true),
+            5 => (1, true),
+            6 => (1, false),
+            7 => (3, true),
+            8 => (3, false),
+            _ => return None,
+        };
+        Some(Orientation::new(quarter_turns, flip))
+    }
+
+    pub fn to_exif(self) -> u16 {
+        match (self.quarter_turns, self.flip) {
+            (0, false) => 1,
+            (0, true) => 2,
+            (2, false) => 3,
+            (2, true) => 4,
+            (1, true) => 5,
+            (1, false) => 6,
+            (3, true) => 7,
+            _ => 8,
+        }
+    }
+
+    pub fn is_identity(self) -> bool {
+        self == Orientation::IDENTITY
+    }
+
+    pub fn swaps_axes(self) -> bool {
+        self.quarter_turns % 2 == 1
+    }
+
+    /// Reorient in place where the dimensions allow it, otherwise remap into a
+    /// single new buffer
+    pub fn apply(self, mut image: RgbaImage) -> RgbaImage {
+        let width = image.width() as usize;
+        let height = image.height() as usize;
+        match (self.quarter_turns, self.flip) {
+            (0, false) => image,
+            (0, true) => {
+                inplace::flip_horizontal(&mut image, width);
+                image
+            }
+            (2, false) => {
+                inplace::rotate_180(&mut image, width, height);
+                image
+            }
+            (2, true) => {
+                inplace::flip_vertical(&mut image, width, height);
+                image
+            }
+            (1, false) => remap_transposed(&image, |x, y| (y, height - 1 - x)),
+            (1, true) => remap_transposed(&image, |x, y| (y, x)),
+            (3, false) => remap_transposed(&image, |x, y| (width - 1 - y, x)),
+            (_, _) => remap_transposed(&image, |x, y| (width - 1 - y, height - 1 - x)),
+        }
+    }
+}
+
+/// Build the image with width and height swapped whose pixel at (x, y) is the
+/// source pixel `source` names. Output rows are filled in parallel.
+fn remap_transposed<F>(image: &RgbaImage, source: F) -> RgbaImage
+where
+    F: Fn(usize, usize) -> (usize, usize) + Send + Sync,
+{
+    let width = image.width() as usize;
+    let height = image.height() as usize;
+    let src: &[u8] = image;
+    let mut dst = vec![0u8; src.len()];
+
+    // The output is `height` pixels wide and `width` rows high
+    let stride = height * 4;
+    parallel::for_each_chunk(&mut dst, stride, |first_row, rows| {
+        for (i, row) in rows.chunks_exact_mut(stride).enumerate() {
+            let y = first_row + i;
+            for (x, px) in row.chunks_exact_mut(4).enumerate() {
+                let (sx, sy) = source(x, y);
+                let s = (sy * width + sx) * 4;
+                px.copy_from_slice(&src[s..s + 4]);
+            }
+        }
+    });
+
+    RgbaImage::from_raw(height as u32, width as u32, dst).expect("buffer matches dimensions")
+}
+
+/// A planned pass over the image
+#[derive(Clone, Debug, PartialEq)]
+pub enum Step {
+    Orient(Orientation),
+    Resize { width: u32, height: u32, filter: u32 },
+    Blur(f32),
+    Point(Vec<PointOp>),
+}
+
+/// Map a filter code shared with the Java ResizeFilter enum
+pub fn filter_type(code: u32) -> FilterType {
+    match code {
+        0 => FilterType::Nearest,
+        1 => FilterType::Triangle,
+        2 => FilterType::CatmullRom,
+        3 => FilterType::Gaussian,
+        4 => FilterType::Lanczos3,
+        _ => FilterType::Nearest, // Default fallback
+    }
+}
+
+/// The size DynamicImage::resize produces: the largest size that fits in the
+/// requested box and keeps the aspect ratio
+pub fn fit_dimensions(width: u32, height: u32, box_width: u32, box_height: u32) -> (u32, u32) {
+    if (box_width, box_height) == (width, height) {
+        return (width, height);
+    }
+    let ratio = f64::min(
+        f64::from(box_width) / f64::from(width),
+        f64::from(box_height) / f64::from(height),
+    );
+    let fitted_width = (f64::from(width) * ratio).round().clamp(1.0, f64::from(u32::MAX));
+    let fitted_height = (f64::from(height) * ratio).round().clamp(1.0, f64::from(u32::MAX));
+    (fitted_width as u32, fitted_height as u32)
+}
+
+/// Plan the passes for an image of the given size
+/// Returns None if an operation is unknown or has invalid arguments
+pub fn plan(ops: &[PipelineOp], width: u32, height: u32) -> Option<Vec<Step>> {
+    let mut steps: Vec<Step> = Vec::new();
+    let (mut width, mut height) = (width, height);
+
+    for op in ops {
+        match op.code {
+            OP_ROTATE_90 => push_orientation(&mut steps, Orientation::new(1, false)),
+            OP_ROTATE_180 => push_orientation(&mut steps, Orientation::new(2, false)),
+            OP_ROTATE_270 => push_orientation(&mut steps, Orientation::new(3, false)),
+            OP_FLIP_HORIZONTAL => push_orientation(&mut steps, Orientation::new(0, true)),
+            OP_FLIP_VERTICAL => push_orientation(&mut steps, Orientation::new(2, true)),
+            OP_BRIGHTNESS => push_point(&mut steps, PointOp::Brighten(op.value as i32)),
+            OP_CONTRAST => push_point(&mut steps, PointOp::Contrast(op.value)),
+            OP_GRAYSCALE => push_point(&mut steps, PointOp::Grayscale),
+            OP_INVERT => push_point(&mut steps, PointOp::Invert),
+            OP_BLUR => {
+                if !op.value.is_finite() {
+                    return None;
+                }
+                steps.push(Step::Blur(op.value));
+            }
+            OP_RESIZE => {
+                if op.width == 0 || op.height == 0 {
+                    return None;
+                }
+                let fitted = fit_dimensions(width, height, op.width, op.height);
+                push_resize(&mut steps, (width, height), fitted, op.filter);
+                (width, height) = fitted;
+            }
+            _ => return None,
+        }
+    }
+
+    steps.retain(|step| !matches!(step, Step::Orient(o) if o.is_identity()));
+    Some(steps)
+}
+
+/// Run planned passes, reusing buffers wherever a pass works in place
+pub fn execute(mut image: RgbaImage, steps: &[Step]) -> RgbaImage {
+    for step in steps {
+        image = match step {
+            Step::Orient(orientation) => orientation.apply(image),
+            Step::Resize {
+                width,
+                height,
+                filter,
+            } => resample::resize(&image, *width, *height, filter_type(*filter)),
+            Step::Blur(sigma) => blur::blur(&image, *sigma),
+            Step::Point(ops) => {
+                PointProgram::compile(ops).apply(&mut image);
+                image
+            }
+        };
+    }
+    image
+}
+
+/// The orientation still to be applied after the last resample or blur
+fn pending_orientation(steps: &[Step]) -> Orientation {
+    steps
+        .iter()
+        .rev()
+        .take_while(|step| matches!(step, Step::Orient(_) | Step::Point(_)))
+        .find_map(|step| match step {
+            Step::Orient(o) => Some(*o),
+            _ => None,
+        })
+        .unwrap_or(Orientation::IDENTITY)
+}
+
+/// Merge into the orientation of the current segment, which always sits
+/// before that segment's color adjustments
+fn push_orientation(steps: &mut Vec<Step>, orientation: Orientation) {
+    let mut index = steps.len();
+    while index > 0 && matches!(steps[index - 1], Step::Point(_)) {
+        index -= 1;
+    }
+    if index > 0 {
+        if let Step::Orient(previous) = &mut steps[index - 1] {
+            *previous = previous.then(orientation);
+            return;
+        }
+    }
+    steps.insert(index, Step::Orient(orientation));
+}
+
+fn push_point(steps: &mut Vec<Step>, op: PointOp) {
+    if let Some(Step::Point(ops)) = steps.last_mut() {
+        ops.push(op);
+    } else {
+        steps.push(Step::Point(vec![op]));
+    }
+}
+
+/// Append a resample from `from` to `to`, both the size the caller sees. A
+/// downscale is moved ahead of the pending orientation and of the trailing
+/// adjustments that allow it.
+fn push_resize(steps: &mut Vec<Step>, from: (u32, u32), to: (u32, u32), filter: u32) {
+    if to == from {
+        return;
+    }
+
+    let downscale = u64::from(to.0) * u64::from(to.1) < u64::from(from.0) * u64::from(from.1);
+    if !downscale {
+        steps.push(Step::Resize {
+            width: to.0,
+            height: to.1,
+            filter,
+        });
+        return;
+    }
+
+    // Resampling before the orientation means resampling the transposed size
+    let orientation = pending_orientation(steps);
+    let (width, height) = if orientation.swaps_axes() {
+        (to.1, to.0)
+    } else {
+        to
+    };
+
+    let mut deferred = Vec::new();
+    if let Some(Step::Point(ops)) = steps.last_mut() {
+        let keep = ops
+            .iter()
+            .rposition(|op| !op.commutes_with_resample())
+            .map_or(0, |i| i + 1);
+        deferred = ops.split_off(keep);
+        if ops.is_empty() {
+            steps.pop();
+        }
+    }
+
+    // Color adjustments commute with the orientation, so it can be lifted out
+    // from in front of the ones that stay
+    let mut segment_start = steps.len();
+    while segment_start > 0 && matches!(steps[segment_start - 1], Step::Point(_)) {
+        segment_start -= 1;
+    }
+    if segment_start > 0 && matches!(steps[segment_start - 1], Step::Orient(_)) {
+        steps.remove(segment_start - 1);
+    }
+
+    steps.push(Step::Resize {
+        width,
+        height,
+        filter,
+    });
+    if !orientation.is_identity() {
+        steps.push(Step::Orient(orientation));
+    }
+    if !deferred.is_empty() {
+        steps.push(Step::Point(deferred));
+    }
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use image::imageops;
+
+    fn op(code: u32) -> PipelineOp {
+        PipelineOp {
+            code,
+            width: 0,
+            height: 0,
+            filter: 0,
+            value: 0.0,
+        }
+    }
+
+    fn resize(width: u32, height: u32) -> PipelineOp {
+        PipelineOp {
+            width,
+            height,
+            ..op(OP_RESIZE)
+        }
+    }
+
+    fn valued(code: u32, value: f32) -> PipelineOp {
+        PipelineOp { value, ..op(code) }
+    }
+
+    #[test]
+    fn orientations_compose_like_the_operations() {
+        let rotate = Orientation::new(1, false);
+        let flip = Orientation::new(0, true);
+        assert_eq!(rotate.then(rotate).then(rotate).then(rotate), Orientation::IDENTITY);
+        assert_eq!(flip.then(flip), Orientation::IDENTITY);
+        // A mirror reverses the direction of a later rotation
+        assert_eq!(flip.then(rotate), Orientation::new(3, true));
+        assert_eq!(rotate.then(flip), Orientation::new(1, true));
+        assert_eq!(flip.then(rotate).then(flip), Orientation::new(3, false));
+    }
+
+    #[test]
+    fn orientations_apply_like_the_operations() {
+        let data: Vec<u8> = (0..5 * 3 * 4).map(|i| i as u8).collect();
+        let source = RgbaImage::from_raw(5, 3, data).unwrap();
+        let cases: [(u8, bool, fn(&RgbaImage) -> RgbaImage); 8] = [
+            (0, false, |img| img.clone()),
+            (0, true, |img| imageops::flip_horizontal(img)),
+            (1, false, |img| imageops::rotate90(img)),
+            (1, true, |img| imageops::flip_horizontal(&imageops::rotate90(img))),
+            (2, false, |img| imageops::rotate180(img)),
+            (2, true, |img| imageops::flip_vertical(img)),
+            (3, false, |img| imageops::rotate270(img)),
+            (3, true, |img| imageops::flip_horizontal(&imageops::rotate270(img))),
+        ];
+        for (turns, flip, reference) in cases {
+            let actual = Orientation::new(turns, flip).apply(source.clone());
+            assert_eq!(actual, reference(&source), "{turns} turns, flip {flip}");
+        }
+    }
+
+    #[test]
+    fn exif_orientations_match_the_decoder() {
+        let data: Vec<u8> = (0..5 * 3 * 4).map(|i| i as u8).collect();
+        let source = RgbaImage::from_raw(5, 3, data).unwrap();
+        for value in 1..=8u16 {
+            let orientation = Orientation::from_exif(value).unwrap();
+            assert_eq!(orientation.to_exif(), value);
+
+            let mut expected = image::DynamicImage::ImageRgba8(source.clone());
+            expected.apply_orientation(image::metadata::Orientation::from_exif(value as u8).unwrap());
+            assert_eq!(orientation.apply(source.clone()), expected.into_rgba8(), "EXIF {value}");
+        }
+        assert_eq!(Orientation::from_exif(0), None);
+        assert_eq!(Orientation::from_exif(9), None);
+    }
+
+    #[test]
+    fn plan_fuses_orientation_and_point_runs() {
+        let ops = [
+            op(OP_ROTATE_90),
+            op(OP_INVERT),
+            op(OP_ROTATE_90),
+            valued(OP_BRIGHTNESS, 10.0),
+            op(OP_FLIP_VERTICAL),
+        ];
+        assert_eq!(
+            plan(&ops, 40, 20).unwrap(),
+            vec![
+                Step::Orient(Orientation::new(0, true)),
+                Step::Point(vec![PointOp::Invert, PointOp::Brighten(10)]),
+            ]
+        );
+    }
+
+    #[test]
+    fn plan_drops_identity_work() {
+        let ops = [op(OP_FLIP_HORIZONTAL), op(OP_FLIP_HORIZONTAL), resize(40, 20)];
+        assert_eq!(plan(&ops, 40, 20).unwrap(), Vec::new());
+    }
+
+    #[test]
+    fn plan_moves_downscale_ahead() {
+        let ops = [
+            op(OP_ROTATE_90),
+            valued(OP_CONTRAST, 20.0),
+            op(OP_INVERT),
+            resize(10, 20),
+        ];
+        assert_eq!(
+            plan(&ops, 40, 20).unwrap(),
+            vec![
+                Step::Point(vec![PointOp::Contrast(20.0)]),
+                Step::Resize {
+                    width: 20,
+                    height: 10,
+                    filter: 0
+                },
+                Step::Orient(Orientation::new(1, false)),
+                Step::Point(vec![PointOp::Invert]),
+            ]
+        );
+    }
+
+    #[test]
+    fn plan_keeps_upscale_last() {
+        let ops = [op(OP_ROTATE_90), op(OP_INVERT), resize(80, 160)];
+        assert_eq!(
+            plan(&ops, 40, 20).unwrap(),
+            vec![
+                Step::Orient(Orientation::new(1, false)),
+                Step::Point(vec![PointOp::Invert]),
+                Step::Resize {
+                    width: 80,
+                    height: 160,
+                    filter: 0
+                },
+            ]
+        );
+    }
+
+    #[test]
+    fn plan_fits_resize_like_dynamic_image() {
+        let steps = plan(&[resize(100, 100)], 400, 200).unwrap();
+        assert_eq!(
+            steps,
+            vec![Step::Resize {
+                width: 100,
+                height: 50,
+                filter: 0
+            }]
+        );
+    }
+
+    #[test]
+    fn plan_rejects_invalid_ops() {
+        assert_eq!(plan(&[op(99)], 4, 4), None);
+        assert_eq!(plan(&[resize(0, 4)], 4, 4), None);
+        assert_eq!(plan(&[valued(OP_BLUR, f32::NAN)], 4, 4), None);
+    }
+}
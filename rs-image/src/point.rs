@@ -0,0 +1,213 @@
+//! Point operations: color adjustments where each output pixel depends only on
+//! the same input pixel. Any sequence of them compiles to a lookup table
+//! shared by the color channels, an optional grayscale mix, and a second table,
+//! so a stack of adjustments costs a single pass over the pixels.
+
+use crate::parallel;
+
+/// A color adjustment that maps each pixel on its own
+#[derive(Clone, Copy, Debug, PartialEq)]
+pub enum PointOp {
+    Brighten(i32),
+    Contrast(f32),
+    Grayscale,
+    Invert,
+}
+
+impl PointOp {
+    /// Affine in the color channels without clamping and leaves alpha alone,
+    /// so it gives the same result before or after a resample up to rounding
+    pub fn commutes_with_resample(self) -> bool {
+        matches!(self, PointOp::Invert)
+    }
+
+    /// Apply to every entry of a channel table. Grayscale mixes channels and is
+    /// handled by the program instead.
+    fn map_table(self, table: &mut [u8; 256]) {
+        match self {
+            PointOp::Brighten(value) => {
+                for v in table.iter_mut() {
+                    *v = (*v as i32 + value).clamp(0, 255) as u8;
+                }
+            }
+            PointOp::Contrast(contrast) => {
+                // Same arithmetic as imageops::contrast
+                let percent = ((100.0 + contrast) / 100.0).powi(2);
+                for v in table.iter_mut() {
+                    let d = ((*v as f32 / 255.0 - 0.5) * percent + 0.5) * 255.0;
+                    *v = d.clamp(0.0, 255.0) as u8;
+                }
+            }
+            PointOp::Invert => {
+                for v in table.iter_mut() {
+                    *v = 255 - *v;
+                }
+            }
+            PointOp::Grayscale => {}
+        }
+    }
+}
+
+/// Rec. 709 luma weights as used by `to_luma8`, scaled to integers
+const LUMA_WEIGHTS: [u32; 3] = [2126, 7152, 722];
+const LUMA_DIVISOR: u32 = 10000;
+
+/// A compiled sequence of point operations
+pub struct PointProgram {
+    before_gray: [u8; 256],
+    /// Luma contribution of each channel value after `before_gray`, present if
+    /// the sequence contains a grayscale conversion
+    gray: Option<[[u32; 256]; 3]>,
+    after_gray: [u8; 256],
+}
+
+impl PointProgram {
+    pub fn compile(ops: &[PointOp]) -> Self {
+        let mut before_gray = identity_table();
+        let mut after_gray = identity_table();
+        let mut has_gray = false;
+
+        for &op in ops {
+            if op == PointOp::Grayscale {
+                // Gray pixels map to themselves, so only the first one counts
+                has_gray = true;
+            } else if has_gray {
+                op.map_table(&mut after_gray);
+            } else {
+                op.map_table(&mut before_gray);
+            }
+        }
+
+        let gray = has_gray.then(|| {
+            let mut weights = [[0u32; 256]; 3];
+            for (channel, table) in weights.iter_mut().enumerate() {
+                for (entry, &v) in table.iter_mut().zip(before_gray.iter()) {
+                    *entry = LUMA_WEIGHTS[channel] * v as u32;
+                }
+            }
+            weights
+        });
+
+        PointProgram {
+            before_gray,
+            gray,
+            after_gray,
+        }
+    }
+
+    /// True if applying the program would not change any pixel
+    pub fn is_identity(&self) -> bool {
+        self.gray.is_none() && self.before_gray == identity_table()
+    }
+
+    /// Apply to an RGBA buffer in one pass, split across the worker pool.
+    /// Grayscale output is opaque, like a round trip through Luma8.
+    pub fn apply(&self, pixels: &mut [u8]) {
+        if self.is_identity() {
+            return;
+        }
+        parallel::for_each_chunk(pixels, 4, |_, chunk| self.apply_serial(chunk));
+    }
+
+    fn apply_serial(&self, pixels: &mut [u8]) {
+        match &self.gray {
+            Some([red, green, blue]) => {
+                for px in pixels.chunks_exact_mut(4) {
+                    let luma = (red[px[0] as usize] + green[px[1] as usize] + blue[px[2] as usize])
+                        / LUMA_DIVISOR;
+                    let v = self.after_gray[luma as usize];
+                    px.copy_from_slice(&[v, v, v, 255]);
+                }
+            }
+            None => {
+                let table = &self.before_gray;
+                for px in pixels.chunks_exact_mut(4) {
+                    px[0] = table[px[0] as usize];
+                    px[1] = table[px[1] as usize];
+                    px[2] = table[px[2] as usize];
+                }
+            }
+        }
+    }
+}
+
+fn identity_table() -> [u8; 256] {
+    let mut table = [0u8; 256];
+    for (i, v) in table.iter_mut().enumerate() {
+        *v = i as u8;
+    }
+    table
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+
+    /// One operation applied to one pixel the way the separate passes did
+    fn reference(op: PointOp, px: &mut [u8]) {
+        match op {
+            PointOp::Grayscale => {
+                let luma = (2126 * px[0] as u32 + 7152 * px[1] as u32 + 722 * px[2] as u32) / 10000;
+                px.copy_from_slice(&[luma as u8, luma as u8, luma as u8, 255]);
+            }
+            PointOp::Brighten(value) => {
+                for c in &mut px[..3] {
+                    *c = (*c as i32 + value).clamp(0, 255) as u8;
+                }
+            }
+            PointOp::Contrast(contrast) => {
+                let percent = ((100.0 + contrast) / 100.0).powi(2);
+                for c in &mut px[..3] {
+                    let d = ((*c as f32 / 255.0 - 0.5) * percent + 0.5) * 255.0;
+                    *c = d.clamp(0.0, 255.0) as u8;
+                }
+            }
+            PointOp::Invert => {
+                for c in &mut px[..3] {
+                    *c = 255 - *c;
+                }
+            }
+        }
+    }
+
+    fn test_pixels() -> Vec<u8> {
+        (0..4096u32).map(|i| (i * 37 + i / 5) as u8).collect()
+    }
+
+    #[test]
+    fn compiled_sequences_match_separate_passes() {
+        let ops = [
+            PointOp::Brighten(-30),
+            PointOp::Contrast(45.0),
+            PointOp::Invert,
+            PointOp::Grayscale,
+            PointOp::Brighten(20),
+            PointOp::Contrast(-60.0),
+            PointOp::Grayscale,
+            PointOp::Invert,
+        ];
+        // Every window of the list, so each op lands before and after gray
+        for start in 0..ops.len() {
+            for end in start..=ops.len() {
+                let sequence = &ops[start..end];
+                let mut expected = test_pixels();
+                for px in expected.chunks_exact_mut(4) {
+                    for &op in sequence {
+                        reference(op, px);
+                    }
+                }
+                let mut actual = test_pixels();
+                PointProgram::compile(sequence).apply(&mut actual);
+                assert!(expected == actual, "{sequence:?}");
+            }
+        }
+    }
+
+    #[test]
+    fn empty_and_cancelling_programs_are_identity() {
+        assert!(PointProgram::compile(&[]).is_identity());
+        assert!(PointProgram::compile(&[PointOp::Invert, PointOp::Invert]).is_identity());
+        assert!(!PointProgram::compile(&[PointOp::Brighten(1)]).is_identity());
+        assert!(!PointProgram::compile(&[PointOp::Grayscale]).is_identity());
+    }
+}
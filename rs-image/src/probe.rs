@@ -0,0 +1,351 @@
+//! Header-only probing behind `image_probe`. Only as much of a file is read
+//! as it takes to learn its size, colour type, format and frame count;
+//! nothing is decompressed. The image crate's decoders read no more than
+//! their headers when created, except the JPEG one, which reads the whole
+//! file, so JPEG markers are scanned here. Frame counts come from walking the
+//! container: GIF blocks, the PNG animation chunk and WebP frame chunks.
+//!
+//! Codes reported:
+//! - colour type: 0 L8, 1 La8, 2 Rgb8, 3 Rgba8, 4 L16, 5 La16, 6 Rgb16,
+//!   7 Rgba16, 8 Rgb32F, 9 Rgba32F
+//! - format: 0 PNG, 1 JPEG, 2 GIF, 3 WebP, 4 PNM, 5 TIFF, 6 TGA, 7 DDS, 8 BMP,
+//!   9 ICO, 10 HDR, 11 OpenEXR, 12 Farbfeld, 13 AVIF, 14 QOI
+
+use crate::jpeg;
+use crate::pipeline::Orientation;
+use crate::ImageResult;
+use image::{ColorType, ImageDecoder, ImageError, ImageFormat, ImageReader};
+use std::fs::File;
+use std::io::{self, BufReader, Read, Seek, SeekFrom};
+use std::path::Path;
+
+type Reader = BufReader<File>;
+
+/// What a probe finds; the size is as displayed, after the orientation the
+/// file asks for
+#[derive(Debug, PartialEq)]
+pub struct Info {
+    pub width: u32,
+    pub height: u32,
+    pub color_type: u32,
+    pub format: u32,
+    pub frames: u32,
+}
+
+pub fn probe(path: &Path) -> Result<Info, ImageResult> {
+    let reader = ImageReader::open(path)
+        .and_then(|reader| reader.with_guessed_format())
+        .map_err(|_| ImageResult::ErrorLoadFailed)?;
+    let format = reader.format().ok_or(ImageResult::ErrorUnsupportedFormat)?;
+    let format_code = format_code(format).ok_or(ImageResult::ErrorUnsupportedFormat)?;
+    let mut file = reader.into_inner();
+
+    let (width, height, color_type, orientation) = if format == ImageFormat::Jpeg {
+        jpeg_header(&mut file).ok_or(ImageResult::ErrorLoadFailed)?
+    } else {
+        let mut decoder = ImageReader::with_format(&mut file, format)
+            .into_decoder()
+            .map_err(|error| match error {
+                ImageError::Unsupported(_) => ImageResult::ErrorUnsupportedFormat,
+                _ => ImageResult::ErrorLoadFailed,
+            })?;
+        let (width, height) = decoder.dimensions();
+        let orientation = decoder
+            .orientation()
+            .ok()
+            .and_then(|orientation| Orientation::from_exif(orientation.to_exif() as u16))
+            .unwrap_or(Orientation::IDENTITY);
+        (width, height, decoder.color_type(), orientation)
+    };
+
+    let frames = match format {
+        ImageFormat::Gif => count_frames(&mut file, gif_frames),
+        ImageFormat::Png => count_frames(&mut file, png_frames),
+        ImageFormat::WebP => count_frames(&mut file, webp_frames),
+        _ => 1,
+    };
+
+    let (width, height) = if orientation.swaps_axes() {
+        (height, width)
+    } else {
+        (width, height)
+    };
+    Ok(Info {
+        width,
+        height,
+        color_type: color_code(color_type),
+        format: format_code,
+        frames,
+    })
+}
+
+fn color_code(color_type: ColorType) -> u32 {
+    match color_type {
+        ColorType::L8 => 0,
+        ColorType::La8 => 1,
+        ColorType::Rgb8 => 2,
+        ColorType::L16 => 4,
+        ColorType::La16 => 5,
+        ColorType::Rgb16 => 6,
+        ColorType::Rgba16 => 7,
+        ColorType::Rgb32F => 8,
+        ColorType::Rgba32F => 9,
+        // Rgba8, and any type added later, which loads as RGBA8 too
+        _ => 3,
+    }
+}
+
+fn format_code(format: ImageFormat) -> Option<u32> {
+    Some(match format {
+        ImageFormat::Png => 0,
+        ImageFormat::Jpeg => 1,
+        ImageFormat::Gif => 2,
+        ImageFormat::WebP => 3,
+        ImageFormat::Pnm => 4,
+        ImageFormat::Tiff => 5,
+        ImageFormat::Tga => 6,
+        ImageFormat::Dds => 7,
+        ImageFormat::Bmp => 8,
+        ImageFormat::Ico => 9,
+        ImageFormat::Hdr => 10,
+        ImageFormat::OpenExr => 11,
+        ImageFormat::Farbfeld => 12,
+        ImageFormat::Avif => 13,
+        ImageFormat::Qoi => 14,
+        _ => return None,
+    })
+}
+
+/// Size, colour type and orientation from the markers before the first
+/// frame header
+fn jpeg_header(file: &mut Reader) -> Option<(u32, u32, ColorType, Orientation)> {
+    if read_u8(file).ok()? != 0xFF || read_u8(file).ok()? != 0xD8 {
+        return None;
+    }
+    let mut orientation = Orientation::IDENTITY;
+    loop {
+        if read_u8(file).ok()? != 0xFF {
+            return None;
+        }
+        // Markers may be padded with fill bytes
+        let mut marker = read_u8(file).ok()?;
+        while marker == 0xFF {
+            marker = read_u8(file).ok()?;
+        }
+        match marker {
+            // Markers without a segment
+            0x01 | 0xD0..=0xD7 => continue,
+            // Image data or the end before any frame header
+            0xD9 | 0xDA => return None,
+            _ => {}
+        }
+        let mut length = [0u8; 2];
+        file.read_exact(&mut length).ok()?;
+        let payload = (u16::from_be_bytes(length) as usize).checked_sub(2)?;
+        match marker {
+            // Start of frame; C4, C8 and CC share the range but are not
+            0xC0..=0xCF if !matches!(marker, 0xC4 | 0xC8 | 0xCC) => {
+                let mut frame = [0u8; 6];
+                file.read_exact(&mut frame).ok()?;
+                let height = u16::from_be_bytes([frame[1], frame[2]]) as u32;
+                let width = u16::from_be_bytes([frame[3], frame[4]]) as u32;
+                if width == 0 || height == 0 {
+                    return None;
+                }
+                // CMYK and YCbCr both decode to RGB
+                let color_type = if frame[5] == 1 {
+                    ColorType::L8
+                } else {
+                    ColorType::Rgb8
+                };
+                return Some((width, height, color_type, orientation));
+            }
+            0xE1 => {
+                let mut segment = vec![0u8; payload];
+                file.read_exact(&mut segment).ok()?;
+                if let Some(exif) = segment.strip_prefix(jpeg::EXIF_HEADER) {
+                    orientation = jpeg::exif_orientation(exif).unwrap_or(orientation);
+                }
+            }
+            _ => file.seek_relative(payload as i64).ok()?,
+        }
+    }
+}
+
+/// Frames counted by `walk` from the start of the file. A truncated file
+/// reports the frames found before the end; a still image reports one.
+fn count_frames(file: &mut Reader, walk: fn(&mut Reader, &mut u32) -> io::Result<()>) -> u32 {
+    let mut frames = 0;
+    if file.seek(SeekFrom::Start(0)).is_ok() {
+        let _ = walk(file, &mut frames);
+    }
+    frames.max(1)
+}
+
+/// Count image descriptors, skipping the compressed data block by block
+fn gif_frames(file: &mut Reader, frames: &mut u32) -> io::Result<()> {
+    let mut header = [0u8; 13];
+    file.read_exact(&mut header)?;
+    skip_color_table(file, header[10])?;
+    loop {
+        match read_u8(file)? {
+            0x2C => {
+                *frames += 1;
+                let mut descriptor = [0u8; 9];
+                file.read_exact(&mut descriptor)?;
+                skip_color_table(file, descriptor[8])?;
+                // LZW code size, then the data
+                read_u8(file)?;
+                skip_sub_blocks(file)?;
+            }
+            0x21 => {
+                // Extension label, then its data
+                read_u8(file)?;
+                skip_sub_blocks(file)?;
+            }
+            // Trailer
+            _ => return Ok(()),
+        }
+    }
+}
+
+fn skip_color_table(file: &mut Reader, flags: u8) -> io::Result<()> {
+    if flags & 0x80 != 0 {
+        file.seek_relative(3 << ((flags & 0x07) + 1))?;
+    }
+    Ok(())
+}
+
+fn skip_sub_blocks(file: &mut Reader) -> io::Result<()> {
+    loop {
+        let length = read_u8(file)?;
+        if length == 0 {
+            return Ok(());
+        }
+        file.seek_relative(length as i64)?;
+    }
+}
+
+/// Read the frame count from the animation control chunk, which comes before
+/// the image data if the PNG is animated
+fn png_frames(file: &mut Reader, frames: &mut u32) -> io::Result<()> {
+    file.seek_relative(8)?;
+    loop {
+        let mut chunk = [0u8; 8];
+        file.read_exact(&mut chunk)?;
+        let length = u32::from_be_bytes([chunk[0], chunk[1], chunk[2], chunk[3]]);
+        match &chunk[4..] {
+            b"acTL" => {
+                let mut count = [0u8; 4];
+                file.read_exact(&mut count)?;
+                *frames = u32::from_be_bytes(count);
+                return Ok(());
+            }
+            b"IDAT" | b"IEND" => return Ok(()),
+            // Data and CRC
+            _ => file.seek_relative(length as i64 + 4)?,
+        }
+    }
+}
+
+/// Count animation frame chunks; a still WebP has none
+fn webp_frames(file: &mut Reader, frames: &mut u32) -> io::Result<()> {
+    let mut header = [0u8; 12];
+    file.read_exact(&mut header)?;
+    loop {
+        let mut chunk = [0u8; 8];
+        file.read_exact(&mut chunk)?;
+        if &chunk[..4] == b"ANMF" {
+            *frames += 1;
+        }
+        // Chunks are padded to an even size
+        let size = u32::from_le_bytes([chunk[4], chunk[5], chunk[6], chunk[7]]) as i64;
+        file.seek_relative(size + (size & 1))?;
+    }
+}
+
+fn read_u8(file: &mut Reader) -> io::Result<u8> {
+    let mut byte = [0u8; 1];
+    file.read_exact(&mut byte)?;
+    Ok(byte[0])
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use image::codecs::gif::GifEncoder;
+    use image::{Frame, RgbImage, RgbaImage};
+    use std::path::PathBuf;
+
+    fn temp(name: &str) -> PathBuf {
+        std::env::temp_dir().join(format!("rs-image-probe-{}-{}", std::process::id(), name))
+    }
+
+    #[test]
+    fn reports_size_color_and_format() {
+        let png = temp("still.png");
+        RgbaImage::new(30, 20).save(&png).unwrap();
+        assert_eq!(
+            probe(&png),
+            Ok(Info {
+                width: 30,
+                height: 20,
+                color_type: 3,
+                format: 0,
+                frames: 1,
+            })
+        );
+
+        // The extension does not matter, the contents do
+        let misnamed = temp("misnamed.png");
+        RgbImage::new(16, 8).save_with_format(&misnamed, ImageFormat::Bmp).unwrap();
+        let info = probe(&misnamed).unwrap();
+        assert_eq!((info.width, info.height, info.color_type, info.format), (16, 8, 2, 8));
+
+        let _ = std::fs::remove_file(png);
+        let _ = std::fs::remove_file(misnamed);
+    }
+
+    #[test]
+    fn jpeg_size_follows_exif_orientation() {
+        let path = temp("turned.jpg");
+        RgbImage::new(40, 24).save(&path).unwrap();
+        let info = probe(&path).unwrap();
+        assert_eq!((info.width, info.height, info.color_type, info.format), (40, 24, 2, 1));
+
+        let data = std::fs::read(&path).unwrap();
+        std::fs::write(&path, jpeg::reorient(&data, Orientation::new(1, false)).unwrap()).unwrap();
+        let info = probe(&path).unwrap();
+        assert_eq!((info.width, info.height), (24, 40));
+        let _ = std::fs::remove_file(path);
+    }
+
+    #[test]
+    fn counts_gif_frames() {
+        let path = temp("animated.gif");
+        {
+            let mut encoder = GifEncoder::new(File::create(&path).unwrap());
+            let frames = (0..3).map(|i| Frame::new(RgbaImage::from_pixel(12, 10, image::Rgba([i * 80, 0, 0, 255]))));
+            encoder.encode_frames(frames).unwrap();
+        }
+        let info = probe(&path).unwrap();
+        assert_eq!((info.width, info.height, info.format, info.frames), (12, 10, 2, 3));
+        let _ = std::fs::remove_file(path);
+    }
+
+    #[test]
+    fn rejects_missing_and_unknown_files() {
+        assert_eq!(probe(&temp("missing.png")), Err(ImageResult::ErrorLoadFailed));
+
+        let path = temp("notes.txt");
+        std::fs::write(&path, b"not an image").unwrap();
+        assert_eq!(probe(&path), Err(ImageResult::ErrorUnsupportedFormat));
+
+        // A JPEG cut off before its frame header
+        let jpeg = temp("truncated.jpg");
+        std::fs::write(&jpeg, [0xFF, 0xD8, 0xFF, 0xE0, 0x00, 0x10, b'J']).unwrap();
+        assert_eq!(probe(&jpeg), Err(ImageResult::ErrorLoadFailed));
+        let _ = std::fs::remove_file(path);
+        let _ = std::fs::remove_file(jpeg);
+    }
+}
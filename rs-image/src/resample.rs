@@ -0,0 +1,498 @@
+//! Separable resampling on the worker pool, used for resizing and Gaussian
+//! blur. Follows `imageops::resize`: a vertical pass into an f32 buffer, then
+//! a horizontal pass back to 8 bits, with the filter widened when downsampling
+//! so every source pixel contributes. Output rows are independent within a
+//! pass, so spreading them across threads does not change the result.
+
+use crate::parallel;
+use image::imageops::FilterType;
+use image::RgbaImage;
+use std::f32::consts::PI;
+use std::ops::Range;
+
+#[derive(Clone, Copy)]
+enum Kernel {
+    Box,
+    Triangle,
+    CatmullRom,
+    Gaussian(f32),
+    Lanczos3,
+}
+
+impl Kernel {
+    fn eval(self, x: f32) -> f32 {
+        match self {
+            Kernel::Box => 1.0,
+            Kernel::Triangle => (1.0 - x.abs()).max(0.0),
+            Kernel::CatmullRom => cubic_bc(x, 0.0, 0.5),
+            Kernel::Gaussian(sigma) => {
+                ((2.0 * PI).sqrt() * sigma).recip() * (-x.powi(2) / (2.0 * sigma.powi(2))).exp()
+            }
+            Kernel::Lanczos3 => {
+                if x.abs() < 3.0 {
+                    sinc(x) * sinc(x / 3.0)
+                } else {
+                    0.0
+                }
+            }
+        }
+    }
+}
+
+fn sinc(t: f32) -> f32 {
+    let a = t * PI;
+    if t == 0.0 {
+        1.0
+    } else {
+        a.sin() / a
+    }
+}
+
+/// Mitchell-Netravali family of cubics; b = 0, c = 0.5 is Catmull-Rom
+fn cubic_bc(x: f32, b: f32, c: f32) -> f32 {
+    let a = x.abs();
+    let k = if a < 1.0 {
+        (12.0 - 9.0 * b - 6.0 * c) * a.powi(3)
+            + (-18.0 + 12.0 * b + 6.0 * c) * a.powi(2)
+            + (6.0 - 2.0 * b)
+    } else if a < 2.0 {
+        (-b - 6.0 * c) * a.powi(3)
+            + (6.0 * b + 30.0 * c) * a.powi(2)
+            + (-12.0 * b - 48.0 * c) * a
+            + (8.0 * b + 24.0 * c)
+    } else {
+        0.0
+    };
+    k / 6.0
+}
+
+struct Filter {
+    kernel: Kernel,
+    /// Radius of the kernel in output pixels
+    support: f32,
+}
+
+impl Filter {
+    fn for_type(filter: FilterType) -> Filter {
+        let (kernel, support) = match filter {
+            FilterType::Nearest => (Kernel::Box, 0.0),
+            FilterType::Triangle => (Kernel::Triangle, 1.0),
+            FilterType::CatmullRom => (Kernel::CatmullRom, 2.0),
+            FilterType::Gaussian => (Kernel::Gaussian(0.5), 3.0),
+            FilterType::Lanczos3 => (Kernel::Lanczos3, 3.0),
+        };
+        Filter { kernel, support }
+    }
+}
+
+/// The source samples and normalized weights for one output row or column
+struct Taps {
+    start: usize,
+    weights: Vec<f32>,
+}
+
+/// A block of output pixels
+#[derive(Clone, Copy, Debug)]
+pub struct Region {
+    pub x: u32,
+    pub y: u32,
+    pub width: u32,
+    pub height: u32,
+}
+
+impl Region {
+    /// The whole of a `width` x `height` output
+    pub fn whole(width: u32, height: u32) -> Region {
+        Region {
+            x: 0,
+            y: 0,
+            width,
+            height,
+        }
+    }
+
+    fn columns(&self) -> Range<usize> {
+        self.x as usize..(self.x + self.width) as usize
+    }
+
+    fn rows(&self) -> Range<usize> {
+        self.y as usize..(self.y + self.height) as usize
+    }
+}
+
+/// Taps for the `outputs` of a `src_len` to `dst_len` resize. Each output's
+/// taps depend only on its own position, so any range of outputs comes out as
+/// it would in the full set.
+fn taps(src_len: usize, dst_len: usize, outputs: Range<usize>, filter: &Filter) -> Vec<Taps> {
+    let ratio = src_len as f32 / dst_len as f32;
+    let scale = ratio.max(1.0);
+    let support = filter.support * scale;
+
+    outputs
+        .map(|out| {
+            let center = (out as f32 + 0.5) * ratio;
+            let start = ((center - support).floor() as i64).clamp(0, src_len as i64 - 1);
+            let end = ((center + support).ceil() as i64).clamp(start + 1, src_len as i64);
+            let mut weights: Vec<f32> = (start..end)
+                .map(|i| filter.kernel.eval((i as f32 - (center - 0.5)) / scale))
+                .collect();
+            let sum: f32 = weights.iter().sum();
+            for w in &mut weights {
+                *w /= sum;
+            }
+            Taps {
+                start: start as usize,
+                weights,
+            }
+        })
+        .collect()
+}
+
+/// Resize to exactly `width` x `height`
+pub fn resize(image: &RgbaImage, width: u32, height: u32, filter: FilterType) -> RgbaImage {
+    if (width, height) == image.dimensions() {
+        return image.clone();
+    }
+    if matches!(filter, FilterType::Nearest) {
+        let src_size = (image.width() as usize, image.height() as usize);
+        let size = (width as usize, height as usize);
+        return nearest(image, src_size, size, Region::whole(width, height));
+    }
+    separable(image, width, height, &Filter::for_type(filter))
+}
+
+/// Resize a `src_width` x `src_height` RGBA buffer to `full_width` x
+/// `full_height`, computing only `region` of the result. Pixels come out
+/// exactly as in the full resize, so regions rendered separately tile without
+/// seams, and the work depends on the size of the region rather than the
+/// size of the whole output.
+pub fn resize_region(
+    src: &[u8],
+    (src_width, src_height): (u32, u32),
+    (full_width, full_height): (u32, u32),
+    region: Region,
+    filter: FilterType,
+) -> RgbaImage {
+    let src_size = (src_width as usize, src_height as usize);
+    let full_size = (full_width as usize, full_height as usize);
+    if full_size == src_size {
+        return crop(src, src_width, region);
+    }
+    if matches!(filter, FilterType::Nearest) {
+        return nearest(src, src_size, full_size, region);
+    }
+    separable_region(src, src_size, full_size, region, &Filter::for_type(filter))
+}
+
+/// Exact Gaussian blur with the kernel cut off at three standard deviations.
+/// Its cost grows with sigma; `blur::blur` switches to box passes for large
+/// ones.
+pub fn gaussian(image: &RgbaImage, sigma: f32) -> RgbaImage {
+    let sigma = if sigma <= 0.0 { 1.0 } else { sigma };
+    let filter = Filter {
+        kernel: Kernel::Gaussian(sigma),
+        support: 3.0 * sigma,
+    };
+    separable(image, image.width(), image.height(), &filter)
+}
+
+/// Average each `factor` x `factor` block of an 8-bit RGB or RGBA buffer into
+/// one RGBA pixel; RGB input comes out opaque. Blocks on the right and bottom
+/// edges may be partial and average only the pixels they cover. Far cheaper
+/// than a filtered resize, so it takes the bulk of a large reduction before
+/// one.
+pub fn box_downsample(src: &[u8], width: u32, height: u32, channels: usize, factor: u32) -> RgbaImage {
+    let factor = factor.max(1) as usize;
+    let (src_width, src_height) = (width as usize, height as usize);
+    let (dst_width, dst_height) = (src_width.div_ceil(factor), src_height.div_ceil(factor));
+    let src_stride = src_width * channels;
+
+    let dst_stride = dst_width * 4;
+    let mut dst = vec![0u8; dst_stride * dst_height];
+    parallel::for_each_chunk_weighted(&mut dst, dst_stride, factor * factor, |first_row, chunk| {
+        let mut sums = vec![0u32; dst_width * 4];
+        for (i, out) in chunk.chunks_exact_mut(dst_stride).enumerate() {
+            let top = (first_row + i) * factor;
+            let bottom = (top + factor).min(src_height);
+            sums.fill(0);
+            for sy in top..bottom {
+                let row = &src[sy * src_stride..(sy + 1) * src_stride];
+                for (x, px) in row.chunks_exact(channels).enumerate() {
+                    let sum = &mut sums[x / factor * 4..x / factor * 4 + 4];
+                    sum[0] += px[0] as u32;
+                    sum[1] += px[1] as u32;
+                    sum[2] += px[2] as u32;
+                    sum[3] += if channels == 4 { px[3] as u32 } else { 255 };
+                }
+            }
+            let rows = (bottom - top) as u32;
+            for (ox, (px, sum)) in out.chunks_exact_mut(4).zip(sums.chunks_exact(4)).enumerate() {
+                let count = rows * factor.min(src_width - ox * factor) as u32;
+                for c in 0..4 {
+                    px[c] = ((sum[c] + count / 2) / count) as u8;
+                }
+            }
+        }
+    });
+
+    RgbaImage::from_raw(dst_width as u32, dst_height as u32, dst).expect("buffer matches dimensions")
+}
+
+/// Copy a region out of an RGBA buffer `src_width` pixels wide
+fn crop(src: &[u8], src_width: u32, region: Region) -> RgbaImage {
+    let src_stride = src_width as usize * 4;
+    let columns = region.columns();
+    let mut dst = Vec::with_capacity(region.width as usize * region.height as usize * 4);
+    for y in region.rows() {
+        let row = &src[y * src_stride..(y + 1) * src_stride];
+        dst.extend_from_slice(&row[columns.start * 4..columns.end * 4]);
+    }
+
+    RgbaImage::from_raw(region.width, region.height, dst).expect("buffer matches dimensions")
+}
+
+/// Nearest neighbour needs no arithmetic: the box kernel has one tap of
+/// weight 1, so each output pixel is a copy of the source pixel under it
+fn nearest(
+    src: &[u8],
+    (src_width, src_height): (usize, usize),
+    (dst_width, dst_height): (usize, usize),
+    region: Region,
+) -> RgbaImage {
+    let index = |out: usize, src_len: usize, dst_len: usize| {
+        let ratio = src_len as f32 / dst_len as f32;
+        (((out as f32 + 0.5) * ratio).floor() as usize).min(src_len - 1)
+    };
+    let columns: Vec<usize> = region
+        .columns()
+        .map(|x| index(x, src_width, dst_width))
+        .collect();
+
+    let mut dst = vec![0u8; region.width as usize * region.height as usize * 4];
+    let stride = region.width as usize * 4;
+    parallel::for_each_chunk(&mut dst, stride, |first_row, rows| {
+        for (i, row) in rows.chunks_exact_mut(stride).enumerate() {
+            let sy = index(region.y as usize + first_row + i, src_height, dst_height);
+            let src_row = &src[sy * src_width * 4..(sy + 1) * src_width * 4];
+            for (px, &sx) in row.chunks_exact_mut(4).zip(&columns) {
+                px.copy_from_slice(&src_row[sx * 4..sx * 4 + 4]);
+            }
+        }
+    });
+
+    RgbaImage::from_raw(region.width, region.height, dst).expect("buffer matches dimensions")
+}
+
+fn separable(image: &RgbaImage, width: u32, height: u32, filter: &Filter) -> RgbaImage {
+    let src_size = (image.width() as usize, image.height() as usize);
+    let size = (width as usize, height as usize);
+    separable_region(image, src_size, size, Region::whole(width, height), filter)
+}
+
+fn separable_region(
+    src: &[u8],
+    (src_width, src_height): (usize, usize),
+    (full_width, full_height): (usize, usize),
+    region: Region,
+    filter: &Filter,
+) -> RgbaImage {
+    let rows = taps(src_height, full_height, region.rows(), filter);
+    let columns = taps(src_width, full_width, region.columns(), filter);
+    let (width, height) = (region.width, region.height);
+    let (dst_width, dst_height) = (width as usize, height as usize);
+
+    // Only the source columns some output column reads go through the
+    // vertical pass; for a full resize that is all of them
+    let first_column = columns.iter().map(|t| t.start).min().unwrap_or(0);
+    let last_column = columns
+        .iter()
+        .map(|t| t.start + t.weights.len())
+        .max()
+        .unwrap_or(first_column);
+    let src_stride = src_width * 4;
+
+    // Vertical pass: dst_height rows of the needed source columns, not yet
+    // clamped
+    let tmp_stride = (last_column - first_column) * 4;
+    let mut tmp = vec![0f32; tmp_stride * dst_height];
+    let row_cost = rows.first().map_or(1, |t| t.weights.len());
+    parallel::for_each_chunk_weighted(&mut tmp, tmp_stride, row_cost, |first_row, chunk| {
+        for (i, out) in chunk.chunks_exact_mut(tmp_stride).enumerate() {
+            let taps = &rows[first_row + i];
+            for (k, &w) in taps.weights.iter().enumerate() {
+                let start = (taps.start + k) * src_stride + first_column * 4;
+                for (o, &v) in out.iter_mut().zip(&src[start..start + tmp_stride]) {
+                    *o += v as f32 * w;
+                }
+            }
+        }
+    });
+
+    // Horizontal pass back to 8 bits
+    let dst_stride = dst_width * 4;
+    let mut dst = vec![0u8; dst_stride * dst_height];
+    let column_cost = columns.first().map_or(1, |t| t.weights.len());
+    parallel::for_each_chunk_weighted(&mut dst, dst_stride, column_cost, |first_row, chunk| {
+        for (i, out) in chunk.chunks_exact_mut(dst_stride).enumerate() {
+            let row = &tmp[(first_row + i) * tmp_stride..(first_row + i + 1) * tmp_stride];
+            for (px, taps) in out.chunks_exact_mut(4).zip(&columns) {
+                let mut acc = [0f32; 4];
+                for (k, &w) in taps.weights.iter().enumerate() {
+                    let s = (taps.start - first_column + k) * 4;
+                    for c in 0..4 {
+                        acc[c] += row[s + c] * w;
+                    }
+                }
+                for c in 0..4 {
+                    px[c] = acc[c].clamp(0.0, 255.0).round() as u8;
+                }
+            }
+        }
+    });
+
+    RgbaImage::from_raw(width, height, dst).expect("buffer matches dimensions")
+}
+
+#[cfg(test)]
+mod tests {
+    use super::*;
+    use image::imageops;
+
+    fn test_image(width: u32, height: u32) -> RgbaImage {
+        let data = (0..width * height * 4)
+            .map(|i| ((i * 7 + i / 3) ^ (i / 97)) as u8)
+            .collect();
+        RgbaImage::from_raw(width, height, data).unwrap()
+    }
+
+    fn max_difference(a: &RgbaImage, b: &RgbaImage) -> u8 {
+        assert_eq!(a.dimensions(), b.dimensions());
+        a.iter().zip(b.iter()).map(|(x, y)| x.abs_diff(*y)).max().unwrap_or(0)
+    }
+
+    #[test]
+    fn resize_matches_imageops() {
+        let filters = [
+            FilterType::Nearest,
+            FilterType::Triangle,
+            FilterType::CatmullRom,
+            FilterType::Gaussian,
+            FilterType::Lanczos3,
+        ];
+        let source = test_image(61, 37);
+        for filter in filters {
+            for (width, height) in [(20, 13), (61, 90), (150, 11), (1, 1)] {
+                let expected = imageops::resize(&source, width, height, filter);
+                let actual = resize(&source, width, height, filter);
+                let difference = max_difference(&expected, &actual);
+                assert!(difference <= 1, "{filter:?} {width}x{height}: {difference}");
+            }
+        }
+    }
+
+    #[test]
+    fn resize_region_matches_full_resize() {
+        let filters = [
+            FilterType::Nearest,
+            FilterType::Triangle,
+            FilterType::Lanczos3,
+        ];
+        let source = test_image(61, 37);
+        let src_size = source.dimensions();
+        for filter in filters {
+            for (width, height) in [(61, 37), (20, 13), (150, 90)] {
+                let full = resize(&source, width, height, filter);
+                // Tiles of uneven size covering the output, edges included
+                let tile = 7;
+                for y in (0..height).step_by(tile as usize) {
+                    for x in (0..width).step_by(tile as usize) {
+                        let region = Region {
+                            x,
+                            y,
+                            width: tile.min(width - x),
+                            height: tile.min(height - y),
+                        };
+                        let part = resize_region(&source, src_size, (width, height), region, filter);
+                        let expected =
+                            imageops::crop_imm(&full, x, y, region.width, region.height).to_image();
+                        assert_eq!(part, expected, "{filter:?} {width}x{height} at {x},{y}");
+                    }
+                }
+            }
+        }
+    }
+
+    #[test]
+    fn box_downsample_averages_blocks() {
+        let source = test_image(23, 17);
+        for factor in [1u32, 2, 3, 8, 40] {
+            let actual = box_downsample(&source, 23, 17, 4, factor);
+            assert_eq!(actual.dimensions(), (23u32.div_ceil(factor), 17u32.div_ceil(factor)));
+            for (ox, oy, px) in actual.enumerate_pixels() {
+                let mut sum = [0u32; 4];
+                let mut count = 0;
+                for y in oy * factor..((oy + 1) * factor).min(17) {
+                    for x in ox * factor..((ox + 1) * factor).min(23) {
+                        let src = source.get_pixel(x, y);
+                        for c in 0..4 {
+                            sum[c] += src[c] as u32;
+                        }
+                        count += 1;
+                    }
+                }
+                for c in 0..4 {
+                    let expected = (sum[c] as f64 / count as f64).round();
+                    assert!((px[c] as f64 - expected).abs() <= 0.5, "factor {factor} at {ox},{oy}");
+                }
+            }
+        }
+
+        // RGB input averages the same colors and comes out opaque
+        let rgb: Vec<u8> = source.pixels().flat_map(|px| [px[0], px[1], px[2]]).collect();
+        let from_rgb = box_downsample(&rgb, 23, 17, 3, 4);
+        let from_rgba = box_downsample(&source, 23, 17, 4, 4);
+        for (a, b) in from_rgb.pixels().zip(from_rgba.pixels()) {
+            assert_eq!(&a.0[..3], &b.0[..3]);
+            assert_eq!(a[3], 255);
+        }
+    }
+
+    #[test]
+    fn gaussian_matches_direct_convolution() {
+        let source = test_image(40, 30);
+        for sigma in [0.6f32, 2.0, 7.5] {
+            let actual = gaussian(&source, sigma);
+            let radius = 3.0 * sigma as f64;
+            let (width, height) = (source.width() as i64, source.height() as i64);
+            for y in 0..height {
+                for x in 0..width {
+                    let mut sum = [0f64; 4];
+                    let mut total = 0f64;
+                    for sy in 0..height {
+                        for sx in 0..width {
+                            let (dx, dy) = ((sx - x) as f64, (sy - y) as f64);
+                            if dx.abs() > radius + 1.0 || dy.abs() > radius + 1.0 {
+                                continue;
+                            }
+                            let w = Kernel::Gaussian(sigma).eval(dx as f32) as f64
+                                * Kernel::Gaussian(sigma).eval(dy as f32) as f64;
+                            let px = source.get_pixel(sx as u32, sy as u32);
+                            for c in 0..4 {
+                                sum[c] += w * px[c] as f64;
+                            }
+                            total += w;
+                        }
+                    }
+                    let px = actual.get_pixel(x as u32, y as u32);
+                    for c in 0..4 {
+                        let expected = (sum[c] / total).round();
+                        assert!(
+                            (px[c] as f64 - expected).abs() <= 1.0,
+                            "sigma {sigma} at {x},{y}"
+                        );
+                    }
+                }
+            }
+        }
+    }
+}
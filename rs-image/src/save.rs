@@ -0,0 +1,109 @@
+//! Encoding behind `image_save` and `image_save_with_options`. JPEG and PNG
+//! are written with the caller's settings, so a job can trade encode time
+//! against file size; WebP is always lossless, the only mode the encoder
+//! has. Other formats use their encoder's defaults. The file is encoded in
+//! memory first, so a failed encode leaves an existing file untouched.
+
+use crate::ImageResult;
+use image::codecs::jpeg::JpegEncoder;
+use image::codecs::png::{CompressionType, FilterType as PngFilter, PngEncoder};
+use image::codecs::webp::WebPEncoder;
+use image::{ExtendedColorType, ImageBuffer, ImageEncoder, ImageFormat, Rgba};
+use std::io::Cursor;
+use std::path::Path;
+
+pub struct SaveOptions {
+    jpeg_quality: u8,
+    png_compression: CompressionType,
+    png_filter: PngFilter,
+}
+
+impl Default for SaveOptions {
+    /// The settings `ImageBuffer::save` uses
+    fn default() -> SaveOptions {
+        SaveOptions {
+            jpeg_quality: 75,
+            png_compression: CompressionType::Default,
+            png_filter: PngFilter::Adaptive,
+        }
+    }
+}
+
+impl SaveOptions {
+    /// Settings from their codes: JPEG quality 1 to 100; PNG compression 0
+    /// fast, 1 default, 2 best; PNG filter 0 none, 1 sub, 2 up, 3 average,
+    /// 4 Paeth, 5 adaptive. None if any is out of range.
+    pub fn from_codes(jpeg_quality: u32, png_compression: u32, png_filter: u32) -> Option<SaveOptions> {
+        if !(1..=100).contains(&jpeg_quality) {
+            return None;
+        }
+        let png_compression = match png_compression {
+            0 => CompressionType::Fast,
+            1 => CompressionType::Default,
+            2 => CompressionType::Best,
+            _ => return None,
+        };
+        let png_filter = match png_filter {
+            0 => PngFilter::NoFilter,
+            1 => PngFilter::Sub,
+            2 => PngFilter::Up,
+            3 => PngFilter::Avg,
+            4 => PngFilter::Paeth,
+            5 => PngFilter::Adaptive,
+            _ => return None,
+        };
+        Some(SaveOptions {
+            jpeg_quality: jpeg_quality as u8,
+            png_compression,
+            png_filter,
+        })
+    }
+}
+
+/// Encode RGBA pixels in the format the extension of `path` names and write
+/// them there
+pub fn save(path: &Path, pixels: &[u8], width: u32, height: u32, options: &SaveOptions) -> ImageResult {
+    let format = match ImageFormat::from_path(path) {
+        Ok(format) => format,
+        Err(_) => return ImageResult::ErrorUnsupportedFormat,
+    };
+
+    let mut bytes = Vec::new();
+    let encoded = match format {
+        ImageFormat::Jpeg => {
+            // JPEG has no alpha channel
+            let rgb: Vec<u8> = pixels
+                .chunks_exact(4)
+                .flat_map(|px| [px[0], px[1], px[2]])
+                .collect();
+            JpegEncoder::new_with_quality(&mut bytes, options.jpeg_quality).write_image(
+                &rgb,
+                width,
+                height,
+                ExtendedColorType::Rgb8,
+            )
+        }
+        ImageFormat::Png => {
+            PngEncoder::new_with_quality(&mut bytes, options.png_compression, options.png_filter)
+                .write_image(pixels, width, height, ExtendedColorType::Rgba8)
+        }
+        ImageFormat::WebP => WebPEncoder::new_lossless(&mut bytes).write_image(
+            pixels,
+            width,
+            height,
+            ExtendedColorType::Rgba8,
+        ),
+        _ => match ImageBuffer::<Rgba<u8>, &[u8]>::from_raw(width, height, pixels) {
+            Some(image) => image.write_to(&mut Cursor::new(&mut bytes), format),
+            None => return ImageResult::ErrorInvalidHandle,
+        },
+    };
+    if encoded.is_err() {
+        return ImageResult::ErrorSaveFailed;
+    }
+
+    match std::fs::write(path, bytes) {
+        Ok(_) => ImageResult::Success,
+        Err(_) => ImageResult::ErrorSaveFailed,
+    }
+}
@@ -0,0 +1,204 @@
+package io.github.seerainer.imageviewer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.eclipse.swt.graphics.ImageData;
+
+/**
+ * Shows the effect of an adjustment before it is applied. The effect runs on a
+ * proxy of the document no larger than the view, built on first use from the
+ * nearest pyramid level, so an update costs the same for any source size.
+ * Updates run one at a time on a virtual thread after a short pause, and only
+ * the latest is rendered; results reach the callback executor, typically
+ * {@code display::asyncExec}, as SWT image data. Any result newer than the
+ * one on screen is shown, so the preview follows a slider while it is still
+ * being dragged.
+ */
+final class AdjustmentPreview implements AutoCloseable {
+
+    /** Pause that lets a dragged slider settle before rendering. */
+    static final long DEBOUNCE_MS = 15;
+
+    private final ImagePyramid pyramid;
+    private final int width;
+    private final int height;
+    private final int sourceWidth;
+    private final Executor callbackExecutor;
+    private final Consumer<ImageData> callback;
+    private final ExecutorService worker = Executors.newVirtualThreadPerTaskExecutor();
+    private final Object lock = new Object();
+    /** Held while the worker reads the pyramid or the proxy. */
+    private final Object renderLock = new Object();
+    private NativeImage proxy;
+    /** Advanced by every update. */
+    private long generation;
+    /** Generation of the preview last handed to the callback. */
+    private long displayedGeneration;
+    /** Advanced by close; renders from an earlier epoch are stale. */
+    private long epoch;
+    private Effect pending;
+    private boolean running;
+    private boolean closed;
+
+    /**
+     * @param pyramid          Document to preview; must stay open until this
+     *                         preview is closed
+     * @param width            Maximum proxy width
+     * @param height           Maximum proxy height
+     * @param sourceWidth      Width of the image the effect will finally apply
+     *                         to, for scaling size-dependent effects
+     * @param callbackExecutor Executor that runs the callback, normally on the
+     *                         UI thread
+     * @param callback         Receives each rendered preview
+     */
+    AdjustmentPreview(final ImagePyramid pyramid, final int width, final int height, final int sourceWidth,
+	    final Executor callbackExecutor, final Consumer<ImageData> callback) {
+	this.pyramid = pyramid;
+	this.width = width;
+	this.height = height;
+	this.sourceWidth = sourceWidth;
+	this.callbackExecutor = callbackExecutor;
+	this.callback = callback;
+    }
+
+    /**
+     * Drop outstanding work and free the proxy. Returns once the worker has
+     * let go of the pyramid; no callback runs afterwards.
+     */
+    @Override
+    public void close() {
+	synchronized (lock) {
+	    closed = true;
+	    epoch++;
+	    pending = null;
+	}
+	synchronized (renderLock) {
+	    if (proxy != null) {
+		proxy.close();
+		proxy = null;
+	    }
+	}
+	worker.shutdown();
+    }
+
+    private NativeImage createProxy() {
+	final var level = pyramid.levelFor(width, height);
+	final var copy = level != null ? level.copy() : null;
+	if (copy == null || copy.width() <= width && copy.height() <= height) {
+	    // Small documents are previewed as they are
+	    return copy;
+	}
+	if (!copy.resize(width, height, ResizeFilter.TRIANGLE)) {
+	    copy.close();
+	    return null;
+	}
+	return copy;
+    }
+
+    private void deliver(final long requestEpoch, final long requested, final ImageData imageData) {
+	try {
+	    callbackExecutor.execute(() -> {
+		synchronized (lock) {
+		    if (requestEpoch != epoch || requested <= displayedGeneration) {
+			return;
+		    }
+		    displayedGeneration = requested;
+		}
+		callback.accept(imageData);
+	    });
+	} catch (final RuntimeException e) {
+	    // Rejected, or the display is already disposed
+	}
+    }
+
+    private void drain() {
+	while (true) {
+	    try {
+		Thread.sleep(DEBOUNCE_MS);
+	    } catch (final InterruptedException e) {
+		Thread.currentThread().interrupt();
+	    }
+	    final Effect effect;
+	    final long requested;
+	    final long requestEpoch;
+	    synchronized (lock) {
+		effect = pending;
+		requested = generation;
+		requestEpoch = epoch;
+		pending = null;
+		if (effect == null || Thread.currentThread().isInterrupted()) {
+		    running = false;
+		    return;
+		}
+	    }
+	    final var imageData = render(requestEpoch, effect);
+	    if (imageData != null) {
+		deliver(requestEpoch, requested, imageData);
+	    }
+	}
+    }
+
+    private boolean isOpen(final long requestEpoch) {
+	synchronized (lock) {
+	    return requestEpoch == epoch;
+	}
+    }
+
+    private ImageData render(final long requestEpoch, final Effect effect) {
+	synchronized (renderLock) {
+	    if (!isOpen(requestEpoch)) {
+		return null;
+	    }
+	    if (proxy == null) {
+		proxy = createProxy();
+		if (proxy == null) {
+		    return null;
+		}
+	    }
+	    try (final var image = proxy.copy()) {
+		final var scale = (double) proxy.width() / sourceWidth;
+		return image != null && effect.apply(image, scale) ? ImageService.toImageData(image) : null;
+	    } catch (final Exception e) {
+		// The preview just stays as it was; applying the effect reports it
+		return null;
+	    }
+	}
+    }
+
+    /**
+     * Preview an effect, replacing any update not yet rendered.
+     *
+     * @param effect Effect to apply to a copy of the proxy
+     */
+    void update(final Effect effect) {
+	synchronized (lock) {
+	    if (closed) {
+		return;
+	    }
+	    generation++;
+	    pending = effect;
+	    if (running) {
+		return;
+	    }
+	    running = true;
+	}
+	worker.execute(this::drain);
+    }
+
+    /**
+     * An adjustment applied to the proxy.
+     */
+    @FunctionalInterface
+    interface Effect {
+	/**
+	 * @param image Copy of the proxy, modified in place
+	 * @param scale Proxy width over source width; radii and similar
+	 *              sizes given in source pixels are multiplied by it
+	 * @return true if successful
+	 */
+	boolean apply(NativeImage image, double scale) throws Exception;
+    }
+}
@@ -0,0 +1,375 @@
+package io.github.seerainer.imageviewer;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Converts a folder of images without a display, for {@code --batch} on the
+ * command line. Files go through the native library the viewer uses: decode,
+ * an optional resize to fit a square, and encode in the chosen format, with
+ * the folder structure kept under the output folder.
+ * <p>
+ * The folder is walked once, lazily, and each file handed to a fixed pool of
+ * platform threads; a native call pins a virtual thread to its carrier, so
+ * they would gain nothing here. The walk blocks while as many files wait as
+ * there are workers, so however many files there are, only a bounded number
+ * of decoded images is in memory at once. A file that cannot be converted is
+ * reported and the rest go on.
+ */
+final class BatchConverter {
+
+    static final String BATCH_FLAG = "--batch";
+    static final String USAGE = """
+	    Usage: --batch [options] <input> <output>
+	      <input>           Image file or folder; folders are read recursively
+	      <output>          Folder the converted images are written to
+	      --resize <size>   Shrink images to fit <size> x <size>; smaller ones are kept as they are
+	      --format <ext>    Output format by extension, e.g. webp, png, jpg; default keeps each file's format
+	      --filter <name>   Resize filter: nearest, triangle, catmull_rom, gaussian or lanczos3; default triangle
+	      --quality <1-100> JPEG quality; default from imageviewer.jpegQuality
+	      --png-compression <effort>
+	                        PNG compression: fast, default or best; default from imageviewer.pngCompression
+	      --png-filter <name>
+	                        PNG row filter: none, sub, up, average, paeth or adaptive;
+	                        default from imageviewer.pngFilter
+	      --jobs <count>    Images converted at once; default one per core""";
+    /** Seconds between progress lines. */
+    private static final long PROGRESS_INTERVAL = 5;
+
+    private final Options options;
+    private final PrintStream out;
+    private final PrintStream err;
+    private final AtomicInteger converted = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+
+    /**
+     * @param options What to convert and how
+     * @param out     Receives progress and the summary
+     * @param err     Receives the files that failed
+     */
+    BatchConverter(final Options options, final PrintStream out, final PrintStream err) {
+	this.options = options;
+	this.out = out;
+	this.err = err;
+    }
+
+    /**
+     * Run from the command line.
+     *
+     * @param args Arguments after {@value #BATCH_FLAG}
+     * @return Exit code: 0 if every image was converted, 1 if some failed, 2
+     *         for invalid arguments or an unreadable input
+     */
+    static int run(final String[] args) {
+	final Options options;
+	try {
+	    options = Options.parse(args);
+	} catch (final IllegalArgumentException e) {
+	    System.err.println(e.getMessage());
+	    System.err.println(USAGE);
+	    return 2;
+	}
+	try {
+	    final var summary = new BatchConverter(options, System.out, System.err).convert();
+	    return summary.failed() > 0 ? 1 : 0;
+	} catch (final IOException e) {
+	    System.err.println("Cannot read " + options.input() + ": " + e);
+	    return 2;
+	} catch (final InterruptedException e) {
+	    Thread.currentThread().interrupt();
+	    return 1;
+	}
+    }
+
+    /**
+     * Where a file's conversion goes: the same place relative to the output
+     * folder as the file is to the input folder, with the format's extension.
+     *
+     * @param input  Input file or folder
+     * @param file   File under it
+     * @param output Output folder
+     * @param format Extension to use, or null to keep the file's
+     * @return Output path
+     */
+    static Path targetFor(final Path input, final Path file, final Path output, final String format) {
+	final var relative = file.equals(input) ? file.getFileName() : input.relativize(file);
+	if (format == null) {
+	    return output.resolve(relative);
+	}
+	final var name = relative.getFileName().toString();
+	final var dot = name.lastIndexOf('.');
+	return output.resolve(relative).resolveSibling((dot > 0 ? name.substring(0, dot) : name) + "." + format);
+    }
+
+    /**
+     * Convert every image under the input. Returns once all are written.
+     *
+     * @return Counts and throughput
+     * @throws IOException          If the input cannot be read at all
+     * @throws InterruptedException If interrupted while waiting for a worker
+     */
+    Summary convert() throws IOException, InterruptedException {
+	final var input = options.input().toAbsolutePath().normalize();
+	final var output = options.output().toAbsolutePath().normalize();
+	if (!Files.exists(input)) {
+	    throw new NoSuchFileException(input.toString());
+	}
+	final var start = System.nanoTime();
+	final var reporter = Thread.ofVirtual().name("batch-progress").start(() -> report(start));
+	// Running plus waiting; the walk blocks beyond that
+	final var slots = new Semaphore(2 * options.jobs());
+	try (final var workers = Executors.newFixedThreadPool(options.jobs(),
+		Thread.ofPlatform().name("batch-", 0).daemon().factory())) {
+	    Files.walkFileTree(input, new SimpleFileVisitor<>() {
+
+		@Override
+		public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) {
+		    // Output inside the input folder is not converted again
+		    return dir.equals(output) && !dir.equals(input) ? FileVisitResult.SKIP_SUBTREE
+			    : FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+		    if (!attrs.isRegularFile() || !ImageService.isImageFile(file.getFileName().toString())) {
+			return FileVisitResult.CONTINUE;
+		    }
+		    final var target = targetFor(input, file, output, options.format());
+		    try {
+			slots.acquire();
+		    } catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return FileVisitResult.TERMINATE;
+		    }
+		    workers.execute(() -> {
+			try {
+			    convertFile(file, attrs.size(), target);
+			} finally {
+			    slots.release();
+			}
+		    });
+		    return FileVisitResult.CONTINUE;
+		}
+
+		@Override
+		public FileVisitResult visitFileFailed(final Path file, final IOException e) {
+		    fail(file, e.toString());
+		    return FileVisitResult.CONTINUE;
+		}
+	    });
+	} finally {
+	    reporter.interrupt();
+	}
+	if (Thread.interrupted()) {
+	    throw new InterruptedException();
+	}
+	final var summary = summary(start);
+	out.println(summary);
+	return summary;
+    }
+
+    private void convertFile(final Path source, final long size, final Path target) {
+	if (target.equals(source)) {
+	    fail(source, "would overwrite itself; choose another output folder or format");
+	    return;
+	}
+	try {
+	    Files.createDirectories(target.getParent());
+	    try (final var image = NativeImage.load(source.toString())) {
+		if (image == null) {
+		    fail(source, "cannot be decoded");
+		    return;
+		}
+		final var max = options.resize();
+		if (max > 0 && (image.width() > max || image.height() > max)
+			&& !image.resize(max, max, options.filter())) {
+		    fail(source, "cannot be resized");
+		    return;
+		}
+		if (!image.save(target.toString(), options.saveOptions())) {
+		    // Leave no partial file behind
+		    Files.deleteIfExists(target);
+		    fail(source, "cannot be written to " + target);
+		    return;
+		}
+	    }
+	    bytesRead.addAndGet(size);
+	    bytesWritten.addAndGet(Files.size(target));
+	    converted.incrementAndGet();
+	} catch (final IOException | RuntimeException e) {
+	    fail(source, e.toString());
+	}
+    }
+
+    private void fail(final Path file, final String reason) {
+	failed.incrementAndGet();
+	err.println("Failed: " + file + ": " + reason);
+    }
+
+    private void report(final long start) {
+	try {
+	    while (true) {
+		TimeUnit.SECONDS.sleep(PROGRESS_INTERVAL);
+		out.println(summary(start));
+	    }
+	} catch (final InterruptedException e) {
+	    // Done
+	}
+    }
+
+    private Summary summary(final long start) {
+	return new Summary(converted.get(), failed.get(), bytesRead.get(), bytesWritten.get(),
+		System.nanoTime() - start);
+    }
+
+    /**
+     * Command line settings.
+     *
+     * @param input       Image file or folder
+     * @param output      Output folder
+     * @param resize      Size to fit within, or 0 to keep the size
+     * @param format      Output extension, or null to keep each file's
+     * @param filter      Resize filter
+     * @param saveOptions Encoder settings
+     * @param jobs        Images converted at once
+     */
+    record Options(Path input, Path output, int resize, String format, ResizeFilter filter, SaveOptions saveOptions,
+	    int jobs) {
+
+	/**
+	 * @param args Arguments after {@value BatchConverter#BATCH_FLAG}
+	 * @return Settings
+	 * @throws IllegalArgumentException If the arguments are not valid
+	 */
+	static Options parse(final String[] args) {
+	    var resize = 0;
+	    String format = null;
+	    var filter = ResizeFilter.TRIANGLE;
+	    var saveOptions = SaveOptions.fromSystemProperties();
+	    var jobs = Runtime.getRuntime().availableProcessors();
+	    Path input = null;
+	    Path output = null;
+	    for (var i = 0; i < args.length; i++) {
+		final var arg = args[i];
+		if (!arg.startsWith("--")) {
+		    if (input == null) {
+			input = Path.of(arg);
+		    } else if (output == null) {
+			output = Path.of(arg);
+		    } else {
+			throw new IllegalArgumentException("Unexpected argument: " + arg);
+		    }
+		    continue;
+		}
+		if (i + 1 >= args.length) {
+		    throw new IllegalArgumentException("Missing value for " + arg);
+		}
+		final var value = args[++i];
+		switch (arg) {
+		case "--resize" -> resize = parsePositive(arg, value);
+		case "--format" -> format = parseFormat(value);
+		case "--filter" -> filter = parseFilter(value);
+		case "--quality" -> {
+		    final var quality = parsePositive(arg, value);
+		    if (quality > 100) {
+			throw new IllegalArgumentException("--quality must be 1 to 100: " + value);
+		    }
+		    saveOptions = saveOptions.withJpegQuality(quality);
+		}
+		case "--png-compression" -> saveOptions = saveOptions
+			.withPng(parseChoice(arg, SaveOptions.PngCompression.class, value), saveOptions.pngFilter());
+		case "--png-filter" -> saveOptions = saveOptions.withPng(saveOptions.pngCompression(),
+			parseChoice(arg, SaveOptions.PngFilter.class, value));
+		case "--jobs" -> jobs = parsePositive(arg, value);
+		default -> throw new IllegalArgumentException("Unknown option: " + arg);
+		}
+	    }
+	    if (input == null || output == null) {
+		throw new IllegalArgumentException("An input and an output are required");
+	    }
+	    return new Options(input, output, resize, format, filter, saveOptions, jobs);
+	}
+
+	private static <E extends Enum<E>> E parseChoice(final String option, final Class<E> type,
+		final String value) {
+	    try {
+		return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+	    } catch (final IllegalArgumentException e) {
+		throw new IllegalArgumentException("Unknown value for " + option + ": " + value, e);
+	    }
+	}
+
+	private static ResizeFilter parseFilter(final String value) {
+	    try {
+		return ResizeFilter.valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+	    } catch (final IllegalArgumentException e) {
+		throw new IllegalArgumentException("Unknown filter: " + value, e);
+	    }
+	}
+
+	private static String parseFormat(final String value) {
+	    final var extension = value.trim().toLowerCase(Locale.ROOT);
+	    final var stripped = extension.startsWith(".") ? extension.substring(1) : extension;
+	    if (stripped.isEmpty() || !ImageService.isImageFile("image." + stripped)) {
+		throw new IllegalArgumentException("Unknown format: " + value);
+	    }
+	    return stripped;
+	}
+
+	private static int parsePositive(final String option, final String value) {
+	    try {
+		final var number = Integer.parseInt(value.trim());
+		if (number > 0) {
+		    return number;
+		}
+	    } catch (final NumberFormatException e) {
+		// Reported below
+	    }
+	    throw new IllegalArgumentException(option + " must be a positive number: " + value);
+	}
+    }
+
+    /**
+     * Counts and throughput of a run, so far or in total.
+     *
+     * @param converted    Images written
+     * @param failed       Files that could not be converted
+     * @param bytesRead    Size of the source files converted
+     * @param bytesWritten Size of the files written
+     * @param nanos        Time since the start
+     */
+    record Summary(int converted, int failed, long bytesRead, long bytesWritten, long nanos) {
+
+	double imagesPerSecond() {
+	    return nanos > 0 ? converted * 1e9 / nanos : 0;
+	}
+
+	/**
+	 * @return Source megabytes converted per second
+	 */
+	double megabytesPerSecond() {
+	    return nanos > 0 ? bytesRead * 1e9 / nanos / (1 << 20) : 0;
+	}
+
+	@Override
+	public String toString() {
+	    return String.format(Locale.ROOT,
+		    "%,d converted, %,d failed in %.1f s: %.1f images/s, %.1f MB/s read, %.1f MB written", converted,
+		    failed, nanos / 1e9, imagesPerSecond(), megabytesPerSecond(), bytesWritten / (double) (1 << 20));
+	}
+    }
+}
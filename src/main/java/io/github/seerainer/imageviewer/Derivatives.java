@@ -0,0 +1,172 @@
+package io.github.seerainer.imageviewer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Several sizes of one image, such as web, retina and thumbnail, from a single
+ * decode. Each derivative has its own size, filter, format and encoder
+ * settings; the outputs are made largest first, and each is resampled from
+ * the smallest one already made that is at least {@link #CASCADE_RATIO} times
+ * its size, or from the decoded image if none is. Resampling a result only a
+ * little larger than the target would blur it twice for little saving, so
+ * below that ratio the full image is used. A derivative made with the nearest
+ * filter is only reused for other nearest ones, as its aliasing would carry
+ * over.
+ * <p>
+ * Everything stays in native memory: results are resampled with
+ * {@link NativeImage#resizeRegion} over the whole image, which reads its
+ * source in place rather than copying it first.
+ */
+final class Derivatives {
+
+    /** How much larger, on both sides, a result has to be to be reused. */
+    static final int CASCADE_RATIO = 2;
+
+    private Derivatives() {
+	throw new UnsupportedOperationException("This class cannot be instantiated");
+    }
+
+    /**
+     * The size an image is scaled down to so it fits a box, keeping the aspect
+     * ratio. Images that already fit keep their size.
+     *
+     * @param width     Image width
+     * @param height    Image height
+     * @param maxWidth  Box width
+     * @param maxHeight Box height
+     * @return Width and height
+     */
+    static int[] fit(final int width, final int height, final int maxWidth, final int maxHeight) {
+	if (width <= maxWidth && height <= maxHeight) {
+	    return new int[] { width, height };
+	}
+	final var ratio = Math.min((double) maxWidth / width, (double) maxHeight / height);
+	return new int[] { (int) Math.clamp(Math.round(width * ratio), 1, maxWidth),
+		(int) Math.clamp(Math.round(height * ratio), 1, maxHeight) };
+    }
+
+    /**
+     * Decode a file once and write every derivative of it.
+     *
+     * @param sourcePath Image file
+     * @param specs      Derivatives to write
+     * @return One result per spec, in the same order; all failed if the
+     *         file cannot be decoded
+     */
+    static List<Result> generate(final String sourcePath, final List<Spec> specs) {
+	try (final var source = NativeImage.load(sourcePath)) {
+	    if (source == null) {
+		return specs.stream().map(spec -> new Result(spec.filePath(), false, 0, 0, 0)).toList();
+	    }
+	    return generate(source, specs);
+	}
+    }
+
+    /**
+     * Write every derivative of an image already decoded. The image is not
+     * changed.
+     *
+     * @param source Image to derive from
+     * @param specs  Derivatives to write
+     * @return One result per spec, in the same order
+     */
+    static List<Result> generate(final NativeImage source, final List<Spec> specs) {
+	final var width = source.width();
+	final var height = source.height();
+	final var sizes = new int[specs.size()][];
+	final var order = new Integer[specs.size()];
+	for (var i = 0; i < sizes.length; i++) {
+	    final var spec = specs.get(i);
+	    sizes[i] = fit(width, height, spec.maxWidth(), spec.maxHeight());
+	    order[i] = Integer.valueOf(i);
+	}
+	// Largest first, so the smaller ones can start from them
+	final Comparator<Integer> byArea = Comparator.comparingLong(i -> (long) sizes[i][0] * sizes[i][1]);
+	Arrays.sort(order, byArea.reversed());
+
+	final var results = new Result[specs.size()];
+	final List<Made> made = new ArrayList<>();
+	try {
+	    for (final var i : order) {
+		final var spec = specs.get(i);
+		final var size = sizes[i];
+		if (size[0] == width && size[1] == height) {
+		    // Already fits; encoded as it is
+		    results[i] = new Result(spec.filePath(), source.save(spec.filePath(), spec.options()), width,
+			    height, width);
+		    continue;
+		}
+		final var base = reusable(made, size, spec.filter());
+		final var from = base != null ? base.image() : source;
+		final var image = from.resizeRegion(size[0], size[1], 0, 0, size[0], size[1], spec.filter());
+		if (image == null) {
+		    results[i] = new Result(spec.filePath(), false, size[0], size[1], from.width());
+		    continue;
+		}
+		made.add(new Made(image, spec.filter()));
+		results[i] = new Result(spec.filePath(), image.save(spec.filePath(), spec.options()), size[0], size[1],
+			from.width());
+	    }
+	} finally {
+	    made.forEach(result -> result.image().close());
+	}
+	return List.of(results);
+    }
+
+    /**
+     * The smallest result made so far that a derivative of the given size may
+     * be resampled from, or null to use the full image.
+     */
+    private static Made reusable(final List<Made> made, final int[] size, final ResizeFilter filter) {
+	Made best = null;
+	for (final var candidate : made) {
+	    // Largest first, so each match is smaller than the last
+	    final var large = candidate.image().width() >= CASCADE_RATIO * size[0]
+		    && candidate.image().height() >= CASCADE_RATIO * size[1];
+	    if (large && (candidate.filter() != ResizeFilter.NEAREST || filter == ResizeFilter.NEAREST)) {
+		best = candidate;
+	    }
+	}
+	return best;
+    }
+
+    /**
+     * Outcome of one derivative.
+     *
+     * @param filePath    Where it was written
+     * @param success     Whether it was written
+     * @param width       Its width
+     * @param height      Its height
+     * @param sourceWidth Width of the image it was resampled from; the full
+     *                    width unless a larger derivative was reused
+     */
+    record Result(String filePath, boolean success, int width, int height, int sourceWidth) {
+    }
+
+    /**
+     * One derivative to write.
+     *
+     * @param filePath  Destination; the format follows the extension
+     * @param maxWidth  Width to fit within
+     * @param maxHeight Height to fit within
+     * @param filter    Resize filter
+     * @param options   Encoder settings
+     */
+    record Spec(String filePath, int maxWidth, int maxHeight, ResizeFilter filter, SaveOptions options) {
+
+	Spec {
+	    if (filePath == null || filter == null || options == null) {
+		throw new IllegalArgumentException("Path, filter and options must not be null");
+	    }
+	    if (maxWidth <= 0 || maxHeight <= 0) {
+		throw new IllegalArgumentException("Size must be positive: " + maxWidth + "x" + maxHeight);
+	    }
+	}
+    }
+
+    private record Made(NativeImage image, ResizeFilter filter) {
+    }
+}
@@ -0,0 +1,289 @@
+package io.github.seerainer.imageviewer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * Undo and redo for a document, kept as the list of edits applied to the
+ * decoded source rather than as a bitmap per step. A copy of the source and
+ * checkpoints of selected intermediate results are kept in native memory; any
+ * earlier state is rebuilt from the nearest checkpoint below it by replaying
+ * the edits in between.
+ * <p>
+ * A checkpoint is taken once the edits since the last one have taken
+ * {@link #MAX_REPLAY_NANOS} to run or number {@link #MAX_REPLAY_STEPS}, so
+ * reaching any state costs at most about that much. When the checkpoints
+ * outgrow the memory budget, older ones are thinned out, the one whose loss
+ * adds the least replay time first, so recent edits stay cheap to undo while
+ * the whole history remains reachable. The source copy is always kept.
+ */
+final class EditHistory implements AutoCloseable {
+
+    /** Replay time after which a checkpoint is taken. */
+    static final long MAX_REPLAY_NANOS = 200_000_000L;
+    /** Edits after which a checkpoint is taken, however cheap. */
+    static final int MAX_REPLAY_STEPS = 8;
+
+    private final long budget;
+    private final List<Step> steps = new ArrayList<>();
+    /** States by the number of edits applied to reach them; 0 is the source. */
+    private final TreeMap<Integer, NativeImage> checkpoints = new TreeMap<>();
+    private int cursor;
+    private long checkpointBytes;
+
+    /**
+     * @param budget Bytes the checkpoints may hold, not counting the source
+     *               copy
+     */
+    EditHistory(final long budget) {
+	this.budget = budget;
+    }
+
+    boolean canRedo() {
+	return cursor < steps.size();
+    }
+
+    boolean canUndo() {
+	return cursor > 0;
+    }
+
+    /**
+     * @return Bytes held by checkpoints, not counting the source copy
+     */
+    long checkpointBytes() {
+	return checkpointBytes;
+    }
+
+    /**
+     * @return Number of states kept as images, the source included
+     */
+    int checkpointCount() {
+	return checkpoints.size();
+    }
+
+    /**
+     * Free the source copy and every checkpoint.
+     */
+    @Override
+    public void close() {
+	checkpoints.values().forEach(NativeImage::close);
+	checkpoints.clear();
+	steps.clear();
+	cursor = 0;
+	checkpointBytes = 0;
+    }
+
+    private void dropRedo() {
+	while (steps.size() > cursor) {
+	    steps.removeLast();
+	}
+	final var later = checkpoints.tailMap(Integer.valueOf(cursor), false);
+	later.values().forEach(image -> {
+	    checkpointBytes -= image.sizeInBytes();
+	    image.close();
+	});
+	later.clear();
+    }
+
+    /**
+     * Record an edit just applied to the document, after {@link #prepare}.
+     * Edits that could be redone are dropped.
+     *
+     * @param label    Description for the status line
+     * @param edit     The edit, replayed to rebuild later states
+     * @param document The document after the edit
+     * @param nanos    Time the edit took
+     */
+    void record(final String label, final Edit edit, final NativeImage document, final long nanos) {
+	if (checkpoints.isEmpty()) {
+	    return;
+	}
+	dropRedo();
+	steps.add(new Step(label, edit, nanos));
+	cursor++;
+
+	final var since = checkpoints.floorKey(Integer.valueOf(cursor)).intValue();
+	final var due = cursor - since >= MAX_REPLAY_STEPS || replayNanos(since, cursor) >= MAX_REPLAY_NANOS;
+	// A checkpoint larger than the whole budget would only be dropped again
+	if (due && document.sizeInBytes() <= budget) {
+	    final var copy = document.copy();
+	    if (copy != null) {
+		checkpoints.put(Integer.valueOf(cursor), copy);
+		checkpointBytes += copy.sizeInBytes();
+		trim();
+	    }
+	}
+    }
+
+    /**
+     * The edits up to the current state as one orientation, if they are all
+     * turns and flips.
+     *
+     * @return Their combined orientation, the identity if there are none, or
+     *         null if any other edit is among them
+     */
+    Orientation orientation() {
+	var combined = Orientation.IDENTITY;
+	for (var i = 0; i < cursor; i++) {
+	    if (!(steps.get(i).edit instanceof final Orientation orientation)) {
+		return null;
+	    }
+	    combined = combined.then(orientation);
+	}
+	return combined;
+    }
+
+    /**
+     * Get ready to record an edit of the given document, keeping a copy of it
+     * as the source if the history is empty.
+     *
+     * @param document Document about to be edited
+     * @return false if the source could not be copied; the edit then cannot
+     *         be undone
+     */
+    boolean prepare(final NativeImage document) {
+	if (!checkpoints.isEmpty()) {
+	    return true;
+	}
+	final var source = document.copy();
+	if (source == null) {
+	    return false;
+	}
+	checkpoints.put(Integer.valueOf(0), source);
+	return true;
+    }
+
+    /**
+     * Swap the source for another version of the same image, such as the full
+     * resolution of a preview the edits were made on. Checkpoints are dropped
+     * and rebuilt as edits are replayed from the new source.
+     *
+     * @param source Image the recorded edits now start from
+     * @return false if it could not be copied; the history is cleared then
+     */
+    boolean rebase(final NativeImage source) {
+	if (checkpoints.isEmpty()) {
+	    return true;
+	}
+	final var copy = source.copy();
+	final var history = List.copyOf(steps);
+	final var index = cursor;
+	close();
+	if (copy == null) {
+	    return false;
+	}
+	checkpoints.put(Integer.valueOf(0), copy);
+	steps.addAll(history);
+	cursor = index;
+	return true;
+    }
+
+    /**
+     * Apply the next undone edit to the document in place.
+     *
+     * @param document Document in the current state
+     * @return Label of the edit, or null if there is none or it failed
+     */
+    String redo(final NativeImage document) throws Exception {
+	if (!canRedo()) {
+	    return null;
+	}
+	final var step = steps.get(cursor);
+	if (!step.edit.apply(document)) {
+	    return null;
+	}
+	cursor++;
+	return step.label;
+    }
+
+    private long replayNanos(final int from, final int to) {
+	var total = 0L;
+	for (var i = from; i < to; i++) {
+	    total += steps.get(i).nanos;
+	}
+	return total;
+    }
+
+    /**
+     * Rebuild a state from the nearest checkpoint at or below it.
+     *
+     * @param index Number of edits applied
+     * @return New image owned by the caller, or null on error
+     */
+    private NativeImage stateAt(final int index) throws Exception {
+	final var checkpoint = checkpoints.floorEntry(Integer.valueOf(index));
+	final var image = checkpoint.getValue().copy();
+	if (image == null) {
+	    return null;
+	}
+	for (var i = checkpoint.getKey().intValue(); i < index; i++) {
+	    if (!steps.get(i).edit.apply(image)) {
+		image.close();
+		return null;
+	    }
+	}
+	return image;
+    }
+
+    private void trim() {
+	while (checkpointBytes > budget && checkpoints.size() > 1) {
+	    // Dropping a checkpoint joins the replay runs on either side of it.
+	    // The newest is kept unless it is the only one.
+	    final var newest = checkpoints.lastKey();
+	    Integer victim = checkpoints.size() == 2 ? newest : null;
+	    var victimNanos = Long.MAX_VALUE;
+	    for (final var index : checkpoints.keySet()) {
+		if (index.intValue() == 0 || index.equals(newest)) {
+		    continue;
+		}
+		final var lower = checkpoints.lowerKey(index).intValue();
+		final var higher = checkpoints.higherKey(index);
+		final var nanos = replayNanos(lower, higher != null ? higher.intValue() : steps.size());
+		if (nanos < victimNanos) {
+		    victim = index;
+		    victimNanos = nanos;
+		}
+	    }
+	    final var image = checkpoints.remove(victim);
+	    checkpointBytes -= image.sizeInBytes();
+	    image.close();
+	}
+    }
+
+    /**
+     * Step back one edit.
+     *
+     * @return The earlier state as a new image owned by the caller, or null on
+     *         error or if there is nothing to undo
+     */
+    NativeImage undo() throws Exception {
+	if (!canUndo()) {
+	    return null;
+	}
+	final var image = stateAt(cursor - 1);
+	if (image != null) {
+	    cursor--;
+	}
+	return image;
+    }
+
+    /**
+     * @return Label of the edit {@link #undo()} would revert, or null
+     */
+    String undoLabel() {
+	return canUndo() ? steps.get(cursor - 1).label : null;
+    }
+
+    /**
+     * An edit applied to a document in place. Must give the same result every
+     * time it is applied to the same image.
+     */
+    @FunctionalInterface
+    interface Edit {
+	boolean apply(NativeImage image) throws Exception;
+    }
+
+    private record Step(String label, Edit edit, long nanos) {
+    }
+}
@@ -0,0 +1,276 @@
+package io.github.seerainer.imageviewer;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.function.Predicate;
+
+/**
+ * The images in the folder being viewed, in name order. The folder is read
+ * once in the background with a {@link DirectoryStream} and then kept current
+ * by a {@link WatchService}, so stepping through it does no file system I/O:
+ * each change publishes a new immutable {@link Listing} that looks paths up
+ * through a map. Entries are matched by name alone, which spares a stat call
+ * per file in large folders.
+ */
+final class FolderIndex implements AutoCloseable {
+
+    /** Case-insensitive name order, ties broken so the order is total. */
+    static final Comparator<String> ORDER = String.CASE_INSENSITIVE_ORDER.thenComparing(Comparator.naturalOrder());
+
+    private final Predicate<String> filter;
+    private final Executor callbackExecutor;
+    private final Runnable listener;
+    private Watch watch;
+    private boolean closed;
+
+    /**
+     * @param filter           Accepts the file names to list
+     * @param callbackExecutor Executor that runs the listener, normally on the
+     *                         UI thread
+     * @param listener         Runs whenever the listing changes, the first
+     *                         time once the folder has been read
+     */
+    FolderIndex(final Predicate<String> filter, final Executor callbackExecutor, final Runnable listener) {
+	this.filter = filter;
+	this.callbackExecutor = callbackExecutor;
+	this.listener = listener;
+    }
+
+    private static Path directoryOf(final String filePath) {
+	return Path.of(filePath).toAbsolutePath().getParent();
+    }
+
+    /**
+     * Stop watching. The listener is not called afterwards.
+     */
+    @Override
+    public synchronized void close() {
+	closed = true;
+	if (watch != null) {
+	    watch.close();
+	    watch = null;
+	}
+    }
+
+    /**
+     * @return The folder's images as last seen, or null until it has been read
+     */
+    synchronized Listing listing() {
+	return watch != null ? watch.listing : null;
+    }
+
+    /**
+     * Index the folder holding a file, unless it already is. Reading happens
+     * in the background; {@link #listing()} is null until it is done.
+     *
+     * @param filePath Image in the folder to index
+     */
+    synchronized void open(final String filePath) {
+	final var directory = directoryOf(filePath);
+	if (closed || directory == null || watch != null && watch.directory.equals(directory)) {
+	    return;
+	}
+	if (watch != null) {
+	    watch.close();
+	}
+	watch = new Watch(directory);
+	Thread.ofVirtual().name("folder-index").start(watch);
+    }
+
+    private void publish(final Watch source, final Listing listing) {
+	synchronized (this) {
+	    if (watch != source) {
+		return;
+	    }
+	    source.listing = listing;
+	}
+	try {
+	    callbackExecutor.execute(listener);
+	} catch (final RuntimeException e) {
+	    // Rejected, or the display is already disposed
+	}
+    }
+
+    /**
+     * A snapshot of a folder's images. Lookups take constant time.
+     */
+    static final class Listing {
+
+	private final Path directory;
+	private final List<String> paths;
+	private final Map<String, Integer> positions;
+
+	private Listing(final Path directory, final TreeSet<String> names) {
+	    this.directory = directory;
+	    final List<String> list = new ArrayList<>(names.size());
+	    final Map<String, Integer> map = HashMap.newHashMap(names.size());
+	    for (final var name : names) {
+		final var path = directory.resolve(name).toString();
+		map.put(path, Integer.valueOf(list.size()));
+		list.add(path);
+	    }
+	    this.paths = Collections.unmodifiableList(list);
+	    this.positions = map;
+	}
+
+	String get(final int index) {
+	    return paths.get(index);
+	}
+
+	/**
+	 * @param filePath Image path
+	 * @return Its position in the folder, or -1 if it is not listed
+	 */
+	int indexOf(final String filePath) {
+	    final var index = positions.get(filePath);
+	    if (index != null) {
+		return index.intValue();
+	    }
+	    // Relative or otherwise spelled differently; resolving costs no I/O
+	    final var absolute = positions.get(Path.of(filePath).toAbsolutePath().toString());
+	    return absolute != null ? absolute.intValue() : -1;
+	}
+
+	List<String> paths() {
+	    return paths;
+	}
+
+	int size() {
+	    return paths.size();
+	}
+
+	/**
+	 * The image some steps away from a file. A file no longer listed, for
+	 * instance because it was deleted, steps from where it would sort.
+	 *
+	 * @param filePath Image to step from
+	 * @param delta    Steps forward, or back if negative
+	 * @return The image's path, or null past either end
+	 */
+	String step(final String filePath, final int delta) {
+	    var index = indexOf(filePath);
+	    if (index < 0) {
+		final var name = Path.of(filePath).getFileName();
+		if (name == null) {
+		    return null;
+		}
+		// Every path shares the folder, so paths sort as their names do
+		final var insertion = -Collections.binarySearch(paths, directory.resolve(name).toString(), ORDER) - 1;
+		// Between two entries: one step either way lands on a neighbour
+		index = delta > 0 ? insertion - 1 : insertion;
+	    }
+	    final var target = index + delta;
+	    return target >= 0 && target < paths.size() ? paths.get(target) : null;
+	}
+    }
+
+    /**
+     * Reads one folder and follows its changes until closed.
+     */
+    private final class Watch implements Runnable {
+
+	private final Path directory;
+	private final TreeSet<String> names = new TreeSet<>(ORDER);
+	private volatile Listing listing;
+	private WatchService service;
+	private boolean stopped;
+
+	Watch(final Path directory) {
+	    this.directory = directory;
+	}
+
+	synchronized void close() {
+	    stopped = true;
+	    if (service != null) {
+		try {
+		    // Wakes the thread waiting for events
+		    service.close();
+		} catch (final IOException e) {
+		    // Nothing left to release
+		}
+	    }
+	}
+
+	private void apply(final List<WatchEvent<?>> events) throws IOException {
+	    for (final var event : events) {
+		if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+		    // Events were lost; read the folder again
+		    scan();
+		    return;
+		}
+		final var name = ((Path) event.context()).toString();
+		if (!filter.test(name)) {
+		    continue;
+		}
+		if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE) {
+		    names.add(name);
+		} else if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+		    names.remove(name);
+		}
+	    }
+	}
+
+	@Override
+	public void run() {
+	    try {
+		// Registered before reading, so nothing created meanwhile is missed
+		final var watching = register();
+		scan();
+		publish(this, new Listing(directory, names));
+		while (watching) {
+		    final var key = service.take();
+		    apply(key.pollEvents());
+		    publish(this, new Listing(directory, names));
+		    if (!key.reset()) {
+			// The folder itself is gone
+			return;
+		    }
+		}
+	    } catch (final ClosedWatchServiceException | InterruptedException e) {
+		// Closed
+	    } catch (final IOException e) {
+		// Unreadable folder; leave what was listed, if anything
+		publish(this, new Listing(directory, names));
+	    }
+	}
+
+	private synchronized boolean register() {
+	    if (stopped) {
+		return false;
+	    }
+	    try {
+		service = directory.getFileSystem().newWatchService();
+		directory.register(service, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+		return true;
+	    } catch (final IOException | UnsupportedOperationException e) {
+		// Not watchable; the listing is read once and then kept as is
+		close();
+		return false;
+	    }
+	}
+
+	private void scan() throws IOException {
+	    names.clear();
+	    try (final var stream = Files.newDirectoryStream(directory,
+		    entry -> filter.test(entry.getFileName().toString()))) {
+		for (final var entry : stream) {
+		    names.add(entry.getFileName().toString());
+		}
+	    }
+	}
+    }
+}
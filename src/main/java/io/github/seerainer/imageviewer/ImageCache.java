@@ -0,0 +1,223 @@
+package io.github.seerainer.imageviewer;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Decoded images kept for folder navigation, bounded by the bytes they hold
+ * rather than by entry count. Entries keep the native image and the SWT image
+ * data built from it, so a hit only costs a native copy and the creation of an
+ * SWT image. When over capacity, entries furthest down the priority list set by
+ * {@link #setPriority(List)} go first; entries not on the list go before any
+ * that are, least recently used first. Safe to use from several threads.
+ * <p>
+ * Each entry remembers the modification time and size its file had before it
+ * was decoded, and is dropped once the file no longer matches, so an image
+ * changed by another program is read again.
+ */
+final class ImageCache implements AutoCloseable {
+
+    private final long capacity;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private Map<String, Integer> priority = Map.of();
+    private long size;
+    private long hits;
+    private long misses;
+
+    /**
+     * @param capacity Maximum number of bytes held, native and heap together
+     */
+    ImageCache(final long capacity) {
+	this.capacity = capacity;
+    }
+
+    private static long sizeOf(final ImageLoader.Result result) {
+	final var imageData = result.imageData();
+	final var alpha = imageData.alphaData != null ? imageData.alphaData.length : 0;
+	return result.image().sizeInBytes() + imageData.data.length + alpha;
+    }
+
+    long capacity() {
+	return capacity;
+    }
+
+    /**
+     * Close every cached image.
+     */
+    @Override
+    public synchronized void close() {
+	entries.values().forEach(entry -> entry.result.close());
+	entries.clear();
+	size = 0;
+    }
+
+    /**
+     * Check for an entry without counting a hit or miss or touching the usage
+     * order.
+     *
+     * @param filePath Image path
+     * @return true if cached and the file has not changed since
+     */
+    synchronized boolean contains(final String filePath) {
+	final var entry = entries.get(filePath);
+	if (entry == null) {
+	    return false;
+	}
+	if (!entry.stamp.equals(Stamp.of(filePath))) {
+	    remove(filePath);
+	    return false;
+	}
+	return true;
+    }
+
+    private int distance(final String filePath) {
+	return priority.getOrDefault(filePath, Integer.valueOf(Integer.MAX_VALUE)).intValue();
+    }
+
+    /**
+     * Look up an image. The cache keeps its entry; the caller gets its own copy
+     * of the native image, while the image data is shared and must not be
+     * modified.
+     *
+     * @param filePath Image path
+     * @return Load result owning a copy of the image, or null on a miss
+     */
+    synchronized ImageLoader.Result get(final String filePath) {
+	var entry = entries.get(filePath);
+	if (entry != null && !entry.stamp.equals(Stamp.of(filePath))) {
+	    remove(filePath);
+	    entry = null;
+	}
+	final var copy = entry != null ? entry.result.image().copy() : null;
+	if (copy == null) {
+	    misses++;
+	    return null;
+	}
+	hits++;
+	final var cached = entry.result;
+	return new ImageLoader.Result(filePath, copy, cached.imageData(), cached.sourceWidth(), cached.sourceHeight(),
+		null);
+    }
+
+    /**
+     * @return Lookups that found the image, for the status bar
+     */
+    synchronized long hits() {
+	return hits;
+    }
+
+    /**
+     * @return Lookups that did not
+     */
+    synchronized long misses() {
+	return misses;
+    }
+
+    /**
+     * Add a loaded image, taking ownership of it. If the path is already
+     * cached, or the image would be the first to go, it is closed instead.
+     *
+     * @param result Successful load result, owned by the cache afterwards
+     * @param stamp  The file as it was before decoding, from
+     *               {@link Stamp#of(String)}
+     * @return true if the image was kept
+     */
+    synchronized boolean put(final ImageLoader.Result result, final Stamp stamp) {
+	final var filePath = result.filePath();
+	if (entries.containsKey(filePath)) {
+	    result.close();
+	    return false;
+	}
+	final var entry = new Entry(result, sizeOf(result), stamp);
+	entries.put(filePath, entry);
+	size += entry.bytes;
+	trim();
+	return entries.get(filePath) == entry;
+    }
+
+    /**
+     * Drop an entry, for a file the viewer has just written.
+     *
+     * @param filePath Image path
+     */
+    synchronized void remove(final String filePath) {
+	final var entry = entries.remove(filePath);
+	if (entry != null) {
+	    size -= entry.bytes;
+	    entry.result.close();
+	}
+    }
+
+    /**
+     * Set the eviction order and trim to capacity.
+     *
+     * @param filePaths Paths from the most to the least important to keep,
+     *                  usually the current image followed by its neighbours
+     */
+    synchronized void setPriority(final List<String> filePaths) {
+	final var ranks = new HashMap<String, Integer>(filePaths.size() * 2);
+	for (var i = filePaths.size() - 1; i >= 0; i--) {
+	    ranks.put(filePaths.get(i), Integer.valueOf(i));
+	}
+	priority = ranks;
+	trim();
+    }
+
+    synchronized long sizeInBytes() {
+	return size;
+    }
+
+    private void trim() {
+	while (size > capacity && !entries.isEmpty()) {
+	    // Iteration runs from least to most recently used, so ties go to the
+	    // older entry
+	    String victim = null;
+	    var victimDistance = -1;
+	    for (final var filePath : entries.keySet()) {
+		final var d = distance(filePath);
+		if (d > victimDistance) {
+		    victim = filePath;
+		    victimDistance = d;
+		}
+	    }
+	    final var entry = entries.remove(victim);
+	    size -= entry.bytes;
+	    entry.result.close();
+	}
+    }
+
+    private record Entry(ImageLoader.Result result, long bytes, Stamp stamp) {
+    }
+
+    /**
+     * What a file looked like when it was read: its modification time and
+     * size, or neither if it could not be read.
+     */
+    record Stamp(long modified, long size) {
+
+	private static final Stamp UNREADABLE = new Stamp(-1, -1);
+
+	/**
+	 * Take a file's stamp. Done before decoding, so a change made while the
+	 * image decodes shows as a mismatch later.
+	 *
+	 * @param filePath Image path
+	 * @return Stamp, never null
+	 */
+	static Stamp of(final String filePath) {
+	    try {
+		final var attributes = Files.readAttributes(Path.of(filePath), BasicFileAttributes.class);
+		return new Stamp(attributes.lastModifiedTime().toMillis(), attributes.size());
+	    } catch (final IOException | InvalidPathException e) {
+		return UNREADABLE;
+	    }
+	}
+    }
+}
@@ -0,0 +1,94 @@
+package io.github.seerainer.imageviewer;
+
+/**
+ * What an image file's header says about it, read by
+ * {@link ImageService#probe(String)} without decoding the pixels.
+ *
+ * @param width      Width as displayed, after the file's EXIF orientation
+ * @param height     Height as displayed
+ * @param colorType  Pixel layout the file decodes to
+ * @param format     File format, detected from the contents
+ * @param frameCount Number of frames; more than one for animations
+ */
+record ImageInfo(int width, int height, ColorType colorType, Format format, int frameCount) {
+
+    /**
+     * Build from the values {@code image_probe} writes.
+     *
+     * @param values Width, height, colour type code, format code and frame
+     *               count
+     * @return Image info, or null if a code is unknown
+     */
+    static ImageInfo fromProbe(final int[] values) {
+	final var colorType = ColorType.fromCode(values[2]);
+	final var format = Format.fromCode(values[3]);
+	if (colorType == null || format == null) {
+	    return null;
+	}
+	return new ImageInfo(values[0], values[1], colorType, format, values[4]);
+    }
+
+    /**
+     * @return Size and format for the status bar, such as "6000 x 4000 JPEG"
+     */
+    String describe() {
+	final var text = width + " x " + height + " " + format.getDisplayName();
+	return isAnimated() ? text + ", " + frameCount + " frames" : text;
+    }
+
+    boolean isAnimated() {
+	return frameCount > 1;
+    }
+
+    /**
+     * Pixel layouts; maps to image::ColorType.
+     */
+    enum ColorType {
+	L8(0), LA8(1), RGB8(2), RGBA8(3), L16(4), LA16(5), RGB16(6), RGBA16(7), RGB32F(8), RGBA32F(9);
+
+	static ColorType fromCode(final int code) {
+	    for (final var type : values()) {
+		if (type.code == code) {
+		    return type;
+		}
+	    }
+	    return null;
+	}
+
+	private final int code;
+
+	ColorType(final int code) {
+	    this.code = code;
+	}
+    }
+
+    /**
+     * File formats; maps to image::ImageFormat.
+     */
+    enum Format {
+	PNG(0, "PNG"), JPEG(1, "JPEG"), GIF(2, "GIF"), WEBP(3, "WebP"), PNM(4, "PNM"), TIFF(5, "TIFF"), TGA(6, "TGA"),
+	DDS(7, "DDS"), BMP(8, "BMP"), ICO(9, "ICO"), HDR(10, "HDR"), OPEN_EXR(11, "OpenEXR"),
+	FARBFELD(12, "Farbfeld"), AVIF(13, "AVIF"), QOI(14, "QOI");
+
+	static Format fromCode(final int code) {
+	    for (final var format : values()) {
+		if (format.code == code) {
+		    return format;
+		}
+	    }
+	    return null;
+	}
+
+	private final int code;
+	private final String displayName;
+
+	Format(final int code, final String displayName) {
+	    this.code = code;
+	    this.displayName = displayName;
+	}
+
+	String getDisplayName() {
+	    return displayName;
+	}
+    }
+}
@@ -0,0 +1,298 @@
+package io.github.seerainer.imageviewer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+
+import org.eclipse.swt.graphics.ImageData;
+
+/**
+ * Decodes images off the UI thread. Decoding and the copy into SWT image data
+ * run on a virtual thread; only the finished result is handed to the callback
+ * executor, typically {@code display::asyncExec}, so the UI thread is left to
+ * create the {@code Image}. At most one decode is in flight: a request made
+ * while another is running replaces any request still waiting, and results of
+ * superseded or cancelled requests are closed instead of delivered.
+ * <p>
+ * A load may ask for the image scaled to fit a size, typically the screen; the
+ * result then also carries the full size so the caller knows when to fetch
+ * full resolution. It may also ask for what the file's header says, which is
+ * read with {@link ImageService#probe(String)} and delivered before the decode
+ * finishes.
+ */
+final class ImageLoader implements AutoCloseable {
+
+    private final Executor callbackExecutor;
+    private final ImageCache cache;
+    private final ExecutorService worker = Executors.newVirtualThreadPerTaskExecutor();
+    private final Object lock = new Object();
+    private long generation;
+    private Request pending;
+    private boolean running;
+    private boolean closed;
+
+    /**
+     * @param callbackExecutor Executor that runs callbacks, normally on the UI
+     *                         thread
+     */
+    ImageLoader(final Executor callbackExecutor) {
+	this(callbackExecutor, null);
+    }
+
+    /**
+     * @param callbackExecutor Executor that runs callbacks, normally on the UI
+     *                         thread
+     * @param cache            Cache that receives a copy of every scaled
+     *                         image delivered, or null
+     */
+    ImageLoader(final Executor callbackExecutor, final ImageCache cache) {
+	this.callbackExecutor = callbackExecutor;
+	this.cache = cache;
+    }
+
+    /**
+     * Drop any waiting request and discard the result of the one in flight.
+     */
+    void cancel() {
+	synchronized (lock) {
+	    generation++;
+	    pending = null;
+	}
+    }
+
+    /**
+     * Cancel outstanding requests and stop the worker. Results still in flight
+     * are closed.
+     */
+    @Override
+    public void close() {
+	synchronized (lock) {
+	    generation++;
+	    pending = null;
+	    closed = true;
+	}
+	worker.shutdown();
+    }
+
+    /**
+     * Decode an image and build its SWT image data on the calling thread.
+     *
+     * @param filePath  Path to image file
+     * @param maxWidth  Maximum width, or 0 for full size
+     * @param maxHeight Maximum height, or 0 for full size
+     * @param wanted    Checked after the decode; if false, the image is closed
+     *                  and null returned
+     * @return Load result, or null if no longer wanted
+     */
+    static Result decode(final String filePath, final int maxWidth, final int maxHeight,
+	    final BooleanSupplier wanted) {
+	NativeImage image = null;
+	try {
+	    final var sourceSize = new int[2];
+	    image = maxWidth > 0 && maxHeight > 0 ? NativeImage.loadScaled(filePath, maxWidth, maxHeight, sourceSize)
+		    : NativeImage.load(filePath);
+	    if (image == null) {
+		return Result.failed(filePath, null);
+	    }
+	    if (!wanted.getAsBoolean()) {
+		// Superseded during the decode; skip the copy for display
+		image.close();
+		return null;
+	    }
+	    final var imageData = ImageService.toImageData(image);
+	    if (imageData == null) {
+		image.close();
+		return Result.failed(filePath, null);
+	    }
+	    if (maxWidth <= 0 || maxHeight <= 0) {
+		sourceSize[0] = imageData.width;
+		sourceSize[1] = imageData.height;
+	    }
+	    return new Result(filePath, image, imageData, sourceSize[0], sourceSize[1], null);
+	} catch (final Exception e) {
+	    if (image != null) {
+		image.close();
+	    }
+	    return Result.failed(filePath, e);
+	}
+    }
+
+    private void deliver(final Request request, final ImageInfo info) {
+	try {
+	    callbackExecutor.execute(() -> {
+		if (isCurrent(request)) {
+		    request.onInfo.accept(info);
+		}
+	    });
+	} catch (final RuntimeException e) {
+	    // Rejected, or the display is already disposed
+	}
+    }
+
+    private void deliver(final Request request, final Result result) {
+	try {
+	    callbackExecutor.execute(() -> {
+		// The user may have moved on while the callback was queued
+		if (isCurrent(request)) {
+		    request.callback.accept(result);
+		} else {
+		    result.close();
+		}
+	    });
+	} catch (final RuntimeException e) {
+	    // Rejected, or the display is already disposed
+	    result.close();
+	}
+    }
+
+    private void drain() {
+	while (true) {
+	    final Request request;
+	    synchronized (lock) {
+		request = pending;
+		pending = null;
+		if (request == null) {
+		    running = false;
+		    return;
+		}
+	    }
+	    if (request.onInfo != null) {
+		// A few small reads, so the caller can describe the image while
+		// it decodes
+		final var info = ImageService.probe(request.filePath);
+		if (info != null && isCurrent(request)) {
+		    deliver(request, info);
+		}
+	    }
+	    final var stamp = cache != null ? ImageCache.Stamp.of(request.filePath) : null;
+	    final var result = decode(request.filePath, request.maxWidth, request.maxHeight,
+		    () -> isCurrent(request));
+	    if (result == null) {
+		continue;
+	    }
+	    if (cache != null && request.maxWidth > 0 && result.isSuccess()) {
+		final var copy = result.image.copy();
+		if (copy != null) {
+		    cache.put(new Result(result.filePath, copy, result.imageData, result.sourceWidth,
+			    result.sourceHeight, null), stamp);
+		}
+	    }
+	    if (isCurrent(request)) {
+		deliver(request, result);
+	    } else {
+		result.close();
+	    }
+	}
+    }
+
+    private boolean isCurrent(final Request request) {
+	synchronized (lock) {
+	    return request.generation == generation;
+	}
+    }
+
+    /**
+     * Request an image at full size. Supersedes every earlier request.
+     *
+     * @param filePath Path to image file
+     * @param callback Receives the result through the callback executor, only
+     *                 if no later request has been made by then
+     */
+    void load(final String filePath, final Consumer<Result> callback) {
+	load(filePath, 0, 0, null, callback);
+    }
+
+    /**
+     * Request an image scaled down to fit the given size. Supersedes every
+     * earlier request.
+     *
+     * @param filePath  Path to image file
+     * @param maxWidth  Maximum width, or 0 for full size
+     * @param maxHeight Maximum height, or 0 for full size
+     * @param callback  Receives the result through the callback executor, only
+     *                  if no later request has been made by then
+     */
+    void load(final String filePath, final int maxWidth, final int maxHeight, final Consumer<Result> callback) {
+	load(filePath, maxWidth, maxHeight, null, callback);
+    }
+
+    /**
+     * Request an image scaled down to fit the given size, and what its header
+     * says ahead of it. Supersedes every earlier request.
+     *
+     * @param filePath  Path to image file
+     * @param maxWidth  Maximum width, or 0 for full size
+     * @param maxHeight Maximum height, or 0 for full size
+     * @param onInfo    Receives the header through the callback executor
+     *                  before the result, unless it cannot be read or a later
+     *                  request has been made by then; may be null
+     * @param callback  Receives the result through the callback executor, only
+     *                  if no later request has been made by then
+     */
+    void load(final String filePath, final int maxWidth, final int maxHeight, final Consumer<ImageInfo> onInfo,
+	    final Consumer<Result> callback) {
+	synchronized (lock) {
+	    if (closed) {
+		return;
+	    }
+	    pending = new Request(++generation, filePath, maxWidth, maxHeight, onInfo, callback);
+	    if (running) {
+		// The running decode picks this up when it finishes
+		return;
+	    }
+	    running = true;
+	}
+	try {
+	    worker.execute(this::drain);
+	} catch (final RejectedExecutionException e) {
+	    // Closed in the meantime; nothing is left to pick the request up
+	    synchronized (lock) {
+		pending = null;
+		running = false;
+	    }
+	}
+    }
+
+    private record Request(long generation, String filePath, int maxWidth, int maxHeight,
+	    Consumer<ImageInfo> onInfo, Consumer<Result> callback) {
+    }
+
+    /**
+     * Outcome of a load. On success the receiver owns the native image;
+     * otherwise both image fields are null and {@code error} may hold the
+     * cause.
+     *
+     * @param sourceWidth  Full width of the image file
+     * @param sourceHeight Full height of the image file
+     */
+    record Result(String filePath, NativeImage image, ImageData imageData, int sourceWidth, int sourceHeight,
+	    Exception error) {
+
+	private static Result failed(final String filePath, final Exception error) {
+	    return new Result(filePath, null, null, 0, 0, error);
+	}
+
+	/**
+	 * Close the image, if any.
+	 */
+	void close() {
+	    if (image != null) {
+		image.close();
+	    }
+	}
+
+	/**
+	 * @return true if the image is smaller than the file it came from
+	 */
+	boolean isScaled() {
+	    return imageData != null && (imageData.width < sourceWidth || imageData.height < sourceHeight);
+	}
+
+	boolean isSuccess() {
+	    return image != null;
+	}
+    }
+}
@@ -0,0 +1,148 @@
+package io.github.seerainer.imageviewer;
+
+import java.util.Arrays;
+
+/**
+ * An ordered list of edits applied to an image in a single native call. The
+ * Rust side plans the list before running it: rotations and flips collapse
+ * into one reorientation, colour adjustments share a single pass over the
+ * pixels, and a downscale runs as early as it can so later edits touch fewer
+ * pixels. Where a downscale moves, results may differ from applying the same
+ * edits one by one by rounding, at most one level per channel.
+ */
+final class ImagePipeline {
+
+    /**
+     * Operation codes. Must match the constants in rs-image's pipeline module.
+     */
+    private enum Op {
+	ROTATE_RIGHT(0), ROTATE_180(1), ROTATE_LEFT(2), FLIP_HORIZONTAL(3), FLIP_VERTICAL(4), RESIZE(5), BRIGHTNESS(6),
+	CONTRAST(7), BLUR(8), GRAYSCALE(9), INVERT(10);
+
+	private final int code;
+
+	Op(final int code) {
+	    this.code = code;
+	}
+    }
+
+    /** Ints per encoded operation: code, width, height, filter, value. */
+    static final int OP_SIZE = 5;
+
+    static Builder builder() {
+	return new Builder();
+    }
+
+    private final int[] ops;
+
+    private ImagePipeline(final int[] ops) {
+	this.ops = ops;
+    }
+
+    /**
+     * The operations in the layout rs-image reads, {@link #OP_SIZE} ints each.
+     *
+     * @return Encoded operations, not to be modified
+     */
+    int[] encoded() {
+	return ops;
+    }
+
+    boolean isEmpty() {
+	return ops.length == 0;
+    }
+
+    int size() {
+	return ops.length / OP_SIZE;
+    }
+
+    /**
+     * Collects edits in the order they should apply. A builder can be reused
+     * after {@link #build()}.
+     */
+    static final class Builder {
+	private int[] ops = new int[OP_SIZE * 8];
+	private int count;
+
+	private Builder() {
+	}
+
+	private Builder add(final Op op, final int width, final int height, final int filter, final float value) {
+	    if ((count + 1) * OP_SIZE > ops.length) {
+		ops = Arrays.copyOf(ops, ops.length * 2);
+	    }
+	    final var i = count++ * OP_SIZE;
+	    ops[i] = op.code;
+	    ops[i + 1] = width;
+	    ops[i + 2] = height;
+	    ops[i + 3] = filter;
+	    ops[i + 4] = Float.floatToRawIntBits(value);
+	    return this;
+	}
+
+	/**
+	 * Adjust brightness.
+	 *
+	 * @param value Brightness adjustment (-100 to 100)
+	 * @return This builder
+	 */
+	Builder adjustBrightness(final int value) {
+	    return add(Op.BRIGHTNESS, 0, 0, 0, value);
+	}
+
+	Builder adjustContrast(final float contrast) {
+	    return add(Op.CONTRAST, 0, 0, 0, contrast);
+	}
+
+	Builder blur(final float sigma) {
+	    return add(Op.BLUR, 0, 0, 0, sigma);
+	}
+
+	ImagePipeline build() {
+	    return new ImagePipeline(Arrays.copyOf(ops, count * OP_SIZE));
+	}
+
+	Builder flipHorizontal() {
+	    return add(Op.FLIP_HORIZONTAL, 0, 0, 0, 0);
+	}
+
+	Builder flipVertical() {
+	    return add(Op.FLIP_VERTICAL, 0, 0, 0, 0);
+	}
+
+	Builder grayscale() {
+	    return add(Op.GRAYSCALE, 0, 0, 0, 0);
+	}
+
+	Builder invert() {
+	    return add(Op.INVERT, 0, 0, 0, 0);
+	}
+
+	/**
+	 * Resize to fit within the given size, maintaining aspect ratio.
+	 *
+	 * @param width  Target width
+	 * @param height Target height
+	 * @param filter Resize filter to use
+	 * @return This builder
+	 */
+	Builder resize(final int width, final int height, final ResizeFilter filter) {
+	    if (width <= 0 || height <= 0) {
+		throw new IllegalArgumentException("Target size must be positive");
+	    }
+	    return add(Op.RESIZE, width, height, filter.getCode(), 0);
+	}
+
+	Builder rotate180() {
+	    return add(Op.ROTATE_180, 0, 0, 0, 0);
+	}
+
+	Builder rotateLeft() {
+	    return add(Op.ROTATE_LEFT, 0, 0, 0, 0);
+	}
+
+	Builder rotateRight() {
+	    return add(Op.ROTATE_RIGHT, 0, 0, 0, 0);
+	}
+    }
+}
\ No newline at end of file
@@ -0,0 +1,159 @@
+package io.github.seerainer.imageviewer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Successively halved copies of a document, built on demand in native code.
+ * A zoomed view is resampled from the smallest level that still has at least
+ * the pixels it needs, so zooming out costs a fraction of resampling the full
+ * image every time. Level 0 is the document itself, which the pyramid does not
+ * own; the pyramid must be closed and rebuilt whenever the document changes.
+ * Levels may be built on any thread, and {@link #prepare prepared} without
+ * holding up whoever changes the document for longer than a copy.
+ */
+final class ImagePyramid implements AutoCloseable {
+
+    private final NativeImage base;
+    private final List<NativeImage> levels = new ArrayList<>();
+
+    ImagePyramid(final NativeImage base) {
+	this.base = base;
+    }
+
+    /**
+     * @return Number of levels built, not counting the base image
+     */
+    synchronized int builtLevels() {
+	return levels.size();
+    }
+
+    /**
+     * Close the levels built so far. The base image stays open.
+     */
+    @Override
+    public synchronized void close() {
+	levels.forEach(NativeImage::close);
+	levels.clear();
+    }
+
+    /**
+     * Index of the smallest level at least as large as the given size in both
+     * dimensions; 0 for sizes larger than the base image. Works from the
+     * level sizes alone and builds nothing.
+     *
+     * @param width  Width to render at
+     * @param height Height to render at
+     * @return Index for {@link #level(int)}
+     */
+    int indexFor(final int width, final int height) {
+	var index = 0;
+	var levelWidth = base.width();
+	var levelHeight = base.height();
+	// Each level halves the one above, rounding up, down to a single pixel
+	while (levelWidth > 1 || levelHeight > 1) {
+	    final var nextWidth = (levelWidth + 1) / 2;
+	    final var nextHeight = (levelHeight + 1) / 2;
+	    if (nextWidth < width || nextHeight < height) {
+		break;
+	    }
+	    levelWidth = nextWidth;
+	    levelHeight = nextHeight;
+	    index++;
+	}
+	return index;
+    }
+
+    /**
+     * Get a level, building it and the levels above it if needed.
+     *
+     * @param index Level, 0 being the base image
+     * @return The level, or null if it cannot be built or would be no smaller
+     *         than the one above
+     */
+    synchronized NativeImage level(final int index) {
+	if (index == 0) {
+	    return base;
+	}
+	while (levels.size() < index) {
+	    final var above = levels.isEmpty() ? base : levels.getLast();
+	    if (above.width() <= 1 && above.height() <= 1) {
+		return null;
+	    }
+	    final var half = above.downsampleHalf();
+	    if (half == null) {
+		return null;
+	    }
+	    levels.add(half);
+	}
+	return levels.get(index - 1);
+    }
+
+    /**
+     * The smallest level at least as large as the given size in both
+     * dimensions; the base image for sizes larger than itself.
+     *
+     * @param width  Width to render at
+     * @param height Height to render at
+     * @return Level to resample from, or null if it cannot be built
+     */
+    NativeImage levelFor(final int width, final int height) {
+	return level(indexFor(width, height));
+    }
+
+    /**
+     * Build the levels down to the given one, each from a copy of the level
+     * above. The guard is held only while that copy is taken and while a new
+     * level is added, so code that changes or closes the document under the
+     * same lock waits for a copy, not for a level to be built.
+     *
+     * @param index  Level, 0 being the base image
+     * @param guard  Lock that keeps the document and the pyramid open
+     * @param wanted Checked under the guard; once false, building stops and
+     *               what was built since is thrown away
+     * @return true if the level is built and still wanted
+     */
+    boolean prepare(final int index, final Object guard, final BooleanSupplier wanted) {
+	while (true) {
+	    final int built;
+	    final NativeImage above;
+	    synchronized (guard) {
+		if (!wanted.getAsBoolean()) {
+		    return false;
+		}
+		synchronized (this) {
+		    built = levels.size();
+		    if (index <= built) {
+			return true;
+		    }
+		    final var source = levels.isEmpty() ? base : levels.getLast();
+		    if (source.width() <= 1 && source.height() <= 1) {
+			return false;
+		    }
+		    above = source.copy();
+		}
+	    }
+	    if (above == null) {
+		return false;
+	    }
+	    final NativeImage half;
+	    try (above) {
+		half = above.downsampleHalf();
+	    }
+	    if (half == null) {
+		return false;
+	    }
+	    synchronized (guard) {
+		synchronized (this) {
+		    if (wanted.getAsBoolean() && levels.size() == built) {
+			levels.add(half);
+			continue;
+		    }
+		}
+	    }
+	    // Closed meanwhile, or the level was built by someone else
+	    half.close();
+	}
+    }
+}
@@ -0,0 +1,153 @@
+package io.github.seerainer.imageviewer;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Encodes and writes images off the UI thread. Each save works on a snapshot
+ * of the document taken when it was asked for, so editing can go on while it
+ * runs. Saves run one at a time in the order they were made, so two saves to
+ * the same file end with the later one; the outcome reaches the callback
+ * executor, typically {@code display::asyncExec}.
+ * <p>
+ * A JPEG that was only turned or flipped can be saved by
+ * {@link #reorient reorienting} the file instead: its EXIF orientation is
+ * rewritten and the compressed image copied as is, so nothing is decoded and
+ * no quality is lost.
+ */
+final class ImageSaver implements AutoCloseable {
+
+    private final Executor callbackExecutor;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(Thread.ofVirtual().factory());
+
+    /**
+     * @param callbackExecutor Executor that runs callbacks, normally on the UI
+     *                         thread
+     */
+    ImageSaver(final Executor callbackExecutor) {
+	this.callbackExecutor = callbackExecutor;
+    }
+
+    /**
+     * Run an action through the callback executor once every save queued so
+     * far is written, such as reading back a file that is being saved.
+     *
+     * @param action Runs after the pending saves
+     * @return false if the saver is closed; the action does not run then
+     */
+    boolean afterSaves(final Runnable action) {
+	try {
+	    worker.execute(() -> deliver(_ -> action.run(), null));
+	    return true;
+	} catch (final RuntimeException e) {
+	    return false;
+	}
+    }
+
+    /**
+     * Finish the saves already queued, then stop the worker. Returns once they
+     * are written, so none is cut off by the application exiting.
+     */
+    @Override
+    public void close() {
+	worker.close();
+    }
+
+    private void deliver(final Consumer<Result> callback, final Result result) {
+	try {
+	    callbackExecutor.execute(() -> callback.accept(result));
+	} catch (final RuntimeException e) {
+	    // Rejected, or the display is already disposed
+	}
+    }
+
+    private static Result reorient(final String sourcePath, final String filePath, final Orientation turn,
+	    final SaveOptions options) {
+	final var start = System.nanoTime();
+	try {
+	    final var code = RustImageLib.jpegReorient(sourcePath, filePath, turn.quarterTurns(), turn.flip());
+	    if (code != ImageResult.ERROR_UNSUPPORTED_FORMAT.getCode()) {
+		return new Result(filePath, ImageResult.fromCode(code).isSuccess(), true,
+			(System.nanoTime() - start) / 1_000_000L, null);
+	    }
+	    // Not a JPEG whose metadata can be rewritten; decode, turn and encode
+	    final var image = NativeImage.load(sourcePath);
+	    if (image == null || !turn.apply(image)) {
+		if (image != null) {
+		    image.close();
+		}
+		return new Result(filePath, false, false, (System.nanoTime() - start) / 1_000_000L, null);
+	    }
+	    final var written = write(image, filePath, options);
+	    return new Result(filePath, written.success, false, (System.nanoTime() - start) / 1_000_000L,
+		    written.error);
+	} catch (final Exception e) {
+	    return new Result(filePath, false, false, (System.nanoTime() - start) / 1_000_000L, e);
+	}
+    }
+
+    /**
+     * Queue a save of a file turned or flipped, without the document. JPEGs
+     * are reoriented losslessly; anything else is decoded from the source,
+     * turned and encoded.
+     *
+     * @param sourcePath File to turn
+     * @param filePath   Destination, which may be the source
+     * @param turn       Orientation to apply on top of the source's own
+     * @param options    Encoder settings if the file has to be re-encoded
+     * @param callback   Receives the outcome through the callback executor
+     * @return false if the saver is closed
+     */
+    boolean reorient(final String sourcePath, final String filePath, final Orientation turn,
+	    final SaveOptions options, final Consumer<Result> callback) {
+	try {
+	    worker.execute(() -> deliver(callback, reorient(sourcePath, filePath, turn, options)));
+	    return true;
+	} catch (final RuntimeException e) {
+	    return false;
+	}
+    }
+
+    /**
+     * Queue a save.
+     *
+     * @param snapshot Image to save; ownership passes to the saver, which
+     *                 closes it when done
+     * @param filePath Destination; the format follows the extension
+     * @param options  Encoder settings
+     * @param callback Receives the outcome through the callback executor
+     * @return false if the saver is closed; the snapshot is closed then too
+     */
+    boolean save(final NativeImage snapshot, final String filePath, final SaveOptions options,
+	    final Consumer<Result> callback) {
+	try {
+	    worker.execute(() -> deliver(callback, write(snapshot, filePath, options)));
+	    return true;
+	} catch (final RuntimeException e) {
+	    snapshot.close();
+	    return false;
+	}
+    }
+
+    private static Result write(final NativeImage snapshot, final String filePath, final SaveOptions options) {
+	final var start = System.nanoTime();
+	try (snapshot) {
+	    final var success = snapshot.save(filePath, options);
+	    return new Result(filePath, success, false, (System.nanoTime() - start) / 1_000_000L, null);
+	} catch (final Exception e) {
+	    return new Result(filePath, false, false, (System.nanoTime() - start) / 1_000_000L, e);
+	}
+    }
+
+    /**
+     * Outcome of a save.
+     *
+     * @param lossless Whether the file was reoriented rather than re-encoded
+     * @param millis   Time spent encoding and writing
+     * @param error    Cause of a failure, or null
+     */
+    record Result(String filePath, boolean success, boolean lossless, long millis, Exception error) {
+    }
+}
@@ -1,32 +1,62 @@
-package io.github.seerainer.imageviewer;
-
-import org.eclipse.swt.widgets.Display;
-
-public class Main {
-
-    static {
-	System.setProperty("org.eclipse.swt.display.useSystemTheme", "true");
-    }
-
-    private Main() {
-	throw new UnsupportedOperationException("This class cannot be instantiated");
-    }
-
-    public static void main(final String[] args) {
-	final var display = Display.getDefault();
-	try {
-	    final var mainUI = new MainWindow(display, args.length > 0 ? args[0] : null);
-	    final var shell = mainUI.getShell();
-	    while (!shell.isDisposed()) {
-		if (!display.readAndDispatch()) {
-		    display.sleep();
-		}
-	    }
-	} catch (final Exception e) {
-	    e.printStackTrace();
-	} finally {
-	    Icons.dispose();
-	    display.dispose();
-	}
-    }
+package io.github.seerainer.imageviewer;
+
+import java.io.File;
+import java.util.Arrays;
+
+import org.eclipse.swt.widgets.Display;
+
+public class Main {
+
+    static {
+	System.setProperty("org.eclipse.swt.display.useSystemTheme", "true");
+    }
+
+    private Main() {
+	throw new UnsupportedOperationException("This class cannot be instantiated");
+    }
+
+    private static void configureNativeThreads() {
+	final var threads = Integer.getInteger("imageviewer.threads");
+	if (threads != null && !ImageResult.fromCode(RustImageLib.setThreadCount(threads.intValue())).isSuccess()) {
+	    System.err.println("Ignoring invalid imageviewer.threads value: " + threads);
+	}
+    }
+
+    public static void main(final String[] args) {
+	if (args.length > 0 && BatchConverter.BATCH_FLAG.equals(args[0])) {
+	    configureNativeThreads();
+	    // Headless; no display is opened
+	    System.exit(BatchConverter.run(Arrays.copyOfRange(args, 1, args.length)));
+	}
+	final var filePath = args.length > 0 ? args[0] : null;
+	final var socket = SingleInstance.socketPath();
+	// Before SWT or the native library is loaded, so handing off stays cheap
+	if (filePath != null && SingleInstance.isEnabled()
+		&& SingleInstance.handOff(socket, new File(filePath).getAbsolutePath())) {
+	    return;
+	}
+	configureNativeThreads();
+	final var display = Display.getDefault();
+	SingleInstance instance = null;
+	try {
+	    final var mainUI = new MainWindow(display, filePath);
+	    if (SingleInstance.isEnabled()) {
+		instance = SingleInstance.listen(socket, display::asyncExec, mainUI::openFile);
+	    }
+	    final var shell = mainUI.getShell();
+	    while (!shell.isDisposed()) {
+		if (!display.readAndDispatch()) {
+		    display.sleep();
+		}
+	    }
+	} catch (final Exception e) {
+	    e.printStackTrace();
+	} finally {
+	    if (instance != null) {
+		instance.close();
+	    }
+	    Icons.dispose();
+	    display.dispose();
+	}
+    }
 }
\ No newline at end of file
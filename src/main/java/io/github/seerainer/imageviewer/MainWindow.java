@@ -1,864 +1,1270 @@
-package io.github.seerainer.imageviewer;
-
-import java.io.File;
-import java.util.ArrayList;
-import java.util.List;
-
-import org.eclipse.swt.SWT;
-import org.eclipse.swt.events.PaintEvent;
-import org.eclipse.swt.graphics.Color;
-import org.eclipse.swt.graphics.Image;
-import org.eclipse.swt.graphics.Rectangle;
-import org.eclipse.swt.layout.GridData;
-import org.eclipse.swt.layout.GridLayout;
-import org.eclipse.swt.widgets.Button;
-import org.eclipse.swt.widgets.Canvas;
-import org.eclipse.swt.widgets.ColorDialog;
-import org.eclipse.swt.widgets.Composite;
-import org.eclipse.swt.widgets.Control;
-import org.eclipse.swt.widgets.Display;
-import org.eclipse.swt.widgets.FileDialog;
-import org.eclipse.swt.widgets.Label;
-import org.eclipse.swt.widgets.Menu;
-import org.eclipse.swt.widgets.MenuItem;
-import org.eclipse.swt.widgets.MessageBox;
-import org.eclipse.swt.widgets.Scale;
-import org.eclipse.swt.widgets.Shell;
-import org.eclipse.swt.widgets.ToolBar;
-import org.eclipse.swt.widgets.ToolItem;
-
-public class MainWindow {
-
-    private static final String APP_TITLE = "ImageViewer";
-    private static final int MIN_WIDTH = 800;
-    private static final int MIN_HEIGHT = 600;
-    private static final double ZOOM_STEP = 0.1;
-    private static final double MIN_ZOOM = 0.1;
-    private static final double MAX_ZOOM = 10.0;
-    private static final String[] IMAGE_EXTENSIONS = { ".png", ".jpg", ".jpeg", ".jpe", ".jfif", ".gif", ".webp",
-	    ".tiff", ".tif", ".bmp", ".dib", ".tga", ".ico", ".hdr", ".exr", ".pbm", ".pgm", ".ppm", ".pam", ".dds",
-	    ".ff" };
-    private final Display display;
-    private Shell shell;
-    private Canvas canvas;
-    private Menu menuBar;
-    private ToolBar toolBar;
-    private Composite statusBar;
-    private Label statusLabel;
-    private Image currentImage;
-    private Image originalImage;
-    private final String initialFilePath;
-    private String currentFilePath;
-    private double currentZoom = 1.0;
-    private boolean isFullScreen = false;
-    private ResizeFilter currentResizeFilter = ResizeFilter.TRIANGLE;
-    private final List<String> folderImages = new ArrayList<>();
-    private int currentImageIndex = -1;
-    private Color backgroundColor;
-
-    public MainWindow(final Display display, final String filePath) {
-	this.display = display;
-	this.initialFilePath = filePath;
-	Icons.initialize(display);
-	this.shell = createShell();
-	initializeUI();
-	shell.open();
-    }
-
-    private static Rectangle calculateCenteredRectangle(final Rectangle source, final Rectangle container) {
-	final var x = (container.width - source.width) / 2;
-	final var y = (container.height - source.height) / 2;
-	return new Rectangle(x, y, source.width, source.height);
-    }
-
-    private static void createMenuItem(final Menu menu, final String text, final int accelerator,
-	    final Runnable action) {
-	final var item = new MenuItem(menu, SWT.PUSH);
-	item.setText(text);
-	if (accelerator != SWT.NONE) {
-	    item.setAccelerator(accelerator);
-	}
-	item.addListener(SWT.Selection, _ -> action.run());
-    }
-
-    private static void createToolItem(final ToolBar toolBar, final String icon, final String text,
-	    final Runnable action) {
-	final var item = new ToolItem(toolBar, SWT.PUSH);
-	item.setText(icon);
-	item.setToolTipText(text);
-	item.addListener(SWT.Selection, _ -> action.run());
-    }
-
-    private static MenuItem menuSeparator(final Menu editMenu) {
-	return new MenuItem(editMenu, SWT.SEPARATOR);
-    }
-
-    private static ToolItem toolSeparator(final ToolBar toolBar) {
-	return new ToolItem(toolBar, SWT.SEPARATOR);
-    }
-
-    private void applyZoom(final double zoom) {
-	if (originalImage == null || originalImage.isDisposed()) {
-	    return;
-	}
-
-	try {
-	    final var bounds = originalImage.getBounds();
-	    final var newWidth = (int) (bounds.width * zoom);
-	    final var newHeight = (int) (bounds.height * zoom);
-
-	    if (newWidth < 1 || newHeight < 1) {
-		updateStatus("Image too small to zoom");
-		return;
-	    }
-
-	    final var resized = ImageService.resizeWithFilter(display, originalImage, newWidth, newHeight,
-		    currentResizeFilter);
-	    if (resized != null) {
-		if (currentImage != null && !currentImage.isDisposed() && currentImage != originalImage) {
-		    currentImage.dispose();
-		}
-		currentImage = resized;
-		currentZoom = zoom;
-		canvas.redraw();
-		updateStatus("Zoom: %.0f%%".formatted(Double.valueOf(zoom * 100)));
-	    } else {
-		updateStatus("Failed to zoom image");
-	    }
-	} catch (final Exception e) {
-	    updateStatus("Error zooming image: " + e.getMessage());
-	}
-    }
-
-    private void configureShellLayout() {
-	final var layout = new GridLayout(1, false);
-	layout.marginWidth = 0;
-	layout.marginHeight = 0;
-	layout.verticalSpacing = 0;
-	shell.setLayout(layout);
-    }
-
-    private void createCanvas() {
-	canvas = new Canvas(shell, SWT.BORDER | SWT.DOUBLE_BUFFERED);
-	canvas.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
-	canvas.addPaintListener(this::paintCanvas);
-	canvas.addListener(SWT.Resize, _ -> canvas.redraw());
-	canvas.addListener(SWT.KeyDown, event -> {
-	    switch (event.keyCode) {
-	    case SWT.CR, SWT.KEYPAD_CR -> handleToggleFullScreen();
-	    case SWT.ARROW_LEFT -> handlePreviousImage();
-	    case SWT.ARROW_RIGHT -> handleNextImage();
-	    default -> {
-		// No action
-	    }
-	    }
-	});
-	canvas.setFocus();
-    }
-
-    private void createEditMenu() {
-	final var editMenuItem = new MenuItem(menuBar, SWT.CASCADE);
-	editMenuItem.setText("&Edit");
-	final var editMenu = new Menu(shell, SWT.DROP_DOWN);
-	editMenuItem.setMenu(editMenu);
-
-	createMenuItem(editMenu, "&Rotate Right\tCtrl+R", SWT.MOD1 | 'R', this::handleRotateRight);
-	createMenuItem(editMenu, "Rotate &Left\tCtrl+L", SWT.MOD1 | 'L', this::handleRotateLeft);
-	menuSeparator(editMenu);
-	createMenuItem(editMenu, "Flip &Horizontal", SWT.NONE, this::handleFlipHorizontal);
-	createMenuItem(editMenu, "Flip &Vertical", SWT.NONE, this::handleFlipVertical);
-    }
-
-    private void createFileMenu() {
-	final var fileMenuItem = new MenuItem(menuBar, SWT.CASCADE);
-	fileMenuItem.setText("&File");
-	final var fileMenu = new Menu(shell, SWT.DROP_DOWN);
-	fileMenuItem.setMenu(fileMenu);
-
-	createMenuItem(fileMenu, "&Open...\tCtrl+O", SWT.MOD1 | 'O', this::handleOpen);
-	createMenuItem(fileMenu, "&Save\tCtrl+S", SWT.MOD1 | 'S', this::handleSave);
-	createMenuItem(fileMenu, "Save &As...\tCtrl+Shift+S", SWT.MOD1 | SWT.MOD2 | 'S', this::handleSaveAs);
-	menuSeparator(fileMenu);
-	createMenuItem(fileMenu, "&Previous Image\tLeft", SWT.ARROW_LEFT, this::handlePreviousImage);
-	createMenuItem(fileMenu, "&Next Image\tRight", SWT.ARROW_RIGHT, this::handleNextImage);
-	menuSeparator(fileMenu);
-	createMenuItem(fileMenu, "E&xit\tAlt+F4", SWT.ALT | SWT.F4, this::handleExit);
-    }
-
-    private void createHelpMenu() {
-	final var helpMenuItem = new MenuItem(menuBar, SWT.CASCADE);
-	helpMenuItem.setText("&Help");
-	final var helpMenu = new Menu(shell, SWT.DROP_DOWN);
-	helpMenuItem.setMenu(helpMenu);
-	createMenuItem(helpMenu, "&About", SWT.NONE, this::handleAbout);
-    }
-
-    private void createMenuBar() {
-	menuBar = new Menu(shell, SWT.BAR);
-	shell.setMenuBar(menuBar);
-	createFileMenu();
-	createEditMenu();
-	createViewMenu();
-	createHelpMenu();
-    }
-
-    private Shell createShell() {
-	shell = new Shell(display);
-	shell.setImage(Icons.getImage(Icons.APP_ICON));
-	shell.setText(APP_TITLE);
-	shell.setMinimumSize(MIN_WIDTH, MIN_HEIGHT);
-	shell.setMaximized(true);
-	configureShellLayout();
-	return shell;
-    }
-
-    private void createStatusBar() {
-	statusBar = new Composite(shell, SWT.NONE);
-	statusBar.setLayoutData(new GridData(SWT.FILL, SWT.BOTTOM, true, false));
-	statusBar.setLayout(new GridLayout(1, false));
-
-	statusLabel = new Label(statusBar, SWT.NONE);
-	statusLabel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
-	updateStatus("Ready");
-    }
-
-    private void createToolBar() {
-	toolBar = new ToolBar(shell, SWT.FLAT | SWT.HORIZONTAL);
-	toolBar.setLayoutData(new GridData(SWT.FILL, SWT.TOP, true, false));
-	toolBar.setFont(shell.getFont());
-
-	createToolItem(toolBar, "\uD83D\uDCC2", "Open", this::handleOpen);
-	createToolItem(toolBar, "\uD83D\uDCBE", "Save", this::handleSave);
-	toolSeparator(toolBar);
-	createToolItem(toolBar, "\u25C0\uFE0F", "Previous Image", this::handlePreviousImage);
-	createToolItem(toolBar, "\u25B6\uFE0F", "Next Image", this::handleNextImage);
-	toolSeparator(toolBar);
-	createToolItem(toolBar, "\u21A9\uFE0F", "Rotate Clockwise", this::handleRotateRight);
-	createToolItem(toolBar, "\u21AA\uFE0F", "Rotate Counter-Clockwise", this::handleRotateLeft);
-	toolSeparator(toolBar);
-	createToolItem(toolBar, "\u2795", "Zoom In", this::handleZoomIn);
-	createToolItem(toolBar, "\u2796", "Zoom Out", this::handleZoomOut);
-	createToolItem(toolBar, "\uD83E\uDE9F", "Fit to Window", this::handleFitToWindow);
-    }
-
-    private void createViewMenu() {
-	final var viewMenuItem = new MenuItem(menuBar, SWT.CASCADE);
-	viewMenuItem.setText("&View");
-	final var viewMenu = new Menu(shell, SWT.DROP_DOWN);
-	viewMenuItem.setMenu(viewMenu);
-
-	createMenuItem(viewMenu, "Zoom &In\t+", SWT.KEYPAD_ADD, this::handleZoomIn);
-	createMenuItem(viewMenu, "Zoom &Out\t-", SWT.KEYPAD_SUBTRACT, this::handleZoomOut);
-	createMenuItem(viewMenu, "&Fit to Window\tCtrl+0", SWT.MOD1 | '0', this::handleFitToWindow);
-	createMenuItem(viewMenu, "&Actual Size\tCtrl+1", SWT.MOD1 | '1', this::handleActualSize);
-	menuSeparator(viewMenu);
-
-	final var resizeQualityMenuItem = new MenuItem(viewMenu, SWT.CASCADE);
-	resizeQualityMenuItem.setText("Resize &Quality");
-	final var resizeQualityMenu = new Menu(shell, SWT.DROP_DOWN);
-	resizeQualityMenuItem.setMenu(resizeQualityMenu);
-
-	// Create radio menu items for each filter type
-	for (final var filter : ResizeFilter.values()) {
-	    final var filterItem = new MenuItem(resizeQualityMenu, SWT.RADIO);
-	    filterItem.setText(filter.getDisplayName());
-	    filterItem.setSelection(filter == currentResizeFilter);
-	    filterItem.addListener(SWT.Selection, _ -> {
-		if (filterItem.getSelection()) {
-		    currentResizeFilter = filter;
-		    updateStatus("Resize quality: " + filter.getDisplayName());
-		    // Re-apply current zoom with new filter
-		    if (originalImage != null && !originalImage.isDisposed()) {
-			applyZoom(currentZoom);
-		    }
-		}
-	    });
-	}
-
-	menuSeparator(viewMenu);
-	createMenuItem(viewMenu, "Full &Screen\tEnter", SWT.NONE, this::handleToggleFullScreen);
-	menuSeparator(viewMenu);
-	createMenuItem(viewMenu, "&Background Color...", SWT.NONE, () -> {
-	    final var colorDialog = new ColorDialog(shell);
-	    final var selectedColor = colorDialog.open();
-	    if (selectedColor != null) {
-		backgroundColor = new Color(selectedColor);
-		canvas.redraw();
-		updateStatus("Background color changed");
-	    }
-	});
-	menuSeparator(viewMenu);
-
-	final var effectsMenuItem = new MenuItem(viewMenu, SWT.CASCADE);
-	effectsMenuItem.setText("&Effects");
-	final var effectsMenu = new Menu(shell, SWT.DROP_DOWN);
-	effectsMenuItem.setMenu(effectsMenu);
-
-	createMenuItem(effectsMenu, "Adjust &Brightness...", SWT.NONE, this::handleAdjustBrightness);
-	createMenuItem(effectsMenu, "Adjust &Contrast...", SWT.NONE, this::handleAdjustContrast);
-	createMenuItem(effectsMenu, "B&lur...", SWT.NONE, this::handleBlur);
-	menuSeparator(effectsMenu);
-	createMenuItem(effectsMenu, "&Grayscale", SWT.NONE, this::handleGrayscale);
-	createMenuItem(effectsMenu, "&Invert Colors", SWT.NONE, this::handleInvert);
-    }
-
-    private void disposeCurrentImage() {
-	if (currentImage != null && !currentImage.isDisposed()) {
-	    currentImage.dispose();
-	    currentImage = null;
-	}
-	if (originalImage != null && !originalImage.isDisposed()) {
-	    originalImage.dispose();
-	    originalImage = null;
-	}
-	currentZoom = 1.0;
-    }
-
-    Shell getShell() {
-	return shell;
-    }
-
-    private void handleAbout() {
-	final var messageBox = new MessageBox(shell, SWT.ICON_INFORMATION | SWT.OK);
-	messageBox.setText("About ImageViewer");
-	messageBox.setMessage("ImageViewer v0.1.0\n\nwith Java SWT and Rust integration.");
-	messageBox.open();
-    }
-
-    private void handleActualSize() {
-	if (originalImage == null || originalImage.isDisposed()) {
-	    updateStatus("No image loaded");
-	    return;
-	}
-
-	applyZoom(1.0);
-    }
-
-    private static void toggleUIVisibility(final boolean visible, final Control control) {
-	if (control == null || control.isDisposed()) {
-	    return;
-	}
-	control.setVisible(visible);
-	((GridData) control.getLayoutData()).exclude = !visible;
-    }
-
-    private void handleToggleFullScreen() {
-	isFullScreen = !isFullScreen;
-	shell.setFullScreen(isFullScreen);
-
-	if (isFullScreen) {
-	    // Hide UI elements in fullscreen
-	    shell.setMenuBar(null);
-	    toggleUIVisibility(false, toolBar);
-	    toggleUIVisibility(false, statusBar);
-	    updateStatus("Full screen mode - Press Enter to exit");
-	} else {
-	    // Restore UI elements when exiting fullscreen
-	    if (menuBar != null && !menuBar.isDisposed()) {
-		shell.setMenuBar(menuBar);
-	    }
-	    toggleUIVisibility(true, toolBar);
-	    toggleUIVisibility(true, statusBar);
-	    updateStatus("Exited full screen mode");
-	}
-	shell.layout(true, true);
-
-	// Refit image to new window size after toggling
-	if (originalImage != null && !originalImage.isDisposed()) {
-	    display.asyncExec(this::handleFitToWindow);
-	}
-
-	canvas.setFocus();
-	shell.setActive();
-    }
-
-    private void handleExit() {
-	shell.close();
-    }
-
-    private void handleFitToWindow() {
-	if (originalImage == null || originalImage.isDisposed()) {
-	    updateStatus("No image loaded");
-	    return;
-	}
-
-	final var clientArea = canvas.getClientArea();
-	final var imageBounds = originalImage.getBounds();
-
-	// Calculate zoom to fit
-	final var zoomX = (double) clientArea.width / imageBounds.width;
-	final var zoomY = (double) clientArea.height / imageBounds.height;
-	final var newZoom = Math.min(zoomX, zoomY);
-
-	applyZoom(newZoom);
-    }
-
-    private void handleFlipHorizontal() {
-	if (currentImage == null || currentImage.isDisposed()) {
-	    updateStatus("No image loaded");
-	    return;
-	}
-
-	try {
-	    final var flipped = ImageService.flipHorizontal(display, currentImage);
-	    if (flipped != null) {
-		disposeCurrentImage();
-		currentImage = flipped;
-		originalImage = flipped;
-		currentZoom = 1.0;
-		canvas.redraw();
-		updateStatus("Flipped horizontally");
-	    } else {
-		updateStatus("Failed to flip image");
-	    }
-	} catch (final Exception e) {
-	    updateStatus("Error flipping image: " + e.getMessage());
-	}
-    }
-
-    private void handleFlipVertical() {
-	if (currentImage == null || currentImage.isDisposed()) {
-	    updateStatus("No image loaded");
-	    return;
-	}
-
-	try {
-	    final var flipped = ImageService.flipVertical(display, currentImage);
-	    if (flipped != null) {
-		disposeCurrentImage();
-		currentImage = flipped;
-		originalImage = flipped;
-		currentZoom = 1.0;
-		canvas.redraw();
-		updateStatus("Flipped vertically");
-	    } else {
-		updateStatus("Failed to flip image");
-	    }
-	} catch (final Exception e) {
-	    updateStatus("Error flipping image: " + e.getMessage());
-	}
-    }
-
-    private void handleOpen() {
-	final var dialog = new FileDialog(shell, SWT.OPEN);
-	dialog.setText("Open Image");
-	dialog.setFilterNames(new String[] { "All Supported Images", "PNG Images", "JPEG Images", "GIF Images",
-		"WebP Images", "TIFF Images", "BMP Images", "TGA Images (Targa)", "DDS Images", "ICO Images",
-		"HDR Images", "OpenEXR Images", "PNM Images (PBM/PGM/PPM/PAM)", "Farbfeld Images", "All Files (*.*)" });
-	dialog.setFilterExtensions(new String[] {
-		"*.png;*.jpg;*.jpeg;*.jpe;*.jfif;*.gif;*.webp;*.tiff;*.tif;*.bmp;*.dib;*.tga;*.ico;*.hdr;*.exr;*.pbm;*.pgm;*.ppm;*.pam;*.dds;*.ff",
-		"*.png", "*.jpg;*.jpeg;*.jpe;*.jfif", "*.gif", "*.webp", "*.tiff;*.tif", "*.bmp;*.dib", "*.tga",
-		"*.dds", "*.ico", "*.hdr", "*.exr", "*.pbm;*.pgm;*.ppm;*.pam", "*.ff", "*.*" });
-	final var selected = dialog.open();
-	if (selected != null) {
-	    loadImage(selected);
-	}
-    }
-
-    private void handleRotateLeft() {
-	if (currentImage == null || currentImage.isDisposed()) {
-	    updateStatus("No image loaded");
-	    return;
-	}
-
-	try {
-	    final var rotated = ImageService.rotateLeft(display, currentImage);
-	    if (rotated != null) {
-		disposeCurrentImage();
-		currentImage = rotated;
-		originalImage = rotated;
-		currentZoom = 1.0;
-		canvas.redraw();
-		updateStatus("Rotated left 90°");
-	    } else {
-		updateStatus("Failed to rotate image");
-	    }
-	} catch (final Exception e) {
-	    updateStatus("Error rotating image: " + e.getMessage());
-	}
-    }
-
-    private void handleRotateRight() {
-	if (currentImage == null || currentImage.isDisposed()) {
-	    updateStatus("No image loaded");
-	    return;
-	}
-
-	try {
-	    final var rotated = ImageService.rotateRight(display, currentImage);
-	    if (rotated != null) {
-		disposeCurrentImage();
-		currentImage = rotated;
-		originalImage = rotated;
-		currentZoom = 1.0;
-		canvas.redraw();
-		updateStatus("Rotated right 90°");
-	    } else {
-		updateStatus("Failed to rotate image");
-	    }
-	} catch (final Exception e) {
-	    updateStatus("Error rotating image: " + e.getMessage());
-	}
-    }
-
-    private void handleSave() {
-	if (currentImage == null || currentImage.isDisposed()) {
-	    updateStatus("No image loaded");
-	    return;
-	}
-
-	// If we have a current file path, save to it; otherwise, use Save As dialog
-	if (currentFilePath != null && !currentFilePath.isEmpty()) {
-	    try {
-		final var success = ImageService.saveImage(currentImage, currentFilePath);
-		if (success) {
-		    updateStatus("Saved: " + currentFilePath);
-		} else {
-		    updateStatus("Failed to save image");
-		}
-	    } catch (final Exception e) {
-		updateStatus("Error saving image: " + e.getMessage());
-	    }
-	} else {
-	    handleSaveAs();
-	}
-    }
-
-    private void handleSaveAs() {
-	if (currentImage == null || currentImage.isDisposed()) {
-	    updateStatus("No image loaded");
-	    return;
-	}
-
-	final var dialog = new FileDialog(shell, SWT.SAVE);
-	dialog.setText("Save Image As");
-	dialog.setFilterNames(new String[] { "PNG Images", "JPEG Images", "GIF Images", "BMP Images", "TIFF Images",
-		"TGA Images (Targa)", "ICO Images", "PNM Images (PBM/PGM/PPM/PAM)", "Farbfeld Images",
-		"All Files (*.*)" });
-	dialog.setFilterExtensions(new String[] { "*.png", "*.jpg;*.jpeg", "*.gif", "*.bmp", "*.tiff;*.tif", "*.tga",
-		"*.ico", "*.pbm;*.pgm;*.ppm;*.pam", "*.ff", "*.*" });
-	dialog.setOverwrite(true);
-
-	final var selected = dialog.open();
-	if (selected != null) {
-	    try {
-		final var success = ImageService.saveImage(currentImage, selected);
-		if (success) {
-		    updateStatus("Saved: " + selected);
-		    updateWindowTitle(selected);
-		} else {
-		    updateStatus("Failed to save image");
-		}
-	    } catch (final Exception e) {
-		updateStatus("Error saving image: " + e.getMessage());
-	    }
-	}
-    }
-
-    private void handleZoomIn() {
-	if (originalImage == null || originalImage.isDisposed()) {
-	    updateStatus("No image loaded");
-	    return;
-	}
-
-	final var newZoom = Math.min(currentZoom + ZOOM_STEP, MAX_ZOOM);
-	if (newZoom != currentZoom) {
-	    applyZoom(newZoom);
-	}
-    }
-
-    private void handleZoomOut() {
-	if (originalImage == null || originalImage.isDisposed()) {
-	    updateStatus("No image loaded");
-	    return;
-	}
-
-	final var newZoom = Math.max(currentZoom - ZOOM_STEP, MIN_ZOOM);
-	if (newZoom != currentZoom) {
-	    applyZoom(newZoom);
-	}
-    }
-
-    private void initializeUI() {
-	createMenuBar();
-	createToolBar();
-	createCanvas();
-	createStatusBar();
-	loadInitialImage();
-    }
-
-    private void loadImage(final String filePath) {
-	try {
-	    disposeCurrentImage();
-	    currentImage = ImageService.loadImage(display, filePath);
-	    if (currentImage != null) {
-		originalImage = currentImage;
-		currentFilePath = filePath;
-		currentZoom = 1.0;
-		updateFolderImagesList(filePath);
-		updateWindowTitle(filePath);
-		display.asyncExec(this::handleFitToWindow);
-	    } else {
-		updateStatus("Failed to load image: " + filePath);
-	    }
-	} catch (final Exception e) {
-	    updateStatus("Error loading image: " + e.getMessage());
-	}
-    }
-
-    private void loadInitialImage() {
-	if (initialFilePath != null && !initialFilePath.isEmpty()) {
-	    loadImage(initialFilePath);
-	}
-    }
-
-    private void paintCanvas(final PaintEvent e) {
-	final var gc = e.gc;
-	final var clientArea = canvas.getClientArea();
-
-	// Fill background
-	if (backgroundColor != null && !backgroundColor.isDisposed()) {
-	    gc.setBackground(backgroundColor);
-	} else {
-	    gc.setBackground(display.getSystemColor(SWT.COLOR_WIDGET_BACKGROUND));
-	}
-	gc.fillRectangle(clientArea);
-
-	// Draw image if available
-	if (currentImage != null && !currentImage.isDisposed()) {
-	    final var imageBounds = currentImage.getBounds();
-	    final var destRect = calculateCenteredRectangle(imageBounds, clientArea);
-	    gc.drawImage(currentImage, 0, 0, imageBounds.width, imageBounds.height, destRect.x, destRect.y,
-		    destRect.width, destRect.height);
-	} else {
-	    // Draw placeholder text
-	    final var message = "No image loaded";
-	    final var extent = gc.textExtent(message);
-	    gc.setForeground(display.getSystemColor(SWT.COLOR_WIDGET_FOREGROUND));
-	    gc.drawString(message, (clientArea.width - extent.x) / 2, (clientArea.height - extent.y) / 2, true);
-	}
-    }
-
-    private void updateFolderImagesList(final String filePath) {
-	folderImages.clear();
-	currentImageIndex = -1;
-
-	final var file = new File(filePath);
-	final var parentDir = file.getParentFile();
-
-	if (parentDir == null || !parentDir.exists() || !parentDir.isDirectory()) {
-	    return;
-	}
-	final var files = parentDir.listFiles();
-	if (files == null) {
-	    return;
-	}
-	for (final var f : files) {
-	    if (f.isFile() && isImageFile(f.getName())) {
-		folderImages.add(f.getAbsolutePath());
-	    }
-	}
-	// Sort files alphabetically
-	folderImages.sort(String.CASE_INSENSITIVE_ORDER);
-	// Find current file index
-	currentImageIndex = folderImages.indexOf(filePath);
-    }
-
-    private static boolean isImageFile(final String fileName) {
-	final var lowerName = fileName.toLowerCase();
-	for (final var ext : IMAGE_EXTENSIONS) {
-	    if (lowerName.endsWith(ext)) {
-		return true;
-	    }
-	}
-	return false;
-    }
-
-    private void handlePreviousImage() {
-	if (folderImages.isEmpty() || currentImageIndex <= 0) {
-	    updateStatus("No previous image");
-	    return;
-	}
-	currentImageIndex--;
-	loadImage(folderImages.get(currentImageIndex));
-    }
-
-    private void handleNextImage() {
-	if (folderImages.isEmpty() || currentImageIndex >= folderImages.size() - 1) {
-	    updateStatus("No next image");
-	    return;
-	}
-	currentImageIndex++;
-	loadImage(folderImages.get(currentImageIndex));
-    }
-
-    private void handleAdjustBrightness() {
-	showAdjustmentDialog("Adjust Brightness", "Brightness (-100 to 100):", 0, 200, 100, 1, 10,
-		scaleValue -> String.valueOf(scaleValue - 100), scaleValue -> {
-		    final var value = scaleValue - 100;
-		    applyImageEffect(() -> ImageService.adjustBrightness(display, currentImage, value),
-			    "Brightness adjusted: " + value, "Failed to adjust brightness",
-			    "Error adjusting brightness");
-		});
-    }
-
-    private void handleAdjustContrast() {
-	showAdjustmentDialog("Adjust Contrast", "Contrast (0.0 to 5.0):", 0, 500, 100, 1, 10,
-		scaleValue -> "%.2f".formatted(Double.valueOf(scaleValue / 100.0f)), scaleValue -> {
-		    final var value = scaleValue / 100.0f;
-		    applyImageEffect(() -> ImageService.adjustContrast(display, currentImage, value),
-			    "Contrast adjusted: %.2f".formatted(Double.valueOf(value)), "Failed to adjust contrast",
-			    "Error adjusting contrast");
-		});
-    }
-
-    private void handleBlur() {
-	showAdjustmentDialog("Blur Effect", "Blur Strength (0.1 to 10.0):", 1, 100, 10, 1, 5,
-		scaleValue -> "%.1f".formatted(Double.valueOf(scaleValue / 10.0f)), scaleValue -> {
-		    final var value = scaleValue / 10.0f;
-		    applyImageEffect(() -> ImageService.blur(display, currentImage, value),
-			    "Blur applied: %.1f".formatted(Double.valueOf(value)), "Failed to apply blur",
-			    "Error applying blur");
-		});
-    }
-
-    private void showAdjustmentDialog(final String title, final String labelText, final int min, final int max,
-	    final int defaultValue, final int increment, final int pageIncrement, final ScaleValueFormatter formatter,
-	    final ScaleValueHandler handler) {
-	if (currentImage == null || currentImage.isDisposed()) {
-	    updateStatus("No image loaded");
-	    return;
-	}
-
-	final var dialog = new Shell(shell, SWT.DIALOG_TRIM | SWT.APPLICATION_MODAL);
-	dialog.setText(title);
-	dialog.setLayout(new GridLayout(2, false));
-
-	final var label = new Label(dialog, SWT.NONE);
-	label.setText(labelText);
-	label.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
-
-	final var scale = new Scale(dialog, SWT.HORIZONTAL);
-	scale.setMinimum(min);
-	scale.setMaximum(max);
-	scale.setSelection(defaultValue);
-	scale.setIncrement(increment);
-	scale.setPageIncrement(pageIncrement);
-	scale.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
-
-	final var valueLabel = new Label(dialog, SWT.NONE);
-	valueLabel.setText(formatter.format(defaultValue));
-	valueLabel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
-
-	scale.addListener(SWT.Selection, _ -> valueLabel.setText(formatter.format(scale.getSelection())));
-
-	final var okButton = new Button(dialog, SWT.PUSH);
-	okButton.setText("OK");
-	okButton.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
-	okButton.addListener(SWT.Selection, _ -> {
-	    handler.handle(scale.getSelection());
-	    dialog.close();
-	});
-
-	final var cancelButton = new Button(dialog, SWT.PUSH);
-	cancelButton.setText("Cancel");
-	cancelButton.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
-	cancelButton.addListener(SWT.Selection, _ -> dialog.close());
-
-	dialog.pack();
-	dialog.setLocation(shell.getLocation().x + (shell.getSize().x - dialog.getSize().x) / 2,
-		shell.getLocation().y + (shell.getSize().y - dialog.getSize().y) / 2);
-	dialog.open();
-    }
-
-    private void applyImageEffect(final ImageEffectSupplier effectSupplier, final String successMessage,
-	    final String failureMessage, final String errorMessagePrefix) {
-	try {
-	    final var result = effectSupplier.apply();
-	    if (result != null) {
-		disposeCurrentImage();
-		currentImage = result;
-		originalImage = result;
-		currentZoom = 1.0;
-		canvas.redraw();
-		updateStatus(successMessage);
-	    } else {
-		updateStatus(failureMessage);
-	    }
-	} catch (final Exception e) {
-	    updateStatus(errorMessagePrefix + ": " + e.getMessage());
-	}
-    }
-
-    private void handleGrayscale() {
-	if (currentImage == null || currentImage.isDisposed()) {
-	    updateStatus("No image loaded");
-	    return;
-	}
-
-	try {
-	    final var grayscaleImage = ImageService.grayscale(display, currentImage);
-	    if (grayscaleImage != null) {
-		disposeCurrentImage();
-		currentImage = grayscaleImage;
-		originalImage = grayscaleImage;
-		currentZoom = 1.0;
-		canvas.redraw();
-		updateStatus("Converted to grayscale");
-	    } else {
-		updateStatus("Failed to convert to grayscale");
-	    }
-	} catch (final Exception e) {
-	    updateStatus("Error converting to grayscale: " + e.getMessage());
-	}
-    }
-
-    private void handleInvert() {
-	if (currentImage == null || currentImage.isDisposed()) {
-	    updateStatus("No image loaded");
-	    return;
-	}
-
-	try {
-	    final var inverted = ImageService.invert(display, currentImage);
-	    if (inverted != null) {
-		disposeCurrentImage();
-		currentImage = inverted;
-		originalImage = inverted;
-		currentZoom = 1.0;
-		canvas.redraw();
-		updateStatus("Colors inverted");
-	    } else {
-		updateStatus("Failed to invert colors");
-	    }
-	} catch (final Exception e) {
-	    updateStatus("Error inverting colors: " + e.getMessage());
-	}
-    }
-
-    private void updateStatus(final String message) {
-	if (statusLabel != null && !statusLabel.isDisposed()) {
-	    statusLabel.setText(message);
-	}
-    }
-
-    private void updateWindowTitle(final String filePath) {
-	final var fileName = filePath.substring(filePath.lastIndexOf('\\') + 1);
-	shell.setText(new StringBuilder().append(APP_TITLE).append(" - ").append(fileName).toString());
-    }
-
-    @FunctionalInterface
-    private interface ScaleValueFormatter {
-	String format(int scaleValue);
-    }
-
-    @FunctionalInterface
-    private interface ScaleValueHandler {
-	void handle(int scaleValue);
-    }
-
-    @FunctionalInterface
-    private interface ImageEffectSupplier {
-	Image apply() throws Exception;
-    }
-}
+package io.github.seerainer.imageviewer;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.graphics.Color;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.Point;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.layout.GridData;
+import org.eclipse.swt.layout.GridLayout;
+import org.eclipse.swt.widgets.Button;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.ColorDialog;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Control;
+import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.FileDialog;
+import org.eclipse.swt.widgets.Label;
+import org.eclipse.swt.widgets.Menu;
+import org.eclipse.swt.widgets.MenuItem;
+import org.eclipse.swt.widgets.MessageBox;
+import org.eclipse.swt.widgets.Scale;
+import org.eclipse.swt.widgets.Shell;
+import org.eclipse.swt.widgets.ToolBar;
+import org.eclipse.swt.widgets.ToolItem;
+
+public class MainWindow {
+
+    private static final String APP_TITLE = "ImageViewer";
+    private static final int MIN_WIDTH = 800;
+    private static final int MIN_HEIGHT = 600;
+    private static final double ZOOM_STEP = 0.1;
+    private static final double MIN_ZOOM = 0.1;
+    private static final double MAX_ZOOM = 10.0;
+    private static final long CACHE_CAPACITY = Long.getLong("imageviewer.cacheMB", 512).longValue() << 20;
+    private static final long UNDO_CAPACITY = Long.getLong("imageviewer.undoMB", 512).longValue() << 20;
+    private static final SaveOptions SAVE_OPTIONS = SaveOptions.fromSystemProperties();
+    private static final int PREFETCH_AHEAD = 3;
+    private static final int PREFETCH_BEHIND = 1;
+    private static final int THUMBNAIL_SIZE = 160;
+    private final Display display;
+    private final ImageCache imageCache;
+    private final ImageLoader imageLoader;
+    private final ImageSaver imageSaver;
+    private final Prefetcher prefetcher;
+    private final TileRenderer tileRenderer;
+    private final ThumbnailCache thumbnailCache;
+    private final EditHistory editHistory = new EditHistory(UNDO_CAPACITY);
+    private Shell shell;
+    private Canvas canvas;
+    private ThumbnailGrid thumbnailGrid;
+    private Menu menuBar;
+    private ToolBar toolBar;
+    private Composite statusBar;
+    private Label statusLabel;
+    /** The document at its own size, drawn as is when not zoomed. */
+    private Image originalImage;
+    private NativeImage document;
+    /** Halved copies of the document for zooming out, or null until needed. */
+    private ImagePyramid pyramid;
+    /** Size the zoom factor refers to: the file's, even if the document is a preview. */
+    private int sourceWidth;
+    private int sourceHeight;
+    /** The file's own size, before any turn made to a preview of it. */
+    private int fileWidth;
+    private int fileHeight;
+    /** The document is the file scaled down to the screen. */
+    private boolean previewDocument;
+    /**
+     * How the current file on disk is turned relative to the source the edit
+     * history starts from, or null once it was saved re-encoded.
+     */
+    private Orientation fileOrientation = Orientation.IDENTITY;
+    /** Work waiting for the full resolution document, or null. */
+    private Runnable afterFullResolution;
+    /** Live preview while an adjustment dialog is open, or null. */
+    private AdjustmentPreview adjustmentPreview;
+    /** Latest adjustment preview, drawn in place of the document, or null. */
+    private Image adjustmentImage;
+    private final String initialFilePath;
+    private String currentFilePath;
+    private double currentZoom = 1.0;
+    private boolean isFullScreen = false;
+    private ResizeFilter currentResizeFilter = ResizeFilter.TRIANGLE;
+    private final FolderIndex folderIndex;
+    /** Image that folder navigation steps from: the one last asked for. */
+    private String navigationPath;
+    private Color backgroundColor;
+
+    public MainWindow(final Display display, final String filePath) {
+	this.display = display;
+	this.initialFilePath = filePath;
+	this.imageCache = new ImageCache(CACHE_CAPACITY);
+	this.imageLoader = new ImageLoader(display::asyncExec, imageCache);
+	this.imageSaver = new ImageSaver(display::asyncExec);
+	this.prefetcher = new Prefetcher(imageCache);
+	this.folderIndex = new FolderIndex(ImageService::isImageFile, display::asyncExec, () -> {
+	    // The folder was read or changed; the neighbours may be new
+	    if (!shell.isDisposed()) {
+		updateThumbnails();
+		prefetchNeighbours();
+	    }
+	});
+	final var screen = display.getPrimaryMonitor().getBounds();
+	this.tileRenderer = new TileRenderer(display, TileRenderer.capacityFor(screen.width, screen.height),
+		() -> canvas.redraw());
+	this.thumbnailCache = new ThumbnailCache(ThumbnailCache.defaultDirectory(), THUMBNAIL_SIZE);
+	Icons.initialize(display);
+	this.shell = createShell();
+	initializeUI();
+	shell.open();
+    }
+
+    private static Rectangle calculateCenteredRectangle(final Rectangle source, final Rectangle container) {
+	final var x = (container.width - source.width) / 2;
+	final var y = (container.height - source.height) / 2;
+	return new Rectangle(x, y, source.width, source.height);
+    }
+
+    private static void createMenuItem(final Menu menu, final String text, final int accelerator,
+	    final Runnable action) {
+	final var item = new MenuItem(menu, SWT.PUSH);
+	item.setText(text);
+	if (accelerator != SWT.NONE) {
+	    item.setAccelerator(accelerator);
+	}
+	item.addListener(SWT.Selection, _ -> action.run());
+    }
+
+    private static void createToolItem(final ToolBar toolBar, final String icon, final String text,
+	    final Runnable action) {
+	final var item = new ToolItem(toolBar, SWT.PUSH);
+	item.setText(icon);
+	item.setToolTipText(text);
+	item.addListener(SWT.Selection, _ -> action.run());
+    }
+
+    private static MenuItem menuSeparator(final Menu editMenu) {
+	return new MenuItem(editMenu, SWT.SEPARATOR);
+    }
+
+    private static ToolItem toolSeparator(final ToolBar toolBar) {
+	return new ToolItem(toolBar, SWT.SEPARATOR);
+    }
+
+    private void applyZoom(final double zoom) {
+	if (originalImage == null || originalImage.isDisposed() || document == null) {
+	    return;
+	}
+
+	try {
+	    final var newWidth = (int) (sourceWidth * zoom);
+	    final var newHeight = (int) (sourceHeight * zoom);
+
+	    if (newWidth < 1 || newHeight < 1) {
+		updateStatus("Image too small to zoom");
+		return;
+	    }
+
+	    if (previewDocument && (newWidth > document.width() || newHeight > document.height())) {
+		// Past the preview's own size; show it enlarged until the file is
+		// decoded in full
+		loadFullResolution(null);
+	    }
+
+	    // Painting renders only the tiles in view
+	    currentZoom = zoom;
+	    canvas.redraw();
+	    updateStatus("Zoom: %.0f%%".formatted(Double.valueOf(zoom * 100)));
+	} catch (final Exception e) {
+	    updateStatus("Error zooming image: " + e.getMessage());
+	}
+    }
+
+    private void closeDocument() {
+	closePyramid();
+	editHistory.close();
+	if (document != null) {
+	    document.close();
+	    document = null;
+	}
+    }
+
+    private void closePyramid() {
+	stopAdjustmentPreview();
+	tileRenderer.clear();
+	if (pyramid != null) {
+	    pyramid.close();
+	    pyramid = null;
+	}
+    }
+
+    private void configureShellLayout() {
+	final var layout = new GridLayout(1, false);
+	layout.marginWidth = 0;
+	layout.marginHeight = 0;
+	layout.verticalSpacing = 0;
+	shell.setLayout(layout);
+    }
+
+    private void createCanvas() {
+	canvas = new Canvas(shell, SWT.BORDER | SWT.DOUBLE_BUFFERED);
+	canvas.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+	canvas.addPaintListener(this::paintCanvas);
+	canvas.addListener(SWT.Resize, _ -> canvas.redraw());
+	canvas.addListener(SWT.KeyDown, event -> {
+	    switch (event.keyCode) {
+	    case SWT.CR, SWT.KEYPAD_CR -> handleToggleFullScreen();
+	    case SWT.ARROW_LEFT -> handlePreviousImage();
+	    case SWT.ARROW_RIGHT -> handleNextImage();
+	    default -> {
+		// No action
+	    }
+	    }
+	});
+	canvas.setFocus();
+    }
+
+    private void createEditMenu() {
+	final var editMenuItem = new MenuItem(menuBar, SWT.CASCADE);
+	editMenuItem.setText("&Edit");
+	final var editMenu = new Menu(shell, SWT.DROP_DOWN);
+	editMenuItem.setMenu(editMenu);
+
+	createMenuItem(editMenu, "&Undo\tCtrl+Z", SWT.MOD1 | 'Z', this::handleUndo);
+	createMenuItem(editMenu, "Re&do\tCtrl+Y", SWT.MOD1 | 'Y', this::handleRedo);
+	menuSeparator(editMenu);
+	createMenuItem(editMenu, "&Rotate Right\tCtrl+R", SWT.MOD1 | 'R', this::handleRotateRight);
+	createMenuItem(editMenu, "Rotate &Left\tCtrl+L", SWT.MOD1 | 'L', this::handleRotateLeft);
+	menuSeparator(editMenu);
+	createMenuItem(editMenu, "Flip &Horizontal", SWT.NONE, this::handleFlipHorizontal);
+	createMenuItem(editMenu, "Flip &Vertical", SWT.NONE, this::handleFlipVertical);
+    }
+
+    private void createFileMenu() {
+	final var fileMenuItem = new MenuItem(menuBar, SWT.CASCADE);
+	fileMenuItem.setText("&File");
+	final var fileMenu = new Menu(shell, SWT.DROP_DOWN);
+	fileMenuItem.setMenu(fileMenu);
+
+	createMenuItem(fileMenu, "&Open...\tCtrl+O", SWT.MOD1 | 'O', this::handleOpen);
+	createMenuItem(fileMenu, "&Save\tCtrl+S", SWT.MOD1 | 'S', this::handleSave);
+	createMenuItem(fileMenu, "Save &As...\tCtrl+Shift+S", SWT.MOD1 | SWT.MOD2 | 'S', this::handleSaveAs);
+	menuSeparator(fileMenu);
+	createMenuItem(fileMenu, "&Previous Image\tLeft", SWT.ARROW_LEFT, this::handlePreviousImage);
+	createMenuItem(fileMenu, "&Next Image\tRight", SWT.ARROW_RIGHT, this::handleNextImage);
+	menuSeparator(fileMenu);
+	createMenuItem(fileMenu, "E&xit\tAlt+F4", SWT.ALT | SWT.F4, this::handleExit);
+    }
+
+    private void createHelpMenu() {
+	final var helpMenuItem = new MenuItem(menuBar, SWT.CASCADE);
+	helpMenuItem.setText("&Help");
+	final var helpMenu = new Menu(shell, SWT.DROP_DOWN);
+	helpMenuItem.setMenu(helpMenu);
+	createMenuItem(helpMenu, "&About", SWT.NONE, this::handleAbout);
+    }
+
+    private void createMenuBar() {
+	menuBar = new Menu(shell, SWT.BAR);
+	shell.setMenuBar(menuBar);
+	createFileMenu();
+	createEditMenu();
+	createViewMenu();
+	createHelpMenu();
+    }
+
+    private Shell createShell() {
+	shell = new Shell(display);
+	shell.setImage(Icons.getImage(Icons.APP_ICON));
+	shell.setText(APP_TITLE);
+	shell.setMinimumSize(MIN_WIDTH, MIN_HEIGHT);
+	shell.setMaximized(true);
+	shell.addListener(SWT.Dispose, _ -> {
+	    imageLoader.close();
+	    // Saves already under way are finished rather than left half written
+	    imageSaver.close();
+	    folderIndex.close();
+	    prefetcher.close();
+	    imageCache.close();
+	    tileRenderer.close();
+	    thumbnailGrid.close();
+	    thumbnailCache.close();
+	    disposeCurrentImage();
+	    closeDocument();
+	});
+	configureShellLayout();
+	return shell;
+    }
+
+    private void createStatusBar() {
+	statusBar = new Composite(shell, SWT.NONE);
+	statusBar.setLayoutData(new GridData(SWT.FILL, SWT.BOTTOM, true, false));
+	statusBar.setLayout(new GridLayout(1, false));
+
+	statusLabel = new Label(statusBar, SWT.NONE);
+	statusLabel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+	updateStatus("Ready");
+    }
+
+    /**
+     * The grid takes the canvas's place when shown. It starts hidden and
+     * creates no thumbnails until then.
+     */
+    private void createThumbnailGrid() {
+	thumbnailGrid = new ThumbnailGrid(shell, thumbnailCache, THUMBNAIL_SIZE, this::openFromGrid);
+	final var control = thumbnailGrid.control();
+	control.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true));
+	toggleUIVisibility(false, control);
+    }
+
+    private void createToolBar() {
+	toolBar = new ToolBar(shell, SWT.FLAT | SWT.HORIZONTAL);
+	toolBar.setLayoutData(new GridData(SWT.FILL, SWT.TOP, true, false));
+	toolBar.setFont(shell.getFont());
+
+	createToolItem(toolBar, "\uD83D\uDCC2", "Open", this::handleOpen);
+	createToolItem(toolBar, "\uD83D\uDCBE", "Save", this::handleSave);
+	toolSeparator(toolBar);
+	createToolItem(toolBar, "\u25C0\uFE0F", "Previous Image", this::handlePreviousImage);
+	createToolItem(toolBar, "\u25B6\uFE0F", "Next Image", this::handleNextImage);
+	toolSeparator(toolBar);
+	createToolItem(toolBar, "\u21A9\uFE0F", "Rotate Clockwise", this::handleRotateRight);
+	createToolItem(toolBar, "\u21AA\uFE0F", "Rotate Counter-Clockwise", this::handleRotateLeft);
+	toolSeparator(toolBar);
+	createToolItem(toolBar, "\u2795", "Zoom In", this::handleZoomIn);
+	createToolItem(toolBar, "\u2796", "Zoom Out", this::handleZoomOut);
+	createToolItem(toolBar, "\uD83E\uDE9F", "Fit to Window", this::handleFitToWindow);
+    }
+
+    private void createViewMenu() {
+	final var viewMenuItem = new MenuItem(menuBar, SWT.CASCADE);
+	viewMenuItem.setText("&View");
+	final var viewMenu = new Menu(shell, SWT.DROP_DOWN);
+	viewMenuItem.setMenu(viewMenu);
+
+	createMenuItem(viewMenu, "Zoom &In\t+", SWT.KEYPAD_ADD, this::handleZoomIn);
+	createMenuItem(viewMenu, "Zoom &Out\t-", SWT.KEYPAD_SUBTRACT, this::handleZoomOut);
+	createMenuItem(viewMenu, "&Fit to Window\tCtrl+0", SWT.MOD1 | '0', this::handleFitToWindow);
+	createMenuItem(viewMenu, "&Actual Size\tCtrl+1", SWT.MOD1 | '1', this::handleActualSize);
+	menuSeparator(viewMenu);
+
+	final var resizeQualityMenuItem = new MenuItem(viewMenu, SWT.CASCADE);
+	resizeQualityMenuItem.setText("Resize &Quality");
+	final var resizeQualityMenu = new Menu(shell, SWT.DROP_DOWN);
+	resizeQualityMenuItem.setMenu(resizeQualityMenu);
+
+	// Create radio menu items for each filter type
+	for (final var filter : ResizeFilter.values()) {
+	    final var filterItem = new MenuItem(resizeQualityMenu, SWT.RADIO);
+	    filterItem.setText(filter.getDisplayName());
+	    filterItem.setSelection(filter == currentResizeFilter);
+	    filterItem.addListener(SWT.Selection, _ -> {
+		if (filterItem.getSelection()) {
+		    currentResizeFilter = filter;
+		    updateStatus("Resize quality: " + filter.getDisplayName());
+		    // Re-apply current zoom with new filter
+		    if (originalImage != null && !originalImage.isDisposed()) {
+			applyZoom(currentZoom);
+		    }
+		}
+	    });
+	}
+
+	menuSeparator(viewMenu);
+	createMenuItem(viewMenu, "&Thumbnails\tCtrl+T", SWT.MOD1 | 'T', this::handleToggleThumbnails);
+	createMenuItem(viewMenu, "Full &Screen\tEnter", SWT.NONE, this::handleToggleFullScreen);
+	menuSeparator(viewMenu);
+	createMenuItem(viewMenu, "&Background Color...", SWT.NONE, () -> {
+	    final var colorDialog = new ColorDialog(shell);
+	    final var selectedColor = colorDialog.open();
+	    if (selectedColor != null) {
+		backgroundColor = new Color(selectedColor);
+		canvas.redraw();
+		updateStatus("Background color changed");
+	    }
+	});
+	menuSeparator(viewMenu);
+
+	final var effectsMenuItem = new MenuItem(viewMenu, SWT.CASCADE);
+	effectsMenuItem.setText("&Effects");
+	final var effectsMenu = new Menu(shell, SWT.DROP_DOWN);
+	effectsMenuItem.setMenu(effectsMenu);
+
+	createMenuItem(effectsMenu, "Adjust &Brightness...", SWT.NONE, this::handleAdjustBrightness);
+	createMenuItem(effectsMenu, "Adjust &Contrast...", SWT.NONE, this::handleAdjustContrast);
+	createMenuItem(effectsMenu, "B&lur...", SWT.NONE, this::handleBlur);
+	menuSeparator(effectsMenu);
+	createMenuItem(effectsMenu, "&Grayscale", SWT.NONE, this::handleGrayscale);
+	createMenuItem(effectsMenu, "&Invert Colors", SWT.NONE, this::handleInvert);
+    }
+
+    private void disposeCurrentImage() {
+	if (originalImage != null && !originalImage.isDisposed()) {
+	    originalImage.dispose();
+	    originalImage = null;
+	}
+	currentZoom = 1.0;
+    }
+
+    Shell getShell() {
+	return shell;
+    }
+
+    private void handleAbout() {
+	final var messageBox = new MessageBox(shell, SWT.ICON_INFORMATION | SWT.OK);
+	messageBox.setText("About ImageViewer");
+	messageBox.setMessage("ImageViewer v0.1.0\n\nwith Java SWT and Rust integration.");
+	messageBox.open();
+    }
+
+    private void handleActualSize() {
+	if (originalImage == null || originalImage.isDisposed()) {
+	    updateStatus("No image loaded");
+	    return;
+	}
+
+	applyZoom(1.0);
+    }
+
+    private static void toggleUIVisibility(final boolean visible, final Control control) {
+	if (control == null || control.isDisposed()) {
+	    return;
+	}
+	control.setVisible(visible);
+	((GridData) control.getLayoutData()).exclude = !visible;
+    }
+
+    private void handleToggleFullScreen() {
+	isFullScreen = !isFullScreen;
+	shell.setFullScreen(isFullScreen);
+
+	if (isFullScreen) {
+	    // Hide UI elements in fullscreen
+	    shell.setMenuBar(null);
+	    toggleUIVisibility(false, toolBar);
+	    toggleUIVisibility(false, statusBar);
+	    updateStatus("Full screen mode - Press Enter to exit");
+	} else {
+	    // Restore UI elements when exiting fullscreen
+	    if (menuBar != null && !menuBar.isDisposed()) {
+		shell.setMenuBar(menuBar);
+	    }
+	    toggleUIVisibility(true, toolBar);
+	    toggleUIVisibility(true, statusBar);
+	    updateStatus("Exited full screen mode");
+	}
+	shell.layout(true, true);
+
+	// Refit image to new window size after toggling
+	if (originalImage != null && !originalImage.isDisposed()) {
+	    display.asyncExec(this::handleFitToWindow);
+	}
+
+	canvas.setFocus();
+	shell.setActive();
+    }
+
+    private void handleToggleThumbnails() {
+	final var show = !thumbnailGrid.control().getVisible();
+	if (show && navigationPath == null) {
+	    updateStatus("No folder open");
+	    return;
+	}
+	if (show) {
+	    thumbnailGrid.setListing(folderIndex.listing(), navigationPath);
+	}
+	showThumbnails(show);
+    }
+
+    private void handleExit() {
+	shell.close();
+    }
+
+    private void handleFitToWindow() {
+	if (originalImage == null || originalImage.isDisposed()) {
+	    updateStatus("No image loaded");
+	    return;
+	}
+
+	final var clientArea = canvas.getClientArea();
+
+	// Calculate zoom to fit
+	final var zoomX = (double) clientArea.width / sourceWidth;
+	final var zoomY = (double) clientArea.height / sourceHeight;
+	final var newZoom = Math.min(zoomX, zoomY);
+
+	applyZoom(newZoom);
+    }
+
+    private void handleFlipHorizontal() {
+	applyImageEffect(Orientation.FLIP_HORIZONTAL, "Flipped horizontally", "Failed to flip image",
+		"Error flipping image");
+    }
+
+    private void handleFlipVertical() {
+	applyImageEffect(Orientation.FLIP_VERTICAL, "Flipped vertically", "Failed to flip image",
+		"Error flipping image");
+    }
+
+    private void handleOpen() {
+	final var dialog = new FileDialog(shell, SWT.OPEN);
+	dialog.setText("Open Image");
+	dialog.setFilterNames(new String[] { "All Supported Images", "PNG Images", "JPEG Images", "GIF Images",
+		"WebP Images", "TIFF Images", "BMP Images", "TGA Images (Targa)", "DDS Images", "ICO Images",
+		"HDR Images", "OpenEXR Images", "PNM Images (PBM/PGM/PPM/PAM)", "Farbfeld Images", "All Files (*.*)" });
+	dialog.setFilterExtensions(new String[] {
+		"*.png;*.jpg;*.jpeg;*.jpe;*.jfif;*.gif;*.webp;*.tiff;*.tif;*.bmp;*.dib;*.tga;*.ico;*.hdr;*.exr;*.pbm;*.pgm;*.ppm;*.pam;*.dds;*.ff",
+		"*.png", "*.jpg;*.jpeg;*.jpe;*.jfif", "*.gif", "*.webp", "*.tiff;*.tif", "*.bmp;*.dib", "*.tga",
+		"*.dds", "*.ico", "*.hdr", "*.exr", "*.pbm;*.pgm;*.ppm;*.pam", "*.ff", "*.*" });
+	final var selected = dialog.open();
+	if (selected != null) {
+	    loadImage(selected);
+	}
+    }
+
+    private void handleRedo() {
+	if (!editHistory.canRedo()) {
+	    updateStatus("Nothing to redo");
+	    return;
+	}
+
+	try {
+	    closePyramid();
+	    final var label = editHistory.redo(document);
+	    if (label != null && showDocument()) {
+		updateStatus("Redone: " + label);
+	    } else {
+		updateStatus("Failed to redo");
+	    }
+	} catch (final Exception e) {
+	    updateStatus("Error redoing edit: " + e.getMessage());
+	}
+    }
+
+    private void handleRotateLeft() {
+	applyImageEffect(Orientation.ROTATE_LEFT, "Rotated left 90°", "Failed to rotate image", "Error rotating image");
+    }
+
+    private void handleRotateRight() {
+	applyImageEffect(Orientation.ROTATE_RIGHT, "Rotated right 90°", "Failed to rotate image",
+		"Error rotating image");
+    }
+
+    private void handleSave() {
+	if (document == null) {
+	    updateStatus("No image loaded");
+	    return;
+	}
+
+	// If we have a current file path, save to it; otherwise, use Save As dialog
+	if (currentFilePath != null && !currentFilePath.isEmpty()) {
+	    saveDocument(currentFilePath, false);
+	} else {
+	    handleSaveAs();
+	}
+    }
+
+    private void handleSaveAs() {
+	if (document == null) {
+	    updateStatus("No image loaded");
+	    return;
+	}
+
+	final var dialog = new FileDialog(shell, SWT.SAVE);
+	dialog.setText("Save Image As");
+	dialog.setFilterNames(new String[] { "PNG Images", "JPEG Images", "WebP Images", "GIF Images", "BMP Images",
+		"TIFF Images", "TGA Images (Targa)", "ICO Images", "PNM Images (PBM/PGM/PPM/PAM)", "Farbfeld Images",
+		"All Files (*.*)" });
+	dialog.setFilterExtensions(new String[] { "*.png", "*.jpg;*.jpeg", "*.webp", "*.gif", "*.bmp", "*.tiff;*.tif",
+		"*.tga", "*.ico", "*.pbm;*.pgm;*.ppm;*.pam", "*.ff", "*.*" });
+	dialog.setOverwrite(true);
+
+	final var selected = dialog.open();
+	if (selected != null) {
+	    saveDocument(selected, true);
+	}
+    }
+
+    private void handleUndo() {
+	if (!editHistory.canUndo()) {
+	    updateStatus("Nothing to undo");
+	    return;
+	}
+
+	try {
+	    // Rebuilt from the nearest checkpoint; the file is not decoded again
+	    final var label = editHistory.undoLabel();
+	    final var image = editHistory.undo();
+	    if (image == null) {
+		updateStatus("Failed to undo");
+		return;
+	    }
+	    closePyramid();
+	    document.close();
+	    document = image;
+	    updateStatus(showDocument() ? "Undone: " + label : "Failed to undo");
+	} catch (final Exception e) {
+	    updateStatus("Error undoing edit: " + e.getMessage());
+	}
+    }
+
+    private void handleZoomIn() {
+	if (originalImage == null || originalImage.isDisposed()) {
+	    updateStatus("No image loaded");
+	    return;
+	}
+
+	final var newZoom = Math.min(currentZoom + ZOOM_STEP, MAX_ZOOM);
+	if (newZoom != currentZoom) {
+	    applyZoom(newZoom);
+	}
+    }
+
+    private void handleZoomOut() {
+	if (originalImage == null || originalImage.isDisposed()) {
+	    updateStatus("No image loaded");
+	    return;
+	}
+
+	final var newZoom = Math.max(currentZoom - ZOOM_STEP, MIN_ZOOM);
+	if (newZoom != currentZoom) {
+	    applyZoom(newZoom);
+	}
+    }
+
+    private void initializeUI() {
+	createMenuBar();
+	createToolBar();
+	createCanvas();
+	createThumbnailGrid();
+	createStatusBar();
+	loadInitialImage();
+    }
+
+    /**
+     * Replace the preview document with the file at full size, then run the
+     * given action. Requests made while the load is in flight queue their
+     * actions behind it.
+     */
+    private void loadFullResolution(final Runnable action) {
+	final var previous = afterFullResolution;
+	if (previous != null) {
+	    if (action != null) {
+		afterFullResolution = () -> {
+		    previous.run();
+		    action.run();
+		};
+	    }
+	    return;
+	}
+	afterFullResolution = action != null ? action : () -> {
+	    // Only the zoom needs redoing
+	};
+	prefetcher.cancel();
+	updateStatus("Loading full resolution...");
+	// A save to this file may still be writing it, and fileOrientation
+	// already counts it as done; read the file only once it is
+	final var filePath = currentFilePath;
+	final Runnable load = () -> imageLoader.load(filePath, this::showFullResolution);
+	if (!imageSaver.afterSaves(() -> {
+	    if (afterFullResolution != null && filePath.equals(currentFilePath)) {
+		load.run();
+	    }
+	})) {
+	    load.run();
+	}
+    }
+
+    private void loadImage(final String filePath) {
+	afterFullResolution = null;
+	navigationPath = filePath;
+	final var cached = imageCache.get(filePath);
+	if (cached != null) {
+	    // Already decoded; show it now and drop whatever is still loading
+	    imageLoader.cancel();
+	    showLoadedImage(cached);
+	    return;
+	}
+	// Decoding runs in the background; the current image stays up until the
+	// new one is ready, and a newer request drops this one. Prefetching waits
+	// so the two do not compete.
+	prefetcher.cancel();
+	final var name = new File(filePath).getName();
+	updateStatus("Loading " + name + "...");
+	final var screen = previewSize();
+	imageLoader.load(filePath, screen.x, screen.y,
+		info -> updateStatus("Loading " + name + " (" + info.describe() + ")..."), this::showLoadedImage);
+    }
+
+    private void loadInitialImage() {
+	if (initialFilePath != null && !initialFilePath.isEmpty()) {
+	    loadImage(initialFilePath);
+	}
+    }
+
+    /**
+     * Open a file handed over by another launch of the viewer and bring the
+     * window to the front.
+     *
+     * @param filePath Image to open
+     */
+    void openFile(final String filePath) {
+	if (shell.isDisposed()) {
+	    return;
+	}
+	shell.setMinimized(false);
+	shell.forceActive();
+	if (thumbnailGrid.control().getVisible()) {
+	    showThumbnails(false);
+	}
+	loadImage(filePath);
+    }
+
+    private void openFromGrid(final String filePath) {
+	showThumbnails(false);
+	// The open document keeps its edits
+	if (!filePath.equals(currentFilePath)) {
+	    loadImage(filePath);
+	}
+    }
+
+    private void paintCanvas(final PaintEvent e) {
+	final var gc = e.gc;
+	final var clientArea = canvas.getClientArea();
+
+	// Fill background
+	if (backgroundColor != null && !backgroundColor.isDisposed()) {
+	    gc.setBackground(backgroundColor);
+	} else {
+	    gc.setBackground(display.getSystemColor(SWT.COLOR_WIDGET_BACKGROUND));
+	}
+	gc.fillRectangle(clientArea);
+
+	// Draw image if available
+	if (originalImage != null && !originalImage.isDisposed() && document != null) {
+	    final var zoomed = new Rectangle(0, 0, (int) (sourceWidth * currentZoom),
+		    (int) (sourceHeight * currentZoom));
+	    final var destRect = calculateCenteredRectangle(zoomed, clientArea);
+	    final var imageBounds = originalImage.getBounds();
+	    if (adjustmentImage != null) {
+		final var previewBounds = adjustmentImage.getBounds();
+		gc.drawImage(adjustmentImage, 0, 0, previewBounds.width, previewBounds.height, destRect.x, destRect.y,
+			destRect.width, destRect.height);
+	    } else if (imageBounds.width == zoomed.width && imageBounds.height == zoomed.height) {
+		gc.drawImage(originalImage, destRect.x, destRect.y);
+	    } else {
+		// Sharp tiles follow in the background once zooming or resizing
+		// pauses
+		tileRenderer.paint(gc, pyramid(), originalImage, destRect, new Rectangle(e.x, e.y, e.width, e.height),
+			currentResizeFilter);
+	    }
+	} else {
+	    // Draw placeholder text
+	    final var message = "No image loaded";
+	    final var extent = gc.textExtent(message);
+	    gc.setForeground(display.getSystemColor(SWT.COLOR_WIDGET_FOREGROUND));
+	    gc.drawString(message, (clientArea.width - extent.x) / 2, (clientArea.height - extent.y) / 2, true);
+	}
+    }
+
+    private static boolean isJpeg(final String fileName) {
+	final var lowerName = fileName.toLowerCase(Locale.ROOT);
+	return lowerName.endsWith(".jpg") || lowerName.endsWith(".jpeg") || lowerName.endsWith(".jpe")
+		|| lowerName.endsWith(".jfif");
+    }
+
+    private void handlePreviousImage() {
+	stepImage(-1, "No previous image");
+    }
+
+    private void handleNextImage() {
+	stepImage(1, "No next image");
+    }
+
+    /**
+     * Move through the folder from the image last asked for, so holding a key
+     * keeps moving while images load. Only the in-memory index is consulted.
+     */
+    private void stepImage(final int delta, final String endMessage) {
+	if (navigationPath == null) {
+	    updateStatus(endMessage);
+	    return;
+	}
+	final var listing = folderIndex.listing();
+	if (listing == null) {
+	    updateStatus("Reading folder...");
+	    return;
+	}
+	final var filePath = listing.step(navigationPath, delta);
+	if (filePath == null) {
+	    updateStatus(endMessage);
+	    return;
+	}
+	loadImage(filePath);
+    }
+
+    private void handleAdjustBrightness() {
+	showAdjustmentDialog("Adjust Brightness", "Brightness (-100 to 100):", 0, 200, 100, 1, 10,
+		scaleValue -> String.valueOf(scaleValue - 100),
+		scaleValue -> (image, _) -> image.adjustBrightness(scaleValue - 100), scaleValue -> {
+		    final var value = scaleValue - 100;
+		    applyImageEffect(image -> image.adjustBrightness(value), "Brightness adjusted: " + value,
+			    "Failed to adjust brightness", "Error adjusting brightness");
+		});
+    }
+
+    private void handleAdjustContrast() {
+	showAdjustmentDialog("Adjust Contrast", "Contrast (0.0 to 5.0):", 0, 500, 100, 1, 10,
+		scaleValue -> "%.2f".formatted(Double.valueOf(scaleValue / 100.0f)),
+		scaleValue -> (image, _) -> image.adjustContrast(scaleValue / 100.0f), scaleValue -> {
+		    final var value = scaleValue / 100.0f;
+		    applyImageEffect(image -> image.adjustContrast(value),
+			    "Contrast adjusted: %.2f".formatted(Double.valueOf(value)), "Failed to adjust contrast",
+			    "Error adjusting contrast");
+		});
+    }
+
+    private void handleBlur() {
+	showAdjustmentDialog("Blur Effect", "Blur Strength (0.1 to 10.0):", 1, 100, 10, 1, 5,
+		scaleValue -> "%.1f".formatted(Double.valueOf(scaleValue / 10.0f)),
+		// The radius shrinks with the proxy so the preview looks as the
+		// result will
+		scaleValue -> (image, scale) -> image.blur((float) (scaleValue / 10.0 * scale)), scaleValue -> {
+		    final var value = scaleValue / 10.0f;
+		    applyImageEffect(image -> image.blur(value), "Blur applied: %.1f".formatted(Double.valueOf(value)),
+			    "Failed to apply blur", "Error applying blur");
+		});
+    }
+
+    /**
+     * The turn that takes the current file to the document, if the document
+     * can be saved to the given path by reorienting the file.
+     *
+     * @return Orientation to apply to the file, or null if it must be
+     *         re-encoded
+     */
+    private Orientation losslessTurn(final String filePath) {
+	final var edits = editHistory.orientation();
+	if (edits == null || fileOrientation == null || currentFilePath == null || !isJpeg(currentFilePath)
+		|| !isJpeg(filePath)) {
+	    return null;
+	}
+	return fileOrientation.inverse().then(edits);
+    }
+
+    /**
+     * Save the document in the background; editing can go on while it is
+     * written. A JPEG that was only turned or flipped is saved by reorienting
+     * the file, so neither a full resolution decode nor a re-encode is needed;
+     * anything else saves a snapshot of the full resolution document.
+     *
+     * @param filePath Destination; the format follows the extension
+     * @param retitle  Show the destination in the window title once saved
+     */
+    private void saveDocument(final String filePath, final boolean retitle) {
+	final var turn = losslessTurn(filePath);
+	if (turn == null && previewDocument) {
+	    loadFullResolution(() -> saveDocument(filePath, retitle));
+	    return;
+	}
+
+	final var overwrite = filePath.equals(currentFilePath);
+	final Consumer<ImageSaver.Result> callback = result -> {
+	    if (shell.isDisposed()) {
+		return;
+	    }
+	    // The cached decode of the old contents is stale
+	    imageCache.remove(result.filePath());
+	    if (result.success()) {
+		updateStatus("Saved: %s (%d ms%s)".formatted(result.filePath(), Long.valueOf(result.millis()),
+			result.lossless() ? ", not re-encoded" : ""));
+		if (retitle) {
+		    updateWindowTitle(result.filePath());
+		}
+	    } else if (result.error() != null) {
+		updateStatus("Error saving image: " + result.error().getMessage());
+	    } else {
+		updateStatus("Failed to save image");
+	    }
+	};
+
+	if (turn != null) {
+	    updateStatus("Saving " + filePath + "...");
+	    // Even if it has to be re-encoded, the file ends up turned as the
+	    // document is. Saves run in order, so the next one starts from there.
+	    if (imageSaver.reorient(currentFilePath, filePath, turn, SAVE_OPTIONS, callback) && overwrite) {
+		fileOrientation = editHistory.orientation();
+	    }
+	    return;
+	}
+	final var snapshot = document.copy();
+	if (snapshot == null) {
+	    updateStatus("Failed to save image");
+	    return;
+	}
+	updateStatus("Saving " + filePath + "...");
+	if (imageSaver.save(snapshot, filePath, SAVE_OPTIONS, callback) && overwrite) {
+	    // The file now holds the edits themselves
+	    fileOrientation = null;
+	}
+    }
+
+    private void showAdjustmentDialog(final String title, final String labelText, final int min, final int max,
+	    final int defaultValue, final int increment, final int pageIncrement, final ScaleValueFormatter formatter,
+	    final IntFunction<AdjustmentPreview.Effect> preview, final ScaleValueHandler handler) {
+	if (originalImage == null || originalImage.isDisposed()) {
+	    updateStatus("No image loaded");
+	    return;
+	}
+
+	final var dialog = new Shell(shell, SWT.DIALOG_TRIM | SWT.APPLICATION_MODAL);
+	dialog.setText(title);
+	dialog.setLayout(new GridLayout(2, false));
+
+	final var label = new Label(dialog, SWT.NONE);
+	label.setText(labelText);
+	label.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
+
+	final var scale = new Scale(dialog, SWT.HORIZONTAL);
+	scale.setMinimum(min);
+	scale.setMaximum(max);
+	scale.setSelection(defaultValue);
+	scale.setIncrement(increment);
+	scale.setPageIncrement(pageIncrement);
+	scale.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
+
+	final var valueLabel = new Label(dialog, SWT.NONE);
+	valueLabel.setText(formatter.format(defaultValue));
+	valueLabel.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 2, 1));
+
+	startAdjustmentPreview();
+	dialog.addListener(SWT.Dispose, _ -> stopAdjustmentPreview());
+	scale.addListener(SWT.Selection, _ -> {
+	    valueLabel.setText(formatter.format(scale.getSelection()));
+	    if (adjustmentPreview != null) {
+		adjustmentPreview.update(preview.apply(scale.getSelection()));
+	    }
+	});
+
+	final var okButton = new Button(dialog, SWT.PUSH);
+	okButton.setText("OK");
+	okButton.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+	okButton.addListener(SWT.Selection, _ -> {
+	    handler.handle(scale.getSelection());
+	    dialog.close();
+	});
+
+	final var cancelButton = new Button(dialog, SWT.PUSH);
+	cancelButton.setText("Cancel");
+	cancelButton.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false));
+	cancelButton.addListener(SWT.Selection, _ -> dialog.close());
+
+	dialog.pack();
+	dialog.setLocation(shell.getLocation().x + (shell.getSize().x - dialog.getSize().x) / 2,
+		shell.getLocation().y + (shell.getSize().y - dialog.getSize().y) / 2);
+	dialog.open();
+    }
+
+    private void startAdjustmentPreview() {
+	stopAdjustmentPreview();
+	// The proxy covers what is on screen, never more than the canvas
+	final var clientArea = canvas.getClientArea();
+	final var width = Math.max(1, Math.min((int) (sourceWidth * currentZoom), clientArea.width));
+	final var height = Math.max(1, Math.min((int) (sourceHeight * currentZoom), clientArea.height));
+	adjustmentPreview = new AdjustmentPreview(pyramid(), width, height, sourceWidth, display::asyncExec,
+		this::showAdjustmentPreview);
+    }
+
+    private void stopAdjustmentPreview() {
+	if (adjustmentPreview != null) {
+	    adjustmentPreview.close();
+	    adjustmentPreview = null;
+	}
+	if (adjustmentImage != null) {
+	    adjustmentImage.dispose();
+	    adjustmentImage = null;
+	    if (!canvas.isDisposed()) {
+		canvas.redraw();
+	    }
+	}
+    }
+
+    private void showAdjustmentPreview(final ImageData imageData) {
+	if (adjustmentPreview == null || canvas.isDisposed()) {
+	    return;
+	}
+	if (adjustmentImage != null) {
+	    adjustmentImage.dispose();
+	}
+	adjustmentImage = new Image(display, imageData);
+	canvas.redraw();
+    }
+
+    private void applyImageEffect(final EditHistory.Edit edit, final String successMessage, final String failureMessage,
+	    final String errorMessagePrefix) {
+	if (document == null) {
+	    updateStatus("No image loaded");
+	    return;
+	}
+	if (previewDocument && !(edit instanceof Orientation)) {
+	    // Edits apply to the file's pixels, never to the preview. Turns and
+	    // flips are the exception: they carry over to the full resolution
+	    // unchanged, and a JPEG is saved without it
+	    loadFullResolution(() -> applyImageEffect(edit, successMessage, failureMessage, errorMessagePrefix));
+	    return;
+	}
+
+	try {
+	    // Edits run on the native document; SWT only gets the result to display
+	    closePyramid();
+	    final var undoable = editHistory.prepare(document);
+	    final var start = System.nanoTime();
+	    if (!edit.apply(document)) {
+		updateStatus(failureMessage);
+		return;
+	    }
+	    editHistory.record(successMessage, edit, document, System.nanoTime() - start);
+	    if (!showDocument()) {
+		updateStatus(failureMessage);
+	    } else {
+		updateStatus(undoable ? successMessage : successMessage + " (cannot be undone)");
+	    }
+	} catch (final Exception e) {
+	    updateStatus(errorMessagePrefix + ": " + e.getMessage());
+	}
+    }
+
+    private void handleGrayscale() {
+	applyImageEffect(NativeImage::grayscale, "Converted to grayscale", "Failed to convert to grayscale",
+		"Error converting to grayscale");
+    }
+
+    private void handleInvert() {
+	applyImageEffect(NativeImage::invert, "Colors inverted", "Failed to invert colors", "Error inverting colors");
+    }
+
+    private void prefetchNeighbours() {
+	final var listing = folderIndex.listing();
+	final var index = listing != null && currentFilePath != null ? listing.indexOf(currentFilePath) : -1;
+	if (index < 0) {
+	    return;
+	}
+	// Current image first, then alternating outwards, ahead before behind
+	final List<String> paths = new ArrayList<>();
+	paths.add(listing.get(index));
+	for (var step = 1; step <= Math.max(PREFETCH_AHEAD, PREFETCH_BEHIND); step++) {
+	    if (step <= PREFETCH_AHEAD && index + step < listing.size()) {
+		paths.add(listing.get(index + step));
+	    }
+	    if (step <= PREFETCH_BEHIND && index - step >= 0) {
+		paths.add(listing.get(index - step));
+	    }
+	}
+	final var screen = previewSize();
+	prefetcher.prefetch(paths, screen.x, screen.y);
+    }
+
+    private ImagePyramid pyramid() {
+	if (pyramid == null) {
+	    pyramid = new ImagePyramid(document);
+	}
+	return pyramid;
+    }
+
+    /**
+     * Images are first decoded no larger than the screen; full resolution is
+     * only loaded when zooming past that, editing or saving.
+     */
+    private Point previewSize() {
+	final var monitor = shell.getMonitor();
+	final var bounds = monitor.getBounds();
+	// Bounds are in points; scale to device pixels on high-DPI screens
+	final var zoom = Math.max(monitor.getZoom(), 100);
+	return new Point(Math.max(bounds.width, MIN_WIDTH) * zoom / 100,
+		Math.max(bounds.height, MIN_HEIGHT) * zoom / 100);
+    }
+
+    /**
+     * Make a successful load result the document, taking ownership of it.
+     *
+     * @param sameFile The result is the current file again, at full
+     *                 resolution; the edit history is kept
+     * @return false if the image could not be displayed
+     */
+    private boolean replaceDocument(final ImageLoader.Result result, final boolean sameFile) {
+	try {
+	    final var image = new Image(display, result.imageData());
+	    disposeCurrentImage();
+	    if (sameFile) {
+		closePyramid();
+		document.close();
+	    } else {
+		closeDocument();
+		fileOrientation = Orientation.IDENTITY;
+	    }
+	    document = result.image();
+	    originalImage = image;
+	    fileWidth = sourceWidth = result.sourceWidth();
+	    fileHeight = sourceHeight = result.sourceHeight();
+	    previewDocument = result.isScaled();
+	    return true;
+	} catch (final Exception e) {
+	    result.close();
+	    updateStatus("Error loading image: " + e.getMessage());
+	    return false;
+	}
+    }
+
+    private boolean showDocument() {
+	final var image = ImageService.toSwtImage(display, document);
+	if (image == null) {
+	    return false;
+	}
+	disposeCurrentImage();
+	originalImage = image;
+	currentZoom = 1.0;
+	if (previewDocument) {
+	    // Only turns and flips are made to a preview; the zoom still refers
+	    // to the file's size
+	    final var turn = editHistory.orientation();
+	    final var swap = turn != null && turn.swapsAxes();
+	    sourceWidth = swap ? fileHeight : fileWidth;
+	    sourceHeight = swap ? fileWidth : fileHeight;
+	} else {
+	    sourceWidth = image.getBounds().width;
+	    sourceHeight = image.getBounds().height;
+	}
+	canvas.redraw();
+	return true;
+    }
+
+    private void showFullResolution(final ImageLoader.Result result) {
+	final var action = afterFullResolution;
+	afterFullResolution = null;
+	if (shell.isDisposed()) {
+	    result.close();
+	    return;
+	}
+	if (!result.isSuccess()) {
+	    updateStatus("Failed to load full resolution: " + result.filePath());
+	    return;
+	}
+
+	final var zoom = currentZoom;
+	// Turns and flips made to the preview carry over, as does their history.
+	// The file may itself have been turned by a save since it was loaded.
+	final var edits = editHistory.orientation();
+	final var fileTurn = fileOrientation;
+	if (edits == null || fileTurn == null) {
+	    if (replaceDocument(result, false)) {
+		applyZoom(zoom);
+		if (action != null) {
+		    action.run();
+		}
+	    }
+	    return;
+	}
+	try {
+	    if (!fileTurn.inverse().apply(result.image())) {
+		result.close();
+		updateStatus("Failed to turn full resolution");
+		return;
+	    }
+	    final var rebased = editHistory.rebase(result.image());
+	    if (!replaceDocument(result, true)) {
+		return;
+	    }
+	    // Without the history the document itself becomes the source
+	    fileOrientation = rebased ? fileTurn : edits.inverse().then(fileTurn);
+	    if ((!fileTurn.isIdentity() || !edits.isIdentity()) && !(edits.apply(document) && showDocument())) {
+		updateStatus("Failed to turn full resolution");
+		return;
+	    }
+	} catch (final Exception e) {
+	    updateStatus("Error loading full resolution: " + e.getMessage());
+	    return;
+	}
+	applyZoom(zoom);
+	if (action != null) {
+	    action.run();
+	}
+    }
+
+    private void showThumbnails(final boolean visible) {
+	toggleUIVisibility(!visible, canvas);
+	toggleUIVisibility(visible, thumbnailGrid.control());
+	shell.layout(true, true);
+	if (visible) {
+	    thumbnailGrid.control().setFocus();
+	    updateStatus("Thumbnails - Enter or double-click opens an image");
+	} else {
+	    canvas.setFocus();
+	}
+    }
+
+    private void showLoadedImage(final ImageLoader.Result result) {
+	if (shell.isDisposed()) {
+	    result.close();
+	    return;
+	}
+	final var filePath = result.filePath();
+	if (!result.isSuccess()) {
+	    if (result.error() != null) {
+		updateStatus("Error loading image: " + result.error().getMessage());
+	    } else {
+		updateStatus("Failed to load image: " + filePath);
+	    }
+	    return;
+	}
+
+	if (replaceDocument(result, false)) {
+	    currentFilePath = filePath;
+	    // Indexed once per folder and kept current by watching it, so
+	    // stepping through needs no rescan
+	    folderIndex.open(filePath);
+	    updateWindowTitle(filePath);
+	    updateStatus("Loaded: " + filePath);
+	    updateCacheStats();
+	    canvas.redraw();
+	    prefetchNeighbours();
+	    display.asyncExec(this::handleFitToWindow);
+	}
+    }
+
+    /**
+     * Show how well the cache serves folder navigation when hovering over the
+     * status bar, where the zoom messages that follow a load do not replace
+     * it.
+     */
+    private void updateCacheStats() {
+	if (statusLabel != null && !statusLabel.isDisposed()) {
+	    statusLabel.setToolTipText("Image cache: %d hits, %d misses".formatted(Long.valueOf(imageCache.hits()),
+		    Long.valueOf(imageCache.misses())));
+	}
+    }
+
+    private void updateStatus(final String message) {
+	if (statusLabel != null && !statusLabel.isDisposed()) {
+	    statusLabel.setText(message);
+	}
+    }
+
+    private void updateThumbnails() {
+	thumbnailGrid.setListing(folderIndex.listing(), null);
+    }
+
+    private void updateWindowTitle(final String filePath) {
+	final var fileName = filePath.substring(filePath.lastIndexOf('\\') + 1);
+	shell.setText(new StringBuilder().append(APP_TITLE).append(" - ").append(fileName).toString());
+    }
+
+    @FunctionalInterface
+    private interface ScaleValueFormatter {
+	String format(int scaleValue);
+    }
+
+    @FunctionalInterface
+    private interface ScaleValueHandler {
+	void handle(int scaleValue);
+    }
+}
@@ -0,0 +1,277 @@
+package io.github.seerainer.imageviewer;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.ref.Cleaner;
+
+/**
+ * A decoded image that stays in native memory for the lifetime of a document.
+ * Operations mutate the Rust image handle in place, so a chain of edits never
+ * round-trips through SWT; an SWT image is only built when something has to be
+ * displayed. The handle is freed by {@link #close()}, or by a {@link Cleaner}
+ * once the object is no longer reachable.
+ */
+final class NativeImage implements AutoCloseable {
+
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    /**
+     * Load an image from file.
+     *
+     * @param filePath Path to image file
+     * @return Native image or null on error
+     */
+    static NativeImage load(final String filePath) {
+	return wrap(RustImageLib.loadImage(filePath));
+    }
+
+    /**
+     * Load an image scaled down to fit within the given size, keeping the
+     * aspect ratio. Images that already fit load at full size.
+     *
+     * @param filePath   Path to image file
+     * @param maxWidth   Maximum width
+     * @param maxHeight  Maximum height
+     * @param sourceSize Receives the full width and height if not null
+     * @return Native image or null on error
+     */
+    static NativeImage loadScaled(final String filePath, final int maxWidth, final int maxHeight,
+	    final int[] sourceSize) {
+	return wrap(RustImageLib.loadImageScaled(filePath, maxWidth, maxHeight, sourceSize));
+    }
+
+    /**
+     * Take ownership of a Rust image handle.
+     *
+     * @param handle Image handle, may be null
+     * @return Native image or null if the handle is null
+     */
+    static NativeImage wrap(final MemorySegment handle) {
+	if (handle == null || handle.address() == 0) {
+	    return null;
+	}
+	return new NativeImage(handle);
+    }
+
+    private final HandleState state;
+    private final Cleaner.Cleanable cleanable;
+
+    private NativeImage(final MemorySegment handle) {
+	this.state = new HandleState(handle);
+	this.cleanable = CLEANER.register(this, state);
+    }
+
+    /**
+     * Adjust brightness.
+     *
+     * @param value Brightness adjustment (-100 to 100)
+     * @return true if successful
+     */
+    boolean adjustBrightness(final int value) {
+	return apply(handle -> RustImageLib.adjustBrightness(handle, value));
+    }
+
+    /**
+     * Adjust contrast.
+     *
+     * @param contrast Contrast value
+     * @return true if successful
+     */
+    boolean adjustContrast(final float contrast) {
+	return apply(handle -> RustImageLib.adjustContrast(handle, contrast));
+    }
+
+    /**
+     * Apply a native operation to this image in place.
+     *
+     * @param transform Operation returning a Rust result code
+     * @return true if successful
+     */
+    boolean apply(final ImageTransform transform) {
+	return ImageResult.fromCode(transform.apply(handle())).isSuccess();
+    }
+
+    /**
+     * Apply a pipeline of edits in one native call.
+     *
+     * @param pipeline Edits to apply
+     * @return true if successful
+     */
+    boolean apply(final ImagePipeline pipeline) {
+	return pipeline.isEmpty() || apply(handle -> RustImageLib.applyPipeline(handle, pipeline.encoded()));
+    }
+
+    /**
+     * Apply blur effect.
+     *
+     * @param sigma Blur strength
+     * @return true if successful
+     */
+    boolean blur(final float sigma) {
+	return apply(handle -> RustImageLib.blur(handle, sigma));
+    }
+
+    /**
+     * Free the native image. Further use of this object fails.
+     */
+    @Override
+    public void close() {
+	cleanable.clean();
+    }
+
+    /**
+     * Create an independent copy in native memory.
+     *
+     * @return Copy of this image or null on error
+     */
+    NativeImage copy() {
+	return wrap(RustImageLib.cloneImage(handle()));
+    }
+
+    /**
+     * Create a copy at half the size, each pixel the average of a 2x2 block.
+     *
+     * @return Half-size image or null on error
+     */
+    NativeImage downsampleHalf() {
+	return wrap(RustImageLib.downsampleHalf(handle()));
+    }
+
+    boolean flipHorizontal() {
+	return apply(RustImageLib::flipHorizontal);
+    }
+
+    boolean flipVertical() {
+	return apply(RustImageLib::flipVertical);
+    }
+
+    boolean grayscale() {
+	return apply(RustImageLib::grayscale);
+    }
+
+    /**
+     * The Rust image handle owned by this object.
+     *
+     * @return Image handle
+     * @throws IllegalStateException if the image has been closed
+     */
+    MemorySegment handle() {
+	final var handle = state.handle;
+	if (handle == null) {
+	    throw new IllegalStateException("Image has been closed");
+	}
+	return handle;
+    }
+
+    int height() {
+	return RustImageLib.getHeight(handle());
+    }
+
+    boolean invert() {
+	return apply(RustImageLib::invert);
+    }
+
+    boolean isClosed() {
+	return state.handle == null;
+    }
+
+    /**
+     * Resize with the specified filter quality.
+     *
+     * @param width  Target width
+     * @param height Target height
+     * @param filter Resize filter to use
+     * @return true if successful
+     */
+    boolean resize(final int width, final int height, final ResizeFilter filter) {
+	return apply(handle -> RustImageLib.resizeWithFilter(handle, width, height, filter.getCode()));
+    }
+
+    /**
+     * Render one block of this image resized to the given full size. Blocks
+     * match the full resize exactly, so they can be drawn side by side.
+     *
+     * @param fullWidth  Width of the whole resized image
+     * @param fullHeight Height of the whole resized image
+     * @param x          Left edge of the block in the resized image
+     * @param y          Top edge of the block in the resized image
+     * @param width      Block width
+     * @param height     Block height
+     * @param filter     Resize filter to use
+     * @return The block as a new image, or null on error
+     */
+    NativeImage resizeRegion(final int fullWidth, final int fullHeight, final int x, final int y, final int width,
+	    final int height, final ResizeFilter filter) {
+	return wrap(RustImageLib.resizeRegion(handle(), fullWidth, fullHeight, x, y, width, height, filter.getCode()));
+    }
+
+    boolean rotate180() {
+	return apply(RustImageLib::rotate180);
+    }
+
+    boolean rotateLeft() {
+	return apply(RustImageLib::rotateLeft);
+    }
+
+    boolean rotateRight() {
+	return apply(RustImageLib::rotateRight);
+    }
+
+    /**
+     * Save to file; the format follows the file extension.
+     *
+     * @param filePath Destination file path
+     * @return true if successful
+     */
+    boolean save(final String filePath) {
+	return ImageResult.fromCode(RustImageLib.saveImage(handle(), filePath)).isSuccess();
+    }
+
+    /**
+     * Save to file with encoder settings; the format follows the file
+     * extension.
+     *
+     * @param filePath Destination file path
+     * @param options  Encoder settings
+     * @return true if successful
+     */
+    boolean save(final String filePath, final SaveOptions options) {
+	return ImageResult.fromCode(RustImageLib.saveImageWithOptions(handle(), filePath, options.jpegQuality(),
+		options.pngCompression().getCode(), options.pngFilter().getCode())).isSuccess();
+    }
+
+    /**
+     * Size of the pixel buffer in native memory.
+     *
+     * @return Size in bytes
+     */
+    long sizeInBytes() {
+	return RustImageLib.getDataLen(handle());
+    }
+
+    int width() {
+	return RustImageLib.getWidth(handle());
+    }
+
+    @FunctionalInterface
+    interface ImageTransform {
+	int apply(MemorySegment handle);
+    }
+
+    /**
+     * Cleaning action; must not reference the NativeImage it belongs to.
+     */
+    private static final class HandleState implements Runnable {
+	private volatile MemorySegment handle;
+
+	HandleState(final MemorySegment handle) {
+	    this.handle = handle;
+	}
+
+	@Override
+	public void run() {
+	    final var toFree = handle;
+	    handle = null;
+	    RustImageLib.freeImage(toFree);
+	}
+    }
+}
\ No newline at end of file
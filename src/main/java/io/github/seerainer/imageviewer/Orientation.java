@@ -0,0 +1,68 @@
+package io.github.seerainer.imageviewer;
+
+/**
+ * A combination of quarter turns and a mirror image: turn clockwise, then
+ * mirror left to right. Any sequence of rotations and flips reduces to one of
+ * the eight, which is what lets a JPEG that was only turned be saved by
+ * rewriting its EXIF orientation instead of re-encoding it.
+ *
+ * @param quarterTurns Clockwise quarter turns, 0 to 3
+ * @param flip         Whether to mirror left to right after turning
+ */
+record Orientation(int quarterTurns, boolean flip) implements EditHistory.Edit {
+
+    static final Orientation IDENTITY = new Orientation(0, false);
+    static final Orientation ROTATE_RIGHT = new Orientation(1, false);
+    static final Orientation ROTATE_LEFT = new Orientation(3, false);
+    static final Orientation FLIP_HORIZONTAL = new Orientation(0, true);
+    static final Orientation FLIP_VERTICAL = new Orientation(2, true);
+
+    Orientation {
+	if (quarterTurns < 0 || quarterTurns > 3) {
+	    throw new IllegalArgumentException("Quarter turns must be 0 to 3: " + quarterTurns);
+	}
+    }
+
+    /**
+     * Turn and mirror the image in place.
+     */
+    @Override
+    public boolean apply(final NativeImage image) {
+	final var turned = switch (quarterTurns) {
+	case 1 -> image.rotateRight();
+	case 2 -> image.rotate180();
+	case 3 -> image.rotateLeft();
+	default -> true;
+	};
+	return turned && (!flip || image.flipHorizontal());
+    }
+
+    /**
+     * @return The orientation that undoes this one
+     */
+    Orientation inverse() {
+	// A mirrored orientation is its own inverse
+	return flip ? this : new Orientation((4 - quarterTurns) % 4, false);
+    }
+
+    boolean isIdentity() {
+	return quarterTurns == 0 && !flip;
+    }
+
+    /**
+     * @return Whether width and height trade places
+     */
+    boolean swapsAxes() {
+	return quarterTurns % 2 != 0;
+    }
+
+    /**
+     * @param next Orientation applied afterwards
+     * @return This orientation followed by the next one
+     */
+    Orientation then(final Orientation next) {
+	// Turning a mirrored image clockwise turns the original counter-clockwise
+	final var turns = flip ? quarterTurns + 4 - next.quarterTurns : quarterTurns + next.quarterTurns;
+	return new Orientation(turns % 4, flip != next.flip);
+    }
+}
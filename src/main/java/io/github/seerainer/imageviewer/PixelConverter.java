@@ -0,0 +1,208 @@
+package io.github.seerainer.imageviewer;
+
+import org.eclipse.swt.graphics.ImageData;
+
+/**
+ * Converts SWT image data to tightly packed RGBA scanlines. Direct palettes
+ * whose channel masks are whole bytes are converted by shuffling bytes straight
+ * out of the scanline; other direct palettes and indexed palettes are unpacked
+ * a row at a time and mapped through precomputed tables. The per-pixel
+ * {@link org.eclipse.swt.graphics.PaletteData#getRGB(int)} path is only used
+ * for layouts none of the above recognise.
+ */
+final class PixelConverter {
+
+    private enum Layout {
+	/** 24/32 bpp direct palette, every channel mask is one whole byte. */
+	DIRECT_BYTES,
+	/** Any other direct palette, channels extracted with mask and shift. */
+	DIRECT_MASKED,
+	/** Indexed palette of depth 8 or less, mapped through a lookup table. */
+	INDEXED,
+	/** Unrecognised layout, converted pixel by pixel. */
+	PER_PIXEL
+    }
+
+    /**
+     * Create a converter for the given image data.
+     *
+     * @param imageData Source image data
+     * @return Converter bound to the image data
+     */
+    static PixelConverter of(final ImageData imageData) {
+	return new PixelConverter(imageData);
+    }
+
+    private static int byteOffset(final int mask, final int depth) {
+	final var shift = Integer.numberOfTrailingZeros(mask);
+	if (mask == 0 || shift % 8 != 0 || mask != 0xFF << shift || shift + 8 > depth) {
+	    return -1;
+	}
+	// Pixels of depth 24 and 32 are stored most significant byte first
+	return (depth - 8 - shift) / 8;
+    }
+
+    private static int channelShift(final int mask) {
+	// Same rule as PaletteData: the highest mask bit lands on bit 7
+	return 7 - (31 - Integer.numberOfLeadingZeros(mask));
+    }
+
+    private static int extract(final int pixel, final int mask, final int shift) {
+	final var value = pixel & mask;
+	return shift < 0 ? value >>> -shift : value << shift;
+    }
+
+    private final ImageData imageData;
+    private final Layout layout;
+    private final int width;
+    private final int bytesPerPixel;
+    private final int redOffset;
+    private final int greenOffset;
+    private final int blueOffset;
+    private final int[] indexedRgb;
+    private final int[] pixelRow;
+    private final byte[] indexRow;
+
+    private PixelConverter(final ImageData imageData) {
+	this.imageData = imageData;
+	this.width = imageData.width;
+
+	final var palette = imageData.palette;
+	final var depth = imageData.depth;
+	final var r = palette.isDirect ? byteOffset(palette.redMask, depth) : -1;
+	final var g = palette.isDirect ? byteOffset(palette.greenMask, depth) : -1;
+	final var b = palette.isDirect ? byteOffset(palette.blueMask, depth) : -1;
+
+	if (palette.isDirect && (depth == 24 || depth == 32) && r >= 0 && g >= 0 && b >= 0) {
+	    layout = Layout.DIRECT_BYTES;
+	} else if (palette.isDirect && palette.redMask != 0 && palette.greenMask != 0 && palette.blueMask != 0) {
+	    layout = Layout.DIRECT_MASKED;
+	} else if (!palette.isDirect && depth <= 8 && palette.colors != null) {
+	    layout = Layout.INDEXED;
+	} else {
+	    layout = Layout.PER_PIXEL;
+	}
+
+	this.bytesPerPixel = depth / 8;
+	this.redOffset = r;
+	this.greenOffset = g;
+	this.blueOffset = b;
+	this.indexedRgb = layout == Layout.INDEXED ? buildIndexTable() : null;
+	this.pixelRow = layout == Layout.DIRECT_MASKED ? new int[width] : null;
+	this.indexRow = layout == Layout.INDEXED ? new byte[width] : null;
+    }
+
+    private int[] buildIndexTable() {
+	final var colors = imageData.palette.colors;
+	final var table = new int[1 << imageData.depth];
+	for (var i = 0; i < table.length; i++) {
+	    // -1 marks indices outside the palette, resolved by getRGB below
+	    table[i] = i < colors.length && colors[i] != null
+		    ? colors[i].red << 16 | colors[i].green << 8 | colors[i].blue
+		    : -1;
+	}
+	return table;
+    }
+
+    /**
+     * Convert one scanline to RGBA.
+     *
+     * @param y      Row to convert
+     * @param dst    Destination array, at least {@code width * 4} bytes from
+     *               {@code offset}
+     * @param offset Index in {@code dst} of the first output byte
+     */
+    void convertRow(final int y, final byte[] dst, final int offset) {
+	switch (layout) {
+	case DIRECT_BYTES -> convertDirectBytesRow(y, dst, offset);
+	case DIRECT_MASKED -> convertDirectMaskedRow(y, dst, offset);
+	case INDEXED -> convertIndexedRow(y, dst, offset);
+	case PER_PIXEL -> convertPerPixelRow(y, dst, offset);
+	}
+	copyAlphaRow(y, dst, offset);
+    }
+
+    private void convertDirectBytesRow(final int y, final byte[] dst, final int offset) {
+	final var src = imageData.data;
+	final var step = bytesPerPixel;
+	var s = y * imageData.bytesPerLine;
+	var d = offset;
+	for (var x = 0; x < width; x++, s += step, d += 4) {
+	    dst[d] = src[s + redOffset];
+	    dst[d + 1] = src[s + greenOffset];
+	    dst[d + 2] = src[s + blueOffset];
+	}
+    }
+
+    private void convertDirectMaskedRow(final int y, final byte[] dst, final int offset) {
+	final var palette = imageData.palette;
+	final var redShift = channelShift(palette.redMask);
+	final var greenShift = channelShift(palette.greenMask);
+	final var blueShift = channelShift(palette.blueMask);
+	imageData.getPixels(0, y, width, pixelRow, 0);
+	var d = offset;
+	for (var x = 0; x < width; x++, d += 4) {
+	    final var pixel = pixelRow[x];
+	    dst[d] = (byte) extract(pixel, palette.redMask, redShift);
+	    dst[d + 1] = (byte) extract(pixel, palette.greenMask, greenShift);
+	    dst[d + 2] = (byte) extract(pixel, palette.blueMask, blueShift);
+	}
+    }
+
+    private void convertIndexedRow(final int y, final byte[] dst, final int offset) {
+	imageData.getPixels(0, y, width, indexRow, 0);
+	var d = offset;
+	for (var x = 0; x < width; x++, d += 4) {
+	    final var index = indexRow[x] & 0xFF;
+	    var rgb = indexedRgb[index];
+	    if (rgb < 0) {
+		// Let PaletteData report the invalid index exactly as before
+		final var color = imageData.palette.getRGB(index);
+		rgb = color.red << 16 | color.green << 8 | color.blue;
+	    }
+	    dst[d] = (byte) (rgb >>> 16);
+	    dst[d + 1] = (byte) (rgb >>> 8);
+	    dst[d + 2] = (byte) rgb;
+	}
+    }
+
+    private void convertPerPixelRow(final int y, final byte[] dst, final int offset) {
+	final var palette = imageData.palette;
+	var d = offset;
+	for (var x = 0; x < width; x++, d += 4) {
+	    final var rgb = palette.getRGB(imageData.getPixel(x, y));
+	    dst[d] = (byte) rgb.red;
+	    dst[d + 1] = (byte) rgb.green;
+	    dst[d + 2] = (byte) rgb.blue;
+	}
+    }
+
+    private void copyAlphaRow(final int y, final byte[] dst, final int offset) {
+	final var alphaData = imageData.alphaData;
+	var d = offset + 3;
+	if (alphaData == null) {
+	    for (var x = 0; x < width; x++, d += 4) {
+		dst[d] = (byte) 0xFF;
+	    }
+	    return;
+	}
+	var a = y * width;
+	for (var x = 0; x < width; x++, d += 4) {
+	    dst[d] = alphaData[a++];
+	}
+    }
+
+    /**
+     * Convert the whole image to RGBA.
+     *
+     * @return RGBA pixel data (4 bytes per pixel)
+     */
+    byte[] toRgba() {
+	final var stride = width * 4;
+	final var rgba = new byte[stride * imageData.height];
+	for (var y = 0; y < imageData.height; y++) {
+	    convertRow(y, rgba, y * stride);
+	}
+	return rgba;
+    }
+}
\ No newline at end of file
@@ -0,0 +1,115 @@
+package io.github.seerainer.imageviewer;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Decodes images the user is likely to open next into an {@link ImageCache}.
+ * Runs one decode at a time on a virtual thread; a new request replaces the
+ * paths not yet started, so navigating quickly never builds up a backlog.
+ */
+final class Prefetcher implements AutoCloseable {
+
+    private final ImageCache cache;
+    private final ExecutorService worker = Executors.newVirtualThreadPerTaskExecutor();
+    private final Object lock = new Object();
+    private final Deque<String> queue = new ArrayDeque<>();
+    private long generation;
+    private int maxWidth;
+    private int maxHeight;
+    private boolean running;
+    private boolean closed;
+
+    Prefetcher(final ImageCache cache) {
+	this.cache = cache;
+    }
+
+    /**
+     * Drop every path not yet started.
+     */
+    void cancel() {
+	synchronized (lock) {
+	    queue.clear();
+	}
+    }
+
+    /**
+     * Stop prefetching. A decode in flight still finishes and goes to the
+     * cache.
+     */
+    @Override
+    public void close() {
+	synchronized (lock) {
+	    queue.clear();
+	    closed = true;
+	}
+	worker.shutdown();
+    }
+
+    private void drain() {
+	while (true) {
+	    final String filePath;
+	    final long requested;
+	    final int width;
+	    final int height;
+	    synchronized (lock) {
+		filePath = queue.poll();
+		requested = generation;
+		width = maxWidth;
+		height = maxHeight;
+		if (filePath == null) {
+		    running = false;
+		    return;
+		}
+	    }
+	    if (cache.contains(filePath) || fetch(filePath, width, height)) {
+		continue;
+	    }
+	    synchronized (lock) {
+		// The cache is full of images closer to the current one, unless
+		// the user has moved on in the meantime
+		if (requested == generation) {
+		    queue.clear();
+		}
+	    }
+	}
+    }
+
+    private boolean fetch(final String filePath, final int width, final int height) {
+	final var stamp = ImageCache.Stamp.of(filePath);
+	final var result = ImageLoader.decode(filePath, width, height, () -> true);
+	// A broken neighbour is reported when the user opens it
+	return !result.isSuccess() || cache.put(result, stamp);
+    }
+
+    /**
+     * Set the images to keep, in order of importance, and decode those not yet
+     * cached, scaled to fit the given size.
+     *
+     * @param filePaths Paths from the current image outwards; the current image
+     *                  is kept but never decoded here
+     * @param width     Maximum width, or 0 for full size
+     * @param height    Maximum height, or 0 for full size
+     */
+    void prefetch(final List<String> filePaths, final int width, final int height) {
+	cache.setPriority(filePaths);
+	synchronized (lock) {
+	    if (closed) {
+		return;
+	    }
+	    generation++;
+	    maxWidth = width;
+	    maxHeight = height;
+	    queue.clear();
+	    queue.addAll(filePaths.subList(Math.min(1, filePaths.size()), filePaths.size()));
+	    if (running || queue.isEmpty()) {
+		return;
+	    }
+	    running = true;
+	}
+	worker.execute(this::drain);
+    }
+}
@@ -1,294 +1,606 @@
-package io.github.seerainer.imageviewer;
-
-import java.lang.foreign.Arena;
-import java.lang.foreign.FunctionDescriptor;
-import java.lang.foreign.Linker;
-import java.lang.foreign.MemorySegment;
-import java.lang.foreign.SymbolLookup;
-import java.lang.foreign.ValueLayout;
-import java.lang.invoke.MethodHandle;
-
-/**
- * FFM bindings for Rust image processing library using image-rs. Provides
- * high-performance image operations via native code.
- */
-final class RustImageLib {
-
-    private static final String LIBRARY_NAME = "rs_image";
-    private static final Linker LINKER = Linker.nativeLinker();
-    private static final SymbolLookup SYMBOL_LOOKUP;
-
-    // Function handles
-    private static final MethodHandle IMAGE_LOAD;
-    private static final MethodHandle IMAGE_FROM_RGBA;
-    private static final MethodHandle IMAGE_SAVE;
-    private static final MethodHandle IMAGE_FREE;
-    private static final MethodHandle IMAGE_ROTATE_90;
-    private static final MethodHandle IMAGE_ROTATE_180;
-    private static final MethodHandle IMAGE_ROTATE_270;
-    private static final MethodHandle IMAGE_FLIP_HORIZONTAL;
-    private static final MethodHandle IMAGE_FLIP_VERTICAL;
-    private static final MethodHandle IMAGE_RESIZE_WITH_FILTER;
-    private static final MethodHandle IMAGE_ADJUST_BRIGHTNESS;
-    private static final MethodHandle IMAGE_ADJUST_CONTRAST;
-    private static final MethodHandle IMAGE_BLUR;
-    private static final MethodHandle IMAGE_GRAYSCALE;
-    private static final MethodHandle IMAGE_INVERT;
-    private static final MethodHandle IMAGE_GET_WIDTH;
-    private static final MethodHandle IMAGE_GET_HEIGHT;
-    private static final MethodHandle IMAGE_GET_DATA;
-    private static final MethodHandle IMAGE_GET_DATA_LEN;
-
-    static {
-	System.loadLibrary(LIBRARY_NAME);
-	SYMBOL_LOOKUP = SymbolLookup.loaderLookup();
-
-	IMAGE_LOAD = findFunction("image_load", FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS));
-	IMAGE_FROM_RGBA = findFunction("image_from_rgba", FunctionDescriptor.of(ValueLayout.ADDRESS,
-		ValueLayout.ADDRESS, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
-	IMAGE_SAVE = findFunction("image_save",
-		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
-	IMAGE_FREE = findFunction("image_free", FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
-	IMAGE_ROTATE_90 = findFunction("image_rotate_90",
-		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
-	IMAGE_ROTATE_180 = findFunction("image_rotate_180",
-		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
-	IMAGE_ROTATE_270 = findFunction("image_rotate_270",
-		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
-	IMAGE_FLIP_HORIZONTAL = findFunction("image_flip_horizontal",
-		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
-	IMAGE_FLIP_VERTICAL = findFunction("image_flip_vertical",
-		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
-	IMAGE_RESIZE_WITH_FILTER = findFunction("image_resize_with_filter", FunctionDescriptor.of(ValueLayout.JAVA_INT,
-		ValueLayout.ADDRESS, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
-	IMAGE_ADJUST_BRIGHTNESS = findFunction("image_adjust_brightness",
-		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
-	IMAGE_ADJUST_CONTRAST = findFunction("image_adjust_contrast",
-		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_FLOAT));
-	IMAGE_BLUR = findFunction("image_blur",
-		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_FLOAT));
-	IMAGE_GRAYSCALE = findFunction("image_grayscale",
-		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
-	IMAGE_INVERT = findFunction("image_invert", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
-	IMAGE_GET_WIDTH = findFunction("image_get_width",
-		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
-	IMAGE_GET_HEIGHT = findFunction("image_get_height",
-		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
-	IMAGE_GET_DATA = findFunction("image_get_data",
-		FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS));
-	IMAGE_GET_DATA_LEN = findFunction("image_get_data_len",
-		FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
-    }
-
-    private RustImageLib() {
-	// Utility class
-    }
-
-    static int adjustBrightness(final MemorySegment handle, final int value) {
-	if (handle == null || handle.address() == 0) {
-	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
-	}
-	try {
-	    return (int) IMAGE_ADJUST_BRIGHTNESS.invoke(handle, value);
-	} catch (final Throwable e) {
-	    throw new RuntimeException("Failed to adjust brightness", e);
-	}
-    }
-
-    static int adjustContrast(final MemorySegment handle, final float contrast) {
-	if (handle == null || handle.address() == 0) {
-	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
-	}
-	try {
-	    return (int) IMAGE_ADJUST_CONTRAST.invoke(handle, contrast);
-	} catch (final Throwable e) {
-	    throw new RuntimeException("Failed to adjust contrast", e);
-	}
-    }
-
-    static int blur(final MemorySegment handle, final float sigma) {
-	if (handle == null || handle.address() == 0) {
-	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
-	}
-	try {
-	    return (int) IMAGE_BLUR.invoke(handle, sigma);
-	} catch (final Throwable e) {
-	    throw new RuntimeException("Failed to blur image", e);
-	}
-    }
-
-    private static MethodHandle findFunction(final String name, final FunctionDescriptor descriptor) {
-	return SYMBOL_LOOKUP.find(name).map(addr -> LINKER.downcallHandle(addr, descriptor))
-		.orElseThrow(() -> new UnsatisfiedLinkError("Failed to find function: " + name));
-    }
-
-    static int flipHorizontal(final MemorySegment handle) {
-	return invokeTransform(IMAGE_FLIP_HORIZONTAL, handle);
-    }
-
-    static int flipVertical(final MemorySegment handle) {
-	return invokeTransform(IMAGE_FLIP_VERTICAL, handle);
-    }
-
-    /**
-     * Free an image handle.
-     *
-     * @param handle Image handle to free
-     */
-    static void freeImage(final MemorySegment handle) {
-	if (handle == null || handle.address() == 0) {
-	    return;
-	}
-	try {
-	    IMAGE_FREE.invoke(handle);
-	} catch (final Throwable e) {
-	    throw new RuntimeException("Failed to free image", e);
-	}
-    }
-
-    /**
-     * Create an image from raw RGBA data.
-     *
-     * @param rgbaData RGBA pixel data (4 bytes per pixel)
-     * @param width    Image width
-     * @param height   Image height
-     * @return Image handle or null on error
-     */
-    static MemorySegment fromRgbaData(final byte[] rgbaData, final int width, final int height) {
-	if (rgbaData == null || width <= 0 || height <= 0) {
-	    return null;
-	}
-	if (rgbaData.length != width * height * 4) {
-	    throw new IllegalArgumentException("RGBA data size must match width * height * 4");
-	}
-	try (final var arena = Arena.ofConfined()) {
-	    final var dataSegment = arena.allocateFrom(ValueLayout.JAVA_BYTE, rgbaData);
-	    return (MemorySegment) IMAGE_FROM_RGBA.invoke(dataSegment, width, height);
-	} catch (final Throwable e) {
-	    throw new RuntimeException("Failed to create image from RGBA data", e);
-	}
-    }
-
-    static MemorySegment getData(final MemorySegment handle) {
-	if (handle == null || handle.address() == 0) {
-	    return null;
-	}
-	try {
-	    return (MemorySegment) IMAGE_GET_DATA.invoke(handle);
-	} catch (final Throwable e) {
-	    throw new RuntimeException("Failed to get image data", e);
-	}
-    }
-
-    static long getDataLen(final MemorySegment handle) {
-	if (handle == null || handle.address() == 0) {
-	    return 0;
-	}
-	try {
-	    return (long) IMAGE_GET_DATA_LEN.invoke(handle);
-	} catch (final Throwable e) {
-	    throw new RuntimeException("Failed to get image data length", e);
-	}
-    }
-
-    static int getHeight(final MemorySegment handle) {
-	if (handle == null || handle.address() == 0) {
-	    return 0;
-	}
-	try {
-	    return (int) IMAGE_GET_HEIGHT.invoke(handle);
-	} catch (final Throwable e) {
-	    throw new RuntimeException("Failed to get image height", e);
-	}
-    }
-
-    static int getWidth(final MemorySegment handle) {
-	if (handle == null || handle.address() == 0) {
-	    return 0;
-	}
-	try {
-	    return (int) IMAGE_GET_WIDTH.invoke(handle);
-	} catch (final Throwable e) {
-	    throw new RuntimeException("Failed to get image width", e);
-	}
-    }
-
-    static int grayscale(final MemorySegment handle) {
-	return invokeTransform(IMAGE_GRAYSCALE, handle);
-    }
-
-    static int invert(final MemorySegment handle) {
-	return invokeTransform(IMAGE_INVERT, handle);
-    }
-
-    private static int invokeTransform(final MethodHandle handle, final MemorySegment imageHandle) {
-	if (imageHandle == null || imageHandle.address() == 0) {
-	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
-	}
-	try {
-	    return (int) handle.invoke(imageHandle);
-	} catch (final Throwable e) {
-	    throw new RuntimeException("Failed to transform image", e);
-	}
-    }
-
-    /**
-     * Load an image from file path.
-     *
-     * @param path File path to the image
-     * @return Image handle or null on error
-     */
-    static MemorySegment loadImage(final String path) {
-	if (path == null || path.isEmpty()) {
-	    return null;
-	}
-	try (final var arena = Arena.ofConfined()) {
-	    final var pathSegment = arena.allocateFrom(path);
-	    return (MemorySegment) IMAGE_LOAD.invoke(pathSegment);
-	} catch (final Throwable e) {
-	    throw new RuntimeException("Failed to load image", e);
-	}
-    }
-
-    static int resizeWithFilter(final MemorySegment handle, final int width, final int height, final int filter) {
-	if (handle == null || handle.address() == 0) {
-	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
-	}
-	try {
-	    return (int) IMAGE_RESIZE_WITH_FILTER.invoke(handle, width, height, filter);
-	} catch (final Throwable e) {
-	    throw new RuntimeException("Failed to resize image with filter", e);
-	}
-    }
-
-    static int rotate180(final MemorySegment handle) {
-	return invokeTransform(IMAGE_ROTATE_180, handle);
-    }
-
-    static int rotateLeft(final MemorySegment handle) {
-	return invokeTransform(IMAGE_ROTATE_270, handle);
-    }
-
-    static int rotateRight(final MemorySegment handle) {
-	return invokeTransform(IMAGE_ROTATE_90, handle);
-    }
-
-    /**
-     * Save an image to file path.
-     *
-     * @param handle Image handle
-     * @param path   File path to save to
-     * @return Result code (0 = success)
-     */
-    static int saveImage(final MemorySegment handle, final String path) {
-	if (handle == null || handle.address() == 0) {
-	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
-	}
-	try (final var arena = Arena.ofConfined()) {
-	    final var pathSegment = arena.allocateFrom(path);
-	    return (int) IMAGE_SAVE.invoke(handle, pathSegment);
-	} catch (final Throwable e) {
-	    throw new RuntimeException("Failed to save image", e);
-	}
-    }
-}
+package io.github.seerainer.imageviewer;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.FunctionDescriptor;
+import java.lang.foreign.Linker;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.SymbolLookup;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandle;
+
+/**
+ * FFM bindings for Rust image processing library using image-rs. Provides
+ * high-performance image operations via native code.
+ */
+final class RustImageLib {
+
+    private static final String LIBRARY_NAME = "rs_image";
+    private static final Linker LINKER = Linker.nativeLinker();
+    private static final SymbolLookup SYMBOL_LOOKUP;
+
+    // Function handles
+    private static final MethodHandle IMAGE_LOAD;
+    private static final MethodHandle IMAGE_LOAD_SCALED;
+    private static final MethodHandle IMAGE_PROBE;
+    private static final MethodHandle IMAGE_FROM_RGBA;
+    private static final MethodHandle IMAGE_CREATE;
+    private static final MethodHandle IMAGE_COPY_PIXELS;
+    private static final MethodHandle IMAGE_CLONE;
+    private static final MethodHandle IMAGE_DOWNSAMPLE_HALF;
+    private static final MethodHandle IMAGE_SAVE;
+    private static final MethodHandle IMAGE_SAVE_WITH_OPTIONS;
+    private static final MethodHandle IMAGE_FREE;
+    private static final MethodHandle IMAGE_ROTATE_90;
+    private static final MethodHandle IMAGE_ROTATE_180;
+    private static final MethodHandle IMAGE_ROTATE_270;
+    private static final MethodHandle IMAGE_FLIP_HORIZONTAL;
+    private static final MethodHandle IMAGE_FLIP_VERTICAL;
+    private static final MethodHandle IMAGE_JPEG_REORIENT;
+    private static final MethodHandle IMAGE_RESIZE_WITH_FILTER;
+    private static final MethodHandle IMAGE_RESIZE_REGION;
+    private static final MethodHandle IMAGE_ADJUST_BRIGHTNESS;
+    private static final MethodHandle IMAGE_ADJUST_CONTRAST;
+    private static final MethodHandle IMAGE_BLUR;
+    private static final MethodHandle IMAGE_GRAYSCALE;
+    private static final MethodHandle IMAGE_INVERT;
+    private static final MethodHandle IMAGE_APPLY_PIPELINE;
+    private static final MethodHandle IMAGE_SET_THREAD_COUNT;
+    private static final MethodHandle IMAGE_GET_THREAD_COUNT;
+    private static final MethodHandle IMAGE_GET_WIDTH;
+    private static final MethodHandle IMAGE_GET_HEIGHT;
+    private static final MethodHandle IMAGE_GET_DATA;
+    private static final MethodHandle IMAGE_GET_DATA_LEN;
+
+    static {
+	System.loadLibrary(LIBRARY_NAME);
+	SYMBOL_LOOKUP = SymbolLookup.loaderLookup();
+
+	IMAGE_LOAD = findFunction("image_load", FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+	IMAGE_LOAD_SCALED = findFunction("image_load_scaled", FunctionDescriptor.of(ValueLayout.ADDRESS,
+		ValueLayout.ADDRESS, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+	IMAGE_PROBE = findFunction("image_probe",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+	// Critical downcalls may read and write Java arrays directly, so pixel data
+	// crosses the boundary without a staging copy in off-heap memory
+	IMAGE_FROM_RGBA = findFunction("image_from_rgba", FunctionDescriptor.of(ValueLayout.ADDRESS,
+		ValueLayout.ADDRESS, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT), Linker.Option.critical(true));
+	IMAGE_CREATE = findFunction("image_create",
+		FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+	IMAGE_COPY_PIXELS = findFunction("image_copy_pixels",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS,
+			ValueLayout.JAVA_LONG, ValueLayout.ADDRESS, ValueLayout.JAVA_LONG),
+		Linker.Option.critical(true));
+	IMAGE_CLONE = findFunction("image_clone", FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+	IMAGE_DOWNSAMPLE_HALF = findFunction("image_downsample_half",
+		FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+	IMAGE_SAVE = findFunction("image_save",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+	IMAGE_SAVE_WITH_OPTIONS = findFunction("image_save_with_options",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS,
+			ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+	IMAGE_FREE = findFunction("image_free", FunctionDescriptor.ofVoid(ValueLayout.ADDRESS));
+	IMAGE_ROTATE_90 = findFunction("image_rotate_90",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+	IMAGE_ROTATE_180 = findFunction("image_rotate_180",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+	IMAGE_ROTATE_270 = findFunction("image_rotate_270",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+	IMAGE_FLIP_HORIZONTAL = findFunction("image_flip_horizontal",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+	IMAGE_FLIP_VERTICAL = findFunction("image_flip_vertical",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+	IMAGE_JPEG_REORIENT = findFunction("image_jpeg_reorient", FunctionDescriptor.of(ValueLayout.JAVA_INT,
+		ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+	IMAGE_RESIZE_WITH_FILTER = findFunction("image_resize_with_filter", FunctionDescriptor.of(ValueLayout.JAVA_INT,
+		ValueLayout.ADDRESS, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+	IMAGE_RESIZE_REGION = findFunction("image_resize_region",
+		FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS, ValueLayout.JAVA_INT,
+			ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT, ValueLayout.JAVA_INT,
+			ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+	IMAGE_ADJUST_BRIGHTNESS = findFunction("image_adjust_brightness",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_INT));
+	IMAGE_ADJUST_CONTRAST = findFunction("image_adjust_contrast",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_FLOAT));
+	IMAGE_BLUR = findFunction("image_blur",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.JAVA_FLOAT));
+	IMAGE_GRAYSCALE = findFunction("image_grayscale",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+	IMAGE_INVERT = findFunction("image_invert", FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+	IMAGE_APPLY_PIPELINE = findFunction("image_apply_pipeline",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS, ValueLayout.ADDRESS,
+			ValueLayout.JAVA_LONG));
+	IMAGE_SET_THREAD_COUNT = findFunction("image_set_thread_count",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.JAVA_INT));
+	IMAGE_GET_THREAD_COUNT = findFunction("image_get_thread_count", FunctionDescriptor.of(ValueLayout.JAVA_INT));
+	IMAGE_GET_WIDTH = findFunction("image_get_width",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+	IMAGE_GET_HEIGHT = findFunction("image_get_height",
+		FunctionDescriptor.of(ValueLayout.JAVA_INT, ValueLayout.ADDRESS));
+	IMAGE_GET_DATA = findFunction("image_get_data",
+		FunctionDescriptor.of(ValueLayout.ADDRESS, ValueLayout.ADDRESS));
+	IMAGE_GET_DATA_LEN = findFunction("image_get_data_len",
+		FunctionDescriptor.of(ValueLayout.JAVA_LONG, ValueLayout.ADDRESS));
+    }
+
+    private RustImageLib() {
+	// Utility class
+    }
+
+    static int adjustBrightness(final MemorySegment handle, final int value) {
+	if (handle == null || handle.address() == 0) {
+	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
+	}
+	try {
+	    return (int) IMAGE_ADJUST_BRIGHTNESS.invoke(handle, value);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to adjust brightness", e);
+	}
+    }
+
+    static int adjustContrast(final MemorySegment handle, final float contrast) {
+	if (handle == null || handle.address() == 0) {
+	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
+	}
+	try {
+	    return (int) IMAGE_ADJUST_CONTRAST.invoke(handle, contrast);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to adjust contrast", e);
+	}
+    }
+
+    /**
+     * Apply a list of operations in one native call.
+     *
+     * @param handle Image handle
+     * @param ops    Operations encoded by {@link ImagePipeline#encoded()}
+     * @return Result code (0 = success)
+     */
+    static int applyPipeline(final MemorySegment handle, final int[] ops) {
+	if (handle == null || handle.address() == 0) {
+	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
+	}
+	// Not a critical call: a pipeline may resize or blur for seconds, and the
+	// JVM cannot reach a safepoint meanwhile. The ops are small to copy.
+	try (final var arena = Arena.ofConfined()) {
+	    final var opsSegment = arena.allocateFrom(ValueLayout.JAVA_INT, ops);
+	    return (int) IMAGE_APPLY_PIPELINE.invoke(handle, opsSegment, (long) (ops.length / ImagePipeline.OP_SIZE));
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to apply image pipeline", e);
+	}
+    }
+
+    static int blur(final MemorySegment handle, final float sigma) {
+	if (handle == null || handle.address() == 0) {
+	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
+	}
+	try {
+	    return (int) IMAGE_BLUR.invoke(handle, sigma);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to blur image", e);
+	}
+    }
+
+    /**
+     * Create an independent copy of an image.
+     *
+     * @param handle Image handle to copy
+     * @return New image handle or null on error
+     */
+    static MemorySegment cloneImage(final MemorySegment handle) {
+	if (handle == null || handle.address() == 0) {
+	    return null;
+	}
+	try {
+	    return (MemorySegment) IMAGE_CLONE.invoke(handle);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to clone image", e);
+	}
+    }
+
+    /**
+     * Copy the pixels of an image into Java arrays in a single native pass.
+     *
+     * @param handle Image handle
+     * @param rgba   Destination for RGBA data, at least {@link #getDataLen} bytes
+     * @param alpha  Destination for the alpha channel alone, or null to skip it
+     * @return Result code (0 = success)
+     */
+    static int copyPixels(final MemorySegment handle, final byte[] rgba, final byte[] alpha) {
+	if (handle == null || handle.address() == 0) {
+	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
+	}
+	try {
+	    final var alphaSegment = alpha != null ? MemorySegment.ofArray(alpha) : MemorySegment.NULL;
+	    return (int) IMAGE_COPY_PIXELS.invoke(handle, MemorySegment.ofArray(rgba), (long) rgba.length,
+		    alphaSegment, alpha != null ? (long) alpha.length : 0L);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to copy image pixels", e);
+	}
+    }
+
+    /**
+     * Create a zero-filled image whose pixels are written through
+     * {@link #pixels(MemorySegment)}.
+     *
+     * @param width  Image width
+     * @param height Image height
+     * @return Image handle or null on error
+     */
+    static MemorySegment createImage(final int width, final int height) {
+	if (width <= 0 || height <= 0) {
+	    return null;
+	}
+	try {
+	    return (MemorySegment) IMAGE_CREATE.invoke(width, height);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to create image", e);
+	}
+    }
+
+    /**
+     * Create a copy at half the size, each pixel the average of a 2x2 block.
+     *
+     * @param handle Image handle
+     * @return New image handle or null on error
+     */
+    static MemorySegment downsampleHalf(final MemorySegment handle) {
+	if (handle == null || handle.address() == 0) {
+	    return null;
+	}
+	try {
+	    return (MemorySegment) IMAGE_DOWNSAMPLE_HALF.invoke(handle);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to downsample image", e);
+	}
+    }
+
+    private static MethodHandle findFunction(final String name, final FunctionDescriptor descriptor,
+	    final Linker.Option... options) {
+	return SYMBOL_LOOKUP.find(name).map(addr -> LINKER.downcallHandle(addr, descriptor, options))
+		.orElseThrow(() -> new UnsatisfiedLinkError("Failed to find function: " + name));
+    }
+
+    static int flipHorizontal(final MemorySegment handle) {
+	return invokeTransform(IMAGE_FLIP_HORIZONTAL, handle);
+    }
+
+    static int flipVertical(final MemorySegment handle) {
+	return invokeTransform(IMAGE_FLIP_VERTICAL, handle);
+    }
+
+    /**
+     * Free an image handle.
+     *
+     * @param handle Image handle to free
+     */
+    static void freeImage(final MemorySegment handle) {
+	if (handle == null || handle.address() == 0) {
+	    return;
+	}
+	try {
+	    IMAGE_FREE.invoke(handle);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to free image", e);
+	}
+    }
+
+    /**
+     * Create an image from raw RGBA data.
+     *
+     * @param rgbaData RGBA pixel data (4 bytes per pixel)
+     * @param width    Image width
+     * @param height   Image height
+     * @return Image handle or null on error
+     */
+    static MemorySegment fromRgbaData(final byte[] rgbaData, final int width, final int height) {
+	if (rgbaData == null || width <= 0 || height <= 0) {
+	    return null;
+	}
+	if (rgbaData.length != width * height * 4) {
+	    throw new IllegalArgumentException("RGBA data size must match width * height * 4");
+	}
+	try {
+	    return (MemorySegment) IMAGE_FROM_RGBA.invoke(MemorySegment.ofArray(rgbaData), width, height);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to create image from RGBA data", e);
+	}
+    }
+
+    static MemorySegment getData(final MemorySegment handle) {
+	if (handle == null || handle.address() == 0) {
+	    return null;
+	}
+	try {
+	    return (MemorySegment) IMAGE_GET_DATA.invoke(handle);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to get image data", e);
+	}
+    }
+
+    static long getDataLen(final MemorySegment handle) {
+	if (handle == null || handle.address() == 0) {
+	    return 0;
+	}
+	try {
+	    return (long) IMAGE_GET_DATA_LEN.invoke(handle);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to get image data length", e);
+	}
+    }
+
+    static int getHeight(final MemorySegment handle) {
+	if (handle == null || handle.address() == 0) {
+	    return 0;
+	}
+	try {
+	    return (int) IMAGE_GET_HEIGHT.invoke(handle);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to get image height", e);
+	}
+    }
+
+    static int getWidth(final MemorySegment handle) {
+	if (handle == null || handle.address() == 0) {
+	    return 0;
+	}
+	try {
+	    return (int) IMAGE_GET_WIDTH.invoke(handle);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to get image width", e);
+	}
+    }
+
+    /**
+     * Number of worker threads the native kernels run on.
+     *
+     * @return Thread count
+     */
+    static int getThreadCount() {
+	try {
+	    return (int) IMAGE_GET_THREAD_COUNT.invoke();
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to get thread count", e);
+	}
+    }
+
+    static int grayscale(final MemorySegment handle) {
+	return invokeTransform(IMAGE_GRAYSCALE, handle);
+    }
+
+    static int invert(final MemorySegment handle) {
+	return invokeTransform(IMAGE_INVERT, handle);
+    }
+
+    private static int invokeTransform(final MethodHandle handle, final MemorySegment imageHandle) {
+	if (imageHandle == null || imageHandle.address() == 0) {
+	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
+	}
+	try {
+	    return (int) handle.invoke(imageHandle);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to transform image", e);
+	}
+    }
+
+    /**
+     * Copy a JPEG file turned losslessly by rewriting its EXIF orientation.
+     *
+     * @param sourcePath   JPEG file to turn
+     * @param targetPath   File to write; may be the source
+     * @param quarterTurns Clockwise quarter turns, applied first
+     * @param flip         Whether to mirror left to right afterwards
+     * @return Result code (0 = success); ERROR_UNSUPPORTED_FORMAT if the source
+     *         is not a JPEG that can be turned this way
+     */
+    static int jpegReorient(final String sourcePath, final String targetPath, final int quarterTurns,
+	    final boolean flip) {
+	try (final var arena = Arena.ofConfined()) {
+	    return (int) IMAGE_JPEG_REORIENT.invoke(arena.allocateFrom(sourcePath), arena.allocateFrom(targetPath),
+		    quarterTurns, flip ? 1 : 0);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to reorient JPEG", e);
+	}
+    }
+
+    /**
+     * Load an image from file path.
+     *
+     * @param path File path to the image
+     * @return Image handle or null on error
+     */
+    static MemorySegment loadImage(final String path) {
+	if (path == null || path.isEmpty()) {
+	    return null;
+	}
+	try (final var arena = Arena.ofConfined()) {
+	    final var pathSegment = arena.allocateFrom(path);
+	    return (MemorySegment) IMAGE_LOAD.invoke(pathSegment);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to load image", e);
+	}
+    }
+
+    /**
+     * Load an image scaled down to fit within the given size, keeping the
+     * aspect ratio. Images that already fit load at full size.
+     *
+     * @param path       File path to the image
+     * @param maxWidth   Maximum width
+     * @param maxHeight  Maximum height
+     * @param sourceSize Receives the full width and height if not null, at
+     *                   least two elements
+     * @return Image handle or null on error
+     */
+    static MemorySegment loadImageScaled(final String path, final int maxWidth, final int maxHeight,
+	    final int[] sourceSize) {
+	if (path == null || path.isEmpty() || maxWidth <= 0 || maxHeight <= 0) {
+	    return null;
+	}
+	try (final var arena = Arena.ofConfined()) {
+	    final var pathSegment = arena.allocateFrom(path);
+	    final var sizeSegment = arena.allocate(ValueLayout.JAVA_INT, 2);
+	    final var handle = (MemorySegment) IMAGE_LOAD_SCALED.invoke(pathSegment, maxWidth, maxHeight,
+		    sizeSegment);
+	    if (sourceSize != null) {
+		sourceSize[0] = sizeSegment.getAtIndex(ValueLayout.JAVA_INT, 0);
+		sourceSize[1] = sizeSegment.getAtIndex(ValueLayout.JAVA_INT, 1);
+	    }
+	    return handle;
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to load image", e);
+	}
+    }
+
+    /**
+     * View the pixel buffer owned by an image in place. The view is only valid
+     * until the handle is transformed or freed.
+     *
+     * @param handle Image handle
+     * @return RGBA pixel data or null if the handle holds none
+     */
+    static MemorySegment pixels(final MemorySegment handle) {
+	final var data = getData(handle);
+	final var dataLen = getDataLen(handle);
+	if (data == null || data.address() == 0 || dataLen == 0) {
+	    return null;
+	}
+	return data.reinterpret(dataLen);
+    }
+
+    /**
+     * Render one block of an image resized to the given full size, without
+     * resizing the rest.
+     *
+     * @param handle     Image handle
+     * @param fullWidth  Width of the whole resized image
+     * @param fullHeight Height of the whole resized image
+     * @param x          Left edge of the block in the resized image
+     * @param y          Top edge of the block in the resized image
+     * @param width      Block width
+     * @param height     Block height
+     * @param filter     Filter code
+     * @return New image handle or null if the block is empty, outside the
+     *         resized image, or on error
+     */
+    static MemorySegment resizeRegion(final MemorySegment handle, final int fullWidth, final int fullHeight,
+	    final int x, final int y, final int width, final int height, final int filter) {
+	if (handle == null || handle.address() == 0) {
+	    return null;
+	}
+	try {
+	    return (MemorySegment) IMAGE_RESIZE_REGION.invoke(handle, fullWidth, fullHeight, x, y, width, height,
+		    filter);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to resize image region", e);
+	}
+    }
+
+    static int resizeWithFilter(final MemorySegment handle, final int width, final int height, final int filter) {
+	if (handle == null || handle.address() == 0) {
+	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
+	}
+	try {
+	    return (int) IMAGE_RESIZE_WITH_FILTER.invoke(handle, width, height, filter);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to resize image with filter", e);
+	}
+    }
+
+    static int rotate180(final MemorySegment handle) {
+	return invokeTransform(IMAGE_ROTATE_180, handle);
+    }
+
+    static int rotateLeft(final MemorySegment handle) {
+	return invokeTransform(IMAGE_ROTATE_270, handle);
+    }
+
+    static int rotateRight(final MemorySegment handle) {
+	return invokeTransform(IMAGE_ROTATE_90, handle);
+    }
+
+    /**
+     * Save an image to file path.
+     *
+     * @param handle Image handle
+     * @param path   File path to save to
+     * @return Result code (0 = success)
+     */
+    static int saveImage(final MemorySegment handle, final String path) {
+	if (handle == null || handle.address() == 0) {
+	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
+	}
+	try (final var arena = Arena.ofConfined()) {
+	    final var pathSegment = arena.allocateFrom(path);
+	    return (int) IMAGE_SAVE.invoke(handle, pathSegment);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to save image", e);
+	}
+    }
+
+    /**
+     * Save an image to file path with encoder settings.
+     *
+     * @param handle         Image handle
+     * @param path           File path to save to; the format follows the
+     *                       extension
+     * @param jpegQuality    JPEG quality, 1 to 100
+     * @param pngCompression PNG compression code
+     * @param pngFilter      PNG filter code
+     * @return Result code (0 = success)
+     */
+    static int saveImageWithOptions(final MemorySegment handle, final String path, final int jpegQuality,
+	    final int pngCompression, final int pngFilter) {
+	if (handle == null || handle.address() == 0) {
+	    return ImageResult.ERROR_INVALID_HANDLE.getCode();
+	}
+	try (final var arena = Arena.ofConfined()) {
+	    final var pathSegment = arena.allocateFrom(path);
+	    return (int) IMAGE_SAVE_WITH_OPTIONS.invoke(handle, pathSegment, jpegQuality, pngCompression, pngFilter);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to save image", e);
+	}
+    }
+
+    /**
+     * Read an image file's header without decoding the pixels.
+     *
+     * @param path File path
+     * @param info Receives width and height as displayed, colour type code,
+     *             format code and frame count; at least 5 elements
+     * @return Result code (0 = success)
+     */
+    static int probe(final String path, final int[] info) {
+	if (path == null || path.isEmpty()) {
+	    return ImageResult.ERROR_INVALID_PATH.getCode();
+	}
+	try (final var arena = Arena.ofConfined()) {
+	    final var pathSegment = arena.allocateFrom(path);
+	    final var infoSegment = arena.allocate(ValueLayout.JAVA_INT, 5);
+	    final var result = (int) IMAGE_PROBE.invoke(pathSegment, infoSegment);
+	    if (result == ImageResult.SUCCESS.getCode()) {
+		MemorySegment.copy(infoSegment, ValueLayout.JAVA_INT, 0, info, 0, 5);
+	    }
+	    return result;
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to probe image", e);
+	}
+    }
+
+    /**
+     * Set the number of worker threads the native kernels run on. Kernels
+     * already running finish on the previous pool.
+     *
+     * @param count Thread count, 0 for one per core
+     * @return Result code (0 = success)
+     */
+    static int setThreadCount(final int count) {
+	if (count < 0) {
+	    return ImageResult.ERROR_INVALID_ARGUMENT.getCode();
+	}
+	try {
+	    return (int) IMAGE_SET_THREAD_COUNT.invoke(count);
+	} catch (final Throwable e) {
+	    throw new RuntimeException("Failed to set thread count", e);
+	}
+    }
+}
\ No newline at end of file
@@ -0,0 +1,95 @@
+package io.github.seerainer.imageviewer;
+
+import java.util.Locale;
+
+/**
+ * Encoder settings for saving, trading encode time against file size. JPEG
+ * and PNG use them; WebP is always written lossless and other formats with
+ * their encoder's defaults.
+ *
+ * @param jpegQuality    JPEG quality, 1 to 100
+ * @param pngCompression PNG compression effort
+ * @param pngFilter      PNG row filter
+ */
+record SaveOptions(int jpegQuality, PngCompression pngCompression, PngFilter pngFilter) {
+
+    /** The settings a plain save uses. */
+    static final SaveOptions DEFAULT = new SaveOptions(75, PngCompression.DEFAULT, PngFilter.ADAPTIVE);
+
+    SaveOptions {
+	if (jpegQuality < 1 || jpegQuality > 100) {
+	    throw new IllegalArgumentException("JPEG quality must be 1 to 100: " + jpegQuality);
+	}
+	if (pngCompression == null || pngFilter == null) {
+	    throw new IllegalArgumentException("PNG settings must not be null");
+	}
+    }
+
+    /**
+     * Settings from the {@code imageviewer.jpegQuality},
+     * {@code imageviewer.pngCompression} and {@code imageviewer.pngFilter}
+     * system properties, each falling back to {@link #DEFAULT} when unset or
+     * invalid.
+     *
+     * @return Save options
+     */
+    static SaveOptions fromSystemProperties() {
+	final var quality = Integer.getInteger("imageviewer.jpegQuality", DEFAULT.jpegQuality).intValue();
+	return new SaveOptions(quality >= 1 && quality <= 100 ? quality : DEFAULT.jpegQuality,
+		parse(PngCompression.class, System.getProperty("imageviewer.pngCompression"), DEFAULT.pngCompression),
+		parse(PngFilter.class, System.getProperty("imageviewer.pngFilter"), DEFAULT.pngFilter));
+    }
+
+    private static <E extends Enum<E>> E parse(final Class<E> type, final String value, final E fallback) {
+	if (value == null) {
+	    return fallback;
+	}
+	try {
+	    return Enum.valueOf(type, value.trim().toUpperCase(Locale.ROOT));
+	} catch (final IllegalArgumentException e) {
+	    return fallback;
+	}
+    }
+
+    SaveOptions withJpegQuality(final int quality) {
+	return new SaveOptions(quality, pngCompression, pngFilter);
+    }
+
+    SaveOptions withPng(final PngCompression compression, final PngFilter filter) {
+	return new SaveOptions(jpegQuality, compression, filter);
+    }
+
+    /**
+     * How hard the PNG encoder works to shrink the file.
+     */
+    enum PngCompression {
+	FAST(0), DEFAULT(1), BEST(2);
+
+	private final int code;
+
+	PngCompression(final int code) {
+	    this.code = code;
+	}
+
+	int getCode() {
+	    return code;
+	}
+    }
+
+    /**
+     * Row filter applied before PNG compression; ADAPTIVE picks one per row.
+     */
+    enum PngFilter {
+	NONE(0), SUB(1), UP(2), AVERAGE(3), PAETH(4), ADAPTIVE(5);
+
+	private final int code;
+
+	PngFilter(final int code) {
+	    this.code = code;
+	}
+
+	int getCode() {
+	    return code;
+	}
+    }
+}
@@ -0,0 +1,319 @@
+package io.github.seerainer.imageviewer;
+
+import java.io.IOException;
+import java.net.BindException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * Lets a second launch of the viewer hand its file to the one already
+ * running, over a Unix domain socket, instead of starting another JVM with
+ * SWT, the native library and the icons. The running viewer listens on a
+ * per-user socket; a launch with a file first tries to connect, sends the
+ * path and exits once it is acknowledged. Nothing else is loaded before that,
+ * so the handoff costs little more than starting the JVM.
+ * <p>
+ * A socket file left behind by a viewer that crashed is detected by nobody
+ * answering on it, and replaced. The socket is only used in a folder that
+ * belongs to the user and that nobody else can write to, so another user
+ * cannot put a socket of their own where the viewer looks for one. Set
+ * {@code imageviewer.singleInstance} to false to always start a new window.
+ */
+final class SingleInstance implements AutoCloseable {
+
+    /** How long a launch waits for the running viewer to accept a file. */
+    static final long HANDOFF_TIMEOUT_MS = 2000;
+    private static final int MAX_MESSAGE = 64 * 1024;
+    private static final byte ACK = 1;
+
+    private final ServerSocketChannel server;
+    private final Path socket;
+    private final Executor callbackExecutor;
+    private final Consumer<String> onOpen;
+
+    private SingleInstance(final ServerSocketChannel server, final Path socket, final Executor callbackExecutor,
+	    final Consumer<String> onOpen) {
+	this.server = server;
+	this.socket = socket;
+	this.callbackExecutor = callbackExecutor;
+	this.onOpen = onOpen;
+    }
+
+    /**
+     * Pass a file to the running viewer.
+     *
+     * @param socket   Socket the viewer listens on
+     * @param filePath File to open; should be absolute, as the viewer runs in
+     *                 another directory
+     * @return Whether a running viewer took the file
+     */
+    static boolean handOff(final Path socket, final String filePath) {
+	final var message = filePath.getBytes(StandardCharsets.UTF_8);
+	if (message.length == 0 || message.length > MAX_MESSAGE || !Files.exists(socket)
+		|| !isPrivate(socket.toAbsolutePath().getParent())) {
+	    return false;
+	}
+	try (final var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+	    channel.connect(UnixDomainSocketAddress.of(socket));
+	    final var buffer = ByteBuffer.wrap(message);
+	    while (buffer.hasRemaining()) {
+		channel.write(buffer);
+	    }
+	    // End of the message
+	    channel.shutdownOutput();
+	    return awaitAck(channel);
+	} catch (final IOException | UnsupportedOperationException e) {
+	    // Nobody listening, or no Unix domain sockets here
+	    return false;
+	}
+    }
+
+    /**
+     * Whether launches should look for a running viewer.
+     *
+     * @return false if {@code imageviewer.singleInstance} is set to false
+     */
+    static boolean isEnabled() {
+	return Boolean.parseBoolean(System.getProperty("imageviewer.singleInstance", "true"));
+    }
+
+    /**
+     * Start listening for files from other launches, unless another viewer
+     * already is.
+     *
+     * @param socket           Socket to listen on
+     * @param callbackExecutor Executor that runs the callback, normally on the
+     *                         UI thread
+     * @param onOpen           Receives each file path handed over
+     * @return The listener, or null if another viewer is listening or the
+     *         socket cannot be created in a folder only this user can write to
+     */
+    static SingleInstance listen(final Path socket, final Executor callbackExecutor,
+	    final Consumer<String> onOpen) {
+	if (!createPrivate(socket.toAbsolutePath().getParent())) {
+	    return null;
+	}
+	final var server = bind(socket);
+	if (server == null) {
+	    return null;
+	}
+	final var instance = new SingleInstance(server, socket, callbackExecutor, onOpen);
+	Thread.ofVirtual().name("single-instance").start(instance::accept);
+	return instance;
+    }
+
+    /**
+     * Where the viewer listens: {@code imageviewer.socket} if set, otherwise
+     * a file in the runtime folder, or where there is none, in a per-user
+     * folder under the temporary folder. The temporary folder itself is
+     * shared, so the socket never goes there directly.
+     *
+     * @return Socket path
+     */
+    static Path socketPath() {
+	final var configured = System.getProperty("imageviewer.socket");
+	if (configured != null && !configured.isBlank()) {
+	    return Path.of(configured);
+	}
+	final var user = System.getProperty("user.name", "user").replaceAll("[^A-Za-z0-9._-]", "_");
+	final var runtimeDir = System.getenv("XDG_RUNTIME_DIR");
+	if (runtimeDir != null && !runtimeDir.isBlank()) {
+	    return Path.of(runtimeDir, "imageviewer-" + user + ".sock");
+	}
+	return Path.of(System.getProperty("java.io.tmpdir"), "imageviewer-" + user, "viewer.sock");
+    }
+
+    private static boolean awaitAck(final SocketChannel channel) throws IOException {
+	final var ack = ByteBuffer.allocate(1);
+	// If the viewer is stuck, better to open a window of our own
+	return read(channel, ack) && ack.position() == 1 && ack.get(0) == ACK;
+    }
+
+    /**
+     * Bind the socket, replacing a file left behind by a viewer that is no
+     * longer running.
+     */
+    private static ServerSocketChannel bind(final Path socket) {
+	for (var attempt = 0; attempt < 2; attempt++) {
+	    ServerSocketChannel server = null;
+	    try {
+		server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+		server.bind(UnixDomainSocketAddress.of(socket));
+		restrictToOwner(socket);
+		return server;
+	    } catch (final BindException e) {
+		close(server);
+		if (isAnswering(socket)) {
+		    return null;
+		}
+		try {
+		    Files.deleteIfExists(socket);
+		} catch (final IOException ignored) {
+		    return null;
+		}
+	    } catch (final IOException | UnsupportedOperationException e) {
+		close(server);
+		return null;
+	    }
+	}
+	return null;
+    }
+
+    /**
+     * Create the socket's folder, if it is missing, so that only this user
+     * can use it.
+     *
+     * @return Whether the folder is private to this user
+     */
+    private static boolean createPrivate(final Path directory) {
+	try {
+	    if (!Files.isDirectory(directory)) {
+		try {
+		    Files.createDirectories(directory,
+			    PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+		} catch (final UnsupportedOperationException e) {
+		    // Not a POSIX file system
+		    Files.createDirectories(directory);
+		}
+	    }
+	} catch (final IOException e) {
+	    // Created by someone else in the meantime; checked below
+	}
+	return isPrivate(directory);
+    }
+
+    private static void close(final ServerSocketChannel server) {
+	if (server == null) {
+	    return;
+	}
+	try {
+	    server.close();
+	} catch (final IOException e) {
+	    // Never bound
+	}
+    }
+
+    private static boolean isAnswering(final Path socket) {
+	try (final var channel = SocketChannel.open(StandardProtocolFamily.UNIX)) {
+	    // An empty message opens nothing
+	    channel.connect(UnixDomainSocketAddress.of(socket));
+	    return true;
+	} catch (final IOException e) {
+	    return false;
+	}
+    }
+
+    /**
+     * Whether a folder belongs to this user and nobody else can create files
+     * in it, so a socket there was put there by this user.
+     */
+    private static boolean isPrivate(final Path directory) {
+	try {
+	    final var attributes = Files.readAttributes(directory, PosixFileAttributes.class);
+	    final var permissions = attributes.permissions();
+	    return attributes.isDirectory() && attributes.owner().getName().equals(System.getProperty("user.name"))
+		    && !permissions.contains(PosixFilePermission.GROUP_WRITE)
+		    && !permissions.contains(PosixFilePermission.OTHERS_WRITE);
+	} catch (final UnsupportedOperationException e) {
+	    // Not a POSIX file system; the temporary folder is the user's own
+	    return true;
+	} catch (final IOException e) {
+	    return false;
+	}
+    }
+
+    /**
+     * Read until the other side shuts down its output or the buffer is full,
+     * waiting at most {@link #HANDOFF_TIMEOUT_MS} in all.
+     *
+     * @return false if the time ran out first
+     */
+    private static boolean read(final SocketChannel channel, final ByteBuffer buffer) throws IOException {
+	channel.configureBlocking(false);
+	try (final var selector = Selector.open()) {
+	    channel.register(selector, SelectionKey.OP_READ);
+	    final var deadline = System.nanoTime() + HANDOFF_TIMEOUT_MS * 1_000_000L;
+	    while (buffer.hasRemaining()) {
+		final var remaining = (deadline - System.nanoTime()) / 1_000_000L;
+		if (remaining <= 0) {
+		    return false;
+		}
+		selector.select(remaining);
+		if (channel.read(buffer) < 0) {
+		    return true;
+		}
+	    }
+	    return true;
+	}
+    }
+
+    private static void restrictToOwner(final Path socket) {
+	try {
+	    Files.setPosixFilePermissions(socket, PosixFilePermissions.fromString("rw-------"));
+	} catch (final IOException | UnsupportedOperationException e) {
+	    // Not a POSIX file system; the folder's permissions apply
+	}
+    }
+
+    private void accept() {
+	while (true) {
+	    final SocketChannel channel;
+	    try {
+		channel = server.accept();
+	    } catch (final ClosedChannelException e) {
+		return;
+	    } catch (final IOException e) {
+		if (!server.isOpen()) {
+		    return;
+		}
+		continue;
+	    }
+	    // A slow client cannot hold up the next one
+	    Thread.ofVirtual().name("single-instance-client").start(() -> receive(channel));
+	}
+    }
+
+    /**
+     * Stop listening and remove the socket, so the next launch starts a new
+     * viewer.
+     */
+    @Override
+    public void close() {
+	close(server);
+	try {
+	    Files.deleteIfExists(socket);
+	} catch (final IOException e) {
+	    // Replaced as stale by the next viewer
+	}
+    }
+
+    private void receive(final SocketChannel channel) {
+	try (channel) {
+	    // One byte over, to tell a message that is too long
+	    final var buffer = ByteBuffer.allocate(MAX_MESSAGE + 1);
+	    // A sender that never finishes is dropped rather than holding on
+	    if (!read(channel, buffer) || buffer.position() == 0 || !buffer.hasRemaining()) {
+		return;
+	    }
+	    final var filePath = new String(buffer.array(), 0, buffer.position(), StandardCharsets.UTF_8);
+	    callbackExecutor.execute(() -> onOpen.accept(filePath));
+	    channel.write(ByteBuffer.wrap(new byte[] { ACK }));
+	} catch (final IOException | RuntimeException e) {
+	    // The sender gets no acknowledgement and opens its own window
+	}
+    }
+}
@@ -0,0 +1,524 @@
+package io.github.seerainer.imageviewer;
+
+import java.io.IOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+
+/**
+ * Thumbnails kept on disk between runs, one pack file per folder. A pack is
+ * an append-only run of records, each holding a file name, the file's
+ * modification time and size, and the thumbnail's RGBA pixels. Opening a pack
+ * maps it with {@link FileChannel#map} and walks the record headers to build
+ * an index by name; thumbnails are then read straight from the mapping, with
+ * no copy.
+ * <p>
+ * A file whose time or size no longer matches gets a new record appended and
+ * the index pointed at it, so invalidation costs one thumbnail rather than the
+ * folder. Once superseded records make up more than half a pack, it is
+ * rewritten without them the next time it is opened. The pack header holds
+ * the length of the records written whole; anything after it, such as a
+ * record cut short by a crash, is ignored and overwritten by the next append.
+ * <p>
+ * A pack is never truncated or replaced, as thumbnails handed out may still
+ * be reading its mapping, and Windows refuses both while a file is mapped. A
+ * compacted or new pack is written under the next generation's name instead,
+ * and older generations are deleted once nothing maps them.
+ */
+final class ThumbnailCache implements AutoCloseable {
+
+    /** Packs kept open at once; each holds a file channel and a mapping. */
+    private static final int OPEN_PACKS = 4;
+
+    /**
+     * Where packs go unless {@code imageviewer.thumbnailDir} says otherwise:
+     * the platform's per-user cache folder, not the photo folders themselves,
+     * which may be read-only or synced.
+     *
+     * @return Cache folder
+     */
+    static Path defaultDirectory() {
+	final var configured = System.getProperty("imageviewer.thumbnailDir");
+	if (configured != null && !configured.isBlank()) {
+	    return Path.of(configured);
+	}
+	final var localAppData = System.getenv("LOCALAPPDATA");
+	if (localAppData != null && !localAppData.isBlank()) {
+	    return Path.of(localAppData, "ImageViewer", "thumbnails");
+	}
+	final var cacheHome = System.getenv("XDG_CACHE_HOME");
+	final var base = cacheHome != null && !cacheHome.isBlank() ? Path.of(cacheHome)
+		: Path.of(System.getProperty("user.home"), ".cache");
+	return base.resolve("imageviewer").resolve("thumbnails");
+    }
+
+    private final Path directory;
+    private final int size;
+    private final Map<Path, Pack> packs = new LinkedHashMap<>(16, 0.75f, true);
+    private boolean closed;
+
+    /**
+     * @param directory Folder the pack files are kept in
+     * @param size      Longest side of a thumbnail in pixels
+     */
+    ThumbnailCache(final Path directory, final int size) {
+	if (size <= 0) {
+	    throw new IllegalArgumentException("Thumbnail size must be positive: " + size);
+	}
+	this.directory = directory;
+	this.size = size;
+    }
+
+    /**
+     * Close every open pack. Thumbnails already handed out stay readable.
+     */
+    @Override
+    public synchronized void close() {
+	closed = true;
+	packs.values().forEach(Pack::close);
+	packs.clear();
+    }
+
+    /**
+     * A file's thumbnail from its folder's pack, only if it is there and
+     * current.
+     *
+     * @param filePath Image path
+     * @return Thumbnail, or null if it has to be built
+     */
+    synchronized Thumbnail find(final String filePath) {
+	final var path = Path.of(filePath).toAbsolutePath();
+	final var pack = pack(path.getParent());
+	final var attributes = attributes(path);
+	return pack != null && attributes != null ? pack.find(path.getFileName().toString(), attributes) : null;
+    }
+
+    /**
+     * A file's thumbnail, built with the native scaled load and added to its
+     * folder's pack if it is missing or stale.
+     *
+     * @param filePath Image path
+     * @return Thumbnail, or null if the image cannot be read
+     */
+    Thumbnail get(final String filePath) {
+	final var path = Path.of(filePath).toAbsolutePath();
+	final var name = path.getFileName().toString();
+	final BasicFileAttributes attributes;
+	synchronized (this) {
+	    attributes = attributes(path);
+	    final var pack = pack(path.getParent());
+	    if (attributes == null) {
+		return null;
+	    }
+	    final var found = pack != null ? pack.find(name, attributes) : null;
+	    if (found != null) {
+		return found;
+	    }
+	}
+
+	// Decoding is the slow part and needs no lock
+	try (final var image = NativeImage.loadScaled(filePath, size, size, null)) {
+	    if (image == null) {
+		return null;
+	    }
+	    final var pixels = RustImageLib.pixels(image.handle());
+	    if (pixels == null) {
+		return null;
+	    }
+	    synchronized (this) {
+		final var pack = pack(path.getParent());
+		final var stored = pack != null ? pack.append(name, attributes, image.width(), image.height(), pixels)
+			: null;
+		if (stored != null) {
+		    return stored;
+		}
+	    }
+	    // Not cacheable, for instance a read-only cache folder; still usable
+	    final var copy = Arena.ofAuto().allocate(pixels.byteSize());
+	    copy.copyFrom(pixels);
+	    return new Thumbnail(image.width(), image.height(), copy);
+	}
+    }
+
+    private static BasicFileAttributes attributes(final Path path) {
+	try {
+	    final var attributes = Files.readAttributes(path, BasicFileAttributes.class);
+	    return attributes.isRegularFile() ? attributes : null;
+	} catch (final IOException e) {
+	    return null;
+	}
+    }
+
+    /**
+     * The open pack for a folder, opening it if needed.
+     *
+     * @return Pack, or null if it cannot be opened
+     */
+    private Pack pack(final Path folder) {
+	if (closed || folder == null) {
+	    return null;
+	}
+	final var open = packs.get(folder);
+	if (open != null) {
+	    return open;
+	}
+	final var baseName = UUID.nameUUIDFromBytes(folder.toString().getBytes(StandardCharsets.UTF_8)).toString();
+	final var pack = Pack.open(directory, baseName, size);
+	if (pack == null) {
+	    return null;
+	}
+	packs.put(folder, pack);
+	if (packs.size() > OPEN_PACKS) {
+	    final var eldest = packs.entrySet().iterator().next();
+	    eldest.getValue().close();
+	    packs.remove(eldest.getKey());
+	}
+	return pack;
+    }
+
+    /**
+     * Thumbnail pixels, RGBA, read-only. The memory stays valid as long as the
+     * thumbnail is reachable.
+     */
+    record Thumbnail(int width, int height, MemorySegment pixels) {
+
+	/**
+	 * Copy into SWT image data, the one copy on the way to the screen.
+	 *
+	 * @return Image data with alpha
+	 */
+	ImageData toImageData() {
+	    // RGBA byte order; 32 bpp rows need no padding
+	    final var palette = new PaletteData(0xFF000000, 0x00FF0000, 0x0000FF00);
+	    final var imageData = new ImageData(width, height, 32, palette);
+	    MemorySegment.copy(pixels, ValueLayout.JAVA_BYTE, 0, imageData.data, 0, width * height * 4);
+	    imageData.alphaData = new byte[width * height];
+	    for (var i = 0; i < imageData.alphaData.length; i++) {
+		imageData.alphaData[i] = imageData.data[i * 4 + 3];
+	    }
+	    return imageData;
+	}
+    }
+
+    /**
+     * One folder's pack file, in its current generation.
+     */
+    private static final class Pack {
+
+	private static final int MAGIC = 0x50545649; // "IVTP"
+	private static final int VERSION = 2;
+	/** Magic, version, thumbnail size and the length of whole records. */
+	private static final int HEADER_SIZE = 4 + 4 + 4 + 8;
+	private static final int LENGTH_OFFSET = 12;
+	/** Record header after the name: time, size, width, height. */
+	private static final int FIELDS_SIZE = 8 + 8 + 4 + 4;
+	private static final ValueLayout.OfShort SHORT = ValueLayout.JAVA_SHORT_UNALIGNED
+		.withOrder(ByteOrder.LITTLE_ENDIAN);
+	private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+	private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED
+		.withOrder(ByteOrder.LITTLE_ENDIAN);
+
+	/**
+	 * Open a folder's pack, starting a new generation if it is missing, for
+	 * another thumbnail size, or unreadable.
+	 *
+	 * @param directory Cache folder
+	 * @param baseName  Name the folder's pack files start with
+	 * @param size      Longest side of a thumbnail in pixels
+	 * @return Pack, or null if the cache folder cannot be written
+	 */
+	static Pack open(final Path directory, final String baseName, final int size) {
+	    Pack pack = null;
+	    try {
+		Files.createDirectories(directory);
+		final var generation = latestGeneration(directory, baseName);
+		pack = new Pack(directory, baseName, size);
+		if (generation < 0 || !pack.switchTo(generation)) {
+		    // New, or not a pack this version and size can read
+		    pack.rewrite(generation + 1);
+		} else if (pack.deadBytes > pack.end / 2) {
+		    pack.rewrite(generation + 1);
+		}
+		return pack;
+	    } catch (final IOException | RuntimeException e) {
+		if (pack != null) {
+		    pack.close();
+		}
+		return null;
+	    }
+	}
+
+	private static void deleteQuietly(final Path file) {
+	    try {
+		Files.deleteIfExists(file);
+	    } catch (final IOException e) {
+		// Still mapped somewhere; tried again the next time the pack is opened
+	    }
+	}
+
+	private static Path fileFor(final Path directory, final String baseName, final int generation) {
+	    return directory.resolve(baseName + "." + generation + ".pack");
+	}
+
+	private static int generationOf(final Path file, final String baseName) {
+	    final var name = file.getFileName().toString();
+	    final var generation = name.substring(baseName.length(), name.length() - ".pack".length());
+	    try {
+		return generation.startsWith(".") ? Integer.parseInt(generation.substring(1)) : -1;
+	    } catch (final NumberFormatException e) {
+		return -1;
+	    }
+	}
+
+	/**
+	 * The newest generation of a folder's pack, deleting the older ones
+	 * where nothing maps them any more.
+	 *
+	 * @return Generation, or -1 if there is none
+	 */
+	private static int latestGeneration(final Path directory, final String baseName) throws IOException {
+	    final List<Path> files = new ArrayList<>();
+	    try (final var stream = Files.newDirectoryStream(directory, baseName + "*.pack")) {
+		stream.forEach(files::add);
+	    }
+	    var latest = -1;
+	    for (final var file : files) {
+		latest = Math.max(latest, generationOf(file, baseName));
+	    }
+	    for (final var file : files) {
+		if (generationOf(file, baseName) < Math.max(latest, 0)) {
+		    deleteQuietly(file);
+		}
+	    }
+	    return latest;
+	}
+
+	private static MemorySegment pixels(final MemorySegment mapping, final Entry entry) {
+	    return mapping.asSlice(entry.offset, (long) entry.width * entry.height * 4).asReadOnly();
+	}
+
+	private final Path directory;
+	private final String baseName;
+	private final int size;
+	private final Map<String, Entry> index = new HashMap<>();
+	private Path file;
+	private FileChannel channel;
+	/**
+	 * The file as mapped when opened. Records appended since are mapped one
+	 * at a time, as their thumbnails are handed out.
+	 */
+	private MemorySegment mapping;
+	private long end;
+	private long deadBytes;
+
+	private Pack(final Path directory, final String baseName, final int size) {
+	    this.directory = directory;
+	    this.baseName = baseName;
+	    this.size = size;
+	}
+
+	/**
+	 * Append a thumbnail, superseding any older one for the name.
+	 *
+	 * @return The stored thumbnail, or null if it could not be written
+	 */
+	Thumbnail append(final String name, final BasicFileAttributes attributes, final int width, final int height,
+		final MemorySegment pixels) {
+	    final var nameBytes = name.getBytes(StandardCharsets.UTF_8);
+	    if (nameBytes.length > Short.MAX_VALUE || pixels.byteSize() != (long) width * height * 4) {
+		return null;
+	    }
+	    final var header = ByteBuffer.allocate(2 + nameBytes.length + FIELDS_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+	    header.putShort((short) nameBytes.length).put(nameBytes).putLong(attributes.lastModifiedTime().toMillis())
+		    .putLong(attributes.size()).putInt(width).putInt(height).flip();
+	    final var recordStart = end;
+	    final var recordEnd = recordStart + header.capacity() + pixels.byteSize();
+	    try {
+		// The native pixels go to the file without a heap copy
+		final ByteBuffer[] buffers = { header, pixels.asByteBuffer() };
+		var written = 0L;
+		channel.position(recordStart);
+		while (written < recordEnd - recordStart) {
+		    written += channel.write(buffers);
+		}
+		// Only now does the record count
+		writeLength(recordEnd);
+	    } catch (final IOException e) {
+		// Past the length in the header, so ignored and overwritten later
+		return null;
+	    }
+	    end = recordEnd;
+	    final var entry = new Entry(recordStart + header.capacity(), attributes.lastModifiedTime().toMillis(),
+		    attributes.size(), width, height);
+	    final var previous = index.put(name, entry);
+	    if (previous != null) {
+		deadBytes += previous.recordSize(name);
+	    }
+	    return find(name, attributes);
+	}
+
+	void close() {
+	    if (channel == null) {
+		return;
+	    }
+	    try {
+		channel.close();
+	    } catch (final IOException e) {
+		// Nothing to flush; records are written whole
+	    }
+	}
+
+	/**
+	 * @return The thumbnail if the pack has one for the file as it is now
+	 */
+	Thumbnail find(final String name, final BasicFileAttributes attributes) {
+	    final var entry = index.get(name);
+	    if (entry == null || entry.modified != attributes.lastModifiedTime().toMillis()
+		    || entry.size != attributes.size()) {
+		return null;
+	    }
+	    try {
+		final var length = (long) entry.width * entry.height * 4;
+		if (mapping == null || mapping.byteSize() < entry.offset + length) {
+		    // Appended since the pack was opened; mapping just these pixels
+		    // keeps each mapping as small and short-lived as its thumbnail
+		    final var pixels = channel.map(FileChannel.MapMode.READ_ONLY, entry.offset, length, Arena.ofAuto());
+		    return new Thumbnail(entry.width, entry.height, pixels.asReadOnly());
+		}
+		return new Thumbnail(entry.width, entry.height, pixels(mapping, entry));
+	    } catch (final IOException e) {
+		return null;
+	    }
+	}
+
+	/**
+	 * Map the pack and index its records.
+	 *
+	 * @return false if it is not a pack of this version and size
+	 */
+	private boolean load() throws IOException {
+	    final var length = channel.size();
+	    if (length < HEADER_SIZE) {
+		return false;
+	    }
+	    mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, length, Arena.ofAuto());
+	    if (mapping.get(INT, 0) != MAGIC || mapping.get(INT, 4) != VERSION || mapping.get(INT, 8) != size) {
+		return false;
+	    }
+	    // Anything past it is an append that never finished
+	    final var valid = Math.min(mapping.get(LONG, LENGTH_OFFSET), length);
+	    var position = (long) HEADER_SIZE;
+	    var dead = 0L;
+	    while (position + 2 <= valid) {
+		final var nameLength = mapping.get(SHORT, position);
+		final var fields = position + 2 + nameLength;
+		if (nameLength < 0 || fields + FIELDS_SIZE > valid) {
+		    break;
+		}
+		final var width = mapping.get(INT, fields + 16);
+		final var height = mapping.get(INT, fields + 20);
+		final var pixelsStart = fields + FIELDS_SIZE;
+		if (width <= 0 || height <= 0 || pixelsStart + (long) width * height * 4 > valid) {
+		    break;
+		}
+		final var name = new String(mapping.asSlice(position + 2, nameLength).toArray(ValueLayout.JAVA_BYTE),
+			StandardCharsets.UTF_8);
+		final var entry = new Entry(pixelsStart, mapping.get(LONG, fields), mapping.get(LONG, fields + 8), width,
+			height);
+		final var previous = index.put(name, entry);
+		if (previous != null) {
+		    dead += previous.recordSize(name);
+		}
+		position = pixelsStart + (long) width * height * 4;
+	    }
+	    end = position;
+	    deadBytes = dead;
+	    return true;
+	}
+
+	/**
+	 * Write the current records, without superseded ones, to the given
+	 * generation and switch to it. The file in use is left as it is.
+	 */
+	private void rewrite(final int next) throws IOException {
+	    final var target = fileFor(directory, baseName, next);
+	    final var temporary = target.resolveSibling(target.getFileName() + ".tmp");
+	    try (final var out = FileChannel.open(temporary, StandardOpenOption.CREATE,
+		    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+		out.position(HEADER_SIZE);
+		for (final var record : index.entrySet()) {
+		    final var entry = record.getValue();
+		    final var start = entry.offset - entry.headerSize(record.getKey());
+		    out.write(mapping.asSlice(start, entry.recordSize(record.getKey())).asByteBuffer());
+		}
+		final var header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		header.putInt(MAGIC).putInt(VERSION).putInt(size).putLong(out.position()).flip();
+		out.write(header, 0);
+	    }
+	    // Never replaces a file; the next generation is new
+	    Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+	    index.clear();
+	    if (!switchTo(next)) {
+		throw new IOException("Rewritten pack is unreadable: " + target);
+	    }
+	}
+
+	/**
+	 * Open and index one generation of the pack, closing the one in use and
+	 * deleting it if nothing maps it.
+	 *
+	 * @return false if it is not a pack of this version and size
+	 */
+	private boolean switchTo(final int next) throws IOException {
+	    final var nextFile = fileFor(directory, baseName, next);
+	    final var opened = FileChannel.open(nextFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+	    final var previous = file;
+	    close();
+	    channel = opened;
+	    file = nextFile;
+	    if (previous != null) {
+		deleteQuietly(previous);
+	    }
+	    return load();
+	}
+
+	private void writeLength(final long length) throws IOException {
+	    final var buffer = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).putLong(0, length);
+	    while (buffer.hasRemaining()) {
+		channel.write(buffer, LENGTH_OFFSET + buffer.position());
+	    }
+	}
+
+	/**
+	 * Where a record's pixels are and what they were made from.
+	 */
+	private record Entry(long offset, long modified, long size, int width, int height) {
+
+	    long headerSize(final String name) {
+		return 2 + name.getBytes(StandardCharsets.UTF_8).length + FIELDS_SIZE;
+	    }
+
+	    long recordSize(final String name) {
+		return headerSize(name) + (long) width * height * 4;
+	    }
+	}
+    }
+}
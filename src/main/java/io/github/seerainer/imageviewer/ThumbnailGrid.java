@@ -0,0 +1,422 @@
+package io.github.seerainer.imageviewer;
+
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.events.PaintEvent;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Canvas;
+import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * A folder's images as a scrolling grid of thumbnails. Only the cells in view
+ * have SWT images: they are kept in a pool of about two screens' worth and the
+ * least recently drawn are disposed as the grid scrolls, so memory follows the
+ * size of the window rather than the size of the folder.
+ * <p>
+ * Thumbnails come from a {@link ThumbnailCache} on a fixed number of virtual
+ * threads. Every paint replaces the queue with the cells now in view, top left
+ * first, followed by the next screen, so a long scroll never leaves a backlog
+ * of cells that went by. Painting never waits: a cell is drawn empty until its
+ * thumbnail is handed back through {@code display::asyncExec}. Except for the
+ * workers, must be used on the UI thread.
+ */
+final class ThumbnailGrid implements AutoCloseable {
+
+    /** Thumbnails built at once; the rest wait in the queue. */
+    static final int WORKERS = Math.clamp(Runtime.getRuntime().availableProcessors() / 2, 1, 4);
+    private static final int PADDING = 8;
+
+    private final Display display;
+    private final Canvas canvas;
+    private final ThumbnailCache cache;
+    private final int size;
+    private final Consumer<String> onOpen;
+    private final int labelHeight;
+    private final int cellWidth;
+    private final int cellHeight;
+    private final LinkedHashMap<String, Image> images = new LinkedHashMap<>(16, 0.75f, true);
+    /** Images that could not be read; not asked for again. UI thread only. */
+    private final Set<String> failed = new HashSet<>();
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final Object lock = new Object();
+    private final Deque<String> queue = new ArrayDeque<>();
+    /** Taken by a worker and not yet delivered. */
+    private final Set<String> inFlight = new HashSet<>();
+    private int running;
+    private boolean closed;
+    private FolderIndex.Listing listing;
+    private int selected = -1;
+    /** The selected image, kept so it survives changes to the listing. */
+    private String selectedPath;
+    private int capacity = 1;
+
+    /**
+     * @param parent Composite the grid is created in
+     * @param cache  Source of the thumbnails
+     * @param size   Longest side of a thumbnail, as the cache builds them
+     * @param onOpen Called with an image's path when it is double-clicked or
+     *               Enter is pressed
+     */
+    ThumbnailGrid(final Composite parent, final ThumbnailCache cache, final int size,
+	    final Consumer<String> onOpen) {
+	this.display = parent.getDisplay();
+	this.cache = cache;
+	this.size = size;
+	this.onOpen = onOpen;
+	canvas = new Canvas(parent, SWT.BORDER | SWT.DOUBLE_BUFFERED | SWT.V_SCROLL);
+	final var gc = new GC(canvas);
+	labelHeight = gc.getFontMetrics().getHeight();
+	gc.dispose();
+	cellWidth = size + 2 * PADDING;
+	cellHeight = size + labelHeight + 3 * PADDING;
+
+	canvas.addPaintListener(this::paint);
+	canvas.addListener(SWT.Resize, _ -> {
+	    updateScrollBar();
+	    canvas.redraw();
+	});
+	canvas.getVerticalBar().addListener(SWT.Selection, _ -> canvas.redraw());
+	canvas.addListener(SWT.MouseDown, event -> {
+	    final var index = indexAt(event.x, event.y);
+	    if (index >= 0) {
+		select(index);
+	    }
+	});
+	canvas.addListener(SWT.MouseDoubleClick, event -> open(indexAt(event.x, event.y)));
+	canvas.addListener(SWT.KeyDown, event -> {
+	    final var columns = columns();
+	    final var page = columns * Math.max(1, canvas.getClientArea().height / cellHeight);
+	    switch (event.keyCode) {
+	    case SWT.CR, SWT.KEYPAD_CR -> open(selected);
+	    case SWT.ARROW_LEFT -> select(selected - 1);
+	    case SWT.ARROW_RIGHT -> select(selected + 1);
+	    case SWT.ARROW_UP -> select(selected - columns);
+	    case SWT.ARROW_DOWN -> select(selected + columns);
+	    case SWT.PAGE_UP -> select(selected - page);
+	    case SWT.PAGE_DOWN -> select(selected + page);
+	    case SWT.HOME -> select(0);
+	    case SWT.END -> select(Integer.MAX_VALUE);
+	    default -> {
+		// No action
+	    }
+	    }
+	});
+    }
+
+    /**
+     * @param width     Width available
+     * @param cellWidth Width of a cell
+     * @return Cells per row, at least one
+     */
+    static int columnsFor(final int width, final int cellWidth) {
+	return Math.max(1, width / cellWidth);
+    }
+
+    /**
+     * The cells a horizontal band of the grid overlaps.
+     *
+     * @param count      Number of cells
+     * @param columns    Cells per row
+     * @param cellHeight Height of a row
+     * @param top        Top of the band, from the top of the grid
+     * @param height     Height of the band
+     * @return Cell range
+     */
+    static Span visible(final int count, final int columns, final int cellHeight, final int top, final int height) {
+	if (height <= 0 || count <= 0) {
+	    return new Span(0, 0);
+	}
+	final var firstRow = Math.max(0, top) / cellHeight;
+	final var endRow = (Math.max(0, top + height) + cellHeight - 1) / cellHeight;
+	final var first = (int) Math.min(count, (long) firstRow * columns);
+	final var end = (int) Math.min(count, (long) endRow * columns);
+	return new Span(first, Math.max(first, end));
+    }
+
+    /**
+     * Dispose every thumbnail image and stop the workers. A thumbnail being
+     * built still finishes and goes to the cache.
+     */
+    @Override
+    public void close() {
+	synchronized (lock) {
+	    closed = true;
+	    queue.clear();
+	}
+	workers.shutdown();
+	images.values().forEach(Image::dispose);
+	images.clear();
+    }
+
+    Canvas control() {
+	return canvas;
+    }
+
+    private Rectangle cellBounds(final int index) {
+	final var columns = columns();
+	final var left = Math.max(0, (canvas.getClientArea().width - columns * cellWidth) / 2);
+	final var top = canvas.getVerticalBar().getSelection();
+	return new Rectangle(left + index % columns * cellWidth, index / columns * cellHeight - top, cellWidth,
+		cellHeight);
+    }
+
+    private int columns() {
+	return columnsFor(canvas.getClientArea().width, cellWidth);
+    }
+
+    private void deliver(final String filePath, final ImageData imageData) {
+	try {
+	    display.asyncExec(() -> {
+		synchronized (lock) {
+		    inFlight.remove(filePath);
+		    if (closed) {
+			return;
+		    }
+		}
+		final var index = listing != null ? listing.indexOf(filePath) : -1;
+		if (index < 0) {
+		    // The folder changed meanwhile
+		    return;
+		}
+		if (imageData == null) {
+		    failed.add(filePath);
+		} else {
+		    final var previous = images.put(filePath, new Image(display, imageData));
+		    if (previous != null) {
+			previous.dispose();
+		    }
+		    trim();
+		}
+		final var bounds = cellBounds(index);
+		canvas.redraw(bounds.x, bounds.y, bounds.width, bounds.height, false);
+	    });
+	} catch (final RuntimeException e) {
+	    // Rejected, or the display is already disposed
+	}
+    }
+
+    private void drain() {
+	while (true) {
+	    final String filePath;
+	    synchronized (lock) {
+		filePath = queue.poll();
+		if (filePath == null) {
+		    running--;
+		    return;
+		}
+		inFlight.add(filePath);
+	    }
+	    ImageData imageData;
+	    try {
+		final var thumbnail = cache.get(filePath);
+		imageData = thumbnail != null ? thumbnail.toImageData() : null;
+	    } catch (final RuntimeException e) {
+		// Unreadable; shown as an empty cell
+		imageData = null;
+	    }
+	    deliver(filePath, imageData);
+	}
+    }
+
+    private int indexAt(final int x, final int y) {
+	if (listing == null) {
+	    return -1;
+	}
+	final var columns = columns();
+	final var left = Math.max(0, (canvas.getClientArea().width - columns * cellWidth) / 2);
+	final var column = (x - left) / cellWidth;
+	final var row = (y + canvas.getVerticalBar().getSelection()) / cellHeight;
+	if (x < left || column >= columns || y < 0) {
+	    return -1;
+	}
+	final var index = (long) row * columns + column;
+	return index < listing.size() ? (int) index : -1;
+    }
+
+    private void open(final int index) {
+	if (listing != null && index >= 0 && index < listing.size()) {
+	    onOpen.accept(listing.get(index));
+	}
+    }
+
+    private void paint(final PaintEvent e) {
+	final var gc = e.gc;
+	final var area = canvas.getClientArea();
+	gc.setBackground(display.getSystemColor(SWT.COLOR_LIST_BACKGROUND));
+	gc.fillRectangle(e.x, e.y, e.width, e.height);
+	gc.setForeground(display.getSystemColor(SWT.COLOR_LIST_FOREGROUND));
+	if (listing == null || listing.size() == 0) {
+	    final var message = listing == null ? "Reading folder..." : "No images in this folder";
+	    final var extent = gc.textExtent(message);
+	    gc.drawString(message, (area.width - extent.x) / 2, (area.height - extent.y) / 2, true);
+	    return;
+	}
+
+	final var columns = columns();
+	final var top = canvas.getVerticalBar().getSelection();
+	final var damaged = visible(listing.size(), columns, cellHeight, top + e.y, e.height);
+	for (var index = damaged.first(); index < damaged.end(); index++) {
+	    paintCell(gc, index, cellBounds(index));
+	}
+
+	// The cells in view first, then the next screen so scrolling on finds
+	// them ready
+	final var view = visible(listing.size(), columns, cellHeight, top, area.height);
+	final var ahead = visible(listing.size(), columns, cellHeight, top + area.height, area.height);
+	final List<String> missing = new ArrayList<>();
+	for (var index = view.first(); index < ahead.end(); index++) {
+	    final var filePath = listing.get(index);
+	    if (!images.containsKey(filePath) && !failed.contains(filePath)) {
+		missing.add(filePath);
+	    }
+	}
+	request(missing);
+    }
+
+    private void paintCell(final GC gc, final int index, final Rectangle bounds) {
+	final var filePath = listing.get(index);
+	if (index == selected) {
+	    gc.setBackground(display.getSystemColor(SWT.COLOR_LIST_SELECTION));
+	    gc.fillRectangle(bounds.x + PADDING / 2, bounds.y + PADDING / 2, bounds.width - PADDING,
+		    bounds.height - PADDING);
+	    gc.setForeground(display.getSystemColor(SWT.COLOR_LIST_SELECTION_TEXT));
+	} else {
+	    gc.setForeground(display.getSystemColor(SWT.COLOR_LIST_FOREGROUND));
+	}
+
+	final var image = images.get(filePath);
+	if (image != null) {
+	    final var imageBounds = image.getBounds();
+	    gc.drawImage(image, bounds.x + PADDING + (size - imageBounds.width) / 2,
+		    bounds.y + PADDING + (size - imageBounds.height) / 2);
+	} else {
+	    final var foreground = gc.getForeground();
+	    gc.setForeground(display.getSystemColor(SWT.COLOR_WIDGET_NORMAL_SHADOW));
+	    gc.drawRectangle(bounds.x + PADDING, bounds.y + PADDING, size - 1, size - 1);
+	    gc.setForeground(foreground);
+	}
+
+	final var name = Path.of(filePath).getFileName().toString();
+	final var labelY = bounds.y + size + 2 * PADDING;
+	final var labelWidth = bounds.width - PADDING;
+	final var textWidth = gc.textExtent(name).x;
+	gc.setClipping(bounds.x + PADDING / 2, labelY, labelWidth, labelHeight);
+	// Long names are cut at the cell's edge rather than overlapping the next
+	gc.drawString(name, bounds.x + PADDING / 2 + Math.max(0, (labelWidth - textWidth) / 2), labelY, true);
+	gc.setClipping((Rectangle) null);
+    }
+
+    private void request(final List<String> paths) {
+	final int started;
+	synchronized (lock) {
+	    if (closed) {
+		return;
+	    }
+	    queue.clear();
+	    for (final var filePath : paths) {
+		if (!inFlight.contains(filePath)) {
+		    queue.add(filePath);
+		}
+	    }
+	    started = Math.max(0, Math.min(WORKERS - running, queue.size()));
+	    running += started;
+	}
+	for (var i = 0; i < started; i++) {
+	    workers.execute(this::drain);
+	}
+    }
+
+    /**
+     * Select an image and scroll it into view.
+     *
+     * @param index Position in the listing; clamped to it
+     */
+    private void select(final int index) {
+	if (listing == null || listing.size() == 0) {
+	    return;
+	}
+	selected = Math.clamp(index, 0, listing.size() - 1);
+	selectedPath = listing.get(selected);
+	final var bar = canvas.getVerticalBar();
+	final var height = canvas.getClientArea().height;
+	final var rowTop = selected / columns() * cellHeight;
+	if (rowTop < bar.getSelection()) {
+	    bar.setSelection(rowTop);
+	} else if (rowTop + cellHeight > bar.getSelection() + height) {
+	    bar.setSelection(rowTop + cellHeight - height);
+	}
+	canvas.redraw();
+    }
+
+    /**
+     * Show the images of a folder, keeping the selection on the same image if
+     * it is still listed.
+     *
+     * @param listing  Folder listing, or null while it is being read
+     * @param filePath Image to select, or null to keep the current one
+     */
+    void setListing(final FolderIndex.Listing listing, final String filePath) {
+	this.listing = listing;
+	if (filePath != null) {
+	    selectedPath = filePath;
+	}
+	// A change to the folder is a fair point to try broken files again
+	failed.clear();
+	selected = listing != null && selectedPath != null ? listing.indexOf(selectedPath) : -1;
+	updateScrollBar();
+	if (selected >= 0) {
+	    select(selected);
+	} else {
+	    canvas.redraw();
+	}
+    }
+
+    private void trim() {
+	final var iterator = images.values().iterator();
+	while (images.size() > capacity && iterator.hasNext()) {
+	    iterator.next().dispose();
+	    iterator.remove();
+	}
+    }
+
+    /**
+     * Keep a fixed pool for a viewport of the current size: two screens'
+     * worth, so scrolling back finds its thumbnails still there.
+     */
+    private void updateCapacity() {
+	final var rows = canvas.getClientArea().height / cellHeight + 2;
+	capacity = 2 * columns() * rows;
+	trim();
+    }
+
+    private void updateScrollBar() {
+	final var height = Math.max(1, canvas.getClientArea().height);
+	final var count = listing != null ? listing.size() : 0;
+	final var rows = (count + columns() - 1) / columns();
+	final var bar = canvas.getVerticalBar();
+	final var maximum = Math.max(height, rows * cellHeight);
+	bar.setValues(Math.min(bar.getSelection(), maximum - height), 0, maximum, height, cellHeight / 4, height);
+	updateCapacity();
+    }
+
+    /**
+     * Cells from {@code first} up to, not including, {@code end}.
+     */
+    record Span(int first, int end) {
+    }
+}
@@ -0,0 +1,318 @@
+package io.github.seerainer.imageviewer;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.eclipse.swt.SWT;
+import org.eclipse.swt.graphics.GC;
+import org.eclipse.swt.graphics.Image;
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.Rectangle;
+import org.eclipse.swt.widgets.Display;
+
+/**
+ * Draws a zoomed document one tile at a time. Only the tiles that intersect
+ * the area being painted are resampled, each from the pyramid level the zoom
+ * calls for, and the most recently drawn are kept for the next paint. Memory
+ * therefore follows the size of the viewport rather than the zoom or the size
+ * of the image.
+ * <p>
+ * Painting never waits for a resample. Tiles not yet rendered are covered by
+ * the document image scaled with the GC, and are resampled on a virtual thread
+ * once zooming or resizing has paused for {@link #SETTLE_DELAY_MS}; a paint
+ * that needs other tiles supersedes the request still waiting or running.
+ * Finished tiles are handed back through {@code display::asyncExec}. Except
+ * for the worker, must be used on the UI thread.
+ */
+final class TileRenderer implements AutoCloseable {
+
+    static final int TILE_SIZE = 256;
+    /** Quiet time after the last paint that needed new tiles. */
+    static final long SETTLE_DELAY_MS = 100;
+
+    private final Display display;
+    private final int capacity;
+    private final Runnable onTileReady;
+    private final LinkedHashMap<Tile, Image> tiles = new LinkedHashMap<>(16, 0.75f, true);
+    /** Tiles asked of the worker and not yet delivered. UI thread only. */
+    private final Set<Tile> requested = new HashSet<>();
+    private final ExecutorService worker = Executors.newVirtualThreadPerTaskExecutor();
+    private final Object lock = new Object();
+    /**
+     * Held while the worker resamples a tile or copies a level to build the
+     * next from, so clearing waits for no more than that.
+     */
+    private final Object renderLock = new Object();
+    /** Advanced by every request and every clear. */
+    private long generation;
+    /** Advanced by every clear; tiles from an earlier epoch are stale. */
+    private long epoch;
+    private Request pending;
+    private boolean running;
+    private boolean closed;
+
+    /**
+     * @param display     Display the tile images are created on
+     * @param capacity    Maximum number of tiles kept between paints
+     * @param onTileReady Run on the UI thread whenever background tiles have
+     *                    been added, typically to redraw the canvas
+     */
+    TileRenderer(final Display display, final int capacity, final Runnable onTileReady) {
+	this.display = display;
+	this.capacity = Math.max(1, capacity);
+	this.onTileReady = onTileReady;
+    }
+
+    /**
+     * Tiles to keep for a viewport of the given size: two screens' worth, so
+     * panning or zooming back finds its tiles still there.
+     *
+     * @param width  Viewport width
+     * @param height Viewport height
+     * @return Tile count
+     */
+    static int capacityFor(final int width, final int height) {
+	final var columns = width / TILE_SIZE + 2;
+	final var rows = height / TILE_SIZE + 2;
+	return 2 * columns * rows;
+    }
+
+    /**
+     * Dispose every cached tile and drop outstanding work. Needed before the
+     * document changes or is closed; returns once the worker has let go of the
+     * pyramid.
+     */
+    void clear() {
+	synchronized (lock) {
+	    generation++;
+	    epoch++;
+	    pending = null;
+	}
+	synchronized (renderLock) {
+	    // Nothing to do; a tile in progress has finished once this is held
+	}
+	tiles.values().forEach(Image::dispose);
+	tiles.clear();
+	requested.clear();
+    }
+
+    /**
+     * Dispose every tile and stop the worker.
+     */
+    @Override
+    public void close() {
+	synchronized (lock) {
+	    closed = true;
+	}
+	clear();
+	worker.shutdown();
+    }
+
+    private void deliver(final long tileEpoch, final Tile tile, final ImageData imageData) {
+	try {
+	    display.asyncExec(() -> {
+		synchronized (lock) {
+		    if (tileEpoch != epoch) {
+			return;
+		    }
+		}
+		requested.remove(tile);
+		final var previous = tiles.put(tile, new Image(display, imageData));
+		if (previous != null) {
+		    previous.dispose();
+		}
+		trim();
+		onTileReady.run();
+	    });
+	} catch (final RuntimeException e) {
+	    // The display is already disposed
+	}
+    }
+
+    private void drain() {
+	while (true) {
+	    final Request request;
+	    synchronized (lock) {
+		request = pending;
+		if (request == null) {
+		    running = false;
+		    return;
+		}
+	    }
+	    try {
+		Thread.sleep(SETTLE_DELAY_MS);
+	    } catch (final InterruptedException e) {
+		Thread.currentThread().interrupt();
+		synchronized (lock) {
+		    running = false;
+		}
+		return;
+	    }
+	    synchronized (lock) {
+		if (pending != request) {
+		    // More input arrived during the delay; wait for it to settle
+		    continue;
+		}
+		pending = null;
+	    }
+	    for (final var tile : request.tiles) {
+		final var imageData = render(request, tile);
+		if (imageData == null && !isCurrent(request)) {
+		    break;
+		}
+		if (imageData != null) {
+		    deliver(request.epoch, tile, imageData);
+		}
+	    }
+	}
+    }
+
+    private boolean isCurrent(final Request request) {
+	synchronized (lock) {
+	    return request.generation == generation;
+	}
+    }
+
+    /**
+     * Draw the part of a zoomed document that falls within the clip area.
+     * Tiles not rendered yet show the preview image scaled by the GC, and are
+     * requested from the worker.
+     *
+     * @param gc      Graphics context to draw on
+     * @param pyramid Document to draw
+     * @param preview Image of the whole document at any size
+     * @param bounds  Position and zoomed size of the document on the canvas
+     * @param clip    Area being painted
+     * @param filter  Resize filter
+     */
+    void paint(final GC gc, final ImagePyramid pyramid, final Image preview, final Rectangle bounds,
+	    final Rectangle clip, final ResizeFilter filter) {
+	final var visible = bounds.intersection(clip);
+	if (visible.isEmpty()) {
+	    return;
+	}
+	final var level = pyramid.indexFor(bounds.width, bounds.height);
+	final var firstColumn = (visible.x - bounds.x) / TILE_SIZE;
+	final var lastColumn = (visible.x + visible.width - 1 - bounds.x) / TILE_SIZE;
+	final var firstRow = (visible.y - bounds.y) / TILE_SIZE;
+	final var lastRow = (visible.y + visible.height - 1 - bounds.y) / TILE_SIZE;
+
+	final List<Tile> missing = new ArrayList<>();
+	for (var row = firstRow; row <= lastRow; row++) {
+	    for (var column = firstColumn; column <= lastColumn; column++) {
+		final var tile = new Tile(level, bounds.width, bounds.height, column, row, filter);
+		if (!tiles.containsKey(tile)) {
+		    missing.add(tile);
+		}
+	    }
+	}
+	if (!missing.isEmpty()) {
+	    paintPreview(gc, preview, bounds, visible);
+	    if (!requested.containsAll(missing)) {
+		request(pyramid, missing);
+	    }
+	}
+	for (var row = firstRow; row <= lastRow; row++) {
+	    for (var column = firstColumn; column <= lastColumn; column++) {
+		final var image = tiles.get(new Tile(level, bounds.width, bounds.height, column, row, filter));
+		if (image != null) {
+		    gc.drawImage(image, bounds.x + column * TILE_SIZE, bounds.y + row * TILE_SIZE);
+		}
+	    }
+	}
+    }
+
+    /**
+     * Cover the visible part of the document with the preview image, scaled
+     * by the GC without smoothing so it costs no more than a blit.
+     */
+    private static void paintPreview(final GC gc, final Image preview, final Rectangle bounds,
+	    final Rectangle visible) {
+	final var size = preview.getBounds();
+	final var scaleX = (double) size.width / bounds.width;
+	final var scaleY = (double) size.height / bounds.height;
+	final var left = (int) Math.floor((visible.x - bounds.x) * scaleX);
+	final var top = (int) Math.floor((visible.y - bounds.y) * scaleY);
+	final var right = Math.min(size.width, (int) Math.ceil((visible.x + visible.width - bounds.x) * scaleX));
+	final var bottom = Math.min(size.height, (int) Math.ceil((visible.y + visible.height - bounds.y) * scaleY));
+	if (right <= left || bottom <= top) {
+	    return;
+	}
+	// Map the whole source pixels back to the canvas so the preview lines up
+	// with the tiles drawn over it
+	final var x = bounds.x + (int) Math.round(left / scaleX);
+	final var y = bounds.y + (int) Math.round(top / scaleY);
+	final var width = bounds.x + (int) Math.round(right / scaleX) - x;
+	final var height = bounds.y + (int) Math.round(bottom / scaleY) - y;
+	final var interpolation = gc.getInterpolation();
+	gc.setInterpolation(SWT.NONE);
+	gc.drawImage(preview, left, top, right - left, bottom - top, x, y, width, height);
+	gc.setInterpolation(interpolation);
+    }
+
+    private ImageData render(final Request request, final Tile tile) {
+	final var x = tile.column * TILE_SIZE;
+	final var y = tile.row * TILE_SIZE;
+	final var width = Math.min(TILE_SIZE, tile.width - x);
+	final var height = Math.min(TILE_SIZE, tile.height - y);
+	// Halving a large document takes a while; the pyramid does it outside
+	// the lock, from copies
+	if (!request.pyramid.prepare(tile.level, renderLock, () -> isCurrent(request))) {
+	    return null;
+	}
+	synchronized (renderLock) {
+	    // Checked under the lock: once clear() has passed it, the pyramid
+	    // may be closed
+	    if (!isCurrent(request)) {
+		return null;
+	    }
+	    final var level = request.pyramid.level(tile.level);
+	    if (level == null) {
+		return null;
+	    }
+	    try (final var pixels = level.resizeRegion(tile.width, tile.height, x, y, width, height, tile.filter)) {
+		return pixels != null ? ImageService.toImageData(pixels) : null;
+	    }
+	}
+    }
+
+    private void request(final ImagePyramid pyramid, final List<Tile> missing) {
+	requested.clear();
+	requested.addAll(missing);
+	synchronized (lock) {
+	    if (closed) {
+		return;
+	    }
+	    pending = new Request(++generation, epoch, pyramid, List.copyOf(missing));
+	    if (running) {
+		// The worker picks this up after its current tile
+		return;
+	    }
+	    running = true;
+	}
+	worker.execute(this::drain);
+    }
+
+    private void trim() {
+	final var iterator = tiles.values().iterator();
+	while (tiles.size() > capacity && iterator.hasNext()) {
+	    iterator.next().dispose();
+	    iterator.remove();
+	}
+    }
+
+    private record Request(long generation, long epoch, ImagePyramid pyramid, List<Tile> tiles) {
+    }
+
+    /**
+     * A tile of the document zoomed to {@code width} x {@code height}, cut
+     * from pyramid level {@code level}.
+     */
+    private record Tile(int level, int width, int height, int column, int row, ResizeFilter filter) {
+    }
+}
@@ -0,0 +1,102 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.foreign.ValueLayout;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("integration")
+@DisplayName("AdjustmentPreview Integration Tests")
+class AdjustmentPreviewTest {
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Effects should run on a proxy no larger than the view, told how far it is scaled")
+    void testPreviewRunsOnProxy() throws InterruptedException {
+	final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+	final BlockingQueue<ImageData> previews = new LinkedBlockingQueue<>();
+	final BlockingQueue<Double> scales = new LinkedBlockingQueue<>();
+
+	try (final var document = TestImages.rgba(400, 300);
+		final var pyramid = new ImagePyramid(document);
+		final var preview = new AdjustmentPreview(pyramid, 100, 100, 800, callbacks::add, previews::add)) {
+	    final var before = RustImageLib.pixels(document.handle()).toArray(ValueLayout.JAVA_BYTE);
+	    preview.update((image, scale) -> {
+		scales.add(Double.valueOf(scale));
+		return image.invert();
+	    });
+	    final var callback = callbacks.poll(10, TimeUnit.SECONDS);
+	    assertThat(callback).isNotNull();
+	    callback.run();
+
+	    // The document itself is never touched
+	    assertThat(RustImageLib.pixels(document.handle()).toArray(ValueLayout.JAVA_BYTE)).isEqualTo(before);
+	}
+
+	final var imageData = previews.poll();
+	assertThat(imageData).isNotNull();
+	assertThat(imageData.width).isEqualTo(100);
+	assertThat(imageData.height).isEqualTo(75);
+	assertThat(scales.poll()).isEqualTo(0.125);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("A preview should be shown even if the slider has moved on since it was asked for")
+    void testDraggedSliderStillUpdates() throws InterruptedException {
+	final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+	final BlockingQueue<ImageData> previews = new LinkedBlockingQueue<>();
+	final var started = new CountDownLatch(1);
+	final var release = new CountDownLatch(1);
+
+	try (final var document = TestImages.rgba(64, 64);
+		final var pyramid = new ImagePyramid(document);
+		final var preview = new AdjustmentPreview(pyramid, 32, 32, 64, callbacks::add, previews::add)) {
+	    preview.update((image, _) -> {
+		started.countDown();
+		release.await();
+		return image.invert();
+	    });
+	    assertThat(started.await(10, TimeUnit.SECONDS)).isTrue();
+	    preview.update((image, _) -> image.invert());
+	    release.countDown();
+
+	    for (var i = 0; i < 2; i++) {
+		final var callback = callbacks.poll(10, TimeUnit.SECONDS);
+		assertThat(callback).isNotNull();
+		callback.run();
+		assertThat(previews).hasSize(i + 1);
+	    }
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Nothing should be delivered once the preview is closed")
+    void testClosedPreviewDeliversNothing() throws InterruptedException {
+	final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+	final BlockingQueue<ImageData> previews = new LinkedBlockingQueue<>();
+
+	try (final var document = TestImages.rgba(64, 64); final var pyramid = new ImagePyramid(document)) {
+	    final var preview = new AdjustmentPreview(pyramid, 32, 32, 64, callbacks::add, previews::add);
+	    preview.update((image, _) -> image.invert());
+	    preview.close();
+	    preview.update((image, _) -> image.invert());
+
+	    // A result that was already queued is dropped when it runs
+	    final var callback = callbacks.poll(200, TimeUnit.MILLISECONDS);
+	    if (callback != null) {
+		callback.run();
+	    }
+	    assertThat(previews).isEmpty();
+	}
+    }
+}
@@ -0,0 +1,123 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("integration")
+@DisplayName("BatchConverter Integration Tests")
+class BatchConverterTest {
+
+    private static void writeImage(final Path path, final int width, final int height) throws IOException {
+	Files.createDirectories(path.getParent());
+	try (final var image = TestImages.rgba(width, height, i -> i * 5 + i / 7)) {
+	    assertThat(image.save(path.toString())).isTrue();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should convert a folder tree and keep going past a broken file")
+    void testConvertFolder(@TempDir final Path dir) throws IOException, InterruptedException {
+	final var input = dir.resolve("in");
+	final var output = dir.resolve("out");
+	writeImage(input.resolve("wide.png"), 400, 100);
+	writeImage(input.resolve("small.png"), 40, 30);
+	writeImage(input.resolve("nested").resolve("tall.bmp"), 50, 300);
+	Files.writeString(input.resolve("broken.png"), "not an image");
+	Files.writeString(input.resolve("notes.txt"), "skipped");
+
+	final var options = BatchConverter.Options
+		.parse(new String[] { "--resize", "200", "--format", "png", "--jobs", "2", input.toString(),
+			output.toString() });
+	final var errors = new ByteArrayOutputStream();
+	final BatchConverter.Summary summary;
+	try (final var err = new PrintStream(errors, true, StandardCharsets.UTF_8)) {
+	    summary = new BatchConverter(options, new PrintStream(OutputStream.nullOutputStream()), err).convert();
+	}
+
+	assertThat(summary.converted()).isEqualTo(3);
+	assertThat(summary.failed()).isEqualTo(1);
+	assertThat(summary.bytesRead()).isPositive();
+	assertThat(summary.bytesWritten()).isPositive();
+	assertThat(errors.toString(StandardCharsets.UTF_8)).contains("broken.png").doesNotContain("notes.txt");
+	assertThat(output.resolve("broken.png")).doesNotExist();
+	assertThat(output.resolve("notes.txt")).doesNotExist();
+
+	try (final var wide = NativeImage.load(output.resolve("wide.png").toString());
+		final var small = NativeImage.load(output.resolve("small.png").toString());
+		final var tall = NativeImage.load(output.resolve("nested").resolve("tall.png").toString())) {
+	    assertThat(wide.width()).isEqualTo(200);
+	    assertThat(wide.height()).isEqualTo(50);
+	    // Never enlarged
+	    assertThat(small.width()).isEqualTo(40);
+	    assertThat(small.height()).isEqualTo(30);
+	    assertThat(tall.width()).isEqualTo(33);
+	    assertThat(tall.height()).isEqualTo(200);
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should parse options and reject invalid ones")
+    void testParse() {
+	final var options = BatchConverter.Options.parse(new String[] { "--filter", "lanczos3", "--quality", "90",
+		"--format", ".WEBP", "in", "out" });
+	assertThat(options.input()).isEqualTo(Path.of("in"));
+	assertThat(options.output()).isEqualTo(Path.of("out"));
+	assertThat(options.filter()).isEqualTo(ResizeFilter.LANCZOS3);
+	assertThat(options.saveOptions().jpegQuality()).isEqualTo(90);
+	assertThat(options.format()).isEqualTo("webp");
+	assertThat(options.resize()).isZero();
+	assertThat(options.jobs()).isPositive();
+	assertThat(BatchConverter.Options.parse(new String[] { "--filter", "catmull-rom", "a", "b" }).filter())
+		.isEqualTo(ResizeFilter.CATMULL_ROM);
+	final var png = BatchConverter.Options
+		.parse(new String[] { "--png-compression", "best", "--png-filter", "Paeth", "a", "b" }).saveOptions();
+	assertThat(png.pngCompression()).isEqualTo(SaveOptions.PngCompression.BEST);
+	assertThat(png.pngFilter()).isEqualTo(SaveOptions.PngFilter.PAETH);
+
+	assertThatThrownBy(() -> BatchConverter.Options.parse(new String[] { "in" }))
+		.isInstanceOf(IllegalArgumentException.class);
+	assertThatThrownBy(() -> BatchConverter.Options.parse(new String[] { "--resize", "0", "in", "out" }))
+		.isInstanceOf(IllegalArgumentException.class);
+	assertThatThrownBy(() -> BatchConverter.Options.parse(new String[] { "--format", "doc", "in", "out" }))
+		.isInstanceOf(IllegalArgumentException.class);
+	assertThatThrownBy(() -> BatchConverter.Options.parse(new String[] { "--quality", "101", "in", "out" }))
+		.isInstanceOf(IllegalArgumentException.class);
+	assertThatThrownBy(() -> BatchConverter.Options.parse(new String[] { "--png-filter", "sharp", "in", "out" }))
+		.isInstanceOf(IllegalArgumentException.class);
+	assertThatThrownBy(() -> BatchConverter.Options.parse(new String[] { "in", "out", "--jobs" }))
+		.isInstanceOf(IllegalArgumentException.class);
+	assertThatThrownBy(() -> BatchConverter.Options.parse(new String[] { "--verbose", "x", "in", "out" }))
+		.isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should mirror the input folder and swap the extension")
+    void testTargetFor() {
+	final var input = Path.of("photos");
+	final var output = Path.of("converted");
+	assertThat(BatchConverter.targetFor(input, input.resolve("2024").resolve("a.jpg"), output, "webp"))
+		.isEqualTo(output.resolve("2024").resolve("a.webp"));
+	assertThat(BatchConverter.targetFor(input, input.resolve("b.tar.png"), output, "jpg"))
+		.isEqualTo(output.resolve("b.tar.jpg"));
+	assertThat(BatchConverter.targetFor(input, input.resolve("c.png"), output, null))
+		.isEqualTo(output.resolve("c.png"));
+	final var single = Path.of("photos", "d.png");
+	assertThat(BatchConverter.targetFor(single, single, output, "webp")).isEqualTo(output.resolve("d.webp"));
+    }
+}
@@ -0,0 +1,98 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("integration")
+@DisplayName("Derivatives Integration Tests")
+class DerivativesTest {
+
+    private static Derivatives.Spec spec(final Path dir, final String name, final int size,
+	    final ResizeFilter filter) {
+	return new Derivatives.Spec(dir.resolve(name).toString(), size, size, filter, SaveOptions.DEFAULT);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should fit within the box without enlarging")
+    void testFit() {
+	assertThat(Derivatives.fit(800, 600, 400, 400)).containsExactly(400, 300);
+	assertThat(Derivatives.fit(600, 800, 400, 400)).containsExactly(300, 400);
+	assertThat(Derivatives.fit(800, 600, 2000, 2000)).containsExactly(800, 600);
+	assertThat(Derivatives.fit(10_000, 1, 100, 100)).containsExactly(100, 1);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should write every size from one decode, smaller ones from larger results")
+    void testGenerate(@TempDir final Path dir) {
+	try (final var source = TestImages.rgba(800, 600, i -> i * 3 + i / 11)) {
+	    // Out of size order on purpose; results come back in spec order
+	    final var results = Derivatives.generate(source,
+		    List.of(spec(dir, "thumb.png", 100, ResizeFilter.TRIANGLE),
+			    spec(dir, "full.png", 2000, ResizeFilter.LANCZOS3),
+			    spec(dir, "web.jpg", 400, ResizeFilter.LANCZOS3),
+			    spec(dir, "mid.png", 300, ResizeFilter.CATMULL_ROM)));
+
+	    assertThat(results).extracting(Derivatives.Result::filePath).containsExactly(
+		    dir.resolve("thumb.png").toString(), dir.resolve("full.png").toString(),
+		    dir.resolve("web.jpg").toString(), dir.resolve("mid.png").toString());
+	    assertThat(results).allMatch(Derivatives.Result::success);
+
+	    // Not enlarged; written as it is
+	    assertThat(results.get(1).width()).isEqualTo(800);
+	    // From the full image: nothing made so far is twice its size
+	    assertThat(results.get(2).sourceWidth()).isEqualTo(800);
+	    assertThat(results.get(3).sourceWidth()).isEqualTo(800);
+	    // From the smallest result at least twice its size
+	    assertThat(results.get(0).width()).isEqualTo(100);
+	    assertThat(results.get(0).height()).isEqualTo(75);
+	    assertThat(results.get(0).sourceWidth()).isEqualTo(300);
+
+	    try (final var web = NativeImage.load(dir.resolve("web.jpg").toString());
+		    final var thumb = NativeImage.load(dir.resolve("thumb.png").toString())) {
+		assertThat(web.width()).isEqualTo(400);
+		assertThat(web.height()).isEqualTo(300);
+		assertThat(thumb.width()).isEqualTo(100);
+		assertThat(thumb.height()).isEqualTo(75);
+	    }
+	    // The source is left as it was
+	    assertThat(source.width()).isEqualTo(800);
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should not reuse a nearest neighbour result for a smoother filter")
+    void testNearestNotReused(@TempDir final Path dir) {
+	try (final var source = TestImages.rgba(800, 600, i -> i * 3 + i / 11)) {
+	    final var results = Derivatives.generate(source,
+		    List.of(spec(dir, "pixelated.png", 400, ResizeFilter.NEAREST),
+			    spec(dir, "smooth.png", 100, ResizeFilter.TRIANGLE),
+			    spec(dir, "icon.png", 50, ResizeFilter.NEAREST)));
+	    assertThat(results).allMatch(Derivatives.Result::success);
+	    assertThat(results.get(1).sourceWidth()).isEqualTo(800);
+	    // Nearest may start from nearest
+	    assertThat(results.get(2).sourceWidth()).isEqualTo(400);
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should report every derivative failed when the source cannot be decoded")
+    void testUnreadableSource(@TempDir final Path dir) {
+	final var results = Derivatives.generate(dir.resolve("missing.png").toString(),
+		List.of(spec(dir, "a.png", 100, ResizeFilter.TRIANGLE)));
+	assertThat(results).singleElement().matches(result -> !result.success());
+	assertThatThrownBy(() -> spec(dir, "b.png", 0, ResizeFilter.TRIANGLE))
+		.isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,173 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("integration")
+@DisplayName("EditHistory Integration Tests")
+class EditHistoryTest {
+
+    private static byte[] pixels(final NativeImage image) {
+	return RustImageLib.pixels(image.handle()).toArray(ValueLayout.JAVA_BYTE);
+    }
+
+    /**
+     * Apply an edit to the document and record it, as the main window does.
+     */
+    private static void edit(final EditHistory history, final NativeImage document, final String label,
+	    final EditHistory.Edit edit) throws Exception {
+	assertThat(history.prepare(document)).isTrue();
+	assertThat(edit.apply(document)).isTrue();
+	history.record(label, edit, document, 1_000_000L);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Undo should rebuild every earlier state exactly, and redo should return to it")
+    void testUndoRedo() throws Exception {
+	final List<byte[]> states = new ArrayList<>();
+	try (final var history = new EditHistory(1 << 20); final var document = TestImages.rgba(12, 8)) {
+	    states.add(pixels(document));
+	    for (var i = 1; i <= 20; i++) {
+		final var value = i;
+		edit(history, document, "Step " + i, image -> image.adjustBrightness(value % 7 - 3));
+		states.add(pixels(document));
+	    }
+
+	    var current = document.copy();
+	    for (var i = 19; i >= 0; i--) {
+		assertThat(history.undoLabel()).isEqualTo("Step " + (i + 1));
+		final var earlier = history.undo();
+		assertThat(earlier).isNotNull();
+		assertThat(pixels(earlier)).isEqualTo(states.get(i));
+		current.close();
+		current = earlier;
+	    }
+	    assertThat(history.canUndo()).isFalse();
+	    assertThat(history.undo()).isNull();
+
+	    for (var i = 1; i <= 20; i++) {
+		assertThat(history.redo(current)).isEqualTo("Step " + i);
+		assertThat(pixels(current)).isEqualTo(states.get(i));
+	    }
+	    assertThat(history.canRedo()).isFalse();
+	    current.close();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Undo should never replay more edits than the checkpoint interval")
+    void testReplayIsBounded() throws Exception {
+	final var applied = new AtomicInteger();
+	final EditHistory.Edit invert = image -> {
+	    applied.incrementAndGet();
+	    return image.invert();
+	};
+	try (final var history = new EditHistory(1 << 20); final var document = TestImages.rgba(8, 8)) {
+	    for (var i = 0; i < 3 * EditHistory.MAX_REPLAY_STEPS; i++) {
+		edit(history, document, "Invert", invert);
+	    }
+	    assertThat(history.checkpointCount()).isEqualTo(4);
+
+	    for (var i = 0; i < 3 * EditHistory.MAX_REPLAY_STEPS; i++) {
+		applied.set(0);
+		history.undo().close();
+		assertThat(applied.get()).isLessThan(EditHistory.MAX_REPLAY_STEPS);
+	    }
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Checkpoints should stay within the budget, and undo should still work without them")
+    void testBudget() throws Exception {
+	final long imageBytes = 8 * 8 * 4;
+	try (final var history = new EditHistory(imageBytes); final var document = TestImages.rgba(8, 8)) {
+	    final var source = pixels(document);
+	    for (var i = 0; i < 4 * EditHistory.MAX_REPLAY_STEPS; i++) {
+		edit(history, document, "Invert", NativeImage::invert);
+	    }
+	    assertThat(history.checkpointBytes()).isLessThanOrEqualTo(imageBytes);
+	    assertThat(history.checkpointCount()).isEqualTo(2);
+
+	    NativeImage state = null;
+	    while (history.canUndo()) {
+		if (state != null) {
+		    state.close();
+		}
+		state = history.undo();
+	    }
+	    assertThat(state).isNotNull();
+	    assertThat(pixels(state)).isEqualTo(source);
+	    state.close();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("A new edit after undo should drop the edits that could have been redone")
+    void testNewEditDropsRedo() throws Exception {
+	try (final var history = new EditHistory(1 << 20); final var document = TestImages.rgba(8, 8)) {
+	    edit(history, document, "First", NativeImage::invert);
+	    edit(history, document, "Second", NativeImage::flipHorizontal);
+	    try (final var earlier = history.undo()) {
+		edit(history, earlier, "Third", NativeImage::rotateRight);
+
+		assertThat(history.canRedo()).isFalse();
+		assertThat(history.undoLabel()).isEqualTo("Third");
+	    }
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Turns and flips should combine into one orientation, and any other edit should end it")
+    void testOrientation() throws Exception {
+	try (final var history = new EditHistory(1 << 20); final var document = TestImages.rgba(12, 8)) {
+	    assertThat(history.orientation()).isEqualTo(Orientation.IDENTITY);
+	    edit(history, document, "Right", Orientation.ROTATE_RIGHT);
+	    edit(history, document, "Flip", Orientation.FLIP_HORIZONTAL);
+	    assertThat(history.orientation()).isEqualTo(Orientation.ROTATE_RIGHT.then(Orientation.FLIP_HORIZONTAL));
+
+	    edit(history, document, "Invert", NativeImage::invert);
+	    assertThat(history.orientation()).isNull();
+	    history.undo().close();
+	    assertThat(history.orientation()).isEqualTo(Orientation.ROTATE_RIGHT.then(Orientation.FLIP_HORIZONTAL));
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Rebasing should replay the same edits on the new source")
+    void testRebase() throws Exception {
+	try (final var history = new EditHistory(1 << 20); final var preview = TestImages.rgba(6, 4)) {
+	    edit(history, preview, "Right", Orientation.ROTATE_RIGHT);
+	    edit(history, preview, "Flip", Orientation.FLIP_VERTICAL);
+	    history.undo().close();
+
+	    try (final var full = TestImages.rgba(12, 8); final var turned = full.copy()) {
+		final var source = pixels(full);
+		assertThat(history.rebase(full)).isTrue();
+		// The history keeps its own copy
+		full.invert();
+
+		assertThat(history.orientation()).isEqualTo(Orientation.ROTATE_RIGHT);
+		Orientation.ROTATE_RIGHT.apply(turned);
+		assertThat(history.redo(turned)).isEqualTo("Flip");
+		try (final var earlier = history.undo(); final var first = history.undo()) {
+		    assertThat(earlier.width()).isEqualTo(8);
+		    assertThat(pixels(first)).isEqualTo(source);
+		}
+	    }
+	}
+    }
+}
@@ -0,0 +1,120 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("unit")
+@DisplayName("FolderIndex Unit Tests")
+class FolderIndexTest {
+
+    private static final Predicate<String> IMAGES = name -> name.endsWith(".png") || name.endsWith(".jpg");
+
+    private static List<String> names(final FolderIndex.Listing listing) {
+	return listing.paths().stream().map(path -> Path.of(path).getFileName().toString()).toList();
+    }
+
+    /**
+     * Wait for the listing to satisfy a condition, one change at a time.
+     */
+    private static FolderIndex.Listing awaitListing(final FolderIndex index, final Semaphore changes,
+	    final Predicate<FolderIndex.Listing> condition) throws InterruptedException {
+	final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+	while (System.nanoTime() < deadline) {
+	    final var listing = index.listing();
+	    if (listing != null && condition.test(listing)) {
+		return listing;
+	    }
+	    changes.tryAcquire(100, TimeUnit.MILLISECONDS);
+	}
+	throw new AssertionError("Listing did not change in time");
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should list matching files in case-insensitive name order")
+    void testListing(@TempDir final Path dir) throws Exception {
+	for (final var name : List.of("b.png", "A.jpg", "c.png", "notes.txt", "a.png")) {
+	    Files.createFile(dir.resolve(name));
+	}
+	final var changes = new Semaphore(0);
+	try (final var index = new FolderIndex(IMAGES, Runnable::run, changes::release)) {
+	    assertThat(index.listing()).isNull();
+	    index.open(dir.resolve("b.png").toString());
+
+	    final var listing = awaitListing(index, changes, _ -> true);
+	    assertThat(names(listing)).containsExactly("A.jpg", "a.png", "b.png", "c.png");
+	    assertThat(listing.indexOf(dir.resolve("c.png").toString())).isEqualTo(3);
+	    assertThat(listing.indexOf(dir.resolve("notes.txt").toString())).isEqualTo(-1);
+
+	    // Opening another file in the same folder keeps the listing
+	    index.open(dir.resolve("a.png").toString());
+	    assertThat(index.listing()).isSameAs(listing);
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Stepping should move by position, also from a file no longer listed")
+    void testStep(@TempDir final Path dir) throws Exception {
+	for (final var name : List.of("1.png", "3.png", "5.png")) {
+	    Files.createFile(dir.resolve(name));
+	}
+	final var changes = new Semaphore(0);
+	try (final var index = new FolderIndex(IMAGES, Runnable::run, changes::release)) {
+	    index.open(dir.resolve("1.png").toString());
+	    final var listing = awaitListing(index, changes, _ -> true);
+
+	    assertThat(listing.step(dir.resolve("1.png").toString(), 1)).isEqualTo(dir.resolve("3.png").toString());
+	    assertThat(listing.step(dir.resolve("1.png").toString(), -1)).isNull();
+	    assertThat(listing.step(dir.resolve("5.png").toString(), 1)).isNull();
+	    assertThat(listing.step(dir.resolve("4.png").toString(), 1)).isEqualTo(dir.resolve("5.png").toString());
+	    assertThat(listing.step(dir.resolve("4.png").toString(), -1)).isEqualTo(dir.resolve("3.png").toString());
+	    assertThat(listing.step(dir.resolve("0.png").toString(), -1)).isNull();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should follow files created and deleted after the folder was read")
+    void testWatch(@TempDir final Path dir) throws Exception {
+	Files.createFile(dir.resolve("a.png"));
+	final var changes = new Semaphore(0);
+	try (final var index = new FolderIndex(IMAGES, Runnable::run, changes::release)) {
+	    index.open(dir.resolve("a.png").toString());
+	    awaitListing(index, changes, listing -> listing.size() == 1);
+
+	    Files.createFile(dir.resolve("b.png"));
+	    Files.createFile(dir.resolve("ignored.txt"));
+	    assertThat(names(awaitListing(index, changes, listing -> listing.size() == 2))).containsExactly("a.png",
+		    "b.png");
+
+	    Files.delete(dir.resolve("a.png"));
+	    assertThat(names(awaitListing(index, changes, listing -> listing.size() == 1))).containsExactly("b.png");
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("A closed index should stop listing")
+    void testClose(@TempDir final Path dir) throws IOException {
+	Files.createFile(dir.resolve("a.png"));
+	final var index = new FolderIndex(IMAGES, Runnable::run, () -> {
+	    // Not needed
+	});
+	index.close();
+	index.open(dir.resolve("a.png").toString());
+	assertThat(index.listing()).isNull();
+    }
+}
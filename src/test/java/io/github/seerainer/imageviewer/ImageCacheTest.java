@@ -0,0 +1,173 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("integration")
+@DisplayName("ImageCache Integration Tests")
+class ImageCacheTest {
+
+    /** Bytes held for a 10x10 image: native RGBA plus SWT pixels and alpha. */
+    private static final long ENTRY_SIZE = 10 * 10 * 9;
+
+    private static boolean put(final ImageCache cache, final String filePath) {
+	final var image = TestImages.rgba(10, 10);
+	return cache.put(new ImageLoader.Result(filePath, image, ImageService.toImageData(image), 10, 10, null),
+		ImageCache.Stamp.of(filePath));
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Hits should return an independent copy and be counted")
+    void testHitsAndMisses() {
+	try (final var cache = new ImageCache(ENTRY_SIZE * 4)) {
+	    assertThat(cache.get("a")).isNull();
+	    assertThat(put(cache, "a")).isTrue();
+
+	    final var hit = cache.get("a");
+	    assertThat(hit).isNotNull();
+	    assertThat(hit.isSuccess()).isTrue();
+	    assertThat(hit.imageData().width).isEqualTo(10);
+	    hit.image().close();
+
+	    // Closing the copy leaves the cached image usable
+	    final var again = cache.get("a");
+	    assertThat(again).isNotNull();
+	    assertThat(again.image().width()).isEqualTo(10);
+	    again.image().close();
+
+	    assertThat(cache.hits()).isEqualTo(2);
+	    assertThat(cache.misses()).isEqualTo(1);
+	    assertThat(cache.sizeInBytes()).isEqualTo(ENTRY_SIZE);
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Removing an entry should free its space")
+    void testRemove() {
+	try (final var cache = new ImageCache(ENTRY_SIZE * 4)) {
+	    put(cache, "a");
+	    put(cache, "b");
+	    cache.remove("a");
+	    cache.remove("missing");
+	    assertThat(cache.contains("a")).isFalse();
+	    assertThat(cache.contains("b")).isTrue();
+	    assertThat(cache.sizeInBytes()).isEqualTo(ENTRY_SIZE);
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Without a priority list the least recently used entry should go first")
+    void testLeastRecentlyUsedEviction() {
+	try (final var cache = new ImageCache(ENTRY_SIZE * 2)) {
+	    put(cache, "a");
+	    put(cache, "b");
+	    cache.get("a").image().close();
+	    put(cache, "c");
+
+	    assertThat(cache.contains("a")).isTrue();
+	    assertThat(cache.contains("b")).isFalse();
+	    assertThat(cache.contains("c")).isTrue();
+	    assertThat(cache.sizeInBytes()).isLessThanOrEqualTo(cache.capacity());
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Entries furthest from the current image should go first")
+    void testPriorityEviction() {
+	try (final var cache = new ImageCache(ENTRY_SIZE * 3)) {
+	    cache.setPriority(List.of("current", "next", "previous", "after-next"));
+	    put(cache, "current");
+	    put(cache, "after-next");
+	    put(cache, "unrelated");
+	    put(cache, "next");
+
+	    assertThat(cache.contains("unrelated")).isFalse();
+	    assertThat(cache.contains("after-next")).isTrue();
+
+	    // A full cache refuses an image it would evict straight away
+	    assertThat(put(cache, "other")).isFalse();
+	    assertThat(put(cache, "previous")).isTrue();
+	    assertThat(cache.contains("after-next")).isFalse();
+	    assertThat(cache.contains("current")).isTrue();
+	    assertThat(cache.contains("next")).isTrue();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Entries on the priority list should outlast more recently used ones")
+    void testPriorityOverRecency() {
+	try (final var cache = new ImageCache(ENTRY_SIZE * 2)) {
+	    put(cache, "a");
+	    put(cache, "b");
+	    cache.setPriority(List.of("a"));
+	    cache.get("b").image().close();
+	    assertThat(put(cache, "c")).isTrue();
+
+	    assertThat(cache.contains("a")).isTrue();
+	    assertThat(cache.contains("b")).isFalse();
+	    assertThat(cache.contains("c")).isTrue();
+	    assertThat(cache.sizeInBytes()).isEqualTo(ENTRY_SIZE * 2);
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("A file changed by another program should be read again")
+    void testChangedFile(@TempDir final Path dir) throws IOException {
+	final var path = dir.resolve("changed.png");
+	try (final var image = TestImages.rgba(10, 10)) {
+	    assertThat(image.save(path.toString())).isTrue();
+	}
+
+	try (final var cache = new ImageCache(ENTRY_SIZE * 4)) {
+	    assertThat(put(cache, path.toString())).isTrue();
+	    assertThat(cache.contains(path.toString())).isTrue();
+
+	    Files.setLastModifiedTime(path, FileTime.fromMillis(Files.getLastModifiedTime(path).toMillis() - 60_000));
+	    assertThat(cache.get(path.toString())).isNull();
+	    assertThat(cache.contains(path.toString())).isFalse();
+	    assertThat(cache.sizeInBytes()).isZero();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("The prefetcher should decode neighbours into the cache")
+    void testPrefetch(@TempDir final Path dir) throws InterruptedException {
+	final var paths = List.of(dir.resolve("a.png").toString(), dir.resolve("b.png").toString(),
+		dir.resolve("c.png").toString());
+	for (final var path : paths) {
+	    try (final var image = TestImages.rgba(10, 10)) {
+		assertThat(image.save(path)).isTrue();
+	    }
+	}
+
+	try (final var cache = new ImageCache(ENTRY_SIZE * 8); final var prefetcher = new Prefetcher(cache)) {
+	    prefetcher.prefetch(paths, 64, 64);
+	    for (var i = 0; i < 200 && !(cache.contains(paths.get(1)) && cache.contains(paths.get(2))); i++) {
+		Thread.sleep(50);
+	    }
+
+	    // The first path is the image on screen and is never fetched
+	    assertThat(cache.contains(paths.get(0))).isFalse();
+	    assertThat(cache.contains(paths.get(1))).isTrue();
+	    assertThat(cache.contains(paths.get(2))).isTrue();
+	    assertThat(cache.misses()).isZero();
+	}
+    }
+}
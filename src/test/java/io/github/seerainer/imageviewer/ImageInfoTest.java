@@ -0,0 +1,43 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("unit")
+@DisplayName("ImageInfo Unit Tests")
+class ImageInfoTest {
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Probe values should map to the codes image_probe writes")
+    void testFromProbe() {
+	final var info = ImageInfo.fromProbe(new int[] { 640, 480, 1, 3, 12 });
+	assertThat(info).isEqualTo(new ImageInfo(640, 480, ImageInfo.ColorType.LA8, ImageInfo.Format.WEBP, 12));
+	assertThat(info.isAnimated()).isTrue();
+	assertThat(ImageInfo.fromProbe(new int[] { 1, 1, 10, 0, 1 })).isNull();
+	assertThat(ImageInfo.fromProbe(new int[] { 1, 1, 0, 15, 1 })).isNull();
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Codes should map to their colour type and format")
+    void testCodes() {
+	final var info = new ImageInfo(50_000, 50_000, ImageInfo.ColorType.RGB16, ImageInfo.Format.TIFF, 1);
+	assertThat(info.isAnimated()).isFalse();
+	assertThat(ImageInfo.ColorType.fromCode(6)).isEqualTo(ImageInfo.ColorType.RGB16);
+	assertThat(ImageInfo.Format.fromCode(11)).isEqualTo(ImageInfo.Format.OPEN_EXR);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("The description should give the size, the format and any frames")
+    void testDescribe() {
+	assertThat(new ImageInfo(6000, 4000, ImageInfo.ColorType.RGB8, ImageInfo.Format.JPEG, 1).describe())
+		.isEqualTo("6000 x 4000 JPEG");
+	assertThat(new ImageInfo(320, 240, ImageInfo.ColorType.RGBA8, ImageInfo.Format.WEBP, 12).describe())
+		.isEqualTo("320 x 240 WebP, 12 frames");
+    }
+}
@@ -0,0 +1,172 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("integration")
+@DisplayName("ImageLoader Integration Tests")
+class ImageLoaderTest {
+
+    /**
+     * Run queued callbacks until one delivers a result, then everything else
+     * still queued.
+     */
+    private static List<ImageLoader.Result> await(final BlockingQueue<Runnable> callbacks,
+	    final List<ImageLoader.Result> results) throws InterruptedException {
+	while (results.isEmpty()) {
+	    final var callback = callbacks.poll(10, TimeUnit.SECONDS);
+	    assertThat(callback).isNotNull();
+	    callback.run();
+	}
+	Runnable callback;
+	while ((callback = callbacks.poll()) != null) {
+	    callback.run();
+	}
+	return results;
+    }
+
+    private static String writeImage(final Path dir, final String name, final int width, final int height) {
+	final var path = dir.resolve(name).toString();
+	try (final var image = TestImages.rgba(width, height)) {
+	    assertThat(image.save(path)).isTrue();
+	}
+	return path;
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should decode in the background and deliver through the callback executor")
+    void testLoad(@TempDir final Path dir) throws InterruptedException {
+	final var path = writeImage(dir, "a.png", 30, 20);
+	final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+	final List<ImageLoader.Result> results = new ArrayList<>();
+
+	try (final var loader = new ImageLoader(callbacks::add)) {
+	    loader.load(path, results::add);
+	    await(callbacks, results);
+	}
+
+	assertThat(results).hasSize(1);
+	final var result = results.getFirst();
+	assertThat(result.isSuccess()).isTrue();
+	assertThat(result.filePath()).isEqualTo(path);
+	assertThat(result.imageData().width).isEqualTo(30);
+	assertThat(result.imageData().height).isEqualTo(20);
+	result.image().close();
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("A scaled load should fit the box, report the full size and fill the cache")
+    void testLoadScaled(@TempDir final Path dir) throws InterruptedException {
+	final var path = writeImage(dir, "a.png", 300, 200);
+	final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+	final List<ImageLoader.Result> results = new ArrayList<>();
+
+	try (final var cache = new ImageCache(1 << 20);
+		final var loader = new ImageLoader(callbacks::add, cache)) {
+	    loader.load(path, 60, 60, results::add);
+	    await(callbacks, results);
+	    assertThat(cache.contains(path)).isTrue();
+	}
+
+	final var result = results.getFirst();
+	assertThat(result.isScaled()).isTrue();
+	assertThat(result.imageData().width).isEqualTo(60);
+	assertThat(result.imageData().height).isEqualTo(40);
+	assertThat(result.sourceWidth()).isEqualTo(300);
+	assertThat(result.sourceHeight()).isEqualTo(200);
+	result.close();
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("The header should be delivered before the decoded image")
+    void testLoadWithInfo(@TempDir final Path dir) throws InterruptedException {
+	final var path = writeImage(dir, "a.png", 300, 200);
+	final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+	final List<ImageInfo> infos = new ArrayList<>();
+	final List<ImageLoader.Result> results = new ArrayList<>();
+
+	try (final var loader = new ImageLoader(callbacks::add)) {
+	    loader.load(path, 100, 100, info -> {
+		assertThat(results).isEmpty();
+		infos.add(info);
+	    }, results::add);
+	    await(callbacks, results);
+	}
+
+	assertThat(infos).hasSize(1);
+	assertThat(infos.getFirst().describe()).isEqualTo("300 x 200 PNG");
+	assertThat(results.getFirst().isSuccess()).isTrue();
+	results.getFirst().close();
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should report a file that cannot be decoded")
+    void testLoadMissingFile(@TempDir final Path dir) throws InterruptedException {
+	final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+	final List<ImageLoader.Result> results = new ArrayList<>();
+
+	try (final var loader = new ImageLoader(callbacks::add)) {
+	    loader.load(dir.resolve("missing.png").toString(), results::add);
+	    await(callbacks, results);
+	}
+
+	assertThat(results).hasSize(1);
+	assertThat(results.getFirst().isSuccess()).isFalse();
+	assertThat(results.getFirst().imageData()).isNull();
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Only the latest of several rapid requests should be delivered")
+    void testSupersededRequestsAreDropped(@TempDir final Path dir) throws InterruptedException {
+	final var first = writeImage(dir, "a.png", 64, 64);
+	final var second = writeImage(dir, "b.png", 32, 32);
+	final var third = writeImage(dir, "c.png", 16, 8);
+	final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+	final List<ImageLoader.Result> results = new ArrayList<>();
+
+	try (final var loader = new ImageLoader(callbacks::add)) {
+	    loader.load(first, results::add);
+	    loader.load(second, results::add);
+	    loader.cancel();
+	    loader.load(third, results::add);
+	    await(callbacks, results);
+	}
+
+	assertThat(results).hasSize(1);
+	assertThat(results.getFirst().filePath()).isEqualTo(third);
+	assertThat(results.getFirst().imageData().width).isEqualTo(16);
+	results.getFirst().image().close();
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("A closed loader should ignore new requests")
+    void testClosedLoaderIgnoresRequests(@TempDir final Path dir) throws InterruptedException {
+	final var path = writeImage(dir, "a.png", 4, 4);
+	final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+
+	final var loader = new ImageLoader(callbacks::add);
+	loader.close();
+	loader.load(path, _ -> {
+	    throw new AssertionError("Closed loader delivered a result");
+	});
+
+	assertThat(callbacks.poll(200, TimeUnit.MILLISECONDS)).isNull();
+    }
+}
@@ -0,0 +1,68 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("unit")
+@DisplayName("ImagePipeline Unit Tests")
+class ImagePipelineTest {
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("build should encode operations in order with their arguments")
+    void testEncoding() {
+	final var pipeline = ImagePipeline.builder().rotateRight().resize(640, 480, ResizeFilter.LANCZOS3)
+		.adjustContrast(12.5f).grayscale().build();
+
+	assertThat(pipeline.size()).isEqualTo(4);
+	assertThat(pipeline.encoded()).containsExactly(0, 0, 0, 0, 0, 5, 640, 480, 4, 0, 7, 0, 0, 0,
+		Float.floatToRawIntBits(12.5f), 9, 0, 0, 0, 0);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Every operation should have its own code")
+    void testOperationCodes() {
+	final var encoded = ImagePipeline.builder().rotateRight().rotate180().rotateLeft().flipHorizontal()
+		.flipVertical().resize(1, 1, ResizeFilter.NEAREST).adjustBrightness(-20).adjustContrast(1f).blur(2f)
+		.grayscale().invert().build().encoded();
+
+	for (var i = 0; i < encoded.length / ImagePipeline.OP_SIZE; i++) {
+	    assertThat(encoded[i * ImagePipeline.OP_SIZE]).isEqualTo(i);
+	}
+	assertThat(Float.intBitsToFloat(encoded[6 * ImagePipeline.OP_SIZE + 4])).isEqualTo(-20f);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("A builder should grow past its initial capacity and stay reusable after build")
+    void testBuilderReuse() {
+	final var builder = ImagePipeline.builder();
+	assertThat(builder.build().isEmpty()).isTrue();
+
+	for (var i = 0; i < 20; i++) {
+	    builder.invert();
+	}
+	final var first = builder.build();
+	final var second = builder.flipVertical().build();
+
+	assertThat(first.size()).isEqualTo(20);
+	assertThat(second.size()).isEqualTo(21);
+	assertThat(second.encoded()).startsWith(first.encoded());
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("resize should reject non-positive sizes")
+    void testResizeInvalidSize() {
+	final var builder = ImagePipeline.builder();
+	assertThatThrownBy(() -> builder.resize(0, 10, ResizeFilter.NEAREST))
+		.isInstanceOf(IllegalArgumentException.class);
+	assertThatThrownBy(() -> builder.resize(10, -1, ResizeFilter.NEAREST))
+		.isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.foreign.ValueLayout;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("integration")
+@DisplayName("ImagePyramid Integration Tests")
+class ImagePyramidTest {
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should pick the smallest level that covers the size, building only what it needs")
+    void testLevelFor() {
+	try (final var base = TestImages.rgba(64, 40); final var pyramid = new ImagePyramid(base)) {
+	    assertThat(pyramid.levelFor(64, 40)).isSameAs(base);
+	    assertThat(pyramid.levelFor(100, 10)).isSameAs(base);
+	    // Picking a level is arithmetic; nothing is built until it is asked for
+	    assertThat(pyramid.indexFor(5, 5)).isEqualTo(3);
+	    assertThat(pyramid.indexFor(1, 1)).isEqualTo(6);
+	    assertThat(pyramid.builtLevels()).isZero();
+
+	    final var half = pyramid.levelFor(30, 20);
+	    assertThat(half.width()).isEqualTo(32);
+	    assertThat(half.height()).isEqualTo(20);
+	    assertThat(pyramid.builtLevels()).isEqualTo(1);
+
+	    final var eighth = pyramid.levelFor(5, 5);
+	    assertThat(eighth.width()).isEqualTo(8);
+	    assertThat(eighth.height()).isEqualTo(5);
+	    assertThat(pyramid.builtLevels()).isEqualTo(3);
+	    assertThat(pyramid.level(1)).isSameAs(half);
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should stop at a single pixel")
+    void testSmallestLevel() {
+	try (final var base = TestImages.rgba(5, 3); final var pyramid = new ImagePyramid(base)) {
+	    final var smallest = pyramid.levelFor(1, 1);
+	    assertThat(smallest.width()).isEqualTo(1);
+	    assertThat(smallest.height()).isEqualTo(1);
+	    assertThat(pyramid.level(pyramid.builtLevels() + 1)).isNull();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Prepared levels should match the ones built in place, and only be kept while wanted")
+    void testPrepare() {
+	final var guard = new Object();
+	try (final var base = TestImages.rgba(64, 40);
+		final var pyramid = new ImagePyramid(base);
+		final var other = new ImagePyramid(base)) {
+	    assertThat(pyramid.prepare(2, guard, () -> false)).isFalse();
+	    assertThat(pyramid.builtLevels()).isZero();
+
+	    assertThat(pyramid.prepare(2, guard, () -> true)).isTrue();
+	    assertThat(pyramid.builtLevels()).isEqualTo(2);
+	    assertThat(RustImageLib.pixels(pyramid.level(2).handle()).toArray(ValueLayout.JAVA_BYTE))
+		    .isEqualTo(RustImageLib.pixels(other.level(2).handle()).toArray(ValueLayout.JAVA_BYTE));
+	    assertThat(pyramid.prepare(0, guard, () -> true)).isTrue();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Closing the pyramid should leave the base image open")
+    void testCloseKeepsBase() {
+	try (final var base = TestImages.rgba(16, 16)) {
+	    final var pyramid = new ImagePyramid(base);
+	    assertThat(pyramid.levelFor(4, 4).width()).isEqualTo(4);
+	    pyramid.close();
+
+	    assertThat(pyramid.builtLevels()).isZero();
+	    assertThat(base.width()).isEqualTo(16);
+	    try (final var copy = base.copy()) {
+		assertThat(copy).isNotNull();
+	    }
+	}
+    }
+}
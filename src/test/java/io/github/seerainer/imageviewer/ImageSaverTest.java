@@ -0,0 +1,153 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.foreign.ValueLayout;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("integration")
+@DisplayName("ImageSaver Integration Tests")
+class ImageSaverTest {
+
+    private static byte[] pixels(final NativeImage image) {
+	return RustImageLib.pixels(image.handle()).toArray(ValueLayout.JAVA_BYTE);
+    }
+
+    private static ImageSaver.Result await(final BlockingQueue<Runnable> callbacks,
+	    final BlockingQueue<ImageSaver.Result> results) throws InterruptedException {
+	final var callback = callbacks.poll(10, TimeUnit.SECONDS);
+	assertThat(callback).isNotNull();
+	callback.run();
+	return results.poll();
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should write a snapshot in the background while the document keeps changing")
+    void testSaveSnapshot(@TempDir final Path dir) throws InterruptedException {
+	final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+	final BlockingQueue<ImageSaver.Result> results = new LinkedBlockingQueue<>();
+	final var path = dir.resolve("snapshot.png").toString();
+
+	try (final var saver = new ImageSaver(callbacks::add); final var document = TestImages.rgba(64, 48, i -> i * 7 + i / 3)) {
+	    final var expected = pixels(document);
+	    assertThat(saver.save(document.copy(), path, SaveOptions.DEFAULT, results::add)).isTrue();
+	    document.invert();
+
+	    final var result = await(callbacks, results);
+	    assertThat(result.success()).isTrue();
+	    assertThat(result.filePath()).isEqualTo(path);
+	    try (final var saved = NativeImage.load(path)) {
+		assertThat(pixels(saved)).isEqualTo(expected);
+	    }
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Encoder settings should trade file size for quality")
+    void testOptions(@TempDir final Path dir) throws Exception {
+	final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+	final BlockingQueue<ImageSaver.Result> results = new LinkedBlockingQueue<>();
+	final var high = dir.resolve("high.jpg");
+	final var low = dir.resolve("low.jpg");
+
+	try (final var saver = new ImageSaver(callbacks::add); final var document = TestImages.rgba(96, 64, i -> i * 7 + i / 3)) {
+	    saver.save(document.copy(), high.toString(), SaveOptions.DEFAULT.withJpegQuality(95), results::add);
+	    saver.save(document.copy(), low.toString(), SaveOptions.DEFAULT.withJpegQuality(20), results::add);
+	    assertThat(await(callbacks, results).success()).isTrue();
+	    assertThat(await(callbacks, results).success()).isTrue();
+	}
+	assertThat(Files.size(low)).isLessThan(Files.size(high));
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("A JPEG should be turned without re-encoding, anything else by re-encoding")
+    void testReorient(@TempDir final Path dir) throws Exception {
+	final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+	final BlockingQueue<ImageSaver.Result> results = new LinkedBlockingQueue<>();
+	final var jpeg = dir.resolve("photo.jpg").toString();
+	final var turnedJpeg = dir.resolve("turned.jpg").toString();
+	final var png = dir.resolve("image.png").toString();
+	final var turnedPng = dir.resolve("turned.png").toString();
+
+	try (final var saver = new ImageSaver(callbacks::add); final var document = TestImages.rgba(40, 24, i -> i * 7 + i / 3)) {
+	    assertThat(document.save(jpeg, SaveOptions.DEFAULT)).isTrue();
+	    assertThat(document.save(png, SaveOptions.DEFAULT)).isTrue();
+
+	    saver.reorient(jpeg, turnedJpeg, Orientation.ROTATE_RIGHT, SaveOptions.DEFAULT, results::add);
+	    final var lossless = await(callbacks, results);
+	    assertThat(lossless.success()).isTrue();
+	    assertThat(lossless.lossless()).isTrue();
+	    try (final var original = NativeImage.load(jpeg); final var turned = NativeImage.load(turnedJpeg)) {
+		// The same compressed data, decoded and turned the same way
+		Orientation.ROTATE_RIGHT.apply(original);
+		assertThat(turned.width()).isEqualTo(24);
+		assertThat(pixels(turned)).isEqualTo(pixels(original));
+	    }
+
+	    saver.reorient(png, turnedPng, Orientation.FLIP_VERTICAL, SaveOptions.DEFAULT, results::add);
+	    final var reencoded = await(callbacks, results);
+	    assertThat(reencoded.success()).isTrue();
+	    assertThat(reencoded.lossless()).isFalse();
+	    try (final var turned = NativeImage.load(turnedPng)) {
+		document.flipVertical();
+		assertThat(pixels(turned)).isEqualTo(pixels(document));
+	    }
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("An action queued after a save should see the file written")
+    void testAfterSaves(@TempDir final Path dir) throws InterruptedException {
+	final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+	final BlockingQueue<ImageSaver.Result> results = new LinkedBlockingQueue<>();
+	final var path = dir.resolve("pending.png");
+
+	try (final var saver = new ImageSaver(callbacks::add); final var document = TestImages.rgba(256, 192, i -> i * 7 + i / 3)) {
+	    saver.save(document.copy(), path.toString(), SaveOptions.DEFAULT, results::add);
+	    final var written = new boolean[1];
+	    assertThat(saver.afterSaves(() -> written[0] = Files.exists(path))).isTrue();
+
+	    assertThat(await(callbacks, results).success()).isTrue();
+	    final var action = callbacks.poll(10, TimeUnit.SECONDS);
+	    assertThat(action).isNotNull();
+	    action.run();
+	    assertThat(written[0]).isTrue();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Failures should be reported, and a closed saver should refuse new work")
+    void testFailures(@TempDir final Path dir) throws InterruptedException {
+	final BlockingQueue<Runnable> callbacks = new LinkedBlockingQueue<>();
+	final BlockingQueue<ImageSaver.Result> results = new LinkedBlockingQueue<>();
+	final var missing = dir.resolve("no such folder").resolve("image.png").toString();
+
+	final var saver = new ImageSaver(callbacks::add);
+	try (final var document = TestImages.rgba(8, 8, i -> i * 7 + i / 3)) {
+	    saver.save(document.copy(), missing, SaveOptions.DEFAULT, results::add);
+	    assertThat(await(callbacks, results).success()).isFalse();
+
+	    saver.close();
+	    assertThat(saver.save(document.copy(), dir.resolve("late.png").toString(), SaveOptions.DEFAULT,
+		    results::add)).isFalse();
+	    assertThat(saver.afterSaves(() -> {
+		// Never runs
+	    })).isFalse();
+	}
+	assertThat(callbacks).isEmpty();
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.foreign.ValueLayout;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("integration")
+@DisplayName("NativeImage Integration Tests")
+class NativeImageTest {
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should apply a chain of edits in place")
+    void testEditChain() {
+	try (final var image = TestImages.rgba(40, 20)) {
+	    assertThat(image.rotateRight()).isTrue();
+	    assertThat(image.flipHorizontal()).isTrue();
+	    assertThat(image.invert()).isTrue();
+	    assertThat(image.adjustBrightness(10)).isTrue();
+
+	    assertThat(image.width()).isEqualTo(20);
+	    assertThat(image.height()).isEqualTo(40);
+	    assertThat(image.sizeInBytes()).isEqualTo(20L * 40 * 4);
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("A pipeline should match the same edits applied one by one")
+    void testPipelineMatchesEditChain() {
+	try (final var expected = TestImages.rgba(40, 20); final var actual = TestImages.rgba(40, 20)) {
+	    assertThat(expected.rotateRight()).isTrue();
+	    assertThat(expected.adjustContrast(20f)).isTrue();
+	    assertThat(expected.flipHorizontal()).isTrue();
+	    assertThat(expected.invert()).isTrue();
+	    assertThat(expected.adjustBrightness(10)).isTrue();
+
+	    final var pipeline = ImagePipeline.builder().rotateRight().adjustContrast(20f).flipHorizontal().invert()
+		    .adjustBrightness(10).build();
+	    assertThat(actual.apply(pipeline)).isTrue();
+
+	    assertThat(actual.width()).isEqualTo(expected.width());
+	    assertThat(actual.height()).isEqualTo(expected.height());
+	    assertThat(RustImageLib.pixels(actual.handle()).toArray(ValueLayout.JAVA_BYTE))
+		    .isEqualTo(RustImageLib.pixels(expected.handle()).toArray(ValueLayout.JAVA_BYTE));
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("A pipeline with an invalid operation should leave the image untouched")
+    void testPipelineInvalidResize() {
+	try (final var image = TestImages.rgba(8, 8)) {
+	    final var before = RustImageLib.pixels(image.handle()).toArray(ValueLayout.JAVA_BYTE);
+	    final var encoded = ImagePipeline.builder().invert().resize(4, 4, ResizeFilter.NEAREST).build().encoded();
+	    encoded[ImagePipeline.OP_SIZE + 1] = 0;
+
+	    assertThat(ImageResult.fromCode(RustImageLib.applyPipeline(image.handle(), encoded)))
+		    .isEqualTo(ImageResult.ERROR_INVALID_ARGUMENT);
+	    assertThat(RustImageLib.pixels(image.handle()).toArray(ValueLayout.JAVA_BYTE)).isEqualTo(before);
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Copies should be independent of the original")
+    void testCopyIsIndependent() {
+	try (final var image = TestImages.rgba(8, 8); final var copy = image.copy()) {
+	    assertThat(copy).isNotNull();
+	    final var before = RustImageLib.pixels(image.handle()).toArray(ValueLayout.JAVA_BYTE);
+
+	    assertThat(copy.invert()).isTrue();
+
+	    assertThat(RustImageLib.pixels(image.handle()).toArray(ValueLayout.JAVA_BYTE)).isEqualTo(before);
+	    assertThat(RustImageLib.pixels(copy.handle()).toArray(ValueLayout.JAVA_BYTE)).isNotEqualTo(before);
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Regions should match the same pixels of a full resize")
+    void testResizeRegionMatchesResize() {
+	try (final var image = TestImages.rgba(30, 20); final var full = image.copy()) {
+	    assertThat(full.resize(75, 50, ResizeFilter.CATMULL_ROM)).isTrue();
+	    final var expected = RustImageLib.pixels(full.handle()).toArray(ValueLayout.JAVA_BYTE);
+
+	    try (final var region = image.resizeRegion(75, 50, 40, 10, 35, 30, ResizeFilter.CATMULL_ROM)) {
+		assertThat(region).isNotNull();
+		assertThat(region.width()).isEqualTo(35);
+		assertThat(region.height()).isEqualTo(30);
+		final var actual = RustImageLib.pixels(region.handle()).toArray(ValueLayout.JAVA_BYTE);
+		for (var y = 0; y < 30; y++) {
+		    final var from = ((10 + y) * 75 + 40) * 4;
+		    assertThat(Arrays.copyOfRange(actual, y * 35 * 4, (y + 1) * 35 * 4))
+			    .isEqualTo(Arrays.copyOfRange(expected, from, from + 35 * 4));
+		}
+	    }
+
+	    // Past the right edge of the resized image
+	    assertThat(image.resizeRegion(75, 50, 60, 0, 20, 10, ResizeFilter.CATMULL_ROM)).isNull();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Closing should free the handle exactly once")
+    void testClose() {
+	final var image = TestImages.rgba(4, 4);
+	image.close();
+
+	assertThat(image.isClosed()).isTrue();
+	assertThatCode(image::close).doesNotThrowAnyException();
+	assertThatThrownBy(image::width).isInstanceOf(IllegalStateException.class);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("load should return null for non-existent file")
+    void testLoadNonExistentFile() {
+	assertThat(NativeImage.load("nonexistent_file.png")).isNull();
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("wrap should return null for null handle")
+    void testWrapNullHandle() {
+	assertThat(NativeImage.wrap(null)).isNull();
+    }
+}
@@ -0,0 +1,93 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("unit")
+@DisplayName("Orientation Unit Tests")
+class OrientationTest {
+
+    private static final int[][] GRID = { { 1, 2, 3 }, { 4, 5, 6 } };
+
+    private static List<Orientation> all() {
+	final List<Orientation> all = new ArrayList<>();
+	for (var turns = 0; turns < 4; turns++) {
+	    all.add(new Orientation(turns, false));
+	    all.add(new Orientation(turns, true));
+	}
+	return all;
+    }
+
+    /**
+     * Turn and mirror a grid the way the native kernels turn pixels.
+     */
+    private static int[][] apply(final Orientation orientation, final int[][] grid) {
+	var result = grid;
+	for (var i = 0; i < orientation.quarterTurns(); i++) {
+	    final var rows = result.length;
+	    final var columns = result[0].length;
+	    final var turned = new int[columns][rows];
+	    for (var y = 0; y < rows; y++) {
+		for (var x = 0; x < columns; x++) {
+		    turned[x][rows - 1 - y] = result[y][x];
+		}
+	    }
+	    result = turned;
+	}
+	if (orientation.flip()) {
+	    final var mirrored = new int[result.length][];
+	    for (var y = 0; y < result.length; y++) {
+		mirrored[y] = new int[result[y].length];
+		for (var x = 0; x < result[y].length; x++) {
+		    mirrored[y][result[y].length - 1 - x] = result[y][x];
+		}
+	    }
+	    result = mirrored;
+	}
+	return result;
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Combining two orientations should match applying them one after the other")
+    void testThen() {
+	for (final var first : all()) {
+	    for (final var second : all()) {
+		assertThat(apply(first.then(second), GRID)).as("%s then %s", first, second)
+			.isEqualTo(apply(second, apply(first, GRID)));
+	    }
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("An orientation followed by its inverse should be the identity")
+    void testInverse() {
+	for (final var orientation : all()) {
+	    assertThat(orientation.then(orientation.inverse())).isEqualTo(Orientation.IDENTITY);
+	    assertThat(orientation.inverse().then(orientation)).isEqualTo(Orientation.IDENTITY);
+	}
+	assertThat(Orientation.ROTATE_RIGHT.inverse()).isEqualTo(Orientation.ROTATE_LEFT);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Named orientations should turn and mirror as their names say")
+    void testConstants() {
+	assertThat(apply(Orientation.ROTATE_RIGHT, GRID)).isEqualTo(new int[][] { { 4, 1 }, { 5, 2 }, { 6, 3 } });
+	assertThat(apply(Orientation.ROTATE_LEFT, GRID)).isEqualTo(new int[][] { { 3, 6 }, { 2, 5 }, { 1, 4 } });
+	assertThat(apply(Orientation.FLIP_HORIZONTAL, GRID)).isEqualTo(new int[][] { { 3, 2, 1 }, { 6, 5, 4 } });
+	assertThat(apply(Orientation.FLIP_VERTICAL, GRID)).isEqualTo(new int[][] { { 4, 5, 6 }, { 1, 2, 3 } });
+	assertThat(Orientation.IDENTITY.isIdentity()).isTrue();
+	assertThat(Orientation.ROTATE_RIGHT.swapsAxes()).isTrue();
+	assertThat(Orientation.FLIP_VERTICAL.swapsAxes()).isFalse();
+	assertThatThrownBy(() -> new Orientation(4, false)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
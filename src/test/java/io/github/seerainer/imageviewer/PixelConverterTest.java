@@ -0,0 +1,154 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.eclipse.swt.graphics.ImageData;
+import org.eclipse.swt.graphics.PaletteData;
+import org.eclipse.swt.graphics.RGB;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+@Tag("unit")
+@DisplayName("PixelConverter Unit Tests")
+class PixelConverterTest {
+
+    private static final int[] WIDTHS = { 1, 7, 33 };
+
+    private static ImageData createDirect(final int width, final int depth, final int redMask, final int greenMask,
+	    final int blueMask, final boolean withAlpha) {
+	final var imageData = new ImageData(width, 5, depth, new PaletteData(redMask, greenMask, blueMask));
+	final var random = new Random(width * 31L + depth);
+	final var limit = depth == 32 ? -1 : (1 << depth) - 1;
+	for (var y = 0; y < imageData.height; y++) {
+	    for (var x = 0; x < width; x++) {
+		imageData.setPixel(x, y, random.nextInt() & limit);
+	    }
+	}
+	if (withAlpha) {
+	    fillAlpha(imageData, random);
+	}
+	return imageData;
+    }
+
+    private static ImageData createIndexed(final int width, final int depth, final int colorCount,
+	    final boolean withAlpha) {
+	final var random = new Random(width * 17L + depth);
+	final var colors = new RGB[colorCount];
+	for (var i = 0; i < colors.length; i++) {
+	    colors[i] = new RGB(random.nextInt(256), random.nextInt(256), random.nextInt(256));
+	}
+	final var imageData = new ImageData(width, 5, depth, new PaletteData(colors));
+	for (var y = 0; y < imageData.height; y++) {
+	    for (var x = 0; x < width; x++) {
+		imageData.setPixel(x, y, random.nextInt(colorCount));
+	    }
+	}
+	if (withAlpha) {
+	    fillAlpha(imageData, random);
+	}
+	return imageData;
+    }
+
+    private static void fillAlpha(final ImageData imageData, final Random random) {
+	imageData.alphaData = new byte[imageData.width * imageData.height];
+	random.nextBytes(imageData.alphaData);
+    }
+
+    static Stream<Arguments> layouts() {
+	final var builder = Stream.<Arguments>builder();
+	for (final var width : WIDTHS) {
+	    for (final var alpha : new boolean[] { false, true }) {
+		builder.add(Arguments.of("32bpp RGBX", createDirect(width, 32, 0xFF000000, 0xFF0000, 0xFF00, alpha)));
+		builder.add(Arguments.of("32bpp BGRX", createDirect(width, 32, 0xFF00, 0xFF0000, 0xFF000000, alpha)));
+		builder.add(Arguments.of("32bpp XRGB", createDirect(width, 32, 0xFF0000, 0xFF00, 0xFF, alpha)));
+		builder.add(Arguments.of("32bpp XBGR", createDirect(width, 32, 0xFF, 0xFF00, 0xFF0000, alpha)));
+		builder.add(Arguments.of("32bpp 10-bit", createDirect(width, 32, 0x3FF00000, 0xFFC00, 0x3FF, alpha)));
+		builder.add(Arguments.of("24bpp RGB", createDirect(width, 24, 0xFF0000, 0xFF00, 0xFF, alpha)));
+		builder.add(Arguments.of("24bpp BGR", createDirect(width, 24, 0xFF, 0xFF00, 0xFF0000, alpha)));
+		builder.add(Arguments.of("16bpp 555", createDirect(width, 16, 0x7C00, 0x3E0, 0x1F, alpha)));
+		builder.add(Arguments.of("16bpp 565", createDirect(width, 16, 0xF800, 0x7E0, 0x1F, alpha)));
+		builder.add(Arguments.of("8bpp 332", createDirect(width, 8, 0xE0, 0x1C, 0x3, alpha)));
+		builder.add(Arguments.of("1bpp indexed", createIndexed(width, 1, 2, alpha)));
+		builder.add(Arguments.of("2bpp indexed", createIndexed(width, 2, 4, alpha)));
+		builder.add(Arguments.of("4bpp indexed", createIndexed(width, 4, 16, alpha)));
+		builder.add(Arguments.of("8bpp indexed", createIndexed(width, 8, 256, alpha)));
+		builder.add(Arguments.of("8bpp short palette", createIndexed(width, 8, 37, alpha)));
+	    }
+	}
+	return builder.build();
+    }
+
+    /**
+     * The per-pixel conversion ImageService used before PixelConverter existed.
+     */
+    private static byte[] referenceRgba(final ImageData imageData) {
+	final var width = imageData.width;
+	final var height = imageData.height;
+	final var rgbaData = new byte[width * height * 4];
+	final var palette = imageData.palette;
+
+	var rgbaIndex = 0;
+	for (var y = 0; y < height; y++) {
+	    for (var x = 0; x < width; x++) {
+		final var pixel = imageData.getPixel(x, y);
+		final var rgb = palette.getRGB(pixel);
+
+		rgbaData[rgbaIndex++] = (byte) rgb.red;
+		rgbaData[rgbaIndex++] = (byte) rgb.green;
+		rgbaData[rgbaIndex++] = (byte) rgb.blue;
+
+		if (imageData.alphaData != null) {
+		    rgbaData[rgbaIndex++] = imageData.alphaData[y * width + x];
+		} else {
+		    rgbaData[rgbaIndex++] = (byte) 0xFF;
+		}
+	    }
+	}
+	return rgbaData;
+    }
+
+    @SuppressWarnings("static-method")
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("layouts")
+    @DisplayName("toRgba should match the per-pixel conversion byte for byte")
+    void testMatchesPerPixelConversion(final String layout, final ImageData imageData) {
+	assertThat(PixelConverter.of(imageData).toRgba()).as(layout).isEqualTo(referenceRgba(imageData));
+    }
+
+    @SuppressWarnings("static-method")
+    @ParameterizedTest(name = "{0}")
+    @MethodSource("layouts")
+    @DisplayName("convertRow should honour the destination offset")
+    void testConvertRowOffset(final String layout, final ImageData imageData) {
+	final var stride = imageData.width * 4;
+	final var expected = referenceRgba(imageData);
+	final var converter = PixelConverter.of(imageData);
+	final var row = new byte[stride + 3];
+	for (var y = 0; y < imageData.height; y++) {
+	    converter.convertRow(y, row, 3);
+	    for (var i = 0; i < stride; i++) {
+		assertThat(row[i + 3]).as("%s row %d byte %d", layout, Integer.valueOf(y), Integer.valueOf(i))
+			.isEqualTo(expected[y * stride + i]);
+	    }
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("toRgba should reject pixels outside the palette like PaletteData does")
+    void testInvalidPaletteIndex() {
+	final var imageData = new ImageData(4, 1, 8, new PaletteData(new RGB(0, 0, 0), new RGB(255, 255, 255)));
+	imageData.setPixel(2, 0, 9);
+
+	assertThatThrownBy(() -> referenceRgba(imageData)).isInstanceOf(IllegalArgumentException.class);
+	assertThatThrownBy(() -> PixelConverter.of(imageData).toRgba()).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,64 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("unit")
+@DisplayName("SaveOptions Unit Tests")
+class SaveOptionsTest {
+
+    @SuppressWarnings("static-method")
+    @AfterEach
+    void clearProperties() {
+	System.clearProperty("imageviewer.jpegQuality");
+	System.clearProperty("imageviewer.pngCompression");
+	System.clearProperty("imageviewer.pngFilter");
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Codes should match the ones image_save_with_options expects")
+    void testCodes() {
+	assertThat(SaveOptions.PngCompression.FAST.getCode()).isZero();
+	assertThat(SaveOptions.PngCompression.BEST.getCode()).isEqualTo(2);
+	assertThat(SaveOptions.PngFilter.NONE.getCode()).isZero();
+	assertThat(SaveOptions.PngFilter.PAETH.getCode()).isEqualTo(4);
+	assertThat(SaveOptions.PngFilter.ADAPTIVE.getCode()).isEqualTo(5);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("JPEG quality outside 1 to 100 should be rejected")
+    void testQualityRange() {
+	assertThat(SaveOptions.DEFAULT.withJpegQuality(1).jpegQuality()).isEqualTo(1);
+	assertThat(SaveOptions.DEFAULT.withJpegQuality(100).jpegQuality()).isEqualTo(100);
+	assertThatThrownBy(() -> SaveOptions.DEFAULT.withJpegQuality(0)).isInstanceOf(IllegalArgumentException.class);
+	assertThatThrownBy(() -> SaveOptions.DEFAULT.withJpegQuality(101))
+		.isInstanceOf(IllegalArgumentException.class);
+	assertThatThrownBy(() -> SaveOptions.DEFAULT.withPng(null, SaveOptions.PngFilter.UP))
+		.isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("System properties should override the defaults, and invalid values should be ignored")
+    void testFromSystemProperties() {
+	assertThat(SaveOptions.fromSystemProperties()).isEqualTo(SaveOptions.DEFAULT);
+
+	System.setProperty("imageviewer.jpegQuality", "92");
+	System.setProperty("imageviewer.pngCompression", "best");
+	System.setProperty("imageviewer.pngFilter", " Paeth ");
+	assertThat(SaveOptions.fromSystemProperties())
+		.isEqualTo(new SaveOptions(92, SaveOptions.PngCompression.BEST, SaveOptions.PngFilter.PAETH));
+
+	System.setProperty("imageviewer.jpegQuality", "500");
+	System.setProperty("imageviewer.pngCompression", "maximum");
+	System.setProperty("imageviewer.pngFilter", "");
+	assertThat(SaveOptions.fromSystemProperties()).isEqualTo(SaveOptions.DEFAULT);
+    }
+}
@@ -0,0 +1,143 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("unit")
+@DisplayName("SingleInstance Unit Tests")
+class SingleInstanceTest {
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should create a missing socket folder that only the user can use")
+    void testCreatesPrivateFolder(@TempDir final Path dir) throws IOException {
+	final var socket = dir.resolve("run").resolve("viewer.sock");
+	try (final var instance = SingleInstance.listen(socket, Runnable::run, _ -> {
+	    // Not needed
+	})) {
+	    assertThat(instance).isNotNull();
+	    assertThat(PosixFilePermissions.toString(Files.getPosixFilePermissions(socket.getParent())))
+		    .isEqualTo("rwx------");
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should hand a file to the listening instance")
+    void testHandOff(@TempDir final Path dir) throws InterruptedException {
+	final var socket = dir.resolve("viewer.sock");
+	final BlockingQueue<String> opened = new LinkedBlockingQueue<>();
+	try (final var instance = SingleInstance.listen(socket, Runnable::run, opened::add)) {
+	    assertThat(instance).isNotNull();
+	    // Sent as UTF-8 whatever the platform encoding
+	    final var filePath = "/photos/Ferienfotos ä/IMG 0001.jpg";
+	    assertThat(SingleInstance.handOff(socket, filePath)).isTrue();
+	    assertThat(opened.poll(5, TimeUnit.SECONDS)).isEqualTo(filePath);
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should not hand off once no instance is listening")
+    void testNoInstance(@TempDir final Path dir) {
+	final var socket = dir.resolve("viewer.sock");
+	assertThat(SingleInstance.handOff(socket, "/tmp/a.png")).isFalse();
+	try (final var instance = SingleInstance.listen(socket, Runnable::run, _ -> {
+	    // Not needed
+	})) {
+	    assertThat(instance).isNotNull();
+	}
+	assertThat(socket).doesNotExist();
+	assertThat(SingleInstance.handOff(socket, "/tmp/a.png")).isFalse();
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should leave the socket to the instance already listening")
+    void testSecondInstance(@TempDir final Path dir) throws InterruptedException {
+	final var socket = dir.resolve("viewer.sock");
+	final BlockingQueue<String> opened = new LinkedBlockingQueue<>();
+	try (final var first = SingleInstance.listen(socket, Runnable::run, opened::add)) {
+	    assertThat(first).isNotNull();
+	    assertThat(SingleInstance.listen(socket, Runnable::run, _ -> {
+		// Not needed
+	    })).isNull();
+	    // The probe sent nothing to open
+	    assertThat(opened.poll(200, TimeUnit.MILLISECONDS)).isNull();
+	    assertThat(SingleInstance.handOff(socket, "/tmp/b.png")).isTrue();
+	    assertThat(opened.poll(5, TimeUnit.SECONDS)).isEqualTo("/tmp/b.png");
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should not use a socket in a folder that others can write to")
+    void testSharedFolder(@TempDir final Path dir) throws IOException {
+	final var socket = dir.resolve("viewer.sock");
+	final BlockingQueue<String> opened = new LinkedBlockingQueue<>();
+	try (final var instance = SingleInstance.listen(socket, Runnable::run, opened::add)) {
+	    assertThat(instance).isNotNull();
+	    // Anyone could have put the socket there
+	    Files.setPosixFilePermissions(dir, PosixFilePermissions.fromString("rwxrwxrwx"));
+	    assertThat(SingleInstance.handOff(socket, "/tmp/d.png")).isFalse();
+	    assertThat(opened).isEmpty();
+	}
+	assertThat(SingleInstance.listen(socket, Runnable::run, opened::add)).isNull();
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @Timeout(10)
+    @DisplayName("Should drop a sender that never finishes its message")
+    void testSilentSender(@TempDir final Path dir) throws IOException {
+	final var socket = dir.resolve("viewer.sock");
+	final BlockingQueue<String> opened = new LinkedBlockingQueue<>();
+	try (final var instance = SingleInstance.listen(socket, Runnable::run, opened::add);
+		final var client = SocketChannel.open(UnixDomainSocketAddress.of(socket))) {
+	    assertThat(instance).isNotNull();
+	    // The output is never shut down, so the message never ends
+	    client.write(ByteBuffer.wrap("/tmp/e.png".getBytes(StandardCharsets.UTF_8)));
+	    final var start = System.nanoTime();
+	    assertThat(client.read(ByteBuffer.allocate(1))).isEqualTo(-1);
+	    assertThat((System.nanoTime() - start) / 1_000_000L).isLessThan(3 * SingleInstance.HANDOFF_TIMEOUT_MS);
+	    assertThat(opened).isEmpty();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Should replace a socket left behind by an instance that is gone")
+    void testStaleSocket(@TempDir final Path dir) throws IOException {
+	final var socket = dir.resolve("viewer.sock");
+	// Closing without deleting leaves the file, as a crash would
+	try (final var crashed = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+	    crashed.bind(UnixDomainSocketAddress.of(socket));
+	}
+	assertThat(socket).exists();
+	assertThat(SingleInstance.handOff(socket, "/tmp/c.png")).isFalse();
+	try (final var instance = SingleInstance.listen(socket, Runnable::run, _ -> {
+	    // Not needed
+	})) {
+	    assertThat(instance).isNotNull();
+	}
+    }
+}
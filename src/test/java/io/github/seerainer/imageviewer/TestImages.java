@@ -0,0 +1,33 @@
+package io.github.seerainer.imageviewer;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Native images for tests, filled with a repeatable pattern.
+ */
+final class TestImages {
+
+    private TestImages() {
+	throw new UnsupportedOperationException("This class cannot be instantiated");
+    }
+
+    /**
+     * @return Image whose bytes count up from 0, wrapping at 256
+     */
+    static NativeImage rgba(final int width, final int height) {
+	return rgba(width, height, i -> i);
+    }
+
+    /**
+     * @param fill Value of each RGBA byte by its index; only the low byte is
+     *             kept
+     * @return Image filled by the function
+     */
+    static NativeImage rgba(final int width, final int height, final IntUnaryOperator fill) {
+	final var rgba = new byte[width * height * 4];
+	for (var i = 0; i < rgba.length; i++) {
+	    rgba[i] = (byte) fill.applyAsInt(i);
+	}
+	return NativeImage.wrap(RustImageLib.fromRgbaData(rgba, width, height));
+    }
+}
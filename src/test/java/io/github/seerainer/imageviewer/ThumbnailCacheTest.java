@@ -0,0 +1,188 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.lang.foreign.ValueLayout;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+@Tag("integration")
+@DisplayName("ThumbnailCache Integration Tests")
+class ThumbnailCacheTest {
+
+    private static Path createImage(final Path dir, final String name, final int width, final int height) {
+	final var path = dir.resolve(name);
+	try (final var image = TestImages.rgba(width, height, i -> i * 5 + i / 7)) {
+	    assertThat(image.save(path.toString())).isTrue();
+	}
+	return path;
+    }
+
+    private static Path packFile(final Path cacheDir) throws IOException {
+	try (final Stream<Path> files = Files.list(cacheDir)) {
+	    return files.filter(file -> file.toString().endsWith(".pack")).findFirst().orElseThrow();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Thumbnails should be built once and found again after reopening")
+    void testPersistence(@TempDir final Path photos, @TempDir final Path cacheDir) {
+	final var path = createImage(photos, "wide.png", 400, 100).toString();
+
+	try (final var cache = new ThumbnailCache(cacheDir, 64)) {
+	    assertThat(cache.find(path)).isNull();
+	    final var built = cache.get(path);
+	    assertThat(built).isNotNull();
+	    assertThat(built.width()).isEqualTo(64);
+	    assertThat(built.height()).isEqualTo(16);
+	    assertThat(built.pixels().isReadOnly()).isTrue();
+	}
+
+	try (final var cache = new ThumbnailCache(cacheDir, 64)) {
+	    final var found = cache.find(path);
+	    assertThat(found).isNotNull();
+	    final var imageData = found.toImageData();
+	    assertThat(imageData.width).isEqualTo(64);
+	    assertThat(imageData.alphaData[0]).isEqualTo(imageData.data[3]);
+	}
+
+	// Another size starts the pack over
+	try (final var cache = new ThumbnailCache(cacheDir, 32)) {
+	    assertThat(cache.find(path)).isNull();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("A changed file should get a new thumbnail, and superseded ones should be compacted away")
+    void testInvalidation(@TempDir final Path photos, @TempDir final Path cacheDir) throws IOException {
+	final var path = createImage(photos, "photo.png", 80, 80);
+
+	try (final var cache = new ThumbnailCache(cacheDir, 32)) {
+	    final var first = cache.get(path.toString());
+	    assertThat(first).isNotNull();
+	    // Earlier thumbnails stay readable while the pack grows
+	    for (var i = 1; i <= 4; i++) {
+		Files.setLastModifiedTime(path, FileTime.fromMillis(1_000_000L * i));
+		assertThat(cache.find(path.toString())).isNull();
+		assertThat(cache.get(path.toString())).isNotNull();
+	    }
+	    assertThat(first.toImageData().width).isEqualTo(32);
+	    assertThat(cache.find(path.toString())).isNotNull();
+	}
+	final var grown = Files.size(packFile(cacheDir));
+
+	try (final var cache = new ThumbnailCache(cacheDir, 32)) {
+	    assertThat(cache.find(path.toString())).isNotNull();
+	}
+	assertThat(Files.size(packFile(cacheDir))).isLessThan(grown / 2);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Compaction should move to a new pack file while old thumbnails are still read")
+    void testCompactionWhileMapped(@TempDir final Path photos, @TempDir final Path cacheDir) throws IOException {
+	final var path = createImage(photos, "photo.png", 80, 80);
+	final ThumbnailCache.Thumbnail held;
+	try (final var cache = new ThumbnailCache(cacheDir, 32)) {
+	    held = cache.get(path.toString());
+	    assertThat(held).isNotNull();
+	    for (var i = 1; i <= 4; i++) {
+		Files.setLastModifiedTime(path, FileTime.fromMillis(1_000_000L * i));
+		assertThat(cache.get(path.toString())).isNotNull();
+	    }
+	}
+	final var before = held.pixels().toArray(ValueLayout.JAVA_BYTE);
+	final var grown = packFile(cacheDir);
+
+	try (final var cache = new ThumbnailCache(cacheDir, 32)) {
+	    assertThat(cache.find(path.toString())).isNotNull();
+	    assertThat(packFile(cacheDir)).isNotEqualTo(grown);
+	    assertThat(held.pixels().toArray(ValueLayout.JAVA_BYTE)).isEqualTo(before);
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("A torn tail should be ignored, not cut off, while old thumbnails are still read")
+    void testTornTailWhileMapped(@TempDir final Path photos, @TempDir final Path cacheDir) throws IOException {
+	final var first = createImage(photos, "a.png", 40, 40).toString();
+	final var second = createImage(photos, "b.png", 40, 40).toString();
+	final ThumbnailCache.Thumbnail held;
+	try (final var cache = new ThumbnailCache(cacheDir, 32)) {
+	    held = cache.get(first);
+	    assertThat(held).isNotNull();
+	}
+	final var before = held.pixels().toArray(ValueLayout.JAVA_BYTE);
+	// Half a record, as a crash while appending leaves it
+	final var pack = packFile(cacheDir);
+	try (final var channel = FileChannel.open(pack, StandardOpenOption.APPEND)) {
+	    final var torn = new byte[2000];
+	    Arrays.fill(torn, (byte) 0x7F);
+	    channel.write(ByteBuffer.wrap(torn));
+	}
+	final var tornSize = Files.size(pack);
+
+	try (final var cache = new ThumbnailCache(cacheDir, 32)) {
+	    assertThat(cache.find(first)).isNotNull();
+	    assertThat(cache.get(second)).isNotNull();
+	    assertThat(held.pixels().toArray(ValueLayout.JAVA_BYTE)).isEqualTo(before);
+	}
+	assertThat(packFile(cacheDir)).isEqualTo(pack);
+	assertThat(Files.size(pack)).isGreaterThanOrEqualTo(tornSize);
+	try (final var cache = new ThumbnailCache(cacheDir, 32)) {
+	    assertThat(cache.find(first)).isNotNull();
+	    assertThat(cache.find(second)).isNotNull();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("A record cut short should be dropped, keeping the ones before it")
+    void testTruncatedRecord(@TempDir final Path photos, @TempDir final Path cacheDir) throws IOException {
+	final var first = createImage(photos, "a.png", 40, 40).toString();
+	final var second = createImage(photos, "b.png", 40, 40).toString();
+	try (final var cache = new ThumbnailCache(cacheDir, 32)) {
+	    assertThat(cache.get(first)).isNotNull();
+	    assertThat(cache.get(second)).isNotNull();
+	}
+	final var pack = packFile(cacheDir);
+	try (final var channel = FileChannel.open(pack, StandardOpenOption.WRITE)) {
+	    channel.truncate(Files.size(pack) - 100);
+	}
+
+	try (final var cache = new ThumbnailCache(cacheDir, 32)) {
+	    assertThat(cache.find(first)).isNotNull();
+	    assertThat(cache.find(second)).isNull();
+	    assertThat(cache.get(second)).isNotNull();
+	}
+	try (final var cache = new ThumbnailCache(cacheDir, 32)) {
+	    assertThat(cache.find(second)).isNotNull();
+	}
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Files that are missing or not images should have no thumbnail")
+    void testUnreadable(@TempDir final Path photos, @TempDir final Path cacheDir) throws IOException {
+	final var text = photos.resolve("notes.png");
+	Files.writeString(text, "not an image");
+	try (final var cache = new ThumbnailCache(cacheDir, 32)) {
+	    assertThat(cache.get(text.toString())).isNull();
+	    assertThat(cache.get(photos.resolve("missing.png").toString())).isNull();
+	}
+    }
+}
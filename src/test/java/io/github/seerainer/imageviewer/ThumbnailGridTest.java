@@ -0,0 +1,51 @@
+package io.github.seerainer.imageviewer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+@Tag("unit")
+@DisplayName("ThumbnailGrid Unit Tests")
+class ThumbnailGridTest {
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("A row should always hold at least one cell")
+    void testColumnsFor() {
+	assertThat(ThumbnailGrid.columnsFor(1000, 176)).isEqualTo(5);
+	assertThat(ThumbnailGrid.columnsFor(176, 176)).isEqualTo(1);
+	assertThat(ThumbnailGrid.columnsFor(100, 176)).isEqualTo(1);
+	assertThat(ThumbnailGrid.columnsFor(0, 176)).isEqualTo(1);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("Rows cut by the edges of the band should be included")
+    void testVisiblePartialRows() {
+	// Rows 2 to 4 of a 4-column grid with 100 pixel rows
+	assertThat(ThumbnailGrid.visible(5000, 4, 100, 250, 200)).isEqualTo(new ThumbnailGrid.Span(8, 20));
+	assertThat(ThumbnailGrid.visible(5000, 4, 100, 200, 100)).isEqualTo(new ThumbnailGrid.Span(8, 12));
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("The range should not depend on how many images follow it")
+    void testVisibleIndependentOfCount() {
+	final var small = ThumbnailGrid.visible(10_000, 6, 200, 40_000, 900);
+	final var large = ThumbnailGrid.visible(1_000_000, 6, 200, 40_000, 900);
+	assertThat(large).isEqualTo(small);
+	assertThat(large.end() - large.first()).isEqualTo(5 * 6);
+    }
+
+    @SuppressWarnings("static-method")
+    @Test
+    @DisplayName("The range should stop at the last image")
+    void testVisiblePastEnd() {
+	assertThat(ThumbnailGrid.visible(10, 4, 100, 0, 1000)).isEqualTo(new ThumbnailGrid.Span(0, 10));
+	assertThat(ThumbnailGrid.visible(10, 4, 100, 5000, 500)).isEqualTo(new ThumbnailGrid.Span(10, 10));
+	assertThat(ThumbnailGrid.visible(0, 4, 100, 0, 500)).isEqualTo(new ThumbnailGrid.Span(0, 0));
+	assertThat(ThumbnailGrid.visible(10, 4, 100, 0, 0)).isEqualTo(new ThumbnailGrid.Span(0, 0));
+    }
+}